@@ -4,12 +4,11 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
-
-import java.util.concurrent.Executor;
 
 /**
- * Configuration for asynchronous processing in AI agents
+ * Configuration for asynchronous processing in AI agents.
+ * Core pool sizes are starting points - the adaptive concurrency limiter resizes them between one
+ * thread and the max pool size.
  */
 @Configuration
 @EnableAsync
@@ -17,8 +16,8 @@ public class AsyncConfig implements AsyncConfigurer {
     
     @Override
     @Bean(name = "aiAgentExecutor")
-    public Executor getAsyncExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    public MeasuredTaskExecutor getAsyncExecutor() {
+        MeasuredTaskExecutor executor = new MeasuredTaskExecutor("aiAgentExecutor");
         executor.setCorePoolSize(5);
         executor.setMaxPoolSize(15);
         executor.setQueueCapacity(200);
@@ -33,8 +32,8 @@ public class AsyncConfig implements AsyncConfigurer {
      * Separate executor for warehouse operations
      */
     @Bean(name = "warehouseExecutor")
-    public Executor warehouseExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    public MeasuredTaskExecutor warehouseExecutor() {
+        MeasuredTaskExecutor executor = new MeasuredTaskExecutor("warehouseExecutor");
         executor.setCorePoolSize(3);
         executor.setMaxPoolSize(8);
         executor.setQueueCapacity(100);
@@ -49,8 +48,8 @@ public class AsyncConfig implements AsyncConfigurer {
      * Executor for notification services
      */
     @Bean(name = "notificationExecutor")
-    public Executor notificationExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    public MeasuredTaskExecutor notificationExecutor() {
+        MeasuredTaskExecutor executor = new MeasuredTaskExecutor("notificationExecutor");
         executor.setCorePoolSize(2);
         executor.setMaxPoolSize(5);
         executor.setQueueCapacity(50);
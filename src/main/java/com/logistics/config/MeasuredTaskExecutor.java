@@ -0,0 +1,81 @@
+package com.logistics.config;
+
+import com.logistics.service.ResizableExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ThreadPoolTaskExecutor that measures queue wait and service time per task so the adaptive
+ * concurrency limiter can size it. The limit is the core pool size - with a bounded queue the pool
+ * only grows past core once the queue is full.
+ */
+public class MeasuredTaskExecutor extends ThreadPoolTaskExecutor implements ResizableExecutor {
+
+    private final String name;
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong totalServiceNanos = new AtomicLong();
+    private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+
+    public MeasuredTaskExecutor(String name) {
+        this.name = name;
+        setTaskDecorator(task -> {
+            long enqueuedAt = System.nanoTime();
+            return () -> {
+                long startedAt = System.nanoTime();
+                totalQueueWaitNanos.addAndGet(startedAt - enqueuedAt);
+                try {
+                    task.run();
+                } finally {
+                    totalServiceNanos.addAndGet(System.nanoTime() - startedAt);
+                    completedTasks.incrementAndGet();
+                }
+            };
+        });
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getConcurrencyLimit() {
+        return getCorePoolSize();
+    }
+
+    @Override
+    public synchronized void setConcurrencyLimit(int limit) {
+        setCorePoolSize(Math.max(1, Math.min(limit, getMaxPoolSize())));
+    }
+
+    @Override
+    public int getMaxConcurrencyLimit() {
+        return getMaxPoolSize();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return getThreadPoolExecutor().getQueue().size();
+    }
+
+    @Override
+    public int getActiveThreads() {
+        return getActiveCount();
+    }
+
+    @Override
+    public long getCompletedTasks() {
+        return completedTasks.get();
+    }
+
+    @Override
+    public long getTotalServiceNanos() {
+        return totalServiceNanos.get();
+    }
+
+    @Override
+    public long getTotalQueueWaitNanos() {
+        return totalQueueWaitNanos.get();
+    }
+}
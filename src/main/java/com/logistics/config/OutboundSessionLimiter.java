@@ -0,0 +1,436 @@
+package com.logistics.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded outbound buffer per WebSocket session, in place of Spring's ConcurrentWebSocketSessionDecorator.
+ *
+ * The broker's outbound threads only queue frames; a pool of sender threads writes them, one sender
+ * at a time per session. A stalled browser tab therefore blocks one sender and never the outbound
+ * channel, which keeps serving every other session. Two limits apply:
+ * - Send time: a write blocked longer than the limit closes the session. The container's blocking
+ *   send timeout is set to the same limit, so the sender is freed too.
+ * - Buffer size: when a session's queue goes over the limit, the overflow policy decides:
+ *   - DROP_OLDEST drops the oldest queued frames.
+ *   - CONFLATE first drops older frames for the same destination and subscription, then the oldest.
+ *   - DISCONNECT closes the session, as Spring does.
+ * Clients of the dashboard and the numbered delta topics notice dropped frames and resync.
+ * Numbered destinations (sequenced-destinations) are never conflated: every delta counts, so a
+ * conflated one would send a merely slow client back for a snapshot each time. Their frames are
+ * only dropped as the oldest once the buffer is over the limit.
+ */
+@Component
+public class OutboundSessionLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundSessionLimiter.class);
+
+    // Tomcat's per-session override of its blocking send timeout, in milliseconds
+    private static final String BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    public enum OverflowPolicy { DROP_OLDEST, CONFLATE, DISCONNECT }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.logistics.websocket.overflow-policy:DISCONNECT}")
+    private OverflowPolicy overflowPolicy;
+
+    // Destinations whose frames carry a sequence number the client checks for gaps
+    @Value("${app.logistics.websocket.sequenced-destinations:/topic/dashboard}")
+    private Set<String> sequencedDestinations;
+
+    // Each blocked write holds one until the send time limit, so allow one per slow session expected at once
+    @Value("${app.logistics.websocket.sender-threads:128}")
+    private int senderThreads;
+
+    private final Map<String, BoundedSession> sessions = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor senders;
+
+    private final AtomicLong sessionsOpened = new AtomicLong();
+    private final AtomicLong sentMessages = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong conflated = new AtomicLong();
+    private final AtomicLong bufferDisconnects = new AtomicLong();
+    private final AtomicLong timeLimitDisconnects = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        senders = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, "WebSocket-Sender-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Threads are started as sessions need them and stop again when idle
+        senders.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("logistics.websocket.sessions", sessions, Map::size)
+                .description("Open WebSocket sessions").register(meterRegistry);
+        Gauge.builder("logistics.websocket.queued.bytes", this, OutboundSessionLimiter::queuedBytes)
+                .description("Bytes queued for WebSocket sessions that are still sending").register(meterRegistry);
+        FunctionCounter.builder("logistics.websocket.dropped", dropped, AtomicLong::get)
+                .description("Outbound WebSocket frames dropped by the overflow policy").register(meterRegistry);
+        FunctionCounter.builder("logistics.websocket.conflated", conflated, AtomicLong::get)
+                .description("Outbound WebSocket frames replaced by a newer one for the same destination").register(meterRegistry);
+        FunctionCounter.builder("logistics.websocket.slow.disconnects", this,
+                        limiter -> limiter.bufferDisconnects.get() + limiter.timeLimitDisconnects.get())
+                .description("WebSocket sessions closed for exceeding the send buffer or time limit").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        senders.shutdownNow();
+    }
+
+    /**
+     * Wrap a newly established session with the limits configured for the broker
+     */
+    public WebSocketSession decorate(WebSocketSession session, int sendTimeLimitMs, int bufferSizeLimit) {
+        if (session instanceof NativeWebSocketSession) {
+            Object nativeSession = ((NativeWebSocketSession) session).getNativeSession();
+            if (nativeSession instanceof javax.websocket.Session) {
+                ((javax.websocket.Session) nativeSession).getUserProperties()
+                        .put(BLOCKING_SEND_TIMEOUT, (long) sendTimeLimitMs);
+            }
+        }
+        BoundedSession bounded = new BoundedSession(session, sendTimeLimitMs, bufferSizeLimit);
+        sessions.put(session.getId(), bounded);
+        sessionsOpened.incrementAndGet();
+        return bounded;
+    }
+
+    /**
+     * Forget a session the client or the transport closed
+     */
+    public void release(WebSocketSession session) {
+        BoundedSession bounded = sessions.remove(session.getId());
+        if (bounded != null) {
+            bounded.closed.set(true);
+            bounded.delegateClosed.set(true);
+            bounded.discardQueue();
+        }
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Sessions, bytes still queued for them, and what the limits dropped or closed
+     */
+    public Map<String, Object> getStats() {
+        long queuedMessages = 0;
+        long queuedBytes = 0;
+        long maxQueuedBytes = 0;
+        int sending = 0;
+        long longestSendMs = 0;
+        long now = System.currentTimeMillis();
+        for (BoundedSession session : sessions.values()) {
+            queuedMessages += session.queue.size();
+            queuedBytes += session.queuedBytes;
+            maxQueuedBytes = Math.max(maxQueuedBytes, session.queuedBytes);
+            long sendStartedAt = session.sendStartedAt;
+            if (sendStartedAt != 0) {
+                sending++;
+                longestSendMs = Math.max(longestSendMs, now - sendStartedAt);
+            }
+        }
+
+        Map<String, Object> disconnects = new LinkedHashMap<>();
+        disconnects.put("bufferLimit", bufferDisconnects.get());
+        disconnects.put("timeLimit", timeLimitDisconnects.get());
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("overflowPolicy", overflowPolicy);
+        stats.put("sequencedDestinations", sequencedDestinations);
+        stats.put("sessions", sessions.size());
+        stats.put("sessionsOpened", sessionsOpened.get());
+        stats.put("queuedMessages", queuedMessages);
+        stats.put("queuedBytes", queuedBytes);
+        stats.put("maxSessionQueuedBytes", maxQueuedBytes);
+        stats.put("sessionsSending", sending);
+        stats.put("longestSendMs", longestSendMs);
+        stats.put("senderThreads", senders.getPoolSize());
+        stats.put("flushesWaiting", senders.getQueue().size());
+        stats.put("sentMessages", sentMessages.get());
+        stats.put("sentBytes", sentBytes.get());
+        stats.put("dropped", dropped.get());
+        stats.put("conflated", conflated.get());
+        stats.put("disconnects", disconnects);
+        return stats;
+    }
+
+    private double queuedBytes() {
+        long total = 0;
+        for (BoundedSession session : sessions.values()) {
+            total += session.queuedBytes;
+        }
+        return total;
+    }
+
+    /**
+     * Destination and subscription of a STOMP MESSAGE frame, or null for any other frame and for
+     * sequenced destinations
+     */
+    private String conflationKey(WebSocketMessage<?> message) {
+        if (!(message instanceof TextMessage)) {
+            return null;
+        }
+        String frame = ((TextMessage) message).getPayload();
+        if (!frame.startsWith("MESSAGE\n")) {
+            return null;
+        }
+        int headersEnd = frame.indexOf("\n\n");
+        String destination = null;
+        String subscription = null;
+        for (String header : frame.substring(0, headersEnd < 0 ? frame.length() : headersEnd).split("\n")) {
+            if (header.startsWith("destination:")) {
+                destination = header.substring("destination:".length());
+            } else if (header.startsWith("subscription:")) {
+                subscription = header.substring("subscription:".length());
+            }
+        }
+        if (destination == null || sequencedDestinations.contains(destination)) {
+            return null;
+        }
+        return destination + '|' + subscription;
+    }
+
+    /**
+     * One session with its outbound queue. Any thread may queue; one sender at a time writes.
+     */
+    private final class BoundedSession extends WebSocketSessionDecorator {
+
+        private final int sendTimeLimitMs;
+        private final int bufferSizeLimit;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean delegateClosed = new AtomicBoolean();
+        private volatile CloseStatus closeStatus = CloseStatus.NORMAL;
+
+        // Guarded by queue
+        private final Deque<Queued> queue = new ArrayDeque<>();
+        private volatile long queuedBytes;
+
+        private volatile long sendStartedAt;
+        private volatile boolean limitExceeded;
+
+        private BoundedSession(WebSocketSession delegate, int sendTimeLimitMs, int bufferSizeLimit) {
+            super(delegate);
+            this.sendTimeLimitMs = sendTimeLimitMs;
+            this.bufferSizeLimit = bufferSizeLimit;
+        }
+
+        /**
+         * Queue the frame for a sender. Never blocks on the connection.
+         */
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) {
+            if (limitExceeded || closed.get()) {
+                return;
+            }
+            checkSendTime();
+            enqueue(new Queued(message, overflowPolicy == OverflowPolicy.CONFLATE ? conflationKey(message) : null));
+            schedule();
+        }
+
+        @Override
+        public void close() {
+            close(CloseStatus.NORMAL);
+        }
+
+        /**
+         * Close on the session's sender once any write in progress has returned. Closing under a
+         * blocked write makes the container spin until that write times out.
+         */
+        @Override
+        public void close(CloseStatus status) {
+            if (closed.compareAndSet(false, true)) {
+                closeStatus = status;
+                sessions.remove(getId());
+                discardQueue();
+                // Otherwise the running flush closes it when it finishes
+                if (scheduled.compareAndSet(false, true)) {
+                    try {
+                        senders.execute(this::flush);
+                    } catch (RuntimeException e) {
+                        // Shutting down
+                        closeDelegate();
+                    }
+                }
+            }
+        }
+
+        private void schedule() {
+            if (!closed.get() && scheduled.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::flush);
+                } catch (RuntimeException e) {
+                    // Shutting down
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        /**
+         * Write everything queued. Runs on one sender at a time per session.
+         */
+        private void flush() {
+            try {
+                Queued next;
+                while (!closed.get() && (next = poll()) != null) {
+                    sendStartedAt = System.currentTimeMillis();
+                    super.sendMessage(next.message);
+                    sendStartedAt = 0;
+                    sentMessages.incrementAndGet();
+                    sentBytes.addAndGet(next.size);
+                }
+            } catch (IOException | RuntimeException e) {
+                long blockedMs = System.currentTimeMillis() - sendStartedAt;
+                if (blockedMs >= sendTimeLimitMs && !limitExceeded) {
+                    // The container's send timeout ended the write
+                    limitExceeded = true;
+                    timeLimitDisconnects.incrementAndGet();
+                    log.warn("Closing slow WebSocket session {}: send blocked for {} ms", getId(), blockedMs);
+                }
+                close(CloseStatus.SESSION_NOT_RELIABLE);
+            } finally {
+                sendStartedAt = 0;
+                scheduled.set(false);
+                if (closed.get()) {
+                    closeDelegate();
+                } else if (queuedBytes > 0) {
+                    // A frame queued while this flush was finishing found it still scheduled
+                    schedule();
+                }
+            }
+        }
+
+        private void closeDelegate() {
+            if (delegateClosed.compareAndSet(false, true)) {
+                try {
+                    getDelegate().close(closeStatus);
+                } catch (IOException | RuntimeException e) {
+                    log.debug("WebSocket session {} did not close cleanly: {}", getId(), e.getMessage());
+                }
+            }
+        }
+
+        private void discardQueue() {
+            synchronized (queue) {
+                queue.clear();
+                queuedBytes = 0;
+            }
+        }
+
+        private void enqueue(Queued message) {
+            synchronized (queue) {
+                if (message.key != null) {
+                    conflate(message.key);
+                }
+                queue.addLast(message);
+                queuedBytes += message.size;
+                if (queuedBytes <= bufferSizeLimit) {
+                    return;
+                }
+                if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                    exceeded(bufferDisconnects, "Send buffer of " + queuedBytes + " bytes over the limit of " + bufferSizeLimit);
+                }
+                // Keep at least the newest frame
+                while (queuedBytes > bufferSizeLimit && queue.size() > 1) {
+                    queuedBytes -= queue.pollFirst().size;
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * Drop queued frames for the same destination and subscription - the new one supersedes them.
+         * Only once the queue is half full, so a session that keeps up receives every frame.
+         */
+        private void conflate(String key) {
+            if (queuedBytes <= bufferSizeLimit / 2) {
+                return;
+            }
+            Iterator<Queued> queued = queue.iterator();
+            while (queued.hasNext()) {
+                Queued candidate = queued.next();
+                if (key.equals(candidate.key)) {
+                    queued.remove();
+                    queuedBytes -= candidate.size;
+                    conflated.incrementAndGet();
+                }
+            }
+        }
+
+        private Queued poll() {
+            synchronized (queue) {
+                Queued next = queue.pollFirst();
+                if (next != null) {
+                    queuedBytes -= next.size;
+                }
+                return next;
+            }
+        }
+
+        private void checkSendTime() {
+            long startedAt = sendStartedAt;
+            if (startedAt != 0 && System.currentTimeMillis() - startedAt > sendTimeLimitMs) {
+                exceeded(timeLimitDisconnects, "Send blocked for more than " + sendTimeLimitMs + " ms");
+            }
+        }
+
+        /**
+         * Mark the session for closing - the sub-protocol handler closes it on this exception
+         */
+        private void exceeded(AtomicLong counter, String reason) {
+            if (!limitExceeded) {
+                limitExceeded = true;
+                counter.incrementAndGet();
+                log.warn("Closing slow WebSocket session {}: {}", getId(), reason);
+            }
+            throw new SessionLimitExceededException(reason, CloseStatus.SESSION_NOT_RELIABLE);
+        }
+    }
+
+    private static final class Queued {
+        private final WebSocketMessage<?> message;
+        private final String key;
+        private final int size;
+
+        private Queued(WebSocketMessage<?> message, String key) {
+            this.message = message;
+            this.key = key;
+            this.size = message.getPayloadLength();
+        }
+    }
+}
@@ -1,18 +1,25 @@
 package com.logistics.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 /**
- * WebSocket configuration for real-time updates
+ * WebSocket configuration for real-time updates. The broker is enabled by {@link WebSocketBrokerConfiguration}.
  */
 @Configuration
-@EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Value("${app.logistics.websocket.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    // Per session; what happens beyond it is app.logistics.websocket.overflow-policy
+    @Value("${app.logistics.websocket.send-buffer-limit-bytes:524288}")
+    private int sendBufferLimitBytes;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // Enable simple broker for topics
@@ -27,4 +34,10 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferLimitBytes);
+    }
 }
\ No newline at end of file
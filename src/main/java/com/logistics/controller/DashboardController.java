@@ -0,0 +1,40 @@
+package com.logistics.controller;
+
+import com.logistics.service.DashboardLiveView;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Snapshots of the live dashboard view. Deltas after the snapshot are pushed to /topic/dashboard.
+ */
+@RestController
+@RequestMapping("/api/dashboard")
+@CrossOrigin(originPatterns = "*")
+@Tag(name = "Dashboard", description = "Live Dashboard API - Snapshot of order counts and status lanes")
+public class DashboardController {
+
+    @Autowired
+    private DashboardLiveView liveView;
+
+    /**
+     * Snapshot for a STOMP client subscribing to /app/dashboard/snapshot - sent to that session only
+     */
+    @SubscribeMapping("/dashboard/snapshot")
+    public Map<String, Object> subscribeSnapshot() {
+        return liveView.snapshot();
+    }
+
+    @GetMapping("/snapshot")
+    @Operation(summary = "Get Dashboard Snapshot",
+            description = "Order counts per status and the newest orders of each status lane, with the sequence " +
+                    "number of the last /topic/dashboard delta included")
+    public ResponseEntity<Map<String, Object>> getSnapshot() {
+        return ResponseEntity.ok(liveView.snapshot());
+    }
+}
@@ -0,0 +1,37 @@
+package com.logistics.controller;
+
+import com.logistics.service.EventStreamService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Server-Sent Events stream of order and shipment events, for clients that cannot use the WebSocket endpoint
+ */
+@RestController
+@RequestMapping("/api/events")
+@CrossOrigin(originPatterns = "*")
+@Tag(name = "Event Stream", description = "Server-Sent Events API - Order and shipment events with Last-Event-ID replay")
+public class EventStreamController {
+
+    @Autowired
+    private EventStreamService eventStream;
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream Events",
+            description = "NEW_ORDER, ORDER_STATUS_CHANGE and SHIPMENT_STATUS_CHANGE events as they happen. A client " +
+                    "reconnecting with Last-Event-ID gets the events it missed first, or a reset event when they are " +
+                    "no longer held.")
+    public SseEmitter stream(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @Parameter(description = "Last-Event-ID for clients that cannot set headers")
+            @RequestParam(value = "lastEventId", required = false) String lastEventIdParam,
+            @Parameter(description = "Only this client's events") @RequestParam(required = false) String clientId,
+            @Parameter(description = "Only this order's events") @RequestParam(required = false) Long orderId) {
+        return eventStream.subscribe(lastEventId != null ? lastEventId : lastEventIdParam, clientId, orderId);
+    }
+}
@@ -1,11 +1,31 @@
 package com.logistics.controller;
 
+import com.logistics.config.OutboundSessionLimiter;
+import com.logistics.service.AdaptiveConcurrencyLimiter;
+import com.logistics.service.AdmissionControlService;
+import com.logistics.service.DashboardLiveView;
+import com.logistics.service.DemandWindowService;
+import com.logistics.service.EventStreamService;
+import com.logistics.service.JobLeaseService;
 import com.logistics.service.PerformanceMonitoringService;
+import com.logistics.service.PipelineLatencyMetrics;
+import com.logistics.service.InventoryLedger;
+import com.logistics.service.InventoryReservationService;
 import com.logistics.service.LogisticsAIAgent;
+import com.logistics.service.NotificationDispatcher;
+import com.logistics.service.OrderDeadlineIndex;
+import com.logistics.service.OrderPipeline;
+import com.logistics.service.OrderWorkQueue;
+import com.logistics.service.OverdueShipmentIndex;
+import com.logistics.service.ProductCatalogService;
+import com.logistics.service.SoftReservationService;
+import com.logistics.service.StatusCountService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -14,7 +34,7 @@ import java.util.HashMap;
  */
 @RestController
 @RequestMapping("/api/metrics")
-@CrossOrigin(origins = "*")
+@CrossOrigin(originPatterns = "*")
 public class MetricsController {
 
     @Autowired
@@ -23,6 +43,71 @@ public class MetricsController {
     @Autowired
     private LogisticsAIAgent aiAgent;
 
+    @Autowired
+    private ProductCatalogService productCatalog;
+
+    @Autowired
+    private OrderPipeline orderPipeline;
+
+    @Autowired
+    private InventoryReservationService inventoryReservations;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private SoftReservationService softReservationService;
+
+    @Autowired
+    private AdmissionControlService admissionControl;
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    private PipelineLatencyMetrics latencyMetrics;
+
+    @Autowired
+    private StatusCountService statusCounts;
+
+    @Autowired
+    private OrderDeadlineIndex deadlineIndex;
+
+    @Autowired
+    private DemandWindowService demandWindows;
+
+    @Autowired
+    private OverdueShipmentIndex overdueShipments;
+
+    @Autowired
+    private JobLeaseService jobLeases;
+
+    @Autowired
+    private OrderWorkQueue workQueue;
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    private DashboardLiveView dashboardLiveView;
+
+    @Autowired
+    private EventStreamService eventStream;
+
+    @Autowired
+    private OutboundSessionLimiter webSocketSessions;
+
+    @Autowired
+    private WebSocketMessageBrokerStats brokerStats;
+
+    private Map<String, Object> getBrokerStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(webSocketSessions.getStats());
+        stats.put("transport", brokerStats.getWebSocketSessionStatsInfo());
+        stats.put("stomp", brokerStats.getStompSubProtocolStatsInfo());
+        stats.put("outboundChannel", brokerStats.getClientOutboundExecutorStatsInfo());
+        return stats;
+    }
+
     /**
      * Get current system metrics - This endpoint is called by the dashboard
      */
@@ -39,6 +124,32 @@ public class MetricsController {
                 metrics.put("aiMetricsError", "Could not retrieve AI metrics: " + e.getMessage());
             }
 
+            // Add product catalog cache statistics
+            metrics.put("catalogCache", productCatalog.getStats());
+
+            // Add per-stage order pipeline statistics
+            metrics.put("pipeline", orderPipeline.getStats());
+
+            // Add per-stage latency percentiles - the interval is since this endpoint's previous read
+            metrics.put("latency", latencyMetrics.getStats("current"));
+
+            // Add inventory reservation batching statistics
+            metrics.put("inventoryReservations", inventoryReservations.getStats());
+            metrics.put("inventoryLedger", inventoryLedger.getStats());
+            metrics.put("softReservations", softReservationService.getStats());
+            metrics.put("admission", admissionControl.getStats());
+            metrics.put("concurrency", concurrencyLimiter.getStats());
+            metrics.put("statusCounts", statusCounts.getStats());
+            metrics.put("orderDeadlines", deadlineIndex.getStats());
+            metrics.put("demand", demandWindows.getStats());
+            metrics.put("overdueShipments", overdueShipments.getStats());
+            metrics.put("jobLeases", jobLeases.getStats());
+            metrics.put("orderQueue", workQueue.getStats());
+            metrics.put("notifications", notificationDispatcher.getStats());
+            metrics.put("dashboard", dashboardLiveView.getStats());
+            metrics.put("eventStream", eventStream.getStats());
+            metrics.put("websocket", getBrokerStats());
+
             // Add system health status
             metrics.put("timestamp", System.currentTimeMillis());
             metrics.put("healthy", true);
@@ -53,6 +164,129 @@ public class MetricsController {
         }
     }
 
+    /**
+     * Get product catalog cache statistics
+     */
+    @GetMapping("/catalog-cache")
+    public ResponseEntity<Map<String, Object>> getCatalogCacheStats() {
+        return ResponseEntity.ok(productCatalog.getStats());
+    }
+
+    /**
+     * Get queue depth and latency statistics for each order pipeline stage
+     */
+    @GetMapping("/pipeline")
+    public ResponseEntity<Map<String, Object>> getPipelineStats() {
+        return ResponseEntity.ok(orderPipeline.getStats());
+    }
+
+    /**
+     * Get order admission decisions and the saturation signals behind them
+     */
+    @GetMapping("/admission")
+    public ResponseEntity<Map<String, Object>> getAdmissionStats() {
+        return ResponseEntity.ok(admissionControl.getStats());
+    }
+
+    /**
+     * Get the adaptive worker limit of each executor and the reason for its recent changes
+     */
+    @GetMapping("/concurrency")
+    public ResponseEntity<Map<String, Object>> getConcurrencyStats() {
+        return ResponseEntity.ok(concurrencyLimiter.getStats());
+    }
+
+    /**
+     * Get real-time notification dispatch - queue depth, dropped and coalesced events, frame sizes and lag
+     */
+    @GetMapping("/notifications")
+    public ResponseEntity<Map<String, Object>> getNotificationStats() {
+        return ResponseEntity.ok(notificationDispatcher.getStats());
+    }
+
+    /**
+     * Get the dashboard live view - delta sequence, snapshots served and orders tracked
+     */
+    @GetMapping("/dashboard")
+    public ResponseEntity<Map<String, Object>> getDashboardStats() {
+        return ResponseEntity.ok(dashboardLiveView.getStats());
+    }
+
+    /**
+     * Get the Server-Sent Events stream - buffered event range, connections, replays and slow-consumer disconnects
+     */
+    @GetMapping("/event-stream")
+    public ResponseEntity<Map<String, Object>> getEventStreamStats() {
+        return ResponseEntity.ok(eventStream.getStats());
+    }
+
+    /**
+     * Get the STOMP broker sessions - bytes queued per session, frames dropped or conflated and slow-consumer disconnects
+     */
+    @GetMapping("/websocket")
+    public ResponseEntity<Map<String, Object>> getWebSocketStats() {
+        return ResponseEntity.ok(getBrokerStats());
+    }
+
+    /**
+     * Get the durable order work queue - waiting, claimed and exhausted work plus this node's workers
+     */
+    @GetMapping("/order-queue")
+    public ResponseEntity<Map<String, Object>> getOrderQueueStats() {
+        return ResponseEntity.ok(workQueue.getStats());
+    }
+
+    /**
+     * Get the scheduled job leases, which node holds each and this node's acquire counts
+     */
+    @GetMapping("/job-leases")
+    public ResponseEntity<Map<String, Object>> getJobLeaseStats() {
+        return ResponseEntity.ok(jobLeases.getStats());
+    }
+
+    /**
+     * Get p50/p90/p99/p999 and max per processing stage, for the interval since this endpoint's last read and cumulatively
+     */
+    @GetMapping("/latency")
+    public ResponseEntity<Map<String, Object>> getLatencyStats() {
+        return ResponseEntity.ok(latencyMetrics.getStats("latency"));
+    }
+
+    /**
+     * Get the in-memory order and shipment counts per status and when they were last reconciled
+     */
+    @GetMapping("/status-counts")
+    public ResponseEntity<Map<String, Object>> getStatusCounts() {
+        return ResponseEntity.ok(statusCounts.getStats());
+    }
+
+    /**
+     * Get per-minute ordered quantities per category and for the busiest SKUs, for the live demand charts
+     */
+    @GetMapping("/demand")
+    public ResponseEntity<Map<String, Object>> getDemand(@RequestParam(defaultValue = "60") int minutes,
+                                                         @RequestParam(defaultValue = "5") int skus) {
+        return ResponseEntity.ok(demandWindows.getDemandSeries(minutes, Math.max(0, skus)));
+    }
+
+    /**
+     * Reconcile the status counts with the database now
+     */
+    @PostMapping("/status-counts/reconcile")
+    public ResponseEntity<Map<String, Object>> reconcileStatusCounts() {
+        statusCounts.reconcile();
+        return ResponseEntity.ok(statusCounts.getStats());
+    }
+
+    /**
+     * Force a reload of the product catalog cache
+     */
+    @PostMapping("/catalog-cache/refresh")
+    public ResponseEntity<Map<String, Object>> refreshCatalogCache() {
+        productCatalog.refresh();
+        return ResponseEntity.ok(productCatalog.getStats());
+    }
+
     /**
      * Get performance recommendations
      */
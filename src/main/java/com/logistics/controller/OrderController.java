@@ -1,10 +1,24 @@
 package com.logistics.controller;
 
 import com.logistics.dto.*;
+import com.logistics.exception.InvalidOrderException;
 import com.logistics.model.*;
 import com.logistics.repository.*;
+import com.logistics.service.AdmissionControlService;
+import com.logistics.service.BatchOrderService;
 import com.logistics.service.LogisticsAIAgent;
+import com.logistics.service.OrderQueryService;
+import com.logistics.service.OrderWorkQueue;
+import com.logistics.service.ProductCatalogService;
 import com.logistics.service.RealtimeNotificationService;
+import com.logistics.service.SoftReservationService;
+import com.logistics.service.DemandWindowService;
+import com.logistics.service.OrderDeadlineIndex;
+import com.logistics.service.OverdueShipmentIndex;
+import com.logistics.service.StatusCountService;
+import com.logistics.util.BatchSubmissionResult;
+import com.logistics.util.CatalogEntry;
+import com.logistics.util.OrderCursor;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -12,19 +26,19 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
 
 /**
  * Enhanced REST Controller for order management operations with WebSocket integration
@@ -52,6 +66,48 @@ public class OrderController {
     @Autowired
     private RealtimeNotificationService notificationService;
 
+    @Autowired
+    private BatchOrderService batchOrderService;
+
+    @Autowired
+    private ProductCatalogService productCatalog;
+
+    @Autowired
+    private AdmissionControlService admissionControl;
+
+    @Autowired
+    private OrderQueryService orderQueryService;
+
+    @Autowired
+    private StatusCountService statusCounts;
+
+    @Autowired
+    private OrderDeadlineIndex deadlineIndex;
+
+    @Autowired
+    private DemandWindowService demandWindows;
+
+    @Autowired
+    private OverdueShipmentIndex overdueShipments;
+
+    @Autowired
+    private OrderWorkQueue workQueue;
+
+    @Autowired
+    private SoftReservationService softReservations;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.logistics.orders.max-batch-size:500}")
+    private int maxBatchSize;
+
+    @Value("${app.logistics.orders.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${app.logistics.orders.max-page-size:200}")
+    private int maxPageSize;
+
     /**
      * Submit a new order for AI-powered processing
      */
@@ -61,8 +117,10 @@ public class OrderController {
     @ApiResponse(responseCode = "200", description = "Order submitted successfully")
     @ApiResponse(responseCode = "400", description = "Invalid order data")
     @ApiResponse(responseCode = "422", description = "Business validation failed")
-    @Transactional
+    @ApiResponse(responseCode = "429", description = "Order intake saturated - retry after the Retry-After delay")
     public ResponseEntity<OrderResponse> submitOrder(@Valid @RequestBody OrderRequest request) {
+        // Refuse before persisting so an overloaded pipeline never leaves orders stranded in RECEIVED
+        admissionControl.admit(1);
         try {
             log.info("Received order submission from client: {}", request.getClientId());
 
@@ -72,30 +130,39 @@ public class OrderController {
 
             // Add and validate items
             for (OrderItemRequest itemRequest : request.getItems()) {
-                Product product = productRepository.findBySku(itemRequest.getSku()).orElse(null);
+                CatalogEntry product = productCatalog.findBySku(itemRequest.getSku()).orElse(null);
                 if (product == null) {
                     return ResponseEntity.badRequest()
                             .body(new OrderResponse(null, "Product not found: " + itemRequest.getSku(),
                                     "REJECTED", null));
                 }
 
-                OrderItem item = new OrderItem(product, itemRequest.getQuantity(), itemRequest.getUnitPrice());
-                order.addItem(item);
+                // Reference only - product metadata comes from the catalog, no select needed
+                OrderItem item = new OrderItem(productRepository.getReferenceById(product.getId()),
+                        itemRequest.getQuantity(), itemRequest.getUnitPrice());
+                order.addItem(item, product.getWeight(), product.getVolume());
             }
 
-            // Save order
-            order = orderRepository.save(order);
+            // Save order and its work item together - commits on its own so the pipeline only ever sees a committed order
+            Order pending = order;
+            order = transactionTemplate.execute(status -> workQueue.enqueue(orderRepository.save(pending)));
+            statusCounts.orderCreated(order.getStatus());
+            deadlineIndex.statusEntered(order.getId(), order.getStatus());
+            demandWindows.orderSubmitted(order);
             log.info("Order saved with ID: {}", order.getId());
 
             // Send real-time notification
             notificationService.sendNewOrderNotification(
                     order.getId(),
+                    order.getClientId(),
                     order.getClientName(),
                     order.getItems().size()
             );
 
-            // Process asynchronously with AI Agent
-            CompletableFuture<String> processingResult = aiAgent.processOrder(order);
+            // Order workers of any node take it from the work queue; without the queue hand it straight to the pipeline
+            if (!workQueue.isEnabled()) {
+                aiAgent.processOrder(order);
+            }
 
             // Return immediate response
             OrderResponse response = new OrderResponse(
@@ -112,7 +179,61 @@ public class OrderController {
             return ResponseEntity.badRequest()
                     .body(new OrderResponse(null, "Error submitting order: " + e.getMessage(),
                             "ERROR", null));
+        } finally {
+            admissionControl.handedOff(1);
+        }
+    }
+
+    /**
+     * Submit a batch of orders (ERP bulk push) for AI-powered processing
+     */
+    @PostMapping("/submit-batch")
+    @Operation(summary = "Submit Order Batch",
+            description = "Submit many B2B logistics orders in one call. Each order is validated and " +
+                    "accepted or rejected individually; rejected orders do not fail the batch.")
+    @ApiResponse(responseCode = "200", description = "Batch processed - see per-order results")
+    @ApiResponse(responseCode = "400", description = "Empty or oversized batch")
+    @ApiResponse(responseCode = "429", description = "Order intake saturated - retry after the Retry-After delay")
+    public ResponseEntity<BatchOrderResponse> submitOrderBatch(@Valid @RequestBody BatchOrderRequest request) {
+        List<OrderRequest> orderRequests = request.getOrders();
+        if (orderRequests.size() > maxBatchSize) {
+            throw new InvalidOrderException("Batch contains " + orderRequests.size() +
+                    " orders - maximum is " + maxBatchSize, "orders", orderRequests.size());
+        }
+
+        // The whole batch is admitted or refused before anything is persisted
+        admissionControl.admit(orderRequests.size());
+        try {
+            return submitAdmittedBatch(orderRequests);
+        } finally {
+            admissionControl.handedOff(orderRequests.size());
+        }
+    }
+
+    /**
+     * Persist an admitted batch and hand the accepted orders to the pipeline
+     */
+    private ResponseEntity<BatchOrderResponse> submitAdmittedBatch(List<OrderRequest> orderRequests) {
+        log.info("Received order batch with {} orders", orderRequests.size());
+
+        // Persist in its own transaction so the AI agents only see committed orders
+        BatchSubmissionResult submission = batchOrderService.persistBatch(orderRequests);
+        List<Order> acceptedOrders = submission.getAcceptedOrders();
+
+        for (Order order : acceptedOrders) {
+            notificationService.sendNewOrderNotification(
+                    order.getId(),
+                    order.getClientId(),
+                    order.getClientName(),
+                    order.getItems().size()
+            );
         }
+
+        if (!acceptedOrders.isEmpty() && !workQueue.isEnabled()) {
+            aiAgent.processOrderBatch(acceptedOrders);
+        }
+
+        return ResponseEntity.ok(new BatchOrderResponse(submission.getResults()));
     }
 
     /**
@@ -127,18 +248,13 @@ public class OrderController {
             description = "Retrieve detailed status and tracking information for a specific order")
     @ApiResponse(responseCode = "200", description = "Order status retrieved successfully")
     @ApiResponse(responseCode = "404", description = "Order not found")
-    @Transactional(readOnly = true)
     public ResponseEntity<OrderStatusResponse> getOrderStatus(
             @Parameter(description = "Order ID", required = true) @PathVariable Long orderId) {
 
         try {
-            Order order = orderRepository.findById(orderId).orElse(null);
-            if (order == null) {
-                return ResponseEntity.notFound().build();
-            }
-
-            OrderStatusResponse response = buildOrderStatusResponse(order);
-            return ResponseEntity.ok(response);
+            return orderQueryService.getOrderStatus(orderId)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
 
         } catch (Exception e) {
             System.err.println(" Error getting order status for order " + orderId + ": " + e.getMessage());
@@ -162,6 +278,7 @@ public class OrderController {
         if (!shipments.isEmpty()) {
             shipments.get(0).setEstimatedDelivery(newEstimatedDelivery);
             shipmentRepository.save(shipments.get(0));
+            overdueShipments.track(shipments.get(0));
         }
 
         String message = "Order #" + orderId + " delayed. New delivery: " + newEstimatedDelivery;
@@ -180,8 +297,16 @@ public class OrderController {
         Order order = orderRepository.findById(orderId).orElse(null);
         if (order == null) return ResponseEntity.notFound().build();
 
-        order.setStatus(OrderStatus.CANCELLED);
-        orderRepository.save(order);
+        OrderStatus oldStatus = order.getStatus();
+        if (oldStatus == OrderStatus.DELIVERED || oldStatus == OrderStatus.CANCELLED) {
+            return ResponseEntity.badRequest().body("Cannot reject order in status: " + oldStatus.getDescription());
+        }
+        if (orderRepository.updateStatus(orderId, oldStatus, OrderStatus.CANCELLED) == 0) {
+            return statusChanged(orderId, oldStatus);
+        }
+        statusCounts.orderTransition(order, oldStatus, OrderStatus.CANCELLED);
+        deadlineIndex.statusEntered(orderId, OrderStatus.CANCELLED);
+        softReservations.releaseForOrder(orderId);
 
         String message = "Order #" + orderId + " rejected";
         if (reason != null) message += ". Reason: " + reason;
@@ -190,23 +315,24 @@ public class OrderController {
         return ResponseEntity.ok(message);
     }
     /**
-     * Get all orders for a specific client
+     * Get a page of orders for a specific client
      */
     @GetMapping("/client/{clientId}")
     @Operation(summary = "Get Client Orders",
-            description = "Retrieve all orders for a specific client, ordered by date descending")
+            description = "Retrieve a client's orders, newest first, one keyset page at a time. " +
+                    "Pass the returned nextCursor to fetch the following page.")
     @ApiResponse(responseCode = "200", description = "Client orders retrieved successfully")
-    @Transactional(readOnly = true)
-    public ResponseEntity<List<OrderStatusResponse>> getClientOrders(
-            @Parameter(description = "Client ID", required = true) @PathVariable String clientId) {
+    @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    public ResponseEntity<OrderPageResponse> getClientOrders(
+            @Parameter(description = "Client ID", required = true) @PathVariable String clientId,
+            @Parameter(description = "Opaque cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size, capped at the configured maximum") @RequestParam(required = false) Integer limit) {
 
-        try {
-            List<Order> orders = orderRepository.findByClientIdOrderByOrderDateDesc(clientId);
-            List<OrderStatusResponse> responses = orders.stream()
-                    .map(this::buildOrderStatusResponse)
-                    .collect(Collectors.toList());
+        OrderCursor after = OrderCursor.decode(cursor);
+        int pageSize = pageSize(limit);
 
-            return ResponseEntity.ok(responses);
+        try {
+            return ResponseEntity.ok(orderQueryService.getClientOrders(clientId, after, pageSize));
 
         } catch (Exception e) {
             System.err.println(" Error getting client orders for " + clientId + ": " + e.getMessage());
@@ -216,25 +342,25 @@ public class OrderController {
     }
 
     /**
-     * Get orders by status
+     * Get a page of orders by status
      */
     @GetMapping("/status/{status}")
     @Operation(summary = "Get Orders by Status",
-            description = "Retrieve all orders with a specific status")
+            description = "Retrieve orders with a specific status, newest first, one keyset page at a time. " +
+                    "Pass the returned nextCursor to fetch the following page.")
     @ApiResponse(responseCode = "200", description = "Orders retrieved successfully")
-    @ApiResponse(responseCode = "400", description = "Invalid status")
-    @Transactional(readOnly = true)
-    public ResponseEntity<List<OrderStatusResponse>> getOrdersByStatus(
-            @Parameter(description = "Order Status", required = true) @PathVariable String status) {
+    @ApiResponse(responseCode = "400", description = "Invalid status or cursor")
+    public ResponseEntity<OrderPageResponse> getOrdersByStatus(
+            @Parameter(description = "Order Status", required = true) @PathVariable String status,
+            @Parameter(description = "Opaque cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size, capped at the configured maximum") @RequestParam(required = false) Integer limit) {
+
+        OrderCursor after = OrderCursor.decode(cursor);
+        int pageSize = pageSize(limit);
 
         try {
             OrderStatus orderStatus = OrderStatus.valueOf(status.toUpperCase());
-            List<Order> orders = orderRepository.findByStatus(orderStatus);
-            List<OrderStatusResponse> responses = orders.stream()
-                    .map(this::buildOrderStatusResponse)
-                    .collect(Collectors.toList());
-
-            return ResponseEntity.ok(responses);
+            return ResponseEntity.ok(orderQueryService.getOrdersByStatus(orderStatus, after, pageSize));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
         } catch (Exception e) {
@@ -270,11 +396,15 @@ public class OrderController {
             }
 
             OrderStatus oldStatus = order.getStatus();
-            order.setStatus(OrderStatus.CANCELLED);
-            orderRepository.save(order);
+            if (orderRepository.updateStatus(orderId, oldStatus, OrderStatus.CANCELLED) == 0) {
+                return statusChanged(orderId, oldStatus);
+            }
+            statusCounts.orderTransition(order, oldStatus, OrderStatus.CANCELLED);
+            deadlineIndex.statusEntered(orderId, OrderStatus.CANCELLED);
+            softReservations.releaseForOrder(orderId);
 
             // Send real-time status update
-            notificationService.sendOrderStatusUpdate(orderId, oldStatus.toString(), "CANCELLED");
+            notificationService.sendOrderStatusUpdate(orderId, order.getClientId(), oldStatus.toString(), "CANCELLED");
 
             System.out.println(" Order cancelled: " + orderId);
 
@@ -283,6 +413,8 @@ public class OrderController {
         } catch (Exception e) {
             System.err.println(" Error cancelling order " + orderId + ": " + e.getMessage());
             e.printStackTrace();
+            // Keep the order and its holds as they were
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error cancelling order: " + e.getMessage());
         }
@@ -315,20 +447,28 @@ public class OrderController {
             }
 
             OrderStatus oldStatus = order.getStatus();
-            order.setStatus(OrderStatus.DELIVERED);
-            orderRepository.save(order);
+            if (orderRepository.updateStatus(orderId, oldStatus, OrderStatus.DELIVERED) == 0) {
+                return statusChanged(orderId, oldStatus);
+            }
+            statusCounts.orderTransition(order, oldStatus, OrderStatus.DELIVERED);
+            deadlineIndex.statusEntered(orderId, OrderStatus.DELIVERED);
 
             // Update shipment if exists
             List<Shipment> shipments = shipmentRepository.findByOrderId(orderId);
             if (!shipments.isEmpty()) {
                 Shipment shipment = shipments.get(0);
+                ShipmentStatus oldShipmentStatus = shipment.getStatus();
+                statusCounts.shipmentTransition(oldShipmentStatus, ShipmentStatus.DELIVERED);
                 shipment.setStatus(ShipmentStatus.DELIVERED);
                 shipment.setActualDelivery(LocalDateTime.now());
                 shipmentRepository.save(shipment);
+                overdueShipments.track(shipment);
+                notificationService.sendShipmentStatusUpdate(shipment.getId(), orderId, order.getClientId(),
+                        oldShipmentStatus.name(), ShipmentStatus.DELIVERED.name());
             }
 
             // Send real-time notifications
-            notificationService.sendOrderStatusUpdate(orderId, oldStatus.toString(), "DELIVERED");
+            notificationService.sendOrderStatusUpdate(orderId, order.getClientId(), oldStatus.toString(), "DELIVERED");
 
             notificationService.sendNotification(order.getClientId(),
                     "Order #" + orderId + " has been delivered successfully. Thank you for your business!");
@@ -350,21 +490,21 @@ public class OrderController {
     }
     
     /**
-     * Get order summary statistics with real-time updates
+     * Get order summary statistics with real-time updates.
+     * Served from the in-memory status counters - no rows are counted.
      */
     @GetMapping("/stats")
     @Operation(summary = "Get Order Statistics",
             description = "Retrieve summary statistics about orders")
-    @Transactional(readOnly = true)
     public ResponseEntity<OrderStatsResponse> getOrderStats() {
         try {
-            long totalOrders = orderRepository.count();
-            long receivedOrders = orderRepository.countByStatus(OrderStatus.RECEIVED);
-            long validatedOrders = orderRepository.countByStatus(OrderStatus.VALIDATED);
-            long fulfilledOrders = orderRepository.countByStatus(OrderStatus.FULFILLED);
-            long inTransitOrders = orderRepository.countByStatus(OrderStatus.IN_TRANSIT);
-            long deliveredOrders = orderRepository.countByStatus(OrderStatus.DELIVERED);
-            long cancelledOrders = orderRepository.countByStatus(OrderStatus.CANCELLED);
+            long totalOrders = statusCounts.getTotalOrders();
+            long receivedOrders = statusCounts.getOrderCount(OrderStatus.RECEIVED);
+            long validatedOrders = statusCounts.getOrderCount(OrderStatus.VALIDATED);
+            long fulfilledOrders = statusCounts.getOrderCount(OrderStatus.FULFILLED);
+            long inTransitOrders = statusCounts.getOrderCount(OrderStatus.IN_TRANSIT);
+            long deliveredOrders = statusCounts.getOrderCount(OrderStatus.DELIVERED);
+            long cancelledOrders = statusCounts.getOrderCount(OrderStatus.CANCELLED);
 
             OrderStatsResponse stats = new OrderStatsResponse(
                     totalOrders, receivedOrders, validatedOrders, fulfilledOrders,
@@ -393,89 +533,20 @@ public class OrderController {
     }
 
     /**
-     * Helper method to build detailed order status response
-     * This method runs within the transaction context of the calling method
+     * The guarded status write found the order in another status - another request or the pipeline moved it first
      */
-    private OrderStatusResponse buildOrderStatusResponse(Order order) {
-        try {
-            OrderStatusResponse response = new OrderStatusResponse(
-                    order.getId(),
-                    order.getStatus().toString(),
-                    order.getClientName(),
-                    order.getOrderDate(),
-                    order.getRequestedDeliveryDate(),
-                    order.getTotalWeight(),
-                    order.getTotalVolume()
-            );
-
-            response.setClientId(order.getClientId());
-            response.setStatusDescription(order.getStatus().getDescription());
-
-            // Safely handle order items with null checks
-            List<OrderItem> items = order.getItems();
-            if (items != null && !items.isEmpty()) {
-                response.setTotalItems(items.size());
-
-                // Add item details with null safety
-                List<OrderItemInfo> itemInfos = items.stream()
-                        .filter(item -> item != null && item.getProduct() != null)
-                        .map(item -> {
-                            try {
-                                return new OrderItemInfo(
-                                        item.getProduct().getSku(),
-                                        item.getProduct().getName(),
-                                        item.getProduct().getCategory(),
-                                        item.getQuantity(),
-                                        item.getUnitPrice(),
-                                        item.getProduct().getWeight(),
-                                        item.getProduct().getVolume(),
-                                        item.getProduct().getLocation()
-                                );
-                            } catch (Exception e) {
-                                System.err.println(" Error creating OrderItemInfo for item " +
-                                        (item != null ? item.getId() : "null") + ": " + e.getMessage());
-                                return null;
-                            }
-                        })
-                        .filter(itemInfo -> itemInfo != null)
-                        .collect(Collectors.toList());
-                response.setItems(itemInfos);
-            } else {
-                response.setTotalItems(0);
-                response.setItems(new ArrayList<>());
-            }
-
-            // Add shipment information if available
-            try {
-                List<Shipment> shipments = shipmentRepository.findByOrderId(order.getId());
-                if (shipments != null && !shipments.isEmpty()) {
-                    Shipment shipment = shipments.get(0); // Assuming one shipment per order
-                    ShipmentInfo shipmentInfo = new ShipmentInfo(
-                            shipment.getId(),
-                            shipment.getTruckId(),
-                            shipment.getDriverId(),
-                            shipment.getStatus().toString(),
-                            shipment.getScheduledPickup(),
-                            shipment.getEstimatedDelivery()
-                    );
-                    shipmentInfo.setActualPickup(shipment.getActualPickup());
-                    shipmentInfo.setActualDelivery(shipment.getActualDelivery());
-                    shipmentInfo.setRequiresSpecialHandling(shipment.getRequiresSpecialHandling());
-                    response.setShipmentInfo(shipmentInfo);
-                    response.setEstimatedDelivery(shipment.getEstimatedDelivery());
-                }
-            } catch (Exception e) {
-                System.err.println(" Error loading shipment info for order " + order.getId() + ": " + e.getMessage());
-                // Continue without shipment info rather than failing
-            }
-
-            return response;
+    private ResponseEntity<String> statusChanged(Long orderId, OrderStatus expected) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("Order #" + orderId + " is no longer " + expected.getDescription() + " - reload and try again");
+    }
 
-        } catch (Exception e) {
-            System.err.println(" Error in buildOrderStatusResponse for order " +
-                    (order != null ? order.getId() : "null") + ": " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("Failed to build order status response", e);
+    /**
+     * Requested page size, defaulted and capped so a listing can never return every order
+     */
+    private int pageSize(Integer limit) {
+        if (limit == null || limit < 1) {
+            return defaultPageSize;
         }
+        return Math.min(limit, maxPageSize);
     }
 }
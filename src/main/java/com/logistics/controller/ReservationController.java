@@ -0,0 +1,73 @@
+package com.logistics.controller;
+
+import com.logistics.dto.ReservationRequest;
+import com.logistics.dto.ReservationResponse;
+import com.logistics.model.Reservation;
+import com.logistics.service.ProductCatalogService;
+import com.logistics.service.SoftReservationService;
+import com.logistics.util.CatalogEntry;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.util.Map;
+
+/**
+ * REST Controller for soft stock reservations held while orders await manual approval
+ */
+@RestController
+@RequestMapping("/api/reservations")
+@Tag(name = "Reservations", description = "Soft Reservations API - Hold, confirm and release stock")
+public class ReservationController {
+
+    @Autowired
+    private SoftReservationService softReservationService;
+
+    @Autowired
+    private ProductCatalogService productCatalog;
+
+    @PostMapping
+    @Operation(summary = "Hold Stock",
+            description = "Hold stock without decrementing it until the hold is confirmed, released or expires")
+    public ResponseEntity<ReservationResponse> hold(@Valid @RequestBody ReservationRequest request) {
+        Reservation reservation = softReservationService.hold(request.getSku(), request.getQuantity(),
+                request.getTtlSeconds(), request.getOrderId());
+        return ResponseEntity.ok(toResponse(reservation));
+    }
+
+    @PostMapping("/{reservationId}/confirm")
+    @Operation(summary = "Confirm Hold", description = "Turn an active hold into a permanent stock decrement")
+    public ResponseEntity<ReservationResponse> confirm(@PathVariable Long reservationId) {
+        return ResponseEntity.ok(toResponse(softReservationService.confirm(reservationId)));
+    }
+
+    @PostMapping("/{reservationId}/release")
+    @Operation(summary = "Release Hold", description = "Return held stock to available-to-promise")
+    public ResponseEntity<ReservationResponse> release(@PathVariable Long reservationId) {
+        return ResponseEntity.ok(toResponse(softReservationService.release(reservationId)));
+    }
+
+    @GetMapping("/{reservationId}")
+    @Operation(summary = "Get Reservation", description = "Current state of a hold")
+    public ResponseEntity<ReservationResponse> getReservation(@PathVariable Long reservationId) {
+        return ResponseEntity.ok(toResponse(softReservationService.getReservation(reservationId)));
+    }
+
+    @GetMapping("/availability/{sku}")
+    @Operation(summary = "Available To Promise", description = "Stock minus active holds for one product")
+    public ResponseEntity<Map<String, Object>> getAvailability(@PathVariable String sku) {
+        return ResponseEntity.ok(softReservationService.getAvailability(sku));
+    }
+
+    private ReservationResponse toResponse(Reservation reservation) {
+        // The product proxy yields its id without a query; name and SKU come from the catalog
+        CatalogEntry product = productCatalog.getById(reservation.getProduct().getId());
+        return new ReservationResponse(reservation.getId(), product.getSku(), product.getName(),
+                reservation.getQuantity(), reservation.getOrderId(), reservation.getStatus().name(),
+                reservation.getStatus().getDescription(), reservation.getCreatedAt(),
+                reservation.getExpiresAt(), reservation.getResolvedAt());
+    }
+}
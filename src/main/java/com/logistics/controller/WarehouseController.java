@@ -4,6 +4,11 @@ import com.logistics.model.*;
 import com.logistics.repository.OrderRepository;
 import com.logistics.repository.ShipmentRepository;
 import com.logistics.service.NotificationService;
+import com.logistics.service.RealtimeNotificationService;
+import com.logistics.service.OrderDeadlineIndex;
+import com.logistics.service.OverdueShipmentIndex;
+import com.logistics.service.SoftReservationService;
+import com.logistics.service.StatusCountService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -12,6 +17,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.springframework.http.HttpStatus;
 import java.util.ArrayList;
 import java.time.LocalDateTime;
@@ -36,6 +42,21 @@ public class WarehouseController {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private RealtimeNotificationService realtimeNotifications;
+
+    @Autowired
+    private StatusCountService statusCounts;
+
+    @Autowired
+    private OrderDeadlineIndex deadlineIndex;
+
+    @Autowired
+    private OverdueShipmentIndex overdueShipments;
+
+    @Autowired
+    private SoftReservationService softReservations;
+
     /**
      * Get all pending shipments awaiting pickup
      */
@@ -90,12 +111,17 @@ public class WarehouseController {
         // Update shipment status
         shipment.setStatus(ShipmentStatus.LOADING);
         shipmentRepository.save(shipment);
+        statusCounts.shipmentTransition(ShipmentStatus.SCHEDULED, ShipmentStatus.LOADING);
+        realtimeNotifications.sendShipmentStatusUpdate(shipment.getId(), shipment.getOrder().getId(),
+                shipment.getOrder().getClientId(), ShipmentStatus.SCHEDULED.name(), ShipmentStatus.LOADING.name());
 
                 // Update order status to LOADING
         Order order = shipment.getOrder();
         if (order != null && order.getStatus() == OrderStatus.READY_FOR_PICKUP) {
             order.setStatus(OrderStatus.LOADING);
             orderRepository.save(order);
+            statusCounts.orderTransition(order, OrderStatus.READY_FOR_PICKUP, OrderStatus.LOADING);
+            deadlineIndex.statusEntered(order.getId(), OrderStatus.LOADING);
             System.out.println("Order status updated to LOADING: " + order.getId());
         }
 
@@ -133,12 +159,17 @@ public class WarehouseController {
         shipment.setStatus(ShipmentStatus.LOADED);
         shipment.setActualPickup(LocalDateTime.now());
         shipmentRepository.save(shipment);
+        statusCounts.shipmentTransition(ShipmentStatus.LOADING, ShipmentStatus.LOADED);
+        realtimeNotifications.sendShipmentStatusUpdate(shipment.getId(), shipment.getOrder().getId(),
+                shipment.getOrder().getClientId(), ShipmentStatus.LOADING.name(), ShipmentStatus.LOADED.name());
 
         // Update order status
         Order order = shipment.getOrder();
         if (order != null && order.getStatus() == OrderStatus.LOADING) {
             order.setStatus(OrderStatus.FULFILLED);
             orderRepository.save(order);
+            statusCounts.orderTransition(order, OrderStatus.LOADING, OrderStatus.FULFILLED);
+            deadlineIndex.statusEntered(order.getId(), OrderStatus.FULFILLED);
             System.out.println(" Order status updated to FULFILLED: " + order.getId());
         }
 
@@ -181,12 +212,18 @@ public class WarehouseController {
         // Update shipment status
         shipment.setStatus(ShipmentStatus.IN_TRANSIT);
         shipmentRepository.save(shipment);
+        statusCounts.shipmentTransition(ShipmentStatus.LOADED, ShipmentStatus.IN_TRANSIT);
+        realtimeNotifications.sendShipmentStatusUpdate(shipment.getId(), shipment.getOrder().getId(),
+                shipment.getOrder().getClientId(), ShipmentStatus.LOADED.name(), ShipmentStatus.IN_TRANSIT.name());
+        overdueShipments.track(shipment);
 
         // FIXED: Update order status and save explicitly
         Order order = shipment.getOrder();
         if (order.getStatus() == OrderStatus.FULFILLED) {
             order.setStatus(OrderStatus.IN_TRANSIT);
             orderRepository.save(order);
+            statusCounts.orderTransition(order, OrderStatus.FULFILLED, OrderStatus.IN_TRANSIT);
+            deadlineIndex.statusEntered(order.getId(), OrderStatus.IN_TRANSIT);
         }
 
         notificationService.sendNotification(order.getClientId(),
@@ -223,11 +260,18 @@ public class WarehouseController {
         shipment.setStatus(ShipmentStatus.DELIVERED);
         shipment.setActualDelivery(LocalDateTime.now());
         shipmentRepository.save(shipment);
+        statusCounts.shipmentTransition(ShipmentStatus.IN_TRANSIT, ShipmentStatus.DELIVERED);
+        realtimeNotifications.sendShipmentStatusUpdate(shipment.getId(), shipment.getOrder().getId(),
+                shipment.getOrder().getClientId(), ShipmentStatus.IN_TRANSIT.name(), ShipmentStatus.DELIVERED.name());
+        overdueShipments.track(shipment);
 
         // FIXED: Update order status and save explicitly
         Order order = shipment.getOrder();
+        OrderStatus oldStatus = order.getStatus();
         order.setStatus(OrderStatus.DELIVERED);
         orderRepository.save(order);
+        statusCounts.orderTransition(order, oldStatus, OrderStatus.DELIVERED);
+        deadlineIndex.statusEntered(order.getId(), OrderStatus.DELIVERED);
 
         notificationService.sendNotification(order.getClientId(),
                 "Your order #" + order.getId() + " has been delivered successfully at " +
@@ -276,6 +320,7 @@ public class WarehouseController {
         }
 
         shipmentRepository.save(shipment);
+        overdueShipments.track(shipment);
 
         Order order = shipment.getOrder();
 
@@ -360,6 +405,7 @@ public class WarehouseController {
                 Shipment shipment = shipments.get(0);
                 shipment.setEstimatedDelivery(newEstimatedDelivery);
                 shipmentRepository.save(shipment);
+                overdueShipments.track(shipment);
             }
 
             String message = "Order #" + orderId + " marked as delayed";
@@ -404,10 +450,20 @@ public class WarehouseController {
                 return ResponseEntity.badRequest()
                         .body("Cannot reject order - already delivered");
             }
+            if (order.getStatus() == OrderStatus.CANCELLED) {
+                return ResponseEntity.badRequest()
+                        .body("Cannot reject order - already cancelled");
+            }
 
+            // Guarded on the status read above, so a concurrent transition is never overwritten or counted twice
             OrderStatus oldStatus = order.getStatus();
-            order.setStatus(OrderStatus.CANCELLED);
-            orderRepository.save(order);
+            if (orderRepository.updateStatus(orderId, oldStatus, OrderStatus.CANCELLED) == 0) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body("Order #" + orderId + " is no longer " + oldStatus.getDescription() + " - reload and try again");
+            }
+            statusCounts.orderTransition(order, oldStatus, OrderStatus.CANCELLED);
+            deadlineIndex.statusEntered(orderId, OrderStatus.CANCELLED);
+            softReservations.releaseForOrder(orderId);
 
             String message = "Order #" + orderId + " has been rejected/cancelled";
             if (reason != null && !reason.trim().isEmpty()) {
@@ -423,6 +479,8 @@ public class WarehouseController {
         } catch (Exception e) {
             System.err.println("Error rejecting order " + orderId + ": " + e.getMessage());
             e.printStackTrace();
+            // Keep the order and its holds as they were
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error rejecting order: " + e.getMessage());
         }
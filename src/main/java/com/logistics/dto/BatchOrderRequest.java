@@ -0,0 +1,34 @@
+// ============= BATCH ORDER REQUEST DTO =============
+package com.logistics.dto;
+
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+/**
+ * DTO for submitting several orders in one request.
+ * Individual orders are validated one by one so that a bad order
+ * is rejected on its own instead of failing the whole batch.
+ */
+public class BatchOrderRequest {
+    
+    @NotEmpty(message = "Batch must contain at least one order")
+    private List<OrderRequest> orders;
+    
+    // Constructors
+    public BatchOrderRequest() {}
+    
+    public BatchOrderRequest(List<OrderRequest> orders) {
+        this.orders = orders;
+    }
+    
+    // Getters and setters
+    public List<OrderRequest> getOrders() { return orders; }
+    public void setOrders(List<OrderRequest> orders) { this.orders = orders; }
+    
+    @Override
+    public String toString() {
+        return "BatchOrderRequest{" +
+                "ordersCount=" + (orders != null ? orders.size() : 0) +
+                '}';
+    }
+}
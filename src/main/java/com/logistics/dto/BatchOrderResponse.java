@@ -0,0 +1,47 @@
+// ============= BATCH ORDER RESPONSE DTO =============
+package com.logistics.dto;
+
+import java.util.List;
+
+/**
+ * DTO for batch order submission responses.
+ * Results are returned in the same order as the submitted orders.
+ */
+public class BatchOrderResponse {
+    private int totalOrders;
+    private int acceptedOrders;
+    private int rejectedOrders;
+    private List<OrderResponse> results;
+    
+    // Constructors
+    public BatchOrderResponse() {}
+    
+    public BatchOrderResponse(List<OrderResponse> results) {
+        this.results = results;
+        this.totalOrders = results.size();
+        this.acceptedOrders = (int) results.stream().filter(r -> r.getOrderId() != null).count();
+        this.rejectedOrders = totalOrders - acceptedOrders;
+    }
+    
+    // Getters and setters
+    public int getTotalOrders() { return totalOrders; }
+    public void setTotalOrders(int totalOrders) { this.totalOrders = totalOrders; }
+    
+    public int getAcceptedOrders() { return acceptedOrders; }
+    public void setAcceptedOrders(int acceptedOrders) { this.acceptedOrders = acceptedOrders; }
+    
+    public int getRejectedOrders() { return rejectedOrders; }
+    public void setRejectedOrders(int rejectedOrders) { this.rejectedOrders = rejectedOrders; }
+    
+    public List<OrderResponse> getResults() { return results; }
+    public void setResults(List<OrderResponse> results) { this.results = results; }
+    
+    @Override
+    public String toString() {
+        return "BatchOrderResponse{" +
+                "totalOrders=" + totalOrders +
+                ", acceptedOrders=" + acceptedOrders +
+                ", rejectedOrders=" + rejectedOrders +
+                '}';
+    }
+}
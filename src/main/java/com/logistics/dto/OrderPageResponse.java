@@ -0,0 +1,37 @@
+// ============= ORDER PAGE RESPONSE DTO =============
+package com.logistics.dto;
+
+import java.util.List;
+
+/**
+ * DTO for one page of a keyset-paginated order listing
+ */
+public class OrderPageResponse {
+    private List<OrderStatusResponse> orders;
+    private int limit;
+    private boolean hasMore;
+    private String nextCursor;
+
+    // Constructors
+    public OrderPageResponse() {}
+
+    public OrderPageResponse(List<OrderStatusResponse> orders, int limit, boolean hasMore, String nextCursor) {
+        this.orders = orders;
+        this.limit = limit;
+        this.hasMore = hasMore;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and setters
+    public List<OrderStatusResponse> getOrders() { return orders; }
+    public void setOrders(List<OrderStatusResponse> orders) { this.orders = orders; }
+
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) { this.limit = limit; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -0,0 +1,55 @@
+// ============= RESERVATION REQUEST DTO =============
+package com.logistics.dto;
+
+import javax.validation.constraints.*;
+
+/**
+ * DTO for placing a soft reservation (hold) on one product
+ */
+public class ReservationRequest {
+    
+    @NotBlank(message = "SKU is required")
+    @Size(max = 50, message = "SKU must not exceed 50 characters")
+    private String sku;
+    
+    @NotNull(message = "Quantity is required")
+    @Min(value = 1, message = "Quantity must be at least 1")
+    @Max(value = 10000, message = "Quantity cannot exceed 10,000")
+    private Integer quantity;
+    
+    // Optional - the configured default TTL applies when absent
+    @Min(value = 1, message = "TTL must be at least 1 second")
+    private Long ttlSeconds;
+    
+    // Optional - the order awaiting approval the stock is held for
+    private Long orderId;
+    
+    // Constructors
+    public ReservationRequest() {}
+    
+    public ReservationRequest(String sku, Integer quantity, Long ttlSeconds, Long orderId) {
+        this.sku = sku;
+        this.quantity = quantity;
+        this.ttlSeconds = ttlSeconds;
+        this.orderId = orderId;
+    }
+    
+    // Getters and setters
+    public String getSku() { return sku; }
+    public void setSku(String sku) { this.sku = sku; }
+    
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+    
+    public Long getTtlSeconds() { return ttlSeconds; }
+    public void setTtlSeconds(Long ttlSeconds) { this.ttlSeconds = ttlSeconds; }
+    
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+    
+    @Override
+    public String toString() {
+        return "ReservationRequest{sku='" + sku + "', quantity=" + quantity + 
+               ", ttlSeconds=" + ttlSeconds + ", orderId=" + orderId + "}";
+    }
+}
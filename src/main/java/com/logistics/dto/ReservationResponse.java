@@ -0,0 +1,69 @@
+// ============= RESERVATION RESPONSE DTO =============
+package com.logistics.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for soft reservation responses
+ */
+public class ReservationResponse {
+    private Long reservationId;
+    private String sku;
+    private String productName;
+    private Integer quantity;
+    private Long orderId;
+    private String status;
+    private String statusDescription;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+    private LocalDateTime resolvedAt;
+    
+    // Constructors
+    public ReservationResponse() {}
+    
+    public ReservationResponse(Long reservationId, String sku, String productName, Integer quantity, Long orderId,
+                               String status, String statusDescription, LocalDateTime createdAt,
+                               LocalDateTime expiresAt, LocalDateTime resolvedAt) {
+        this.reservationId = reservationId;
+        this.sku = sku;
+        this.productName = productName;
+        this.quantity = quantity;
+        this.orderId = orderId;
+        this.status = status;
+        this.statusDescription = statusDescription;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+        this.resolvedAt = resolvedAt;
+    }
+    
+    // Getters and setters
+    public Long getReservationId() { return reservationId; }
+    public void setReservationId(Long reservationId) { this.reservationId = reservationId; }
+    
+    public String getSku() { return sku; }
+    public void setSku(String sku) { this.sku = sku; }
+    
+    public String getProductName() { return productName; }
+    public void setProductName(String productName) { this.productName = productName; }
+    
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+    
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+    
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    
+    public String getStatusDescription() { return statusDescription; }
+    public void setStatusDescription(String statusDescription) { this.statusDescription = statusDescription; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+    
+    public LocalDateTime getResolvedAt() { return resolvedAt; }
+    public void setResolvedAt(LocalDateTime resolvedAt) { this.resolvedAt = resolvedAt; }
+}
@@ -0,0 +1,42 @@
+package com.logistics.event;
+
+import com.logistics.model.OrderStatus;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Event published once a status write of an order has committed
+ */
+public class OrderStatusChangedEvent extends ApplicationEvent {
+    private final Long orderId;
+    private final String clientId;
+    private final OrderStatus previousStatus;
+    private final OrderStatus status;
+
+    /**
+     * @param clientId null when the writer did not load the order
+     */
+    public OrderStatusChangedEvent(Object source, Long orderId, String clientId,
+                                   OrderStatus previousStatus, OrderStatus status) {
+        super(source);
+        this.orderId = orderId;
+        this.clientId = clientId;
+        this.previousStatus = previousStatus;
+        this.status = status;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public OrderStatus getPreviousStatus() {
+        return previousStatus;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+}
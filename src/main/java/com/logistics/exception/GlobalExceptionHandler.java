@@ -2,6 +2,7 @@ package com.logistics.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindException;
@@ -98,6 +99,28 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.CONFLICT);
     }
     
+    /**
+     * Handle order admission refusals - tells the client when to retry
+     */
+    @ExceptionHandler(OrderAdmissionException.class)
+    public ResponseEntity<ErrorResponse> handleOrderAdmission(OrderAdmissionException ex, WebRequest request) {
+        Map<String, Object> details = new HashMap<>();
+        details.put("reason", ex.getReason());
+        details.put("retryAfterSeconds", ex.getRetryAfterSeconds());
+        
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.TOO_MANY_REQUESTS.value(),
+            "Too Many Requests",
+            ex.getMessage(),
+            getPath(request),
+            details
+        );
+        
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(error);
+    }
+    
     /**
      * Handle order processing exceptions
      */
@@ -171,6 +194,49 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
     
+    /**
+     * Handle reservation not found exceptions
+     */
+    @ExceptionHandler(ReservationNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleReservationNotFound(ReservationNotFoundException ex, WebRequest request) {
+        logger.warn("Reservation not found: {}", ex.getMessage());
+        
+        Map<String, Object> details = new HashMap<>();
+        details.put("reservationId", ex.getReservationId());
+        
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.NOT_FOUND.value(),
+            "Reservation Not Found",
+            ex.getMessage(),
+            getPath(request),
+            details
+        );
+        
+        return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
+    }
+    
+    /**
+     * Handle reservation transition exceptions
+     */
+    @ExceptionHandler(ReservationException.class)
+    public ResponseEntity<ErrorResponse> handleReservationException(ReservationException ex, WebRequest request) {
+        logger.warn("Reservation operation failed: {}", ex.getMessage());
+        
+        Map<String, Object> details = new HashMap<>();
+        details.put("reservationId", ex.getReservationId());
+        details.put("currentStatus", ex.getCurrentStatus());
+        
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.CONFLICT.value(),
+            "Reservation Operation Failed",
+            ex.getMessage(),
+            getPath(request),
+            details
+        );
+        
+        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    }
+    
     /**
      * Handle AI agent exceptions
      */
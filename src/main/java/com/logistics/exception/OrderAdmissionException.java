@@ -0,0 +1,22 @@
+package com.logistics.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when order intake is saturated and new orders must be retried later
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class OrderAdmissionException extends RuntimeException {
+    private final String reason;
+    private final int retryAfterSeconds;
+    
+    public OrderAdmissionException(String reason, int retryAfterSeconds, String message) {
+        super(message);
+        this.reason = reason;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    public String getReason() { return reason; }
+    public int getRetryAfterSeconds() { return retryAfterSeconds; }
+}
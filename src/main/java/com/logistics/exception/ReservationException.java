@@ -0,0 +1,23 @@
+package com.logistics.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a reservation cannot make the requested transition
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ReservationException extends RuntimeException {
+    private final Long reservationId;
+    private final String currentStatus;
+    
+    public ReservationException(Long reservationId, String currentStatus, String message) {
+        super(String.format("Reservation operation failed for reservation %d (status: %s): %s", 
+              reservationId, currentStatus, message));
+        this.reservationId = reservationId;
+        this.currentStatus = currentStatus;
+    }
+    
+    public Long getReservationId() { return reservationId; }
+    public String getCurrentStatus() { return currentStatus; }
+}
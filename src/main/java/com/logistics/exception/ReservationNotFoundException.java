@@ -0,0 +1,19 @@
+package com.logistics.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a stock reservation is not found
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class ReservationNotFoundException extends RuntimeException {
+    private final Long reservationId;
+    
+    public ReservationNotFoundException(Long reservationId) {
+        super("Reservation not found with ID: " + reservationId);
+        this.reservationId = reservationId;
+    }
+    
+    public Long getReservationId() { return reservationId; }
+}
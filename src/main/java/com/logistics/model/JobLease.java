@@ -0,0 +1,47 @@
+// ============= JOB LEASE ENTITY =============
+package com.logistics.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Lease on one scheduled job (or one shard of it) shared by all nodes on the same database.
+ * The node that moves leaseUntil forward runs the job for that cycle; the others skip it.
+ */
+@Entity
+@Table(name = "job_leases")
+public class JobLease {
+    @Id
+    @Column(length = 100)
+    private String jobName;
+    
+    // Node that took the lease last
+    @Column(length = 100)
+    private String owner;
+    
+    @Column(nullable = false)
+    private LocalDateTime leaseUntil;
+    
+    private LocalDateTime acquiredAt;
+    
+    // Constructors
+    public JobLease() {}
+    
+    public JobLease(String jobName, LocalDateTime leaseUntil) {
+        this.jobName = jobName;
+        this.leaseUntil = leaseUntil;
+    }
+    
+    // Getters and setters
+    public String getJobName() { return jobName; }
+    public void setJobName(String jobName) { this.jobName = jobName; }
+    
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+    
+    public LocalDateTime getLeaseUntil() { return leaseUntil; }
+    public void setLeaseUntil(LocalDateTime leaseUntil) { this.leaseUntil = leaseUntil; }
+    
+    public LocalDateTime getAcquiredAt() { return acquiredAt; }
+    public void setAcquiredAt(LocalDateTime acquiredAt) { this.acquiredAt = acquiredAt; }
+}
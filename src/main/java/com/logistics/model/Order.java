@@ -13,7 +13,8 @@ import java.util.ArrayList;
 @Table(name = "orders")
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -44,6 +45,10 @@ public class Order {
     @Column(nullable = false)
     private Double totalVolume = 0.0;
     
+    // When the order entered its current status; drives stuck-order deadlines
+    @Column(nullable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
+    private LocalDateTime statusChangedAt;
+    
     // Constructors
     public Order() {}
     
@@ -54,6 +59,7 @@ public class Order {
         this.requestedDeliveryDate = requestedDeliveryDate;
         this.orderDate = LocalDateTime.now();
         this.status = OrderStatus.RECEIVED;
+        this.statusChangedAt = this.orderDate;
         this.totalWeight = 0.0;
         this.totalVolume = 0.0;
     }
@@ -65,6 +71,17 @@ public class Order {
         updateTotals();
     }
     
+    /**
+     * Add an item whose product metadata is already known (e.g. from the catalog cache).
+     * Does not touch the product association, so it can be an uninitialized reference.
+     */
+    public void addItem(OrderItem item, double unitWeight, double unitVolume) {
+        items.add(item);
+        item.setOrder(this);
+        this.totalWeight += item.getQuantity() * unitWeight;
+        this.totalVolume += item.getQuantity() * unitVolume;
+    }
+    
     private void updateTotals() {
         this.totalWeight = items.stream()
             .mapToDouble(item -> item.getQuantity() * item.getProduct().getWeight())
@@ -88,7 +105,15 @@ public class Order {
     public void setOrderDate(LocalDateTime orderDate) { this.orderDate = orderDate; }
     
     public OrderStatus getStatus() { return status; }
-    public void setStatus(OrderStatus status) { this.status = status; }
+    public void setStatus(OrderStatus status) {
+        if (status != this.status) {
+            this.statusChangedAt = LocalDateTime.now();
+        }
+        this.status = status;
+    }
+    
+    public LocalDateTime getStatusChangedAt() { return statusChangedAt; }
+    public void setStatusChangedAt(LocalDateTime statusChangedAt) { this.statusChangedAt = statusChangedAt; }
     
     public List<OrderItem> getItems() { return items; }
     public void setItems(List<OrderItem> items) { this.items = items; }
@@ -2,6 +2,7 @@
 package com.logistics.model;
 
 import javax.persistence.*;
+import java.util.Objects;
 
 /**
  * Product entity representing items available in the warehouse
@@ -34,6 +35,19 @@ public class Product {
     @Column(nullable = false, length = 50)
     private String location; // Warehouse location code
     
+    // Bumped whenever catalog metadata (everything except stock) changes; drives catalog cache refreshes.
+    // Stamps are epoch-millis based so that MAX(catalog_version) rises on every metadata write.
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long catalogVersion = 0L;
+    
+    // Units under soft holds, written only by the guarded JDBC updates in ProductRepositoryCustom
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "INTEGER DEFAULT 0")
+    private Integer heldQuantity = 0;
+    
+    // Metadata as loaded, used to tell catalog edits apart from stock-only updates
+    @Transient
+    private String loadedMetadata;
+    
     // Constructors
     public Product() {}
     
@@ -60,6 +74,37 @@ public class Product {
         return "TILES".equals(category);
     }
     
+    // Lifecycle callbacks
+    @PostLoad
+    void rememberMetadata() {
+        loadedMetadata = metadataFingerprint();
+    }
+    
+    @PrePersist
+    void stampNewProduct() {
+        catalogVersion = nextCatalogVersion();
+        loadedMetadata = metadataFingerprint();
+    }
+    
+    @PreUpdate
+    void stampMetadataChange() {
+        String metadata = metadataFingerprint();
+        if (!metadata.equals(loadedMetadata)) {
+            catalogVersion = nextCatalogVersion();
+            loadedMetadata = metadata;
+        }
+    }
+    
+    private long nextCatalogVersion() {
+        long current = catalogVersion != null ? catalogVersion : 0L;
+        return Math.max(current + 1, System.currentTimeMillis());
+    }
+    
+    private String metadataFingerprint() {
+        return String.join("|", Objects.toString(sku), Objects.toString(name), Objects.toString(category),
+                Objects.toString(weight), Objects.toString(volume), Objects.toString(location));
+    }
+    
     // Getters and setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -84,4 +129,17 @@ public class Product {
     
     public String getLocation() { return location; }
     public void setLocation(String location) { this.location = location; }
+    
+    public Integer getHeldQuantity() { return heldQuantity; }
+    public void setHeldQuantity(Integer heldQuantity) { this.heldQuantity = heldQuantity; }
+    
+    /**
+     * Stock not under soft holds - what orders may take
+     */
+    public int getAvailableToPromise() {
+        return Math.max(stockQuantity - (heldQuantity != null ? heldQuantity : 0), 0);
+    }
+    
+    public Long getCatalogVersion() { return catalogVersion; }
+    public void setCatalogVersion(Long catalogVersion) { this.catalogVersion = catalogVersion; }
 }
\ No newline at end of file
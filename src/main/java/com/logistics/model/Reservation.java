@@ -0,0 +1,83 @@
+// ============= RESERVATION ENTITY =============
+package com.logistics.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Soft reservation holding stock of one product until it is confirmed, released or expires.
+ * Holds count towards Product.heldQuantity, not stockQuantity. A hold placed for an order is handed
+ * over to that order's reservation, which takes the held units instead of free stock.
+ */
+@Entity
+@Table(name = "reservations")
+public class Reservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+    
+    @Column(nullable = false)
+    private Integer quantity;
+    
+    // Order awaiting approval, if the hold was placed for one
+    private Long orderId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ReservationStatus status;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+    
+    private LocalDateTime resolvedAt;
+    
+    // Constructors
+    public Reservation() {}
+    
+    public Reservation(Product product, Integer quantity, Long orderId, LocalDateTime expiresAt) {
+        this.product = product;
+        this.quantity = quantity;
+        this.orderId = orderId;
+        this.status = ReservationStatus.ACTIVE;
+        this.createdAt = LocalDateTime.now();
+        this.expiresAt = expiresAt;
+    }
+    
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Product getProduct() { return product; }
+    public void setProduct(Product product) { this.product = product; }
+    
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+    
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+    
+    public ReservationStatus getStatus() { return status; }
+    public void setStatus(ReservationStatus status) { this.status = status; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+    
+    public LocalDateTime getResolvedAt() { return resolvedAt; }
+    public void setResolvedAt(LocalDateTime resolvedAt) { this.resolvedAt = resolvedAt; }
+    
+    @Override
+    public String toString() {
+        return "Reservation{id=" + id + ", quantity=" + quantity + ", orderId=" + orderId + 
+               ", status=" + status + ", expiresAt=" + expiresAt + "}";
+    }
+}
@@ -0,0 +1,27 @@
+package com.logistics.model;
+
+/**
+ * Lifecycle of a soft stock reservation (hold)
+ */
+public enum ReservationStatus {
+    ACTIVE("Stock held and excluded from available-to-promise"),
+    CONFIRMED("Hold confirmed - stock decremented, or kept for its order until the order reserves it"),
+    CONSUMED("Held stock taken over by its order's reservation"),
+    RELEASED("Hold released before it expired"),
+    EXPIRED("Hold expired without being confirmed");
+
+    private final String description;
+
+    ReservationStatus(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return this.name();
+    }
+}
@@ -0,0 +1,54 @@
+// ============= JOB LEASE REPOSITORY =============
+package com.logistics.repository;
+
+import com.logistics.model.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository interface for JobLease entity operations
+ */
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+    /**
+     * Take an expired lease in one guarded update - at most one node gets 1 back per expiry
+     */
+    @Modifying
+    @Query("UPDATE JobLease l SET l.owner = :owner, l.leaseUntil = :leaseUntil, l.acquiredAt = :now " +
+           "WHERE l.jobName = :jobName AND l.leaseUntil <= :now")
+    int acquireExpired(@Param("jobName") String jobName, @Param("owner") String owner,
+                       @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Create a lease row taken by the given owner. A plain INSERT, so a node creating the same lease
+     * concurrently fails on the primary key instead of overwriting it.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO job_leases (job_name, owner, lease_until, acquired_at) " +
+                   "VALUES (:jobName, :owner, :leaseUntil, :now)", nativeQuery = true)
+    int insertAcquired(@Param("jobName") String jobName, @Param("owner") String owner,
+                       @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Extend a lease this node already holds
+     */
+    @Modifying
+    @Query("UPDATE JobLease l SET l.leaseUntil = :leaseUntil WHERE l.jobName = :jobName AND l.owner = :owner")
+    int renew(@Param("jobName") String jobName, @Param("owner") String owner,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Nodes whose heartbeat lease has not run out
+     */
+    @Query("SELECT COUNT(l) FROM JobLease l WHERE l.jobName LIKE 'node:%' AND l.leaseUntil > :now")
+    long countLiveNodes(@Param("now") LocalDateTime now);
+
+    List<JobLease> findAllByOrderByJobName();
+}
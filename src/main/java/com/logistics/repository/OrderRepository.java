@@ -3,13 +3,18 @@ package com.logistics.repository;
 
 import com.logistics.model.Order;
 import com.logistics.model.OrderStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for Order entity operations
@@ -34,12 +39,124 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      */
     List<Order> findByClientIdOrderByOrderDateDesc(String clientId);
     
+    /**
+     * First page of a client's orders, newest first. Pageable only supplies the limit.
+     */
+    @Query("SELECT o.id AS id, o.clientId AS clientId, o.clientName AS clientName, o.status AS status, " +
+           "o.orderDate AS orderDate, o.requestedDeliveryDate AS requestedDeliveryDate, " +
+           "o.totalWeight AS totalWeight, o.totalVolume AS totalVolume FROM Order o WHERE o.clientId = :clientId " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderSummary> findPageByClientId(@Param("clientId") String clientId, Pageable pageable);
+    
+    /**
+     * Next page of a client's orders: those strictly after the (orderDate, id) keyset position
+     */
+    @Query("SELECT o.id AS id, o.clientId AS clientId, o.clientName AS clientName, o.status AS status, " +
+           "o.orderDate AS orderDate, o.requestedDeliveryDate AS requestedDeliveryDate, " +
+           "o.totalWeight AS totalWeight, o.totalVolume AS totalVolume FROM Order o WHERE o.clientId = :clientId " +
+           "AND (o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderSummary> findPageByClientIdAfter(@Param("clientId") String clientId,
+                                               @Param("orderDate") LocalDateTime orderDate,
+                                               @Param("id") Long id, Pageable pageable);
+    
+    /**
+     * First page of orders in a status, newest first. Pageable only supplies the limit.
+     */
+    @Query("SELECT o.id AS id, o.clientId AS clientId, o.clientName AS clientName, o.status AS status, " +
+           "o.orderDate AS orderDate, o.requestedDeliveryDate AS requestedDeliveryDate, " +
+           "o.totalWeight AS totalWeight, o.totalVolume AS totalVolume FROM Order o WHERE o.status = :status " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderSummary> findPageByStatus(@Param("status") OrderStatus status, Pageable pageable);
+    
+    /**
+     * Next page of orders in a status: those strictly after the (orderDate, id) keyset position
+     */
+    @Query("SELECT o.id AS id, o.clientId AS clientId, o.clientName AS clientName, o.status AS status, " +
+           "o.orderDate AS orderDate, o.requestedDeliveryDate AS requestedDeliveryDate, " +
+           "o.totalWeight AS totalWeight, o.totalVolume AS totalVolume FROM Order o WHERE o.status = :status " +
+           "AND (o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderSummary> findPageByStatusAfter(@Param("status") OrderStatus status,
+                                             @Param("orderDate") LocalDateTime orderDate,
+                                             @Param("id") Long id, Pageable pageable);
+    
+    /**
+     * Summary of a single order, without loading the entity
+     */
+    @Query("SELECT o.id AS id, o.clientId AS clientId, o.clientName AS clientName, o.status AS status, " +
+           "o.orderDate AS orderDate, o.requestedDeliveryDate AS requestedDeliveryDate, " +
+           "o.totalWeight AS totalWeight, o.totalVolume AS totalVolume FROM Order o WHERE o.id = :id")
+    Optional<OrderSummary> findSummaryById(@Param("id") Long id);
+    
+    /**
+     * Item lines with their product details for a set of orders, in one query
+     */
+    @Query("SELECT i.order.id AS orderId, p.sku AS sku, p.name AS productName, p.category AS category, " +
+           "i.quantity AS quantity, i.unitPrice AS unitPrice, p.weight AS weight, p.volume AS volume, " +
+           "p.location AS location FROM OrderItem i JOIN i.product p WHERE i.order.id IN :orderIds ORDER BY i.id")
+    List<OrderItemLine> findItemLinesByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+    
+    /**
+     * Number of orders in every status that has any, in one pass
+     */
+    @Query("SELECT o.status AS status, COUNT(o) AS count FROM Order o GROUP BY o.status")
+    List<StatusCount> countGroupedByStatus();
+    
+    /**
+     * Status and time in status of every order that has not reached a final status
+     */
+    @Query("SELECT o.id AS id, o.status AS status, o.statusChangedAt AS statusChangedAt FROM Order o " +
+           "WHERE o.status NOT IN (com.logistics.model.OrderStatus.DELIVERED, com.logistics.model.OrderStatus.CANCELLED)")
+    List<StatusSince> findOpenOrderStatuses();
+    
+    /**
+     * Orders that have been in a status since before the cutoff
+     */
+    @Query("SELECT o FROM Order o WHERE o.status = :status AND o.statusChangedAt < :cutoff")
+    List<Order> findInStatusSince(@Param("status") OrderStatus status, @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Orders with their items and products, ready to be handed to the pipeline outside a session
+     */
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items i LEFT JOIN FETCH i.product WHERE o.id IN :ids")
+    List<Order> findWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
     /**
      * Count orders by status
      */
     @Query("SELECT COUNT(o) FROM Order o WHERE o.status = :status")
     long countByStatus(@Param("status") OrderStatus status);
     
+    /**
+     * Move an order from the expected status to a new one, without loading or merging the entity graph.
+     * Returns 0 if the order is no longer in the expected status - someone else has moved it on.
+     * Joins the caller's transaction or runs in its own short one.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :status, o.statusChangedAt = CURRENT_TIMESTAMP " +
+           "WHERE o.id = :id AND o.status = :expected")
+    int updateStatus(@Param("id") Long id, @Param("expected") OrderStatus expected,
+                     @Param("status") OrderStatus status);
+    
+    /**
+     * Move several orders from the expected status to the same new status in one statement.
+     * Orders no longer in the expected status are left alone; the row count says how many moved.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :status, o.statusChangedAt = CURRENT_TIMESTAMP " +
+           "WHERE o.id IN :ids AND o.status = :expected")
+    int updateStatusForIds(@Param("ids") Collection<Long> ids, @Param("expected") OrderStatus expected,
+                           @Param("status") OrderStatus status);
+    
+    /**
+     * Which of the given orders are currently in the given status
+     */
+    @Query("SELECT o.id FROM Order o WHERE o.id IN :ids AND o.status = :status")
+    List<Long> findIdsByIdInAndStatus(@Param("ids") Collection<Long> ids, @Param("status") OrderStatus status);
+    
     /**
      * Find orders between specific dates
      */
@@ -71,4 +188,82 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      */
     @Query("SELECT o FROM Order o WHERE o.orderDate >= :sinceDate ORDER BY o.orderDate DESC")
     List<Order> findRecentOrders(@Param("sinceDate") LocalDateTime sinceDate);
+    
+    /**
+     * Quantity of one order line with the order date, SKU and category, for the demand windows
+     */
+    interface DemandLine {
+        LocalDateTime getOrderDate();
+        String getSku();
+        String getCategory();
+        Integer getQuantity();
+    }
+
+    /**
+     * Demand lines of the orders placed since a date, oldest first
+     */
+    @Query("SELECT o.orderDate AS orderDate, p.sku AS sku, p.category AS category, i.quantity AS quantity " +
+           "FROM Order o JOIN o.items i JOIN i.product p WHERE o.orderDate >= :sinceDate ORDER BY o.orderDate")
+    List<DemandLine> findDemandLinesSince(@Param("sinceDate") LocalDateTime sinceDate);
+
+    /**
+     * Quantity ordered in one category
+     */
+    interface CategoryDemand {
+        String getCategory();
+        Long getQuantity();
+    }
+
+    /**
+     * Quantity ordered per category since a date, summed in the database over the order date index
+     */
+    @Query("SELECT p.category AS category, SUM(i.quantity) AS quantity " +
+           "FROM Order o JOIN o.items i JOIN i.product p WHERE o.orderDate >= :sinceDate GROUP BY p.category")
+    List<CategoryDemand> sumDemandByCategorySince(@Param("sinceDate") LocalDateTime sinceDate);
+
+    /**
+     * Projection of the order columns shown in status responses
+     */
+    interface OrderSummary {
+        Long getId();
+        String getClientId();
+        String getClientName();
+        OrderStatus getStatus();
+        LocalDateTime getOrderDate();
+        LocalDateTime getRequestedDeliveryDate();
+        Double getTotalWeight();
+        Double getTotalVolume();
+    }
+    
+    /**
+     * Projection of an order item joined with its product
+     */
+    interface OrderItemLine {
+        Long getOrderId();
+        String getSku();
+        String getProductName();
+        String getCategory();
+        Integer getQuantity();
+        Double getUnitPrice();
+        Double getWeight();
+        Double getVolume();
+        String getLocation();
+    }
+    
+    /**
+     * Projection of an order's current status and when it was entered
+     */
+    interface StatusSince {
+        Long getId();
+        OrderStatus getStatus();
+        LocalDateTime getStatusChangedAt();
+    }
+    
+    /**
+     * Projection of one row of {@link #countGroupedByStatus()}
+     */
+    interface StatusCount {
+        OrderStatus getStatus();
+        Long getCount();
+    }
 }
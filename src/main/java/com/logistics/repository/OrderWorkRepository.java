@@ -0,0 +1,194 @@
+package com.logistics.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC access to the order_work queue table. Every write must run inside a transaction.
+ *
+ * A row is claimable once its available_at has passed, its attempts are below the limit and it has
+ * no live claim. Claiming sets a fresh claim token on the rows, so a worker reads back exactly the
+ * rows its own guarded UPDATE took.
+ */
+@Repository
+public class OrderWorkRepository {
+
+    private static final String CLAIMABLE =
+            "available_at <= :now AND attempts < :maxAttempts AND (claimed_until IS NULL OR claimed_until < :now)";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO order_work (order_id, enqueued_at, available_at, attempts) VALUES (?, ?, ?, 0)";
+
+    private static final String FIND_CLAIMABLE_SQL =
+            "SELECT order_id FROM order_work WHERE " + CLAIMABLE + " ORDER BY available_at LIMIT :limit";
+
+    private static final String CLAIM_SQL =
+            "UPDATE order_work SET claim_token = :token, claimed_by = :owner, claimed_until = :claimedUntil, " +
+            "attempts = attempts + 1 WHERE order_id IN (:orderIds) AND " + CLAIMABLE;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /**
+     * Whether the database can skip rows other transactions hold locks on
+     */
+    public boolean supportsSkipLocked() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equalsIgnoreCase(product);
+    }
+
+    public void enqueue(Collection<Long> orderIds, LocalDateTime now) {
+        List<Object[]> arguments = new ArrayList<>(orderIds.size());
+        for (Long orderId : orderIds) {
+            arguments.add(new Object[]{orderId, now, now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, arguments);
+    }
+
+    /**
+     * Oldest claimable work. With skipLocked the rows are also locked, passing over rows other
+     * workers are claiming right now.
+     */
+    public List<Long> findClaimable(LocalDateTime now, int maxAttempts, int limit, boolean skipLocked) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("now", now)
+                .addValue("maxAttempts", maxAttempts)
+                .addValue("limit", limit);
+        String sql = skipLocked ? FIND_CLAIMABLE_SQL + " FOR UPDATE SKIP LOCKED" : FIND_CLAIMABLE_SQL;
+        return namedJdbcTemplate.queryForList(sql, parameters, Long.class);
+    }
+
+    /**
+     * Claim those of the given rows that are still claimable - the condition is checked again under
+     * the row locks, so a row claimed concurrently elsewhere is left out
+     */
+    public int claim(Collection<Long> orderIds, String token, String owner, LocalDateTime now,
+                     LocalDateTime claimedUntil, int maxAttempts) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("orderIds", orderIds)
+                .addValue("token", token)
+                .addValue("owner", owner)
+                .addValue("now", now)
+                .addValue("claimedUntil", claimedUntil)
+                .addValue("maxAttempts", maxAttempts);
+        return namedJdbcTemplate.update(CLAIM_SQL, parameters);
+    }
+
+    /**
+     * Extend live claims while their work is still running. Rows acknowledged or claimed by another
+     * token meanwhile are left alone.
+     */
+    public int renew(Collection<String> tokens, LocalDateTime claimedUntil) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("tokens", tokens)
+                .addValue("claimedUntil", claimedUntil);
+        return namedJdbcTemplate.update(
+                "UPDATE order_work SET claimed_until = :claimedUntil WHERE claim_token IN (:tokens)", parameters);
+    }
+
+    public List<Long> findClaimed(String token) {
+        return jdbcTemplate.queryForList("SELECT order_id FROM order_work WHERE claim_token = ?", Long.class, token);
+    }
+
+    /**
+     * Remove processed work, as long as the claim has not been taken over since
+     */
+    public int ack(Collection<Long> orderIds, String token) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("orderIds", orderIds)
+                .addValue("token", token);
+        return namedJdbcTemplate.update(
+                "DELETE FROM order_work WHERE order_id IN (:orderIds) AND claim_token = :token", parameters);
+    }
+
+    /**
+     * Give claimed work back for another attempt from the given time
+     */
+    public int release(Collection<Long> orderIds, String token, LocalDateTime availableAt, String error) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("orderIds", orderIds)
+                .addValue("token", token)
+                .addValue("availableAt", availableAt)
+                .addValue("error", error);
+        return namedJdbcTemplate.update("UPDATE order_work SET claim_token = NULL, claimed_by = NULL, " +
+                "claimed_until = NULL, available_at = :availableAt, last_error = :error " +
+                "WHERE order_id IN (:orderIds) AND claim_token = :token", parameters);
+    }
+
+    /**
+     * Drop every claim the given owner holds - used by a restarted node that kept its id
+     */
+    public int releaseClaimsOf(String owner) {
+        return jdbcTemplate.update("UPDATE order_work SET claim_token = NULL, claimed_by = NULL, " +
+                "claimed_until = NULL WHERE claimed_by = ?", owner);
+    }
+
+    /**
+     * Work claimable right now and when the oldest of it became available - what the workers are behind by
+     */
+    public Backlog findBacklog(LocalDateTime now, int maxAttempts) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("now", now)
+                .addValue("maxAttempts", maxAttempts);
+        return namedJdbcTemplate.queryForObject("SELECT COUNT(*), MIN(available_at) FROM order_work WHERE " + CLAIMABLE,
+                parameters, (rs, rowNum) -> new Backlog(rs.getLong(1), rs.getObject(2, LocalDateTime.class)));
+    }
+
+    /**
+     * Queue size split into waiting, claimed and exhausted (no attempts left) work
+     */
+    public Map<String, Object> countByState(LocalDateTime now, int maxAttempts) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*), " +
+                        "COALESCE(SUM(CASE WHEN claimed_until >= ? THEN 1 ELSE 0 END), 0), " +
+                        "COALESCE(SUM(CASE WHEN attempts >= ? AND (claimed_until IS NULL OR claimed_until < ?) " +
+                        "THEN 1 ELSE 0 END), 0), MIN(enqueued_at) FROM order_work",
+                (rs, rowNum) -> {
+                    Map<String, Object> counts = new LinkedHashMap<>();
+                    long total = rs.getLong(1);
+                    long claimed = rs.getLong(2);
+                    long exhausted = rs.getLong(3);
+                    counts.put("total", total);
+                    counts.put("waiting", total - claimed - exhausted);
+                    counts.put("claimed", claimed);
+                    counts.put("exhausted", exhausted);
+                    counts.put("oldestEnqueuedAt", rs.getObject(4, LocalDateTime.class));
+                    return counts;
+                }, now, maxAttempts, now);
+    }
+
+    /**
+     * Claimable work count, with the available_at of its oldest row (null when there is none)
+     */
+    public static final class Backlog {
+        private final long depth;
+        private final LocalDateTime oldestAvailableAt;
+
+        public Backlog(long depth, LocalDateTime oldestAvailableAt) {
+            this.depth = depth;
+            this.oldestAvailableAt = oldestAvailableAt;
+        }
+
+        public long getDepth() {
+            return depth;
+        }
+
+        public LocalDateTime getOldestAvailableAt() {
+            return oldestAvailableAt;
+        }
+    }
+}
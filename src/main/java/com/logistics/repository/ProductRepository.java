@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,13 +15,18 @@ import java.util.Optional;
  * Repository interface for Product entity operations
  */
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
     
     /**
      * Find product by SKU
      */
     Optional<Product> findBySku(String sku);
     
+    /**
+     * Find all products for a set of SKUs in a single IN query
+     */
+    List<Product> findBySkuIn(Collection<String> skus);
+    
     /**
      * Find products by category
      */
@@ -30,6 +36,13 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      * Find products with low stock (less than specified quantity)
      */
     List<Product> findByStockQuantityLessThan(Integer quantity);
+
+    /**
+     * Products with low stock in one id shard (id MOD shards = shard) - shard 0 of 1 is all of them
+     */
+    @Query("SELECT p FROM Product p WHERE p.stockQuantity < :quantity AND MOD(p.id, :shards) = :shard")
+    List<Product> findLowStockInShard(@Param("quantity") Integer quantity, @Param("shard") int shard,
+                                      @Param("shards") int shards);
     
     /**
      * Find products by warehouse location
@@ -67,9 +80,30 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE p.stockQuantity >= :requiredQuantity")
     List<Product> findAvailableProducts(@Param("requiredQuantity") Integer requiredQuantity);
     
+    /**
+     * Highest catalog version - rises whenever any product's metadata is updated
+     */
+    @Query("SELECT COALESCE(MAX(p.catalogVersion), 0) FROM Product p")
+    long maxCatalogVersion();
+    
+    /**
+     * Current stock and held levels only, without loading catalog metadata
+     */
+    @Query("SELECT p.id AS id, p.stockQuantity AS stockQuantity, p.heldQuantity AS heldQuantity FROM Product p")
+    List<StockLevel> findStockLevels();
+    
     /**
      * Count products by category
      */
     @Query("SELECT COUNT(p) FROM Product p WHERE p.category = :category")
     long countByCategory(@Param("category") String category);
-}
\ No newline at end of file
+    
+    /**
+     * Projection of a product's mutable stock figures
+     */
+    interface StockLevel {
+        Long getId();
+        Integer getStockQuantity();
+        Integer getHeldQuantity();
+    }
+}
@@ -0,0 +1,49 @@
+package com.logistics.repository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Product operations that need plain JDBC rather than derived queries
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * Atomically decrement stock for several products in one JDBC batch.
+     * Each row is only updated if its stock outside soft holds still covers the requested quantity, so
+     * concurrent reservations can never oversell or take held stock. Rows are updated in the iteration
+     * order of the map - pass them sorted by SKU so concurrent multi-line orders always lock rows in the same order.
+     *
+     * @return ids of the products whose decrement was refused for lack of stock
+     */
+    default List<Long> decrementStockIfAvailable(Map<Long, Integer> quantitiesByProductId) {
+        return decrementStockIfAvailable(quantitiesByProductId, Map.of());
+    }
+
+    /**
+     * Same as {@link #decrementStockIfAvailable(Map)}, but part of each quantity comes out of soft holds
+     * handed over to the caller: those units are taken from held_quantity, and only the rest has to be
+     * free. Products missing from heldByProductId take nothing from holds.
+     *
+     * @return ids of the products whose decrement was refused for lack of stock
+     */
+    List<Long> decrementStockIfAvailable(Map<Long, Integer> quantitiesByProductId, Map<Long, Integer> heldByProductId);
+
+    /**
+     * Put stock of one product under a soft hold if enough of it is not yet held
+     *
+     * @return false if the stock outside existing holds is short
+     */
+    boolean holdIfAvailable(Long productId, int quantity);
+
+    /**
+     * Add signed deltas to the held quantities (negative for released and expired holds) in one JDBC batch
+     */
+    void applyHeldDeltas(Map<Long, Integer> deltasByProductId);
+
+    /**
+     * Add signed stock deltas (negative for reservations, positive for releases and restocks) in one
+     * JDBC batch. Relative updates, so concurrent writers are never overwritten.
+     */
+    void applyStockDeltas(Map<Long, Integer> deltasByProductId);
+}
@@ -0,0 +1,81 @@
+package com.logistics.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC implementation of {@link ProductRepositoryCustom}, picked up by Spring Data for ProductRepository
+ */
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    private static final String DECREMENT_IF_AVAILABLE_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ?, held_quantity = held_quantity - ? " +
+            "WHERE id = ? AND stock_quantity - held_quantity >= ? AND held_quantity >= ?";
+
+    private static final String HOLD_IF_AVAILABLE_SQL =
+            "UPDATE products SET held_quantity = held_quantity + ? WHERE id = ? AND stock_quantity - held_quantity >= ?";
+
+    private static final String APPLY_HELD_DELTA_SQL =
+            "UPDATE products SET held_quantity = held_quantity + ? WHERE id = ?";
+
+    private static final String APPLY_DELTA_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity + ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> decrementStockIfAvailable(Map<Long, Integer> quantitiesByProductId,
+                                                Map<Long, Integer> heldByProductId) {
+        List<Long> productIds = new ArrayList<>(quantitiesByProductId.size());
+        List<Object[]> arguments = new ArrayList<>(quantitiesByProductId.size());
+        quantitiesByProductId.forEach((productId, quantity) -> {
+            int held = Math.min(heldByProductId.getOrDefault(productId, 0), quantity);
+            productIds.add(productId);
+            arguments.add(new Object[]{quantity, held, productId, quantity - held, held});
+        });
+
+        List<Long> refused = new ArrayList<>();
+        if (arguments.isEmpty()) {
+            return refused;
+        }
+
+        int[] updateCounts = jdbcTemplate.batchUpdate(DECREMENT_IF_AVAILABLE_SQL, arguments);
+        for (int i = 0; i < updateCounts.length; i++) {
+            // Only an explicit zero is a refusal - Statement.SUCCESS_NO_INFO counts as applied
+            if (updateCounts[i] == 0) {
+                refused.add(productIds.get(i));
+            }
+        }
+        return refused;
+    }
+
+    @Override
+    public boolean holdIfAvailable(Long productId, int quantity) {
+        return jdbcTemplate.update(HOLD_IF_AVAILABLE_SQL, quantity, productId, quantity) > 0;
+    }
+
+    @Override
+    public void applyHeldDeltas(Map<Long, Integer> deltasByProductId) {
+        applyDeltas(APPLY_HELD_DELTA_SQL, deltasByProductId);
+    }
+
+    @Override
+    public void applyStockDeltas(Map<Long, Integer> deltasByProductId) {
+        applyDeltas(APPLY_DELTA_SQL, deltasByProductId);
+    }
+
+    private void applyDeltas(String sql, Map<Long, Integer> deltasByProductId) {
+        if (deltasByProductId.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> arguments = new ArrayList<>(deltasByProductId.size());
+        deltasByProductId.forEach((productId, delta) -> arguments.add(new Object[]{delta, productId}));
+        jdbcTemplate.batchUpdate(sql, arguments);
+    }
+}
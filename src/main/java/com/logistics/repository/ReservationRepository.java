@@ -0,0 +1,82 @@
+// ============= RESERVATION REPOSITORY =============
+package com.logistics.repository;
+
+import com.logistics.model.Reservation;
+import com.logistics.model.ReservationStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for Reservation entity operations
+ */
+@Repository
+public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+
+    /**
+     * Holds that are still active, without loading the entities - used once on startup
+     */
+    @Query("SELECT r.id AS id, r.orderId AS orderId, r.product.id AS productId, r.quantity AS quantity, " +
+           "r.expiresAt AS expiresAt " +
+           "FROM Reservation r WHERE r.status = com.logistics.model.ReservationStatus.ACTIVE")
+    List<ActiveHold> findActiveHolds();
+
+    /**
+     * Resolve active holds in one statement. Holds that were already resolved are left alone.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Reservation r SET r.status = :status, r.resolvedAt = :resolvedAt " +
+           "WHERE r.id IN :ids AND r.status = com.logistics.model.ReservationStatus.ACTIVE")
+    int resolveActive(@Param("ids") Collection<Long> ids, @Param("status") ReservationStatus status,
+                      @Param("resolvedAt") LocalDateTime resolvedAt);
+
+    /**
+     * Resolve holds that are active or confirmed and kept for their order - used when the order
+     * takes its held stock over or goes away
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Reservation r SET r.status = :status, r.resolvedAt = :resolvedAt " +
+           "WHERE r.id IN :ids AND r.status IN (com.logistics.model.ReservationStatus.ACTIVE, " +
+           "com.logistics.model.ReservationStatus.CONFIRMED)")
+    int resolveHeld(@Param("ids") Collection<Long> ids, @Param("status") ReservationStatus status,
+                    @Param("resolvedAt") LocalDateTime resolvedAt);
+
+    /**
+     * Holds still counting towards the orders' products - active, or confirmed and kept for the order
+     */
+    @Query("SELECT r.id AS id, r.orderId AS orderId, r.product.id AS productId, r.quantity AS quantity " +
+           "FROM Reservation r WHERE r.orderId IN :orderIds " +
+           "AND r.status IN (com.logistics.model.ReservationStatus.ACTIVE, " +
+           "com.logistics.model.ReservationStatus.CONFIRMED)")
+    List<OrderHold> findHeldForOrders(@Param("orderIds") Collection<Long> orderIds);
+
+    /**
+     * Projection of an active hold
+     */
+    interface ActiveHold {
+        Long getId();
+        Long getOrderId();
+        Long getProductId();
+        Integer getQuantity();
+        LocalDateTime getExpiresAt();
+    }
+
+    /**
+     * Projection of a hold placed for an order
+     */
+    interface OrderHold {
+        Long getId();
+        Long getOrderId();
+        Long getProductId();
+        Integer getQuantity();
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -38,6 +39,16 @@ public interface ShipmentRepository extends JpaRepository<Shipment, Long> {
     @Query("SELECT s FROM Shipment s WHERE s.order.id = :orderId")
     List<Shipment> findByOrderId(@Param("orderId") Long orderId);
 
+    /**
+     * Shipment details for a set of orders in one query, oldest shipment first
+     */
+    @Query("SELECT s.order.id AS orderId, s.id AS id, s.truckId AS truckId, s.driverId AS driverId, " +
+           "s.status AS status, s.scheduledPickup AS scheduledPickup, s.actualPickup AS actualPickup, " +
+           "s.estimatedDelivery AS estimatedDelivery, s.actualDelivery AS actualDelivery, " +
+           "s.requiresSpecialHandling AS requiresSpecialHandling " +
+           "FROM Shipment s WHERE s.order.id IN :orderIds ORDER BY s.id")
+    List<ShipmentSummary> findSummariesByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
     /**
      * Find overdue shipments (scheduled pickup time passed but not picked up)
      */
@@ -79,6 +90,26 @@ public interface ShipmentRepository extends JpaRepository<Shipment, Long> {
     @Query("SELECT s FROM Shipment s WHERE s.status = 'IN_TRANSIT'")
     List<Shipment> findShipmentsInTransit();
 
+    /**
+     * Shipments in transit in one id shard (id MOD shards = shard) - shard 0 of 1 is all of them
+     */
+    @Query("SELECT s FROM Shipment s WHERE s.status = 'IN_TRANSIT' AND MOD(s.id, :shards) = :shard")
+    List<Shipment> findShipmentsInTransitInShard(@Param("shard") int shard, @Param("shards") int shards);
+
+    /**
+     * Shipments in transit whose estimated delivery has passed - served by the (status, estimated_delivery) index
+     */
+    @Query("SELECT s FROM Shipment s WHERE s.status = 'IN_TRANSIT' " +
+           "AND s.estimatedDelivery < :now ORDER BY s.estimatedDelivery")
+    List<Shipment> findOverdueInTransit(@Param("now") LocalDateTime now);
+
+    /**
+     * Estimated delivery of every shipment in transit, for the overdue shipment index
+     */
+    @Query("SELECT s.id AS id, s.estimatedDelivery AS estimatedDelivery FROM Shipment s " +
+           "WHERE s.status = 'IN_TRANSIT' ORDER BY s.estimatedDelivery")
+    List<DeliveryDeadline> findInTransitDeadlines();
+
     /**
      * Find shipments by client ID
      */
@@ -92,9 +123,47 @@ public interface ShipmentRepository extends JpaRepository<Shipment, Long> {
     List<Shipment> findDeliveredBetweenDates(@Param("startDate") LocalDateTime startDate,
                                              @Param("endDate") LocalDateTime endDate);
 
+    /**
+     * Number of shipments in every status that has any, in one pass
+     */
+    @Query("SELECT s.status AS status, COUNT(s) AS count FROM Shipment s GROUP BY s.status")
+    List<StatusCount> countGroupedByStatus();
+
     /**
      * Count shipments by status
      */
     @Query("SELECT COUNT(s) FROM Shipment s WHERE s.status = :status")
     long countByStatus(@Param("status") ShipmentStatus status);
-}
\ No newline at end of file
+
+    /**
+     * Projection of the shipment columns shown in order status responses
+     */
+    interface ShipmentSummary {
+        Long getOrderId();
+        Long getId();
+        String getTruckId();
+        String getDriverId();
+        ShipmentStatus getStatus();
+        LocalDateTime getScheduledPickup();
+        LocalDateTime getActualPickup();
+        LocalDateTime getEstimatedDelivery();
+        LocalDateTime getActualDelivery();
+        Boolean getRequiresSpecialHandling();
+    }
+
+    /**
+     * Projection of one row of {@link #findInTransitDeadlines()}
+     */
+    interface DeliveryDeadline {
+        Long getId();
+        LocalDateTime getEstimatedDelivery();
+    }
+
+    /**
+     * Projection of one row of {@link #countGroupedByStatus()}
+     */
+    interface StatusCount {
+        ShipmentStatus getStatus();
+        Long getCount();
+    }
+}
@@ -7,9 +7,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -33,17 +35,41 @@ public class AIAutomationService {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private StatusCountService statusCounts;
+
     private final Random random = new Random();
 
+    @Autowired
+    private OrderDeadlineIndex deadlineIndex;
+
+    @Autowired
+    private DemandWindowService demandWindows;
+
+    @Autowired
+    private OverdueShipmentIndex overdueShipments;
+
+    @Autowired
+    private JobLeaseService jobLeases;
+
     /**
      * AI Agent: Autonomous Order Monitoring
-     * Runs every 2 minutes to check for stuck orders
+     * Runs every 2 minutes to check for stuck orders. Only orders whose deadline in the
+     * deadline index has passed are loaded.
      */
     private static final Logger log = LoggerFactory.getLogger(AIAutomationService.class);
 
     @Scheduled(fixedRate = 120000) // Every 2 minutes
-    @Transactional
     public void autonomousOrderMonitoring() {
+        if (!jobLeases.runIfAcquired("autonomousOrderMonitoring", Duration.ofMinutes(2), this::monitorOrders)) {
+            log.debug("Autonomous order monitoring runs on another node this cycle");
+        }
+    }
+
+    private void monitorOrders() {
         log.info("AI Agent: Starting autonomous order monitoring cycle");
 
         try {
@@ -71,6 +97,8 @@ public class AIAutomationService {
                         log.info("Successfully auto-advanced stuck order: {}", order.getId());
                     } else {
                         escalateStuckOrder(order);
+                        // Look at it again if it is still stuck after another full period
+                        deadlineIndex.schedule(order.getId(), order.getStatus(), LocalDateTime.now());
                         log.warn("Escalated stuck order {} for manual intervention", order.getId());
                     }
                 } catch (Exception orderEx) {
@@ -92,57 +120,61 @@ public class AIAutomationService {
      * Runs every 5 minutes to update delivery estimates based on real-time factors
      */
     @Scheduled(fixedRate = 300000) // Every 5 minutes
-    @Transactional
     public void predictiveDeliveryAdjustment() {
         System.out.println("AI Agent: Running predictive delivery time adjustment...");
 
         try {
-            List<Shipment> activeShipments = shipmentRepository.findShipmentsInTransit();
+            // Split by shipment id across nodes; a single node runs everything as one shard
+            jobLeases.forEachShard("predictiveDeliveryAdjustment", Duration.ofMinutes(5), (shard, shards) ->
+                    adjustDeliveryEstimates(shipmentRepository.findShipmentsInTransitInShard(shard, shards)));
+        } catch (Exception e) {
+            System.err.println("Error in predictive delivery adjustment: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
 
-            for (Shipment shipment : activeShipments) {
-                try {
-                    // Add null check and error handling
-                    if (shipment == null || shipment.getOrder() == null) {
-                        System.err.println("Skipping shipment with null order data");
+    private void adjustDeliveryEstimates(List<Shipment> activeShipments) {
+        for (Shipment shipment : activeShipments) {
+            try {
+                // Add null check and error handling
+                if (shipment == null || shipment.getOrder() == null) {
+                    System.err.println("Skipping shipment with null order data");
+                    continue;
+                }
+
+                LocalDateTime newEstimate = calculatePredictiveDeliveryTime(shipment);
+
+                // If significant change detected, update and notify
+                if (isSignificantTimeChange(shipment.getEstimatedDelivery(), newEstimate)) {
+                    shipment.setEstimatedDelivery(newEstimate);
+                    shipmentRepository.save(shipment);
+                    overdueShipments.track(shipment);
+
+                    // Safe access to order properties with error handling
+                    String clientId = null;
+                    Long orderId = null;
+                    try {
+                        clientId = shipment.getOrder().getClientId();
+                        orderId = shipment.getOrder().getId();
+                    } catch (Exception e) {
+                        System.err.println("Error accessing order data for shipment " + shipment.getId() + ": " + e.getMessage());
                         continue;
                     }
 
-                    LocalDateTime newEstimate = calculatePredictiveDeliveryTime(shipment);
-
-                    // If significant change detected, update and notify
-                    if (isSignificantTimeChange(shipment.getEstimatedDelivery(), newEstimate)) {
-                        shipment.setEstimatedDelivery(newEstimate);
-                        shipmentRepository.save(shipment);
-
-                        // Safe access to order properties with error handling
-                        String clientId = null;
-                        Long orderId = null;
-                        try {
-                            clientId = shipment.getOrder().getClientId();
-                            orderId = shipment.getOrder().getId();
-                        } catch (Exception e) {
-                            System.err.println("Error accessing order data for shipment " + shipment.getId() + ": " + e.getMessage());
-                            continue;
-                        }
-
-                        if (clientId != null && orderId != null) {
-                            notificationService.sendNotification(
-                                    clientId,
-                                    "AI Update: Delivery time for order #" + orderId +
-                                            " updated to " + newEstimate + " based on real-time conditions."
-                            );
-                        }
-
-                        System.out.println("AI updated delivery estimate for shipment " + shipment.getId());
+                    if (clientId != null && orderId != null) {
+                        notificationService.sendNotification(
+                                clientId,
+                                "AI Update: Delivery time for order #" + orderId +
+                                        " updated to " + newEstimate + " based on real-time conditions."
+                        );
                     }
-                } catch (Exception e) {
-                    System.err.println("Error processing shipment " + shipment.getId() + ": " + e.getMessage());
-                    // Continue with next shipment
+
+                    System.out.println("AI updated delivery estimate for shipment " + shipment.getId());
                 }
+            } catch (Exception e) {
+                System.err.println("Error processing shipment " + shipment.getId() + ": " + e.getMessage());
+                // Continue with next shipment
             }
-        } catch (Exception e) {
-            System.err.println("Error in predictive delivery adjustment: " + e.getMessage());
-            e.printStackTrace();
         }
     }
 
@@ -151,20 +183,28 @@ public class AIAutomationService {
      * Runs every hour to predict and trigger inventory restocking
      */
     @Scheduled(fixedRate = 3600000) // Every hour
-    @Transactional
     public void intelligentInventoryReordering() {
         System.out.println("AI Agent: Running intelligent inventory analysis...");
 
-        List<Product> lowStockProducts = productRepository.findByStockQuantityLessThan(50);
+        // Split by product id across nodes, so no product is restocked by two nodes in one cycle
+        jobLeases.forEachShard("intelligentInventoryReordering", Duration.ofHours(1), (shard, shards) ->
+                reorderLowStock(productRepository.findLowStockInShard(50, shard, shards)));
+    }
 
+    private void reorderLowStock(List<Product> lowStockProducts) {
         for (Product product : lowStockProducts) {
             int predictedDemand = calculatePredictedDemand(product);
             int reorderQuantity = calculateOptimalReorderQuantity(product, predictedDemand);
 
             if (reorderQuantity > 0) {
                 // Simulate reorder (in a real system, would integrate with suppliers)
-                product.setStockQuantity(product.getStockQuantity() + reorderQuantity);
-                productRepository.save(product);
+                if (inventoryLedger.covers(Collections.singleton(product.getId()))) {
+                    // Ledger mode: the ledger owns available stock and persists the restock write-behind
+                    inventoryLedger.release(Collections.singletonMap(product.getId(), reorderQuantity));
+                } else {
+                    product.setStockQuantity(product.getStockQuantity() + reorderQuantity);
+                    productRepository.save(product);
+                }
 
                 notificationService.sendInternalNotification("INVENTORY",
                         "AI Auto-reorder: " + reorderQuantity + " units of " + product.getName() +
@@ -180,17 +220,22 @@ public class AIAutomationService {
      * Runs every 10 minutes to detect unusual patterns
      */
     @Scheduled(fixedRate = 600000) // Every 10 minutes
-    @Transactional
     public void anomalyDetection() {
+        jobLeases.runIfAcquired("anomalyDetection", Duration.ofMinutes(10), this::detectAnomalies);
+    }
+
+    private void detectAnomalies() {
         System.out.println("AI Agent: Running anomaly detection...");
 
-        // Detect unusually long processing times
-        List<Order> suspiciousOrders = orderRepository.findAll().stream()
-                .filter(order -> {
-                    long hoursInStatus = java.time.Duration.between(order.getOrderDate(), LocalDateTime.now()).toHours();
-                    return hoursInStatus > getExpectedProcessingTime(order.getStatus()) * 2; // 2x normal time
-                })
-                .collect(Collectors.toList());
+        // Detect unusually long processing times - 2x normal time in the current status, per status on its index
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> suspiciousOrders = new ArrayList<>();
+        for (OrderStatus status : OrderStatus.values()) {
+            if (!OrderDeadlineIndex.isFinal(status)) {
+                suspiciousOrders.addAll(orderRepository.findInStatusSince(status,
+                        now.minusHours(OrderDeadlineIndex.expectedProcessingHours(status) * 2L)));
+            }
+        }
 
         if (!suspiciousOrders.isEmpty()) {
             notificationService.sendUrgentAlert("OPERATIONS",
@@ -207,8 +252,11 @@ public class AIAutomationService {
      * Runs every 15 minutes to optimize delivery routes
      */
     @Scheduled(fixedRate = 900000) // Every 15 minutes
-    @Transactional
     public void dynamicRouteOptimization() {
+        jobLeases.runIfAcquired("dynamicRouteOptimization", Duration.ofMinutes(15), this::optimizeRoutes);
+    }
+
+    private void optimizeRoutes() {
         System.out.println("AI Agent: Running dynamic route optimization...");
 
         // Group shipments by truck and optimize routes
@@ -229,13 +277,41 @@ public class AIAutomationService {
 
     // ==================== AI ALGORITHMS ====================
 
+    /**
+     * Orders whose deadline has passed and that are still in the status it was set for.
+     * Orders that moved on without the index being told get a deadline for their current status instead.
+     */
     private List<Order> findStuckOrders() {
-        return orderRepository.findAll().stream()
-                .filter(order -> {
-                    long hoursInStatus = java.time.Duration.between(order.getOrderDate(), LocalDateTime.now()).toHours();
-                    return hoursInStatus > getExpectedProcessingTime(order.getStatus());
-                })
-                .collect(Collectors.toList());
+        if (jobLeases.isEnabled()) {
+            // The deadline index only sees transitions made on this node - with several nodes ask the database
+            LocalDateTime now = LocalDateTime.now();
+            List<Order> stuckOrders = new ArrayList<>();
+            for (OrderStatus status : OrderStatus.values()) {
+                if (!OrderDeadlineIndex.isFinal(status)) {
+                    stuckOrders.addAll(orderRepository.findInStatusSince(status,
+                            now.minusHours(OrderDeadlineIndex.expectedProcessingHours(status))));
+                }
+            }
+            return stuckOrders;
+        }
+
+        Map<Long, OrderStatus> due = deadlineIndex.drainDue();
+        if (due.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> stuckOrders = new ArrayList<>();
+        for (Order order : orderRepository.findAllById(due.keySet())) {
+            LocalDateTime deadline = order.getStatusChangedAt()
+                    .plusHours(OrderDeadlineIndex.expectedProcessingHours(order.getStatus()));
+            if (order.getStatus() == due.get(order.getId()) && !deadline.isAfter(now)) {
+                stuckOrders.add(order);
+            } else {
+                deadlineIndex.schedule(order.getId(), order.getStatus(), order.getStatusChangedAt());
+            }
+        }
+        return stuckOrders;
     }
 
     private boolean shouldAutoAdvanceOrder(Order order) {
@@ -264,8 +340,10 @@ public class AIAutomationService {
     private void autoAdvanceOrderStatus(Order order) {
         OrderStatus newStatus = getNextStatus(order.getStatus());
         if (newStatus != null) {
+            statusCounts.orderTransition(order, order.getStatus(), newStatus);
             order.setStatus(newStatus);
             orderRepository.save(order);
+            deadlineIndex.statusEntered(order.getId(), newStatus);
 
             notificationService.sendInternalNotification("AI_AUTOMATION",
                     "AI auto-advanced order #" + order.getId() + " from " +
@@ -293,19 +371,34 @@ public class AIAutomationService {
     }
 
     private void checkOverdueDeliveries() {
-        List<Shipment> overdueShipments = shipmentRepository.findAll().stream()
-                .filter(s -> s.getEstimatedDelivery() != null &&
-                        s.getEstimatedDelivery().isBefore(LocalDateTime.now()) &&
-                        s.getStatus() == ShipmentStatus.IN_TRANSIT)
-                .collect(Collectors.toList());
+        LocalDateTime now = LocalDateTime.now();
+
+        // Only shipments whose estimate has passed are loaded - from the index, or the indexed query before
+        // it is built and when other nodes write shipments the index never hears about
+        List<Shipment> candidates;
+        if (overdueShipments.isLoaded() && !jobLeases.isEnabled()) {
+            List<Long> overdueIds = overdueShipments.drainOverdue(now);
+            candidates = overdueIds.isEmpty() ? Collections.emptyList() : shipmentRepository.findAllById(overdueIds);
+        } else {
+            candidates = shipmentRepository.findOverdueInTransit(now);
+        }
+
+        for (Shipment shipment : candidates) {
+            if (shipment.getStatus() != ShipmentStatus.IN_TRANSIT || shipment.getEstimatedDelivery() == null ||
+                    !shipment.getEstimatedDelivery().isBefore(now)) {
+                // Changed since it was indexed - track it as it is now
+                overdueShipments.track(shipment);
+                continue;
+            }
 
-        for (Shipment shipment : overdueShipments) {
             // AI decision: Auto-reschedule or escalate
             if (shouldAutoReschedule(shipment)) {
                 autoRescheduleDelivery(shipment);
             } else {
                 escalateOverdueDelivery(shipment);
             }
+            // Re-armed at the new estimate, or at the passed one so an escalation repeats next cycle
+            overdueShipments.track(shipment);
         }
     }
 
@@ -366,14 +459,10 @@ public class AIAutomationService {
     }
 
     private void detectDemandAnomalies() {
-        // AI algorithm to detect unusual demand spikes
-        Map<String, Long> categoryDemand = orderRepository.findRecentOrders(LocalDateTime.now().minusHours(24))
-                .stream()
-                .flatMap(order -> order.getItems().stream())
-                .collect(Collectors.groupingBy(
-                        item -> item.getProduct().getCategory(),
-                        Collectors.summingLong(OrderItem::getQuantity)
-                ));
+        // AI algorithm to detect unusual demand spikes - one window total per category, no order is loaded.
+        // The windows only see orders submitted on this node - with several nodes sum them in the database.
+        Map<String, Long> categoryDemand = jobLeases.isEnabled()
+                ? demandWindows.queryCategoryDemand() : demandWindows.getCategoryDemand();
 
         for (Map.Entry<String, Long> entry : categoryDemand.entrySet()) {
             String category = entry.getKey();
@@ -407,6 +496,7 @@ public class AIAutomationService {
             if (!newEstimate.equals(shipment.getEstimatedDelivery())) {
                 shipment.setEstimatedDelivery(newEstimate);
                 shipmentRepository.save(shipment);
+                overdueShipments.track(shipment);
 
                 System.out.println("AI optimized route for truck " + truckId +
                         " - Updated delivery time for shipment " + shipment.getId());
@@ -441,29 +531,6 @@ public class AIAutomationService {
                         ". Manual intervention required.");
     }
 
-    private int getExpectedProcessingTime(OrderStatus status) {
-        // Expected time in hours for each status
-        switch (status) {
-            case RECEIVED:
-                return 2;
-            case SCHEDULED:
-                return 1;  // Add expected processing time for SCHEDULED status
-            case VALIDATED:
-                return 1;
-            case INVENTORY_CHECKED:
-                return 1;
-            case FULFILLED:
-                return 3;
-            case READY_FOR_PICKUP:
-                return 6;
-            case IN_TRANSIT:
-                return 24;
-            default:
-                return 12;
-        }
-    }
-
-
     private Long getNormalDailyDemand(String category) {
         // Historical normal demand (would come from analytics in a real system) - FIXED for Java 11
         switch (category) {
@@ -0,0 +1,189 @@
+package com.logistics.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * AIMD concurrency limiter for the pipeline stages and the async executors.
+ *
+ * Every interval each executor's mean service time over the interval is compared with its baseline,
+ * the lowest service time seen recently. When the service time has grown past the tolerance the
+ * workers are contending for something (database connections, row locks, CPU) and the pool shrinks
+ * multiplicatively. When tasks are queueing while every worker is busy and service time is healthy,
+ * one worker is added. The limit therefore settles where the database stops getting faster with more
+ * concurrency instead of at a hard-coded pool size.
+ */
+@Service
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    private static final int HISTORY_SIZE = 20;
+    // How fast the baseline follows service times above it, per interval
+    private static final double BASELINE_DRIFT = 0.05;
+    // Sub-millisecond baselines would turn scheduling jitter into large ratios
+    private static final double MIN_BASELINE_NANOS = 1_000_000.0;
+
+    @Autowired
+    private OrderPipeline pipeline;
+
+    @Autowired
+    private List<ResizableExecutor> asyncExecutors;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.logistics.concurrency.adaptive:true}")
+    private boolean adaptive;
+
+    @Value("${app.logistics.concurrency.latency-tolerance:2.0}")
+    private double latencyTolerance;
+
+    @Value("${app.logistics.concurrency.backoff-ratio:0.75}")
+    private double backoffRatio;
+
+    @Value("${app.logistics.concurrency.min-samples:10}")
+    private int minSamples;
+
+    private final Map<String, LimitState> states = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void initialize() {
+        List<ResizableExecutor> executors = new ArrayList<>(pipeline.stages());
+        executors.addAll(asyncExecutors);
+
+        for (ResizableExecutor executor : executors) {
+            states.put(executor.getName(), new LimitState(executor));
+            Gauge.builder("logistics.concurrency.limit", executor, ResizableExecutor::getConcurrencyLimit)
+                    .tag("executor", executor.getName()).description("Current adaptive worker limit")
+                    .register(meterRegistry);
+        }
+
+        log.info("Adaptive concurrency limiter {} for {}", adaptive ? "enabled" : "disabled", states.keySet());
+    }
+
+    @Scheduled(fixedDelayString = "${app.logistics.concurrency.interval-ms:2000}")
+    public synchronized void adjust() {
+        if (!adaptive) {
+            return;
+        }
+        states.values().forEach(this::adjust);
+    }
+
+    /**
+     * Current limit, baseline and the most recent changes per executor
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("adaptive", adaptive);
+        stats.put("latencyTolerance", latencyTolerance);
+        stats.put("backoffRatio", backoffRatio);
+
+        Map<String, Object> executors = new LinkedHashMap<>();
+        states.forEach((name, state) -> {
+            Map<String, Object> executorStats = new LinkedHashMap<>();
+            executorStats.put("limit", state.executor.getConcurrencyLimit());
+            executorStats.put("maxLimit", state.executor.getMaxConcurrencyLimit());
+            executorStats.put("activeThreads", state.executor.getActiveThreads());
+            executorStats.put("queueDepth", state.executor.getQueueDepth());
+            executorStats.put("baselineServiceMs", state.baselineServiceNanos / 1_000_000.0);
+            executorStats.put("lastServiceMs", state.lastServiceNanos / 1_000_000.0);
+            executorStats.put("lastQueueWaitMs", state.lastQueueWaitNanos / 1_000_000.0);
+            executorStats.put("changes", new ArrayList<>(state.history));
+            executors.put(name, executorStats);
+        });
+        stats.put("executors", executors);
+        return stats;
+    }
+
+    private void adjust(LimitState state) {
+        ResizableExecutor executor = state.executor;
+        long completed = executor.getCompletedTasks();
+        long serviceNanos = executor.getTotalServiceNanos();
+        long queueWaitNanos = executor.getTotalQueueWaitNanos();
+
+        long tasks = completed - state.lastCompleted;
+        if (tasks < minSamples) {
+            // Too few tasks to judge - keep the window open until there are enough
+            return;
+        }
+
+        double meanService = (double) (serviceNanos - state.lastServiceTotal) / tasks;
+        double meanQueueWait = (double) (queueWaitNanos - state.lastQueueWaitTotal) / tasks;
+        state.lastCompleted = completed;
+        state.lastServiceTotal = serviceNanos;
+        state.lastQueueWaitTotal = queueWaitNanos;
+        state.lastServiceNanos = meanService;
+        state.lastQueueWaitNanos = meanQueueWait;
+
+        if (state.baselineServiceNanos == 0 || meanService < state.baselineServiceNanos) {
+            state.baselineServiceNanos = meanService;
+        } else {
+            state.baselineServiceNanos += (meanService - state.baselineServiceNanos) * BASELINE_DRIFT;
+        }
+
+        int limit = executor.getConcurrencyLimit();
+        double ratio = meanService / Math.max(state.baselineServiceNanos, MIN_BASELINE_NANOS);
+
+        if (ratio > latencyTolerance && limit > 1) {
+            changeLimit(state, limit, Math.max(1, (int) (limit * backoffRatio)), String.format(
+                    "service time %.1f ms is %.1fx the %.1f ms baseline", meanService / 1_000_000.0, ratio,
+                    state.baselineServiceNanos / 1_000_000.0));
+        } else if (meanQueueWait > meanService && limit < executor.getMaxConcurrencyLimit()) {
+            // Tasks waited longer than they ran, so every worker was busy for most of the interval
+            changeLimit(state, limit, limit + 1, String.format(
+                    "queue wait %.1f ms exceeds service time %.1f ms",
+                    meanQueueWait / 1_000_000.0, meanService / 1_000_000.0));
+        }
+    }
+
+    private void changeLimit(LimitState state, int from, int to, String reason) {
+        if (from == to) {
+            return;
+        }
+        state.executor.setConcurrencyLimit(to);
+
+        Map<String, Object> change = new LinkedHashMap<>();
+        change.put("at", LocalDateTime.now());
+        change.put("from", from);
+        change.put("to", to);
+        change.put("reason", reason);
+        state.history.addFirst(change);
+        if (state.history.size() > HISTORY_SIZE) {
+            state.history.removeLast();
+        }
+
+        log.info("Concurrency limit of {} changed {} -> {}: {}", state.executor.getName(), from, to, reason);
+    }
+
+    /**
+     * Samples and change history for one executor. Only touched under the limiter lock.
+     */
+    private static final class LimitState {
+        private final ResizableExecutor executor;
+        private final Deque<Map<String, Object>> history = new ArrayDeque<>();
+        private long lastCompleted;
+        private long lastServiceTotal;
+        private long lastQueueWaitTotal;
+        private double lastServiceNanos;
+        private double lastQueueWaitNanos;
+        private double baselineServiceNanos;
+
+        private LimitState(ResizableExecutor executor) {
+            this.executor = executor;
+            this.lastCompleted = executor.getCompletedTasks();
+            this.lastServiceTotal = executor.getTotalServiceNanos();
+            this.lastQueueWaitTotal = executor.getTotalQueueWaitNanos();
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.logistics.service;
+
+import com.logistics.exception.OrderAdmissionException;
+import com.logistics.repository.OrderWorkRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for order submission.
+ *
+ * Orders are admitted before they are persisted, so an overloaded pipeline turns new orders away with
+ * 429 instead of accepting them and leaving them stuck in RECEIVED. An order is refused when the orders
+ * in the pipeline plus those being admitted would exceed the in-flight limit, when a stage queue is
+ * nearly full (submitting would block the request thread), or when the recent p99 workflow time is
+ * over budget while every pipeline worker is busy. Retry-After is the time the pipeline needs, at its
+ * measured drain rate, to work off the excess.
+ *
+ * With the order work queue on, the workers cap what this node has in the pipeline at workers x batch
+ * size, so none of those limits can trip - the backlog builds up in order_work instead. Admission then
+ * looks at the queue: an order is refused when the claimable backlog plus the orders being admitted
+ * would exceed max-queue-depth, or when the oldest claimable work has waited longer than
+ * max-claim-lag-seconds. The backlog is sampled once a second and topped up with the orders handed off
+ * since.
+ */
+@Service
+public class AdmissionControlService {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControlService.class);
+
+    // Weight of the newest one-second sample in the drain rate average
+    private static final double DRAIN_RATE_SMOOTHING = 0.3;
+
+    @Autowired
+    private OrderPipeline pipeline;
+
+    @Autowired
+    private OrderWorkRepository workRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.logistics.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.logistics.admission.max-in-flight:1000}")
+    private int maxInFlight;
+
+    @Value("${app.logistics.admission.queue-high-watermark:0.9}")
+    private double queueHighWatermark;
+
+    @Value("${app.logistics.admission.max-p99-ms:5000}")
+    private long maxP99Ms;
+
+    @Value("${app.logistics.admission.max-retry-after-seconds:30}")
+    private int maxRetryAfterSeconds;
+
+    // Same switches as OrderWorkQueue
+    @Value("${app.logistics.order-queue.enabled:true}")
+    private boolean workQueueEnabled;
+
+    @Value("${app.logistics.order-queue.max-attempts:5}")
+    private int workMaxAttempts;
+
+    @Value("${app.logistics.admission.max-queue-depth:2000}")
+    private int maxQueueDepth;
+
+    @Value("${app.logistics.admission.max-claim-lag-seconds:30}")
+    private long maxClaimLagSeconds;
+
+    // Orders between admission and hand-off to the pipeline
+    private final AtomicInteger admitting = new AtomicInteger();
+    // Orders inside the pipeline
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong finishedOrders = new AtomicLong();
+    private final AtomicLong handedOffOrders = new AtomicLong();
+
+    private final Map<Reason, AtomicLong> rejections = new EnumMap<>(Reason.class);
+    private final AtomicLong admittedOrders = new AtomicLong();
+    private final Map<Reason, Counter> rejectionCounters = new EnumMap<>(Reason.class);
+    private Counter admittedCounter;
+    private Timer workflowTimer;
+
+    private long lastFinishedSample;
+    private volatile double drainRatePerSecond;
+
+    // Last order_work sample, and how many orders had been handed off when it was taken
+    private volatile long backlogDepth;
+    private volatile long claimLagMs;
+    private volatile long handedOffAtSample;
+
+    @PostConstruct
+    public void registerMetrics() {
+        workflowTimer = Timer.builder("logistics.order.workflow")
+                .description("Time from pipeline entry until the order left the pipeline")
+                .publishPercentiles(0.99)
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .distributionStatisticBufferLength(3)
+                .register(meterRegistry);
+
+        admittedCounter = Counter.builder("logistics.admission.decisions")
+                .tag("decision", "admitted").tag("reason", "none")
+                .description("Order admission decisions").register(meterRegistry);
+        for (Reason reason : Reason.values()) {
+            rejections.put(reason, new AtomicLong());
+            rejectionCounters.put(reason, Counter.builder("logistics.admission.decisions")
+                    .tag("decision", "rejected").tag("reason", reason.tag)
+                    .description("Order admission decisions").register(meterRegistry));
+        }
+
+        Gauge.builder("logistics.admission.in.flight", this, admission -> admission.currentLoad())
+                .description("Orders in the pipeline, or queued in order_work with the queue on, plus those being admitted")
+                .register(meterRegistry);
+        if (workQueueEnabled) {
+            Gauge.builder("logistics.admission.claim.lag", this, admission -> admission.claimLagMs)
+                    .description("Milliseconds the oldest claimable order work has waited")
+                    .baseUnit("milliseconds").register(meterRegistry);
+        }
+        Gauge.builder("logistics.admission.drain.rate", this, admission -> admission.drainRatePerSecond)
+                .description("Orders leaving the pipeline per second").register(meterRegistry);
+    }
+
+    /**
+     * Admit orders before they are persisted, or throw OrderAdmissionException (429).
+     * Every admitted order must be passed to {@link #handedOff(int)} once it has entered the pipeline
+     * or was dropped before it.
+     */
+    public void admit(int orders) {
+        if (!enabled) {
+            return;
+        }
+
+        Reason reason = checkSaturation(orders);
+        if (reason == null) {
+            admittedOrders.addAndGet(orders);
+            admittedCounter.increment(orders);
+            return;
+        }
+
+        rejections.get(reason).incrementAndGet();
+        rejectionCounters.get(reason).increment();
+        int retryAfter = retryAfterSeconds(orders);
+        log.warn("Admission refused for {} order(s): {} - retry after {}s", orders, reason.description, retryAfter);
+        throw new OrderAdmissionException(reason.tag, retryAfter,
+                "Order intake is saturated (" + reason.description + ") - retry in " + retryAfter + " seconds");
+    }
+
+    /**
+     * Admitted orders have entered the pipeline, or will not be submitted after all
+     */
+    public void handedOff(int orders) {
+        if (enabled) {
+            admitting.addAndGet(-orders);
+            handedOffOrders.addAndGet(orders);
+        }
+    }
+
+    /**
+     * Called by the workflow when an order enters the pipeline
+     */
+    public void orderStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Called by the workflow when an order has left the pipeline, whatever the outcome
+     */
+    public void orderFinished(long startedAtNanos) {
+        inFlight.decrementAndGet();
+        finishedOrders.incrementAndGet();
+        workflowTimer.record(System.nanoTime() - startedAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sample the drain rate once a second
+     */
+    @Scheduled(fixedRate = 1000)
+    public void sampleDrainRate() {
+        long finished = finishedOrders.get();
+        long drained = finished - lastFinishedSample;
+        lastFinishedSample = finished;
+        drainRatePerSecond = DRAIN_RATE_SMOOTHING * drained + (1 - DRAIN_RATE_SMOOTHING) * drainRatePerSecond;
+    }
+
+    /**
+     * Sample the order_work backlog once a second. A failed sample keeps the previous one.
+     */
+    @Scheduled(fixedRate = 1000)
+    public void sampleWorkBacklog() {
+        if (!enabled || !workQueueEnabled) {
+            return;
+        }
+        long handedOff = handedOffOrders.get();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            OrderWorkRepository.Backlog backlog = workRepository.findBacklog(now, workMaxAttempts);
+            backlogDepth = backlog.getDepth();
+            claimLagMs = backlog.getOldestAvailableAt() == null ? 0
+                    : Math.max(0, Duration.between(backlog.getOldestAvailableAt(), now).toMillis());
+            handedOffAtSample = handedOff;
+        } catch (RuntimeException e) {
+            log.warn("Sampling the order work backlog failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Admission statistics for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> rejected = new LinkedHashMap<>();
+        rejections.forEach((reason, count) -> rejected.put(reason.tag, count.get()));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("inFlight", inFlight.get());
+        stats.put("admitting", admitting.get());
+        stats.put("maxInFlight", maxInFlight);
+        stats.put("workQueue", workQueueEnabled);
+        if (workQueueEnabled) {
+            stats.put("queueDepth", backlogDepth);
+            stats.put("maxQueueDepth", maxQueueDepth);
+            stats.put("claimLagMs", claimLagMs);
+            stats.put("maxClaimLagSeconds", maxClaimLagSeconds);
+        }
+        stats.put("activeWorkers", pipeline.stages().stream().mapToInt(PipelineStage::getActiveThreads).sum());
+        stats.put("totalWorkers", totalWorkers());
+        stats.put("maxQueueFill", maxQueueFill());
+        stats.put("recentP99Ms", recentP99Ms());
+        stats.put("drainRatePerSecond", drainRatePerSecond);
+        stats.put("admitted", admittedOrders.get());
+        stats.put("rejected", rejected);
+        return stats;
+    }
+
+    /**
+     * Returns the reason to refuse, or null after reserving admission for the orders
+     */
+    private Reason checkSaturation(int orders) {
+        // Reserve first so concurrent submissions cannot all pass the same check
+        admitting.addAndGet(orders);
+        long load = currentLoad();
+        Reason reason = null;
+
+        if (workQueueEnabled) {
+            // An empty queue takes any request, so a batch larger than the limit is not refused forever
+            if (load > maxQueueDepth && load > orders) {
+                reason = Reason.BACKLOG;
+            } else if (claimLagMs > TimeUnit.SECONDS.toMillis(maxClaimLagSeconds)) {
+                reason = Reason.CLAIM_LAG;
+            }
+        } else if (load > maxInFlight && load > orders) {
+            // An idle pipeline takes any request, so a batch larger than the limit is not refused forever
+            reason = Reason.IN_FLIGHT;
+        } else if (maxQueueFill() >= queueHighWatermark) {
+            reason = Reason.QUEUE;
+        } else if (load > totalWorkers() && recentP99Ms() > maxP99Ms) {
+            // A high p99 alone only reflects the last minute - refuse only while the workers are still saturated
+            reason = Reason.LATENCY;
+        }
+
+        if (reason != null) {
+            admitting.addAndGet(-orders);
+        }
+        return reason;
+    }
+
+    /**
+     * Seconds the pipeline needs at its current drain rate to make room for the orders
+     */
+    private int retryAfterSeconds(int orders) {
+        long limit = workQueueEnabled ? maxQueueDepth : maxInFlight;
+        long excess = Math.max(currentLoad() + orders - limit, orders);
+        if (drainRatePerSecond < 0.1) {
+            return maxRetryAfterSeconds;
+        }
+        long seconds = (long) Math.ceil(excess / drainRatePerSecond);
+        return (int) Math.max(1, Math.min(seconds, maxRetryAfterSeconds));
+    }
+
+    /**
+     * Orders being admitted plus, with the queue on, the estimated claimable backlog - otherwise the
+     * orders in the pipeline
+     */
+    private long currentLoad() {
+        if (workQueueEnabled) {
+            return admitting.get() + backlogDepth + handedOffOrders.get() - handedOffAtSample;
+        }
+        return admitting.get() + inFlight.get();
+    }
+
+    private double maxQueueFill() {
+        double fill = 0.0;
+        for (PipelineStage stage : pipeline.stages()) {
+            fill = Math.max(fill, (double) stage.getQueueDepth() / stage.getQueueCapacity());
+        }
+        return fill;
+    }
+
+    private int totalWorkers() {
+        return pipeline.stages().stream().mapToInt(PipelineStage::getThreads).sum();
+    }
+
+    private double recentP99Ms() {
+        for (ValueAtPercentile percentile : workflowTimer.takeSnapshot().percentileValues()) {
+            double value = percentile.value(TimeUnit.MILLISECONDS);
+            return Double.isNaN(value) ? 0.0 : value;
+        }
+        return 0.0;
+    }
+
+    private enum Reason {
+        IN_FLIGHT("in-flight", "too many orders in the pipeline"),
+        QUEUE("queue", "a pipeline stage queue is nearly full"),
+        LATENCY("latency", "p99 processing time over budget"),
+        BACKLOG("backlog", "too many orders waiting in the work queue"),
+        CLAIM_LAG("claim-lag", "queued orders wait too long to be claimed");
+
+        private final String tag;
+        private final String description;
+
+        Reason(String tag, String description) {
+            this.tag = tag;
+            this.description = description;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.logistics.service;
+
+import com.logistics.dto.OrderItemRequest;
+import com.logistics.dto.OrderRequest;
+import com.logistics.dto.OrderResponse;
+import com.logistics.model.Order;
+import com.logistics.model.OrderItem;
+import com.logistics.model.OrderStatus;
+import com.logistics.model.Product;
+import com.logistics.repository.OrderRepository;
+import com.logistics.repository.ProductRepository;
+import com.logistics.util.BatchSubmissionResult;
+import com.logistics.util.CatalogEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Persists order batches pushed by ERP systems.
+ * All SKUs of the batch are resolved with at most one IN query and the accepted
+ * orders (with their items) are written with JDBC batching.
+ */
+@Service
+public class BatchOrderService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchOrderService.class);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCatalogService productCatalog;
+
+    @Autowired
+    private StatusCountService statusCounts;
+
+    @Autowired
+    private OrderDeadlineIndex deadlineIndex;
+
+    @Autowired
+    private DemandWindowService demandWindows;
+
+    @Autowired
+    private OrderWorkQueue workQueue;
+
+    @Autowired
+    private Validator validator;
+
+    /**
+     * Validate and persist a batch of orders. Invalid orders are rejected
+     * individually and never fail the rest of the batch.
+     */
+    @Transactional
+    public BatchSubmissionResult persistBatch(List<OrderRequest> requests) {
+        Map<String, CatalogEntry> productsBySku = resolveProducts(requests);
+
+        OrderResponse[] results = new OrderResponse[requests.size()];
+        List<Order> pendingOrders = new ArrayList<>();
+        List<Integer> pendingIndexes = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            OrderRequest request = requests.get(i);
+
+            String rejection = validate(request);
+            if (rejection == null) {
+                Order order = new Order(request.getClientId(), request.getClientName(),
+                        request.getDeliveryAddress(), request.getRequestedDeliveryDate());
+
+                for (OrderItemRequest itemRequest : request.getItems()) {
+                    CatalogEntry product = productsBySku.get(itemRequest.getSku());
+                    if (product == null) {
+                        rejection = "Product not found: " + itemRequest.getSku();
+                        break;
+                    }
+                    OrderItem item = new OrderItem(productRepository.getReferenceById(product.getId()),
+                            itemRequest.getQuantity(), itemRequest.getUnitPrice());
+                    order.addItem(item, product.getWeight(), product.getVolume());
+                }
+
+                if (rejection == null) {
+                    pendingOrders.add(order);
+                    pendingIndexes.add(i);
+                    continue;
+                }
+            }
+
+            results[i] = new OrderResponse(null, rejection, "REJECTED", null);
+        }
+
+        List<Order> savedOrders = orderRepository.saveAll(pendingOrders);
+        workQueue.enqueue(savedOrders);
+        statusCounts.ordersCreated(OrderStatus.RECEIVED, savedOrders.size());
+        deadlineIndex.statusEntered(savedOrders.stream().map(Order::getId).collect(Collectors.toList()),
+                OrderStatus.RECEIVED);
+        demandWindows.ordersSubmitted(savedOrders);
+
+        for (int i = 0; i < savedOrders.size(); i++) {
+            Order order = savedOrders.get(i);
+            results[pendingIndexes.get(i)] = new OrderResponse(
+                    order.getId(),
+                    "Order submitted successfully and is being processed by AI agents",
+                    order.getStatus().toString(),
+                    order.getOrderDate()
+            );
+        }
+
+        log.info("Persisted order batch: {} submitted, {} accepted, {} distinct SKUs",
+                requests.size(), savedOrders.size(), productsBySku.size());
+
+        return new BatchSubmissionResult(Arrays.asList(results), savedOrders);
+    }
+
+    /**
+     * Resolve every SKU referenced by the batch from the catalog cache;
+     * SKUs the cache does not know are loaded with one IN query
+     */
+    private Map<String, CatalogEntry> resolveProducts(List<OrderRequest> requests) {
+        Set<String> skus = requests.stream()
+                .filter(Objects::nonNull)
+                .filter(request -> request.getItems() != null)
+                .flatMap(request -> request.getItems().stream())
+                .filter(item -> item != null && item.getSku() != null)
+                .map(OrderItemRequest::getSku)
+                .collect(Collectors.toSet());
+
+        Map<String, CatalogEntry> productsBySku = new HashMap<>();
+        Set<String> unknownSkus = new HashSet<>();
+        for (String sku : skus) {
+            CatalogEntry entry = productCatalog.getCached(sku);
+            if (entry != null) {
+                productsBySku.put(sku, entry);
+            } else {
+                unknownSkus.add(sku);
+            }
+        }
+
+        if (!unknownSkus.isEmpty()) {
+            for (Product product : productRepository.findBySkuIn(unknownSkus)) {
+                productsBySku.put(product.getSku(), CatalogEntry.of(product));
+            }
+        }
+
+        return productsBySku;
+    }
+
+    /**
+     * Run bean validation for a single order of the batch
+     *
+     * @return the rejection reason, or null if the order is valid
+     */
+    private String validate(OrderRequest request) {
+        if (request == null) {
+            return "Order is empty";
+        }
+
+        Set<ConstraintViolation<OrderRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -2,8 +2,8 @@ package com.logistics.service;
 
 import com.logistics.dto.OrderItemRequest;
 import com.logistics.dto.OrderRequest;
-import com.logistics.model.Product;
 import com.logistics.repository.ProductRepository;
+import com.logistics.util.CatalogEntry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
@@ -25,6 +25,9 @@ public class BulkTestingService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductCatalogService productCatalog;
+
     @Autowired
     private RestTemplate restTemplate;
 
@@ -195,11 +198,17 @@ public class BulkTestingService {
     }
 
     private OrderRequest createRealisticOrder(TestClient client, int minItems, int maxItems, boolean bulk) {
-        List<Product> availableProducts = productRepository.findAll();
+        List<CatalogEntry> availableProducts = productCatalog.getAll();
         if (availableProducts.isEmpty()) {
             throw new RuntimeException("No products available for testing");
         }
 
+        // Only the mutable stock figure is read from the database
+        Map<Long, Integer> stockLevels = new HashMap<>();
+        for (ProductRepository.StockLevel level : productRepository.findStockLevels()) {
+            stockLevels.put(level.getId(), level.getStockQuantity());
+        }
+
         OrderRequest order = new OrderRequest();
         order.setClientId(client.id);
         order.setClientName(client.name);
@@ -210,21 +219,23 @@ public class BulkTestingService {
         order.setRequestedDeliveryDate(deliveryDate);
 
         // Generate items based on client preferences
-        List<OrderItemRequest> items = generateItemsForClientType(client, availableProducts, minItems, maxItems, bulk);
+        List<OrderItemRequest> items = generateItemsForClientType(client, availableProducts, stockLevels,
+                minItems, maxItems, bulk);
         order.setItems(items);
 
         return order;
     }
 
-    private List<OrderItemRequest> generateItemsForClientType(TestClient client, List<Product> products,
+    private List<OrderItemRequest> generateItemsForClientType(TestClient client, List<CatalogEntry> products,
+                                                              Map<Long, Integer> stockLevels,
                                                               int minItems, int maxItems, boolean bulk) {
         List<OrderItemRequest> items = new ArrayList<>();
         int itemCount = ThreadLocalRandom.current().nextInt(minItems, maxItems + 1);
 
         // Filter products relevant to client type
-        List<Product> relevantProducts = products.stream()
+        List<CatalogEntry> relevantProducts = products.stream()
                 .filter(p -> isProductRelevantForClientType(p, client.type))
-                .filter(p -> p.getStockQuantity() > 0)
+                .filter(p -> stockLevels.getOrDefault(p.getId(), 0) > 0)
                 .collect(java.util.stream.Collectors.toList());
 
         if (relevantProducts.isEmpty()) {
@@ -234,7 +245,7 @@ public class BulkTestingService {
         Set<String> usedSkus = new HashSet<>();
 
         for (int i = 0; i < itemCount && usedSkus.size() < relevantProducts.size(); i++) {
-            Product product = relevantProducts.get(random.nextInt(relevantProducts.size()));
+            CatalogEntry product = relevantProducts.get(random.nextInt(relevantProducts.size()));
 
             if (usedSkus.contains(product.getSku())) {
                 i--; // Try again
@@ -245,7 +256,7 @@ public class BulkTestingService {
 
             OrderItemRequest item = new OrderItemRequest();
             item.setSku(product.getSku());
-            item.setQuantity(calculateRealisticQuantity(client, product, bulk));
+            item.setQuantity(calculateRealisticQuantity(client, product, stockLevels.getOrDefault(product.getId(), 0), bulk));
             item.setUnitPrice(calculateRealisticPrice(client, product));
 
             items.add(item);
@@ -254,7 +265,7 @@ public class BulkTestingService {
         return items;
     }
 
-    private int calculateRealisticQuantity(TestClient client, Product product, boolean bulk) {
+    private int calculateRealisticQuantity(TestClient client, CatalogEntry product, int stockQuantity, boolean bulk) {
         int baseQuantity;
 
         // Base quantity by product category
@@ -279,10 +290,10 @@ public class BulkTestingService {
         double multiplier = getClientSizeMultiplier(client.type);
         int quantity = (int) (baseQuantity * multiplier * (0.5 + random.nextDouble()));
 
-        return Math.max(1, Math.min(quantity, product.getStockQuantity()));
+        return Math.max(1, Math.min(quantity, stockQuantity));
     }
 
-    private double calculateRealisticPrice(TestClient client, Product product) {
+    private double calculateRealisticPrice(TestClient client, CatalogEntry product) {
         // Base prices by category (realistic German B2B prices)
         double basePrice;
         switch (product.getCategory()) {
@@ -384,7 +395,7 @@ public class BulkTestingService {
         return filtered.isEmpty() ? getRandomClient() : filtered.get(random.nextInt(filtered.size()));
     }
 
-    private boolean isProductRelevantForClientType(Product product, String clientType) {
+    private boolean isProductRelevantForClientType(CatalogEntry product, String clientType) {
         switch (clientType) {
             case "ROOFING_SPECIALIST":
                 return "ROOFING_MATERIALS".equals(product.getCategory());
@@ -0,0 +1,291 @@
+package com.logistics.service;
+
+import com.logistics.event.OrderStatusChangedEvent;
+import com.logistics.model.OrderStatus;
+import com.logistics.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-side live view of the order dashboard: the count of orders in each status and the newest
+ * orders in each status lane, kept in memory from the order events this node publishes. Lanes move on
+ * the OrderStatusChangedEvent that StatusCountService publishes once a status write commits, so every
+ * path that writes a status moves the lane, whether or not it notifies anyone.
+ *
+ * A dashboard subscribes to /topic/dashboard for deltas first and then takes one snapshot (a STOMP
+ * subscription to /app/dashboard/snapshot, or GET /api/dashboard/snapshot). Deltas are numbered and
+ * the snapshot carries the number of the last delta it includes, so the client skips deltas it
+ * already has and takes a new snapshot when it sees a gap - for example after the dispatcher
+ * dropped events under load. ORDER deltas move one order into a lane; COUNTS deltas carry the
+ * absolute counts and go out at most once per counts interval, when they changed. After the lanes
+ * are filled at startup nothing here reads the database.
+ *
+ * A lane holds the orders most recently seen entering its status. Once its orders move on it shows
+ * fewer until new ones arrive. Lanes follow this node's events; the counts are the status counters,
+ * which converge across a cluster through their reconciliation.
+ */
+@Service
+public class DashboardLiveView {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardLiveView.class);
+
+    public static final String DELTAS_DESTINATION = "/topic/dashboard";
+
+    private static final String DELTA_TYPE = "DASHBOARD_DELTA";
+
+    @Autowired
+    private NotificationDispatcher dispatcher;
+
+    @Autowired
+    private StatusCountService statusCounts;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Value("${app.logistics.dashboard.lane-size:10}")
+    private int laneSize;
+
+    // Orders whose details are remembered after they dropped out of a lane
+    @Value("${app.logistics.dashboard.tracked-orders:5000}")
+    private int trackedOrders;
+
+    // All fields below are guarded by this
+    private final Map<OrderStatus, Deque<Long>> lanes = new EnumMap<>(OrderStatus.class);
+    // Least recently changed first
+    private final LinkedHashMap<Long, LaneEntry> orders = new LinkedHashMap<>();
+    private long sequence;
+    private Map<String, Long> publishedCounts = Map.of();
+
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong orderDeltas = new AtomicLong();
+    private final AtomicLong countDeltas = new AtomicLong();
+
+    public DashboardLiveView() {
+        for (OrderStatus status : OrderStatus.values()) {
+            lanes.put(status, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Fill the lanes with the newest orders of each status - the only database reads of the view
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Map<OrderStatus, List<OrderRepository.OrderSummary>> newest = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            newest.put(status, orderRepository.findPageByStatus(status, PageRequest.of(0, laneSize)));
+        }
+        synchronized (this) {
+            newest.forEach((status, summaries) -> {
+                Deque<Long> lane = lanes.get(status);
+                for (OrderRepository.OrderSummary summary : summaries) {
+                    // Orders seen since startup are already where they belong
+                    if (lane.size() >= laneSize || orders.containsKey(summary.getId())) {
+                        continue;
+                    }
+                    orders.put(summary.getId(), new LaneEntry(summary.getId(), summary.getClientId(),
+                            summary.getClientName(), status, summary.getOrderDate(), null, summary.getTotalWeight()));
+                    lane.addLast(summary.getId());
+                }
+            });
+        }
+        log.info("Dashboard live view loaded with {} orders", orders.size());
+    }
+
+    public void orderAdded(Long orderId, String clientId, String clientName, int itemCount) {
+        synchronized (this) {
+            LaneEntry entry = orders.get(orderId);
+            if (entry == null) {
+                entry = new LaneEntry(orderId, clientId, clientName, OrderStatus.RECEIVED, LocalDateTime.now(), itemCount, null);
+            } else {
+                entry = entry.withDetails(clientName, itemCount);
+            }
+            enterLane(entry);
+        }
+    }
+
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        statusChanged(event.getOrderId(), event.getClientId(), event.getStatus());
+    }
+
+    public void statusChanged(Long orderId, String clientId, OrderStatus newStatus) {
+        synchronized (this) {
+            LaneEntry entry = orders.get(orderId);
+            entry = entry != null ? entry.withStatus(newStatus)
+                    : new LaneEntry(orderId, clientId, null, newStatus, null, null, null);
+            enterLane(entry);
+        }
+    }
+
+    /**
+     * Counts per status, the newest orders of each lane and the number of the last delta included
+     */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, List<Map<String, Object>>> laneOrders = new LinkedHashMap<>();
+        lanes.forEach((status, lane) -> {
+            if (!lane.isEmpty()) {
+                List<Map<String, Object>> entries = new ArrayList<>(lane.size());
+                lane.forEach(orderId -> Optional.ofNullable(orders.get(orderId)).map(LaneEntry::toMap).ifPresent(entries::add));
+                laneOrders.put(status.name(), entries);
+            }
+        });
+        Map<String, Long> counts = currentCounts();
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("seq", sequence);
+        snapshot.put("laneSize", laneSize);
+        snapshot.put("counts", counts);
+        snapshot.put("totalOrders", total(counts));
+        snapshot.put("lanes", laneOrders);
+        snapshot.put("timestamp", LocalDateTime.now());
+        snapshots.incrementAndGet();
+        return snapshot;
+    }
+
+    /**
+     * Push the counts when they changed since the last COUNTS delta - read from the in-memory counters
+     */
+    @Scheduled(initialDelayString = "${app.logistics.dashboard.counts-interval-ms:1000}",
+            fixedDelayString = "${app.logistics.dashboard.counts-interval-ms:1000}")
+    public void publishCounts() {
+        Map<String, Long> counts = currentCounts();
+        synchronized (this) {
+            if (counts.equals(publishedCounts)) {
+                return;
+            }
+            publishedCounts = counts;
+            Map<String, Object> delta = new LinkedHashMap<>();
+            delta.put("seq", ++sequence);
+            delta.put("kind", "COUNTS");
+            delta.put("counts", counts);
+            delta.put("totalOrders", total(counts));
+            publishDelta(delta);
+            countDeltas.incrementAndGet();
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sequence", sequence);
+        stats.put("laneSize", laneSize);
+        stats.put("trackedOrders", orders.size());
+        stats.put("snapshots", snapshots.get());
+        stats.put("orderDeltas", orderDeltas.get());
+        stats.put("countDeltas", countDeltas.get());
+        return stats;
+    }
+
+    /**
+     * Move an order to the front of its status lane and publish the move. Caller holds the lock.
+     */
+    private void enterLane(LaneEntry entry) {
+        LaneEntry previous = orders.remove(entry.orderId);
+        orders.put(entry.orderId, entry);
+        OrderStatus previousStatus = null;
+        if (previous != null) {
+            previousStatus = previous.status;
+            lanes.get(previous.status).remove(entry.orderId);
+        }
+        Deque<Long> lane = lanes.get(entry.status);
+        lane.remove(entry.orderId);
+        lane.addFirst(entry.orderId);
+        while (lane.size() > laneSize) {
+            lane.removeLast();
+        }
+        trimTrackedOrders();
+
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("seq", ++sequence);
+        delta.put("kind", "ORDER");
+        delta.put("previousStatus", previousStatus != null ? previousStatus.name() : null);
+        delta.put("order", entry.toMap());
+        // Published under the lock, so deltas reach the dispatcher queue in sequence order
+        publishDelta(delta);
+        orderDeltas.incrementAndGet();
+    }
+
+    private void publishDelta(Map<String, Object> delta) {
+        dispatcher.publish(List.of(DELTAS_DESTINATION), DELTA_TYPE, delta, null);
+    }
+
+    /**
+     * Forget the least recently changed orders that are in no lane
+     */
+    private void trimTrackedOrders() {
+        Iterator<Map.Entry<Long, LaneEntry>> eldest = orders.entrySet().iterator();
+        while (orders.size() > trackedOrders && eldest.hasNext()) {
+            Map.Entry<Long, LaneEntry> candidate = eldest.next();
+            if (!lanes.get(candidate.getValue().status).contains(candidate.getKey())) {
+                eldest.remove();
+            }
+        }
+    }
+
+    private Map<String, Long> currentCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (OrderStatus status : OrderStatus.values()) {
+            counts.put(status.name(), statusCounts.getOrderCount(status));
+        }
+        return counts;
+    }
+
+    private static long total(Map<String, Long> counts) {
+        return counts.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * The dashboard's view of one order. Immutable - a change replaces the entry.
+     */
+    private static final class LaneEntry {
+        private final Long orderId;
+        private final String clientId;
+        private final String clientName;
+        private final OrderStatus status;
+        private final LocalDateTime orderDate;
+        private final Integer totalItems;
+        private final Double totalWeight;
+
+        private LaneEntry(Long orderId, String clientId, String clientName, OrderStatus status,
+                          LocalDateTime orderDate, Integer totalItems, Double totalWeight) {
+            this.orderId = orderId;
+            this.clientId = clientId;
+            this.clientName = clientName;
+            this.status = status;
+            this.orderDate = orderDate;
+            this.totalItems = totalItems;
+            this.totalWeight = totalWeight;
+        }
+
+        private LaneEntry withStatus(OrderStatus newStatus) {
+            return new LaneEntry(orderId, clientId, clientName, newStatus, orderDate, totalItems, totalWeight);
+        }
+
+        private LaneEntry withDetails(String newClientName, Integer newTotalItems) {
+            return new LaneEntry(orderId, clientId, newClientName, status, orderDate, newTotalItems, totalWeight);
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("orderId", orderId);
+            map.put("clientId", clientId);
+            map.put("clientName", clientName);
+            map.put("status", status.name());
+            map.put("orderDate", orderDate);
+            map.put("totalItems", totalItems);
+            map.put("totalWeight", totalWeight);
+            return map;
+        }
+    }
+}
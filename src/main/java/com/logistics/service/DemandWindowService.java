@@ -0,0 +1,199 @@
+package com.logistics.service;
+
+import com.logistics.model.Order;
+import com.logistics.model.OrderItem;
+import com.logistics.repository.OrderRepository;
+import com.logistics.util.CatalogEntry;
+import com.logistics.util.SlidingWindowCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ordered quantity per category and per SKU over a sliding window (24 hours by default).
+ *
+ * Every submitted order adds its item quantities to per-minute ring buffers once its transaction
+ * commits, so demand checks read one running total per category instead of reloading the orders of
+ * the last day. The windows are rebuilt from the orders table on startup.
+ */
+@Service
+public class DemandWindowService {
+
+    private static final Logger log = LoggerFactory.getLogger(DemandWindowService.class);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductCatalogService productCatalog;
+
+    @Value("${app.logistics.demand.window-minutes:1440}")
+    private int windowMinutes;
+
+    private final Map<String, SlidingWindowCounter> byCategory = new ConcurrentHashMap<>();
+    private final Map<String, SlidingWindowCounter> bySku = new ConcurrentHashMap<>();
+
+    /**
+     * Fill the windows with the orders placed within the window before startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<OrderRepository.DemandLine> lines =
+                orderRepository.findDemandLinesSince(LocalDateTime.now().minusMinutes(windowMinutes));
+        for (OrderRepository.DemandLine line : lines) {
+            record(line.getCategory(), line.getSku(), line.getQuantity(), toMinute(line.getOrderDate()));
+        }
+        log.info("Demand windows rebuilt from {} order lines: {} categories, {} SKUs",
+                lines.size(), byCategory.size(), bySku.size());
+    }
+
+    public void orderSubmitted(Order order) {
+        ordersSubmitted(Collections.singletonList(order));
+    }
+
+    /**
+     * Orders were submitted. Counted after the surrounding transaction commits, if there is one.
+     */
+    public void ordersSubmitted(Collection<Order> orders) {
+        // Resolve categories now - the items only hold product references
+        List<Line> lines = new ArrayList<>();
+        for (Order order : orders) {
+            long minute = toMinute(order.getOrderDate());
+            for (OrderItem item : order.getItems()) {
+                CatalogEntry product = productCatalog.getById(item.getProduct().getId());
+                lines.add(new Line(product.getCategory(), product.getSku(), item.getQuantity(), minute));
+            }
+        }
+        afterCommit(() -> lines.forEach(line -> record(line.category, line.sku, line.quantity, line.minute)));
+    }
+
+    /**
+     * Quantity ordered per category over the whole window
+     */
+    public Map<String, Long> getCategoryDemand() {
+        long now = currentMinute();
+        Map<String, Long> demand = new TreeMap<>();
+        byCategory.forEach((category, counter) -> demand.put(category, counter.sum(now)));
+        return demand;
+    }
+
+    /**
+     * Quantity ordered per category over the window, summed from the orders table. The windows only
+     * count orders submitted on this node; this covers every node sharing the database.
+     */
+    public Map<String, Long> queryCategoryDemand() {
+        Map<String, Long> demand = new TreeMap<>();
+        for (OrderRepository.CategoryDemand row :
+                orderRepository.sumDemandByCategorySince(LocalDateTime.now().minusMinutes(windowMinutes))) {
+            demand.put(row.getCategory(), row.getQuantity());
+        }
+        return demand;
+    }
+
+    public long getSkuDemand(String sku) {
+        SlidingWindowCounter counter = bySku.get(sku);
+        return counter == null ? 0 : counter.sum(currentMinute());
+    }
+
+    /**
+     * Per-minute quantities of the last minutes for every category and the busiest SKUs, for the
+     * dashboard demand charts
+     */
+    public Map<String, Object> getDemandSeries(int minutes, int topSkus) {
+        long now = currentMinute();
+        int length = Math.max(1, Math.min(minutes, windowMinutes));
+
+        Map<String, long[]> categories = new TreeMap<>();
+        byCategory.forEach((category, counter) -> categories.put(category, counter.series(now, length)));
+
+        // Busiest SKUs over the charted minutes
+        Map<String, long[]> skuSeries = new HashMap<>();
+        Map<String, Long> skuTotals = new HashMap<>();
+        bySku.forEach((sku, counter) -> {
+            long[] series = counter.series(now, length);
+            long total = Arrays.stream(series).sum();
+            if (total > 0) {
+                skuSeries.put(sku, series);
+                skuTotals.put(sku, total);
+            }
+        });
+        Map<String, long[]> skus = new LinkedHashMap<>();
+        skuTotals.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(topSkus)
+                .forEach(entry -> skus.put(entry.getKey(), skuSeries.get(entry.getKey())));
+
+        Map<String, Object> series = new LinkedHashMap<>();
+        series.put("windowMinutes", windowMinutes);
+        series.put("minutes", length);
+        series.put("endMinuteEpochMs", TimeUnit.MINUTES.toMillis(now));
+        series.put("windowTotals", getCategoryDemand());
+        series.put("categories", categories);
+        series.put("skus", skus);
+        return series;
+    }
+
+    /**
+     * Window totals per category for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("windowMinutes", windowMinutes);
+        stats.put("categories", byCategory.size());
+        stats.put("skus", bySku.size());
+        stats.put("categoryDemand", getCategoryDemand());
+        return stats;
+    }
+
+    private void record(String category, String sku, int quantity, long minute) {
+        byCategory.computeIfAbsent(category, key -> new SlidingWindowCounter(windowMinutes)).add(minute, quantity);
+        bySku.computeIfAbsent(sku, key -> new SlidingWindowCounter(windowMinutes)).add(minute, quantity);
+    }
+
+    private static long toMinute(LocalDateTime time) {
+        return TimeUnit.MILLISECONDS.toMinutes(time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    private static long currentMinute() {
+        return TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+    }
+
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private static final class Line {
+        private final String category;
+        private final String sku;
+        private final int quantity;
+        private final long minute;
+
+        private Line(String category, String sku, int quantity, long minute) {
+            this.category = category;
+            this.sku = sku;
+            this.quantity = quantity;
+            this.minute = minute;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.logistics.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.logistics.util.EventRingBuffer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-Sent Events stream of order and shipment events, for portals whose proxies break WebSockets.
+ *
+ * Each event is serialized once into a fixed-size {@link EventRingBuffer}. A connection holds only a
+ * cursor into the ring; sender threads write whatever lies after the cursor, so nothing is buffered
+ * per connection. Event ids are "epoch-sequence" with the epoch fixed at startup. A client that
+ * reconnects with Last-Event-ID gets exactly the events after that id straight from the ring, with
+ * no database query. If that id is older than the ring or from before a restart, the stream starts
+ * with a "reset" event: the client must reload its state, and the stream then continues live.
+ *
+ * A connection more than max-lag events behind the ring, or whose write has been blocked for longer
+ * than the send timeout, is closed and counted as a slow consumer. max-lag is below the ring size,
+ * so the client can usually still resume from its Last-Event-ID after the disconnect. A blocked
+ * write keeps its sender thread until the container's write timeout ends it.
+ */
+@Service
+public class EventStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(EventStreamService.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.logistics.sse.buffer-capacity:4096}")
+    private int bufferCapacity;
+
+    // Below the buffer capacity, so a disconnected slow client can still resume
+    @Value("${app.logistics.sse.max-lag:2048}")
+    private int maxLag;
+
+    @Value("${app.logistics.sse.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    @Value("${app.logistics.sse.heartbeat-interval-ms:15000}")
+    private long heartbeatIntervalMs;
+
+    // Clients reconnect with Last-Event-ID when the stream times out
+    @Value("${app.logistics.sse.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${app.logistics.sse.sender-threads:4}")
+    private int senderThreads;
+
+    @Value("${app.logistics.sse.batch-size:256}")
+    private int batchSize;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    private EventRingBuffer ring;
+    private ObjectWriter writer;
+    private ExecutorService senders;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    private final AtomicLong heartbeats = new AtomicLong();
+    private final AtomicLong slowDisconnects = new AtomicLong();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        ring = new EventRingBuffer(bufferCapacity);
+        // One event per data line - SSE data must not span lines
+        writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(senderThreads, task -> {
+            Thread thread = new Thread(task, "SSE-Sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("logistics.sse.connections", connections, Set::size)
+                .description("Open Server-Sent Events connections").register(meterRegistry);
+        FunctionCounter.builder("logistics.sse.slow.disconnects", slowDisconnects, AtomicLong::get)
+                .description("Event stream connections closed for falling behind").register(meterRegistry);
+
+        log.info("Event stream started (buffer of {} events, epoch {})", ring.getCapacity(), epoch);
+    }
+
+    @PreDestroy
+    public void stop() {
+        senders.shutdownNow();
+        for (Connection connection : connections) {
+            connection.emitter.complete();
+        }
+        connections.clear();
+    }
+
+    /**
+     * Append an event to the stream and wake the connections. Never blocks on a connection.
+     *
+     * @param orderId order the event belongs to, or null
+     */
+    public void publish(String type, Long orderId, String clientId, Object data) {
+        String payload;
+        try {
+            payload = writer.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            log.warn("Event {} not streamed: {}", type, e.getMessage());
+            return;
+        }
+        ring.append(type, orderId != null ? orderId : 0, clientId, payload);
+        published.incrementAndGet();
+        for (Connection connection : connections) {
+            schedule(connection);
+        }
+    }
+
+    /**
+     * Open a stream, optionally resuming after the last event id the client saw and limited to
+     * one client's or one order's events
+     */
+    public SseEmitter subscribe(String lastEventId, String clientId, Long orderId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Connection connection = new Connection(emitter, clientId, orderId);
+
+        long resumeAfter = resumePosition(lastEventId);
+        if (resumeAfter < 0) {
+            connection.cursor = ring.getHead();
+            connection.resetPending = lastEventId != null && !lastEventId.isBlank();
+        } else {
+            connection.cursor = resumeAfter;
+            connection.replayUntil = ring.getHead();
+        }
+
+        emitter.onCompletion(() -> connections.remove(connection));
+        emitter.onTimeout(() -> connections.remove(connection));
+        emitter.onError(error -> connections.remove(connection));
+        connections.add(connection);
+        connectionsOpened.incrementAndGet();
+        schedule(connection);
+        return emitter;
+    }
+
+    /**
+     * Close connections whose write has been blocked too long, and wake idle ones for a heartbeat
+     */
+    @Scheduled(fixedDelayString = "${app.logistics.sse.monitor-interval-ms:1000}")
+    public void monitor() {
+        long now = System.currentTimeMillis();
+        for (Connection connection : connections) {
+            long sendingSince = connection.sendingSince;
+            if (sendingSince != 0 && now - sendingSince > sendTimeoutMs) {
+                // The emitter is locked by the blocked write - its sender closes it once the write returns
+                disconnectSlow(connection, "write blocked for " + (now - sendingSince) + " ms");
+            } else if (now - connection.lastSentAt > heartbeatIntervalMs) {
+                connection.heartbeatDue = true;
+                schedule(connection);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("epoch", epoch);
+        stats.put("bufferCapacity", ring.getCapacity());
+        stats.put("oldestEventId", epoch + "-" + ring.getOldest());
+        stats.put("newestEventId", epoch + "-" + ring.getHead());
+        stats.put("maxLag", maxLag);
+        stats.put("connections", connections.size());
+        stats.put("connectionsOpened", connectionsOpened.get());
+        stats.put("published", published.get());
+        stats.put("sent", sent.get());
+        stats.put("replayed", replayed.get());
+        stats.put("resets", resets.get());
+        stats.put("heartbeats", heartbeats.get());
+        stats.put("slowDisconnects", slowDisconnects.get());
+        return stats;
+    }
+
+    /**
+     * Sequence to resume after, or -1 when the id is missing, from another epoch or no longer held
+     */
+    private long resumePosition(String lastEventId) {
+        if (lastEventId == null || !lastEventId.startsWith(epoch + "-")) {
+            return -1;
+        }
+        long sequence;
+        try {
+            sequence = Long.parseLong(lastEventId.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        if (sequence < ring.getOldest() - 1 || sequence > ring.getHead()) {
+            return -1;
+        }
+        return sequence;
+    }
+
+    private void schedule(Connection connection) {
+        if (!connection.closed && connection.scheduled.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> flush(connection));
+            } catch (RuntimeException e) {
+                // Shutting down
+                connection.scheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Write everything after the connection's cursor. Runs on one sender thread at a time per connection.
+     */
+    private void flush(Connection connection) {
+        try {
+            if (connection.resetPending) {
+                send(connection, SseEmitter.event().name("reset").data("{\"reason\":\"missed events are no longer available\"}"));
+                connection.resetPending = false;
+                resets.incrementAndGet();
+            }
+            while (!connection.closed) {
+                if (ring.getHead() - connection.cursor > maxLag) {
+                    disconnectSlow(connection, (ring.getHead() - connection.cursor) + " events behind");
+                    break;
+                }
+                List<EventRingBuffer.Entry> batch = ring.readAfter(connection.cursor, batchSize);
+                if (batch == null) {
+                    disconnectSlow(connection, "missed events were overwritten");
+                    break;
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (EventRingBuffer.Entry entry : batch) {
+                    if (connection.matches(entry)) {
+                        send(connection, SseEmitter.event()
+                                .id(epoch + "-" + entry.getSequence())
+                                .name(entry.getType())
+                                .data(entry.getPayload()));
+                        sent.incrementAndGet();
+                        if (entry.getSequence() <= connection.replayUntil) {
+                            replayed.incrementAndGet();
+                        }
+                    }
+                    connection.cursor = entry.getSequence();
+                }
+            }
+            if (connection.heartbeatDue && !connection.closed) {
+                send(connection, SseEmitter.event().comment("keepalive"));
+                heartbeats.incrementAndGet();
+            }
+            connection.heartbeatDue = false;
+        } catch (IOException | IllegalStateException e) {
+            // Client went away - the emitter callbacks remove it
+            connection.closed = true;
+            connections.remove(connection);
+        } finally {
+            connection.sendingSince = 0;
+            if (connection.closed) {
+                connection.emitter.complete();
+            }
+            connection.scheduled.set(false);
+            // An event appended while this flush was finishing found it still scheduled
+            if (!connection.closed && ring.getHead() > connection.cursor) {
+                schedule(connection);
+            }
+        }
+    }
+
+    private void send(Connection connection, SseEmitter.SseEventBuilder event) throws IOException {
+        connection.sendingSince = System.currentTimeMillis();
+        connection.emitter.send(event);
+        connection.lastSentAt = System.currentTimeMillis();
+        connection.sendingSince = 0;
+    }
+
+    private void disconnectSlow(Connection connection, String reason) {
+        if (!connection.closed) {
+            connection.closed = true;
+            connections.remove(connection);
+            slowDisconnects.incrementAndGet();
+            log.warn("Event stream consumer disconnected as too slow: {}", reason);
+        }
+    }
+
+    /**
+     * One open stream and how far it has been written
+     */
+    private static final class Connection {
+        private final SseEmitter emitter;
+        private final String clientId;
+        private final Long orderId;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // Written only by the sender running this connection's flush
+        private volatile long cursor;
+        private volatile long replayUntil;
+        private volatile boolean resetPending;
+        private volatile boolean heartbeatDue;
+        private volatile boolean closed;
+        private volatile long sendingSince;
+        private volatile long lastSentAt = System.currentTimeMillis();
+
+        private Connection(SseEmitter emitter, String clientId, Long orderId) {
+            this.emitter = emitter;
+            this.clientId = clientId;
+            this.orderId = orderId;
+        }
+
+        private boolean matches(EventRingBuffer.Entry entry) {
+            return (clientId == null || clientId.equals(entry.getClientId()))
+                    && (orderId == null || orderId == entry.getOrderId());
+        }
+    }
+}
@@ -1,55 +1,210 @@
 // ============= FULFILLMENT AGENT =============
 package com.logistics.service;
 
+import com.logistics.exception.ProductNotFoundException;
 import com.logistics.model.Order;
 import com.logistics.model.OrderItem;
 import com.logistics.model.Product;
 import com.logistics.repository.ProductRepository;
+import com.logistics.util.CatalogEntry;
 import com.logistics.util.FulfillmentResult;
+import com.logistics.util.InventoryCheckResult;
+import com.logistics.util.InventoryReservationResult;
+import com.logistics.util.OrderHolds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.function.Function;
 
 /**
  * AI Agent specialized in order fulfillment
  */
 @Service
 public class FulfillmentAgent {
-    
+
+    private static final Logger log = LoggerFactory.getLogger(FulfillmentAgent.class);
+
     @Autowired
     private ProductRepository productRepository;
-    
+
+    @Autowired
+    private ProductCatalogService productCatalog;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private InventoryAgent inventoryAgent;
+
+    @Autowired
+    private SoftReservationService softReservations;
+
+    @Autowired
+    private PipelineLatencyMetrics latencyMetrics;
+
     /**
-     * Fulfill order by reserving inventory
+     * Check and reserve inventory in one unit of work.
+     * The order's products are loaded with one query, checked (including safety-stock warnings) and
+     * reserved in the same transaction, so stock cannot disappear between the check and the reservation.
+     * Soft holds placed for the order count as available to it and are taken over by the reservation.
+     */
+    @Transactional
+    public InventoryReservationResult checkAndReserve(Order order) {
+        long checkStartedAt = System.nanoTime();
+        Map<Long, Product> products = inventoryAgent.loadProducts(order);
+        OrderHolds holds = softReservations.getOrderHolds(order.getId());
+
+        InventoryCheckResult inventoryCheck = inventoryAgent.checkInventory(order, products, holds);
+        latencyMetrics.record(PipelineLatencyMetrics.INVENTORY, System.nanoTime() - checkStartedAt);
+        if (!inventoryCheck.isAvailable()) {
+            return new InventoryReservationResult(inventoryCheck, null);
+        }
+
+        log.debug("Fulfilling order: {}", order.getId());
+        FulfillmentResult fulfillment = reserve(quantitiesOf(order), holds,
+                productId -> products.get(productId).getSku(), productId -> products.get(productId).getName());
+        return new InventoryReservationResult(inventoryCheck, fulfillment);
+    }
+
+    /**
+     * Fulfill order by reserving inventory.
+     * Stock is decremented with guarded updates (never below zero) in one batch, in SKU order so
+     * concurrent multi-line orders cannot deadlock. If any line is refused the whole reservation rolls back.
+     * In ledger mode the same reservation is made in the in-memory inventory ledger instead.
      */
     @Transactional
     public FulfillmentResult fulfillOrder(Order order) {
-        System.out.println("Fulfilling order: " + order.getId());
-        
+        log.debug("Fulfilling order: {}", order.getId());
+
         try {
-            // Reserve inventory for each item
-            for (OrderItem item : order.getItems()) {
-                Product product = productRepository.findById(item.getProduct().getId()).orElse(null);
-                
-                if (product == null) {
-                    throw new RuntimeException("Product not found: " + item.getProduct().getSku());
-                }
-                
-                if (product.getStockQuantity() < item.getQuantity()) {
-                    throw new RuntimeException("Insufficient stock for: " + product.getName());
-                }
-                
-                // Reserve inventory
-                product.setStockQuantity(product.getStockQuantity() - item.getQuantity());
-                productRepository.save(product);
-                
-                System.out.println("Reserved " + item.getQuantity() + " units of " + product.getName());
+            Map<Long, Integer> quantities = quantitiesOf(order);
+
+            Map<Long, CatalogEntry> products = new HashMap<>();
+            for (Long productId : quantities.keySet()) {
+                products.put(productId, productCatalog.getById(productId));
             }
-            
-            return new FulfillmentResult(true, "Order fulfilled successfully");
-            
-        } catch (Exception e) {
+
+            return reserve(quantities, softReservations.getOrderHolds(order.getId()),
+                    productId -> products.get(productId).getSku(), productId -> products.get(productId).getName());
+
+        } catch (ProductNotFoundException e) {
             return new FulfillmentResult(false, "Fulfillment failed: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Reserve all lines in SKU order, in the ledger or with guarded updates, marking the
+     * transaction rollback-only if any line is refused. The order's holds are taken over first:
+     * held units it ordered come out of held stock, the rest of the holds go back to available-to-promise.
+     */
+    private FulfillmentResult reserve(Map<Long, Integer> quantities, OrderHolds holds, Function<Long, String> skuOf,
+                                      Function<Long, String> nameOf) {
+        if (!softReservations.handOver(Collections.singletonList(holds))) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return new FulfillmentResult(false, "Fulfillment failed: holds of the order changed during reservation");
+        }
+
+        Map<Long, Integer> orderedQuantities = inSkuOrder(quantities, skuOf);
+        Map<Long, Integer> heldTaken = holds.takenBy(quantities);
+        Map<Long, Integer> heldExcess = holds.excessOver(quantities);
+        List<Long> refused;
+        if (inventoryLedger.covers(quantities.keySet())) {
+            refused = reserveInLedger(orderedQuantities, heldTaken, heldExcess);
+        } else {
+            refused = productRepository.decrementStockIfAvailable(orderedQuantities, heldTaken);
+            if (refused.isEmpty() && !heldExcess.isEmpty()) {
+                productRepository.applyHeldDeltas(negated(heldExcess));
+            }
+        }
+        if (!refused.isEmpty()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return new FulfillmentResult(false,
+                    "Fulfillment failed: Insufficient stock for: " + nameOf.apply(refused.get(0)));
+        }
+
+        if (log.isDebugEnabled()) {
+            quantities.forEach((productId, quantity) ->
+                    log.debug("Reserved {} units of {}", quantity, nameOf.apply(productId)));
+        }
+
+        return new FulfillmentResult(true, "Order fulfilled successfully");
+    }
+
+    /**
+     * Ledger mode: reserve the units not covered by the order's holds in memory, take the held ones,
+     * and undo both if the surrounding transaction (which writes the order status) rolls back.
+     * Held units the order does not need are released once it committed.
+     */
+    private List<Long> reserveInLedger(Map<Long, Integer> quantities, Map<Long, Integer> heldTaken,
+                                       Map<Long, Integer> heldExcess) {
+        Map<Long, Integer> unheld = new LinkedHashMap<>();
+        quantities.forEach((productId, quantity) -> {
+            int free = quantity - heldTaken.getOrDefault(productId, 0);
+            if (free > 0) {
+                unheld.put(productId, free);
+            }
+        });
+
+        List<Long> refused = inventoryLedger.reserve(unheld);
+        if (!refused.isEmpty()) {
+            return refused;
+        }
+        if (!heldTaken.isEmpty()) {
+            inventoryLedger.takeHeld(heldTaken);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        inventoryLedger.release(unheld);
+                        if (!heldTaken.isEmpty()) {
+                            inventoryLedger.restoreHeld(heldTaken);
+                        }
+                    } else if (!heldExcess.isEmpty()) {
+                        inventoryLedger.releaseHeld(heldExcess);
+                    }
+                }
+            });
+        } else if (!heldExcess.isEmpty()) {
+            inventoryLedger.releaseHeld(heldExcess);
+        }
+        return refused;
+    }
+
+    /**
+     * Quantities of the order summed per product
+     */
+    static Map<Long, Integer> quantitiesOf(Order order) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItem item : order.getItems()) {
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    static Map<Long, Integer> negated(Map<Long, Integer> quantities) {
+        Map<Long, Integer> negated = new LinkedHashMap<>();
+        quantities.forEach((productId, quantity) -> negated.put(productId, -quantity));
+        return negated;
+    }
+
+    /**
+     * Order stock decrements by SKU - the lock order every reservation path must follow
+     */
+    static Map<Long, Integer> inSkuOrder(Map<Long, Integer> quantities, Function<Long, String> skuOf) {
+        Map<Long, Integer> ordered = new LinkedHashMap<>();
+        quantities.keySet().stream()
+                .sorted(Comparator.comparing(skuOf))
+                .forEach(productId -> ordered.put(productId, quantities.get(productId)));
+        return ordered;
+    }
+}
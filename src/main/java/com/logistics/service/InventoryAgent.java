@@ -6,50 +6,110 @@ import com.logistics.model.OrderItem;
 import com.logistics.model.Product;
 import com.logistics.repository.ProductRepository;
 import com.logistics.util.InventoryCheckResult;
+import com.logistics.util.OrderHolds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 /**
  * AI Agent specialized in inventory management
  */
 @Service
 public class InventoryAgent {
     
+    private static final Logger log = LoggerFactory.getLogger(InventoryAgent.class);
+    
     @Autowired
     private ProductRepository productRepository;
     
+    @Autowired
+    private InventoryLedger inventoryLedger;
+    
+    @Autowired
+    private SoftReservationService softReservations;
+    
     /**
-     * Check inventory availability for order items
+     * Check inventory availability for order items against available-to-promise (stock minus held),
+     * counting the order's own holds as available to it
      */
     public InventoryCheckResult checkInventory(Order order) {
-        System.out.println(" Checking inventory for order: " + order.getId());
+        return checkInventory(order, loadProducts(order), softReservations.getOrderHolds(order.getId()));
+    }
+    
+    /**
+     * Check inventory availability against products and holds the caller already loaded
+     */
+    public InventoryCheckResult checkInventory(Order order, Map<Long, Product> products, OrderHolds holds) {
+        log.debug("Checking inventory for order: {}", order.getId());
         
         for (OrderItem item : order.getItems()) {
-            Product product = productRepository.findById(item.getProduct().getId()).orElse(null);
+            Long productId = item.getProduct().getId();
+            Product product = products.get(productId);
             
-            if (product == null) {
-                return new InventoryCheckResult(false, 
-                    "Product not found: " + item.getProduct().getSku());
+            int stockQuantity = 0;
+            if (product != null) {
+                // In ledger mode the products table lags behind reservations - read the ledger instead
+                stockQuantity = inventoryLedger.covers(Collections.singleton(productId))
+                        ? inventoryLedger.getAvailable(productId)
+                        : product.getAvailableToPromise();
+                stockQuantity += holds.getHeld(productId);
             }
             
-            if (product.getStockQuantity() < item.getQuantity()) {
-                return new InventoryCheckResult(false, 
-                    "Insufficient stock for product: " + product.getName() + 
-                    ". Available: " + product.getStockQuantity() + 
-                    ", Requested: " + item.getQuantity());
-            }
-            
-            // AI-driven check: Reserve safety stock
-            int safetyStock = calculateSafetyStock(product);
-            if (product.getStockQuantity() - item.getQuantity() < safetyStock) {
-                System.out.println(" Low stock warning for: " + product.getName());
-                // Don't fail, just warn - could trigger reorder in real system
+            InventoryCheckResult lineCheck = checkLine(productId, product, stockQuantity, item.getQuantity());
+            if (!lineCheck.isAvailable()) {
+                return lineCheck;
             }
         }
         
         return new InventoryCheckResult(true, "All items available in sufficient quantity");
     }
     
+    /**
+     * Load every product of the order with a single query, keyed by id
+     */
+    public Map<Long, Product> loadProducts(Order order) {
+        Set<Long> productIds = order.getItems().stream()
+                .map(item -> item.getProduct().getId())
+                .collect(Collectors.toSet());
+        
+        return productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+    
+    /**
+     * Check one line against a known available quantity, warning when it would dip into safety stock.
+     * Shared by the per-order and the batched reservation paths.
+     */
+    public InventoryCheckResult checkLine(Long productId, Product product, int stockQuantity, int requested) {
+        if (product == null) {
+            return new InventoryCheckResult(false, 
+                "Product not found with ID: " + productId);
+        }
+        
+        if (stockQuantity < requested) {
+            return new InventoryCheckResult(false, 
+                "Insufficient stock for product: " + product.getName() + 
+                ". Available: " + stockQuantity + 
+                ", Requested: " + requested);
+        }
+        
+        // AI-driven check: Reserve safety stock
+        int safetyStock = calculateSafetyStock(product);
+        if (stockQuantity - requested < safetyStock) {
+            log.warn("Low stock warning for: {}", product.getName());
+            // Don't fail, just warn - could trigger reorder in real system
+        }
+        
+        return new InventoryCheckResult(true, "Available");
+    }
+    
     /**
      * AI algorithm to calculate safety stock based on product characteristics
      */
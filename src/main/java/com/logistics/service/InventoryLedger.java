@@ -0,0 +1,455 @@
+package com.logistics.service;
+
+import com.logistics.repository.ProductRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory stock ledger used when app.logistics.inventory.mode=ledger.
+ *
+ * Each product owns one slot of an AtomicLongArray packing two ints: stock available to reserve
+ * (high half) and the change not yet written to the products table (low half). Reserve and release
+ * are single CAS operations on that word, so both halves always move together without locks.
+ * A write-behind flush persists the coalesced per-product deltas every flush interval and on shutdown.
+ *
+ * The products table lags the ledger by up to one flush interval, and a crash loses the unflushed
+ * deltas. On startup the ledger loads from the database; the periodic reconciliation adopts any stock
+ * change made directly in the database.
+ *
+ * Soft holds come out of the available half straight away, so order reservations can never take held
+ * stock. Their held_quantity column is written in its own transaction under the shared side of the
+ * ledger's read-write lock: holds and flushes write the database in parallel, and only reconciliation
+ * (available = stock - held + unflushed) takes the lock exclusively, so it never sees a half-written change.
+ */
+@Service
+public class InventoryLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryLedger.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.logistics.inventory.mode:database}")
+    private String inventoryMode;
+
+    private volatile boolean active;
+    private TransactionTemplate heldTransaction;
+
+    // Fixed once loaded: product id -> slot, and slot -> product id
+    private Map<Long, Integer> slots = Collections.emptyMap();
+    private long[] productIds = new long[0];
+    private AtomicLongArray ledger = new AtomicLongArray(0);
+
+    private final AtomicLong reservations = new AtomicLong();
+    private final AtomicLong refusals = new AtomicLong();
+    private final AtomicLong casRetries = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushedDeltas = new AtomicLong();
+    private final AtomicLong reconciliations = new AtomicLong();
+    private final AtomicLong reconciledUnits = new AtomicLong();
+    // Shared by every database write of ledger changes, exclusive for reconciliation
+    private final ReadWriteLock reconcileLock = new ReentrantReadWriteLock();
+
+    /**
+     * Load available stock from the database once data.sql has run
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!"ledger".equalsIgnoreCase(inventoryMode)) {
+            return;
+        }
+
+        List<ProductRepository.StockLevel> levels = productRepository.findStockLevels();
+        Map<Long, Integer> slotsById = new HashMap<>(levels.size() * 2);
+        long[] ids = new long[levels.size()];
+        AtomicLongArray words = new AtomicLongArray(levels.size());
+
+        for (int slot = 0; slot < levels.size(); slot++) {
+            ProductRepository.StockLevel level = levels.get(slot);
+            slotsById.put(level.getId(), slot);
+            ids[slot] = level.getId();
+            words.set(slot, pack(level.getStockQuantity() - heldOf(level), 0));
+        }
+
+        // Held quantities commit on their own, even when the caller is already in a transaction
+        heldTransaction = new TransactionTemplate(transactionManager);
+        heldTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        slots = Collections.unmodifiableMap(slotsById);
+        productIds = ids;
+        ledger = words;
+        registerMetrics();
+        active = true;
+
+        log.info("Inventory ledger loaded stock for {} products from the database", ids.length);
+    }
+
+    /**
+     * True when stock reservations go through the ledger instead of the database
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Whether every product is held in the ledger. Products created after startup are not.
+     */
+    public boolean covers(Collection<Long> productIdsToCheck) {
+        return active && slots.keySet().containsAll(productIdsToCheck);
+    }
+
+    /**
+     * Stock currently available to reserve
+     */
+    public int getAvailable(Long productId) {
+        return available(ledger.get(slotOf(productId)));
+    }
+
+    /**
+     * Reserve every line or none. Lines that fit are rolled back if a later line is short.
+     *
+     * @return the product that could not be reserved, or an empty list on success
+     */
+    public List<Long> reserve(Map<Long, Integer> quantitiesByProductId) {
+        Map<Long, Integer> reserved = new LinkedHashMap<>();
+
+        for (Map.Entry<Long, Integer> line : quantitiesByProductId.entrySet()) {
+            if (!tryReserve(slotOf(line.getKey()), line.getValue())) {
+                release(reserved);
+                refusals.incrementAndGet();
+                return Collections.singletonList(line.getKey());
+            }
+            reserved.put(line.getKey(), line.getValue());
+        }
+
+        reservations.incrementAndGet();
+        return Collections.emptyList();
+    }
+
+    /**
+     * Give stock back - cancelled reservations and restocks alike
+     */
+    public void release(Map<Long, Integer> quantitiesByProductId) {
+        quantitiesByProductId.forEach((productId, quantity) -> add(slotOf(productId), quantity, quantity));
+    }
+
+    /**
+     * Put stock under a soft hold: out of the available half now, into held_quantity at once
+     *
+     * @return false if the available stock is short
+     */
+    public boolean hold(Long productId, int quantity) {
+        int slot = slotOf(productId);
+        reconcileLock.readLock().lock();
+        try {
+            if (!tryReserveAvailable(slot, quantity)) {
+                return false;
+            }
+            try {
+                writeHeld(Collections.singletonMap(productId, quantity));
+            } catch (RuntimeException e) {
+                add(slot, quantity, 0);
+                throw e;
+            }
+            return true;
+        } finally {
+            reconcileLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Released or expired holds - the stock becomes available again
+     */
+    public void releaseHeld(Map<Long, Integer> quantitiesByProductId) {
+        reconcileLock.readLock().lock();
+        try {
+            writeHeld(negated(quantitiesByProductId));
+            quantitiesByProductId.forEach((productId, quantity) -> add(slotOf(productId), quantity, 0));
+        } finally {
+            reconcileLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Holds taken over by a confirmation or an order's reservation. The units are already out of the
+     * available half; they leave the stock with the next flush.
+     */
+    public void takeHeld(Map<Long, Integer> quantitiesByProductId) {
+        reconcileLock.readLock().lock();
+        try {
+            writeHeld(negated(quantitiesByProductId));
+            quantitiesByProductId.forEach((productId, quantity) -> add(slotOf(productId), 0, -quantity));
+        } finally {
+            reconcileLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Undo takeHeld when the transaction that took the holds rolled back
+     */
+    public void restoreHeld(Map<Long, Integer> quantitiesByProductId) {
+        reconcileLock.readLock().lock();
+        try {
+            writeHeld(quantitiesByProductId);
+            quantitiesByProductId.forEach((productId, quantity) -> add(slotOf(productId), 0, quantity));
+        } finally {
+            reconcileLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write-behind: snapshot the coalesced deltas, then persist them in one JDBC batch.
+     * Holds and reservations carry on while the batch is written.
+     */
+    @Scheduled(fixedDelayString = "${app.logistics.inventory.ledger.flush-interval-ms:200}")
+    public void flush() {
+        if (!active) {
+            return;
+        }
+
+        reconcileLock.readLock().lock();
+        try {
+            flushDeltas();
+        } finally {
+            reconcileLock.readLock().unlock();
+        }
+    }
+
+    private void flushDeltas() {
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        for (int slot = 0; slot < productIds.length; slot++) {
+            int delta = takeUnflushed(slot);
+            if (delta != 0) {
+                deltas.put(productIds[slot], delta);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> productRepository.applyStockDeltas(deltas));
+            flushes.incrementAndGet();
+            flushedDeltas.addAndGet(deltas.size());
+        } catch (Exception e) {
+            // Hand the deltas back so the next flush retries them
+            deltas.forEach((productId, delta) -> add(slotOf(productId), 0, delta));
+            log.error("Inventory ledger flush of {} products failed: {}", deltas.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compare the ledger with the products table and adopt changes made directly in the database.
+     * Runs after a flush with the ledger lock held exclusively, so no hold or flush is half-written and
+     * every slot must satisfy available = stock - held + unflushed. Order reservations are lock-free and
+     * carry on; holds wait for the one stock-level query.
+     */
+    @Scheduled(fixedDelayString = "${app.logistics.inventory.ledger.reconcile-interval-ms:60000}",
+            initialDelayString = "${app.logistics.inventory.ledger.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        if (!active) {
+            return;
+        }
+
+        reconcileLock.writeLock().lock();
+        try {
+            flushDeltas();
+            reconcileStockLevels();
+        } finally {
+            reconcileLock.writeLock().unlock();
+        }
+    }
+
+    private void reconcileStockLevels() {
+        int driftedProducts = 0;
+        int untrackedProducts = 0;
+        for (ProductRepository.StockLevel level : productRepository.findStockLevels()) {
+            Integer slot = slots.get(level.getId());
+            if (slot == null) {
+                untrackedProducts++;
+                continue;
+            }
+
+            // One atomic read - reservations racing with us move both halves and leave the drift unchanged
+            long word = ledger.get(slot);
+            int drift = level.getStockQuantity() - heldOf(level) + unflushed(word) - available(word);
+            if (drift != 0) {
+                add(slot, drift, 0);
+                reconciledUnits.addAndGet(Math.abs(drift));
+                driftedProducts++;
+                log.warn("Inventory ledger drift for product {}: adjusted available stock by {}", level.getId(), drift);
+            }
+        }
+
+        reconciliations.incrementAndGet();
+        if (driftedProducts > 0) {
+            log.info("Inventory ledger reconciled - {} products adjusted", driftedProducts);
+        }
+        if (untrackedProducts > 0) {
+            log.info("{} products were created after the ledger loaded and reserve through the database",
+                    untrackedProducts);
+        }
+    }
+
+    /**
+     * Persist what is still pending before the connection pool goes away
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (active) {
+            flush();
+            log.info("Inventory ledger flushed on shutdown");
+        }
+    }
+
+    /**
+     * Ledger statistics for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        int unflushedProducts = 0;
+        for (int slot = 0; slot < productIds.length; slot++) {
+            if (unflushed(ledger.get(slot)) != 0) {
+                unflushedProducts++;
+            }
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", inventoryMode);
+        stats.put("active", active);
+        stats.put("products", productIds.length);
+        stats.put("reservations", reservations.get());
+        stats.put("refusals", refusals.get());
+        stats.put("casRetries", casRetries.get());
+        stats.put("unflushedProducts", unflushedProducts);
+        stats.put("flushes", flushes.get());
+        stats.put("flushedDeltas", flushedDeltas.get());
+        stats.put("reconciliations", reconciliations.get());
+        stats.put("reconciledUnits", reconciledUnits.get());
+        return stats;
+    }
+
+    private boolean tryReserveAvailable(int slot, int quantity) {
+        while (true) {
+            long word = ledger.get(slot);
+            int available = available(word);
+            if (available < quantity) {
+                return false;
+            }
+            if (ledger.compareAndSet(slot, word, pack(available - quantity, unflushed(word)))) {
+                return true;
+            }
+            casRetries.incrementAndGet();
+        }
+    }
+
+    private void writeHeld(Map<Long, Integer> deltasByProductId) {
+        heldTransaction.executeWithoutResult(status -> productRepository.applyHeldDeltas(deltasByProductId));
+    }
+
+    private static Map<Long, Integer> negated(Map<Long, Integer> quantitiesByProductId) {
+        Map<Long, Integer> negated = new LinkedHashMap<>();
+        quantitiesByProductId.forEach((productId, quantity) -> negated.put(productId, -quantity));
+        return negated;
+    }
+
+    private static int heldOf(ProductRepository.StockLevel level) {
+        return level.getHeldQuantity() != null ? level.getHeldQuantity() : 0;
+    }
+
+    private boolean tryReserve(int slot, int quantity) {
+        while (true) {
+            long word = ledger.get(slot);
+            int available = available(word);
+            if (available < quantity) {
+                return false;
+            }
+            if (ledger.compareAndSet(slot, word, pack(available - quantity, unflushed(word) - quantity))) {
+                return true;
+            }
+            casRetries.incrementAndGet();
+        }
+    }
+
+    private void add(int slot, int availableDelta, int unflushedDelta) {
+        while (true) {
+            long word = ledger.get(slot);
+            long updated = pack(available(word) + availableDelta, unflushed(word) + unflushedDelta);
+            if (ledger.compareAndSet(slot, word, updated)) {
+                return;
+            }
+            casRetries.incrementAndGet();
+        }
+    }
+
+    private int takeUnflushed(int slot) {
+        while (true) {
+            long word = ledger.get(slot);
+            int delta = unflushed(word);
+            if (delta == 0 || ledger.compareAndSet(slot, word, pack(available(word), 0))) {
+                return delta;
+            }
+            casRetries.incrementAndGet();
+        }
+    }
+
+    private int slotOf(Long productId) {
+        Integer slot = slots.get(productId);
+        if (slot == null) {
+            throw new IllegalArgumentException("Product " + productId + " is not held in the inventory ledger");
+        }
+        return slot;
+    }
+
+    private void registerMetrics() {
+        FunctionCounter.builder("logistics.inventory.ledger.reservations", reservations, AtomicLong::get)
+                .description("Orders reserved in the inventory ledger").register(meterRegistry);
+        FunctionCounter.builder("logistics.inventory.ledger.refusals", refusals, AtomicLong::get)
+                .description("Ledger reservations refused for lack of stock").register(meterRegistry);
+        FunctionCounter.builder("logistics.inventory.ledger.cas.retries", casRetries, AtomicLong::get)
+                .description("Contended compare-and-set retries").register(meterRegistry);
+        FunctionCounter.builder("logistics.inventory.ledger.flushes", flushes, AtomicLong::get)
+                .description("Write-behind batches persisted").register(meterRegistry);
+        Gauge.builder("logistics.inventory.ledger.products", this, ledger -> ledger.productIds.length)
+                .description("Products held in the inventory ledger").register(meterRegistry);
+    }
+
+    private static long pack(int available, int unflushed) {
+        return ((long) available << 32) | (unflushed & 0xFFFFFFFFL);
+    }
+
+    private static int available(long word) {
+        return (int) (word >> 32);
+    }
+
+    private static int unflushed(long word) {
+        return (int) word;
+    }
+}
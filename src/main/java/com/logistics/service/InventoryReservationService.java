@@ -0,0 +1,372 @@
+package com.logistics.service;
+
+import com.logistics.exception.OrderProcessingException;
+import com.logistics.model.Order;
+import com.logistics.model.OrderStatus;
+import com.logistics.model.Product;
+import com.logistics.repository.OrderRepository;
+import com.logistics.repository.ProductRepository;
+import com.logistics.util.FulfillmentResult;
+import com.logistics.util.InventoryCheckResult;
+import com.logistics.util.InventoryReservationResult;
+import com.logistics.util.OrderHolds;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Micro-batched stock reservation for concurrently processed orders.
+ *
+ * Orders are collected for a few milliseconds by a single flusher thread. Each batch loads every
+ * affected product with one query, checks and allocates stock to the orders in arrival order, then applies
+ * the per-product decrements as one batch of guarded updates (in SKU order) and moves the accepted
+ * orders from RECEIVED to FULFILLED, all in one transaction. Each order's future completes after commit with its
+ * check and reservation result. An order that is no longer RECEIVED was taken over elsewhere; it reserves nothing
+ * and its future fails with an OrderProcessingException.
+ */
+@Service
+public class InventoryReservationService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryReservationService.class);
+
+    private static final int MAX_ALLOCATION_ATTEMPTS = 3;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private InventoryAgent inventoryAgent;
+
+    @Autowired
+    private SoftReservationService softReservations;
+
+    @Autowired
+    private PipelineLatencyMetrics latencyMetrics;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StatusCountService statusCounts;
+
+    @Autowired
+    private OrderDeadlineIndex deadlineIndex;
+
+    @Value("${app.logistics.inventory.reservation.batch-window-ms:5}")
+    private long batchWindowMs;
+
+    @Value("${app.logistics.inventory.reservation.max-batch-size:100}")
+    private int maxBatchSize;
+
+    private final LinkedBlockingQueue<PendingReservation> pending = new LinkedBlockingQueue<>();
+    private volatile boolean running;
+    private Thread flusher;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong reservedOrders = new AtomicLong();
+    private final AtomicLong rejectedOrders = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    private DistributionSummary batchSizeSummary;
+    private Timer flushTimer;
+
+    @PostConstruct
+    public void start() {
+        batchSizeSummary = DistributionSummary.builder("logistics.inventory.reservation.batch.size")
+                .description("Orders reserved per database round trip").register(meterRegistry);
+        flushTimer = Timer.builder("logistics.inventory.reservation.flush")
+                .description("Time to load, allocate and write one reservation batch").register(meterRegistry);
+        Gauge.builder("logistics.inventory.reservation.pending", pending, Queue::size)
+                .description("Orders waiting for the next reservation batch").register(meterRegistry);
+
+        running = true;
+        flusher = new Thread(this::runFlusher, "Inventory-Reservation");
+        flusher.setDaemon(true);
+        flusher.start();
+
+        log.info("Inventory reservation batching started (window {} ms, max {} orders per batch)",
+                batchWindowMs, maxBatchSize);
+    }
+
+    /**
+     * Flush whatever is still queued, then stop the flusher thread
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+
+        PendingReservation leftover;
+        while ((leftover = pending.poll()) != null) {
+            leftover.future.completeExceptionally(
+                    new RejectedExecutionException("Inventory reservation service is shut down"));
+        }
+    }
+
+    /**
+     * Queue an order for the next reservation batch
+     */
+    public CompletableFuture<InventoryReservationResult> reserve(Order order) {
+        PendingReservation reservation = new PendingReservation(order);
+        if (!running) {
+            reservation.future.completeExceptionally(
+                    new RejectedExecutionException("Inventory reservation service is shut down"));
+            return reservation.future;
+        }
+
+        pending.add(reservation);
+        return reservation.future;
+    }
+
+    private void runFlusher() {
+        List<PendingReservation> batch = new ArrayList<>(maxBatchSize);
+
+        while (running || !pending.isEmpty()) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                // This thread owns the loop - stop collecting but still flush, without an interrupt
+                // flag that would abort the JDBC calls below
+                log.warn("Inventory reservation flusher interrupted - flushing {} collected orders", batch.size());
+                running = false;
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Block for the first order, then keep collecting until the window closes or the batch is full
+     */
+    private void collectBatch(List<PendingReservation> batch) throws InterruptedException {
+        PendingReservation first = pending.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWindowMs);
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            PendingReservation next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<PendingReservation> batch) {
+        long startedAt = System.nanoTime();
+        Map<PendingReservation, InventoryReservationResult> results = null;
+
+        try {
+            // A refused guarded decrement means stock moved after the batch read it - re-read and reallocate
+            for (int attempt = 1; results == null && attempt <= MAX_ALLOCATION_ATTEMPTS; attempt++) {
+                results = transactionTemplate.execute(status -> allocateAndWrite(batch, status));
+            }
+            if (results == null) {
+                throw new IllegalStateException("Stock changed concurrently on " + MAX_ALLOCATION_ATTEMPTS +
+                        " allocation attempts");
+            }
+        } catch (Exception e) {
+            failedBatches.incrementAndGet();
+            log.error("Reservation batch of {} orders failed: {}", batch.size(), e.getMessage(), e);
+            batch.forEach(reservation -> reservation.future.completeExceptionally(e));
+            return;
+        } finally {
+            flushTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+
+        batches.incrementAndGet();
+        batchSizeSummary.record(batch.size());
+
+        // Complete only after commit so callers never act on a reservation that could still roll back
+        for (Map.Entry<PendingReservation, InventoryReservationResult> entry : results.entrySet()) {
+            PendingReservation reservation = entry.getKey();
+            InventoryReservationResult result = entry.getValue();
+            if (result == null) {
+                reservation.future.completeExceptionally(new OrderProcessingException(reservation.order.getId(),
+                        "FULFILLMENT", "order is no longer RECEIVED"));
+                continue;
+            }
+            if (result.isReserved()) {
+                reservedOrders.incrementAndGet();
+            } else {
+                rejectedOrders.incrementAndGet();
+            }
+            reservation.future.complete(result);
+        }
+    }
+
+    /**
+     * Runs inside the batch transaction: one status select, one hold select, one product select, one batched
+     * stock update and one guarded status update. Orders no longer RECEIVED map to a null result; accepted
+     * orders take their soft holds over. Returns null, with the transaction marked rollback-only, if a guarded
+     * decrement was refused, a hold changed or an order left RECEIVED meanwhile.
+     */
+    private Map<PendingReservation, InventoryReservationResult> allocateAndWrite(List<PendingReservation> batch,
+                                                                        TransactionStatus status) {
+        Set<Long> receivedIds = new HashSet<>(orderRepository.findIdsByIdInAndStatus(
+                batch.stream().map(reservation -> reservation.order.getId()).collect(Collectors.toList()),
+                OrderStatus.RECEIVED));
+        Map<Long, OrderHolds> holdsByOrder = softReservations.getOrderHolds(receivedIds);
+
+        Set<Long> productIds = new HashSet<>();
+        batch.forEach(reservation -> productIds.addAll(reservation.quantities.keySet()));
+
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        Map<Long, Integer> available = new HashMap<>();
+        // Stock under soft holds is not available to orders, except to the order it is held for
+        products.forEach((id, product) -> available.put(id, product.getAvailableToPromise()));
+
+        Map<Long, Integer> decrements = new HashMap<>();
+        Map<Long, Integer> heldTaken = new HashMap<>();
+        Map<Long, Integer> heldReleased = new HashMap<>();
+        List<OrderHolds> acceptedHolds = new ArrayList<>();
+        List<Long> acceptedOrderIds = new ArrayList<>();
+        Map<PendingReservation, InventoryReservationResult> results = new LinkedHashMap<>();
+
+        // First come, first served within the batch
+        for (PendingReservation reservation : batch) {
+            if (!receivedIds.contains(reservation.order.getId())) {
+                results.put(reservation, null);
+                continue;
+            }
+            OrderHolds holds = holdsByOrder.getOrDefault(reservation.order.getId(),
+                    OrderHolds.none(reservation.order.getId()));
+            Map<Long, Integer> taken = holds.takenBy(reservation.quantities);
+
+            long checkStartedAt = System.nanoTime();
+            InventoryCheckResult inventoryCheck = checkAgainstBatch(reservation, products, available, taken);
+            latencyMetrics.record(PipelineLatencyMetrics.INVENTORY, System.nanoTime() - checkStartedAt);
+            if (!inventoryCheck.isAvailable()) {
+                results.put(reservation, new InventoryReservationResult(inventoryCheck, null));
+                continue;
+            }
+
+            reservation.quantities.forEach((productId, quantity) -> {
+                available.merge(productId, taken.getOrDefault(productId, 0) - quantity, Integer::sum);
+                decrements.merge(productId, quantity, Integer::sum);
+            });
+            taken.forEach((productId, quantity) -> heldTaken.merge(productId, quantity, Integer::sum));
+            holds.excessOver(reservation.quantities).forEach((productId, quantity) ->
+                    heldReleased.merge(productId, -quantity, Integer::sum));
+            acceptedHolds.add(holds);
+            acceptedOrderIds.add(reservation.order.getId());
+            results.put(reservation, new InventoryReservationResult(inventoryCheck,
+                    new FulfillmentResult(true, "Order fulfilled successfully")));
+        }
+
+        if (!decrements.isEmpty()) {
+            if (!softReservations.handOver(acceptedHolds)) {
+                log.warn("Soft holds of orders in the reservation batch changed - retrying");
+                status.setRollbackOnly();
+                return null;
+            }
+            List<Long> refused = productRepository.decrementStockIfAvailable(
+                    FulfillmentAgent.inSkuOrder(decrements, productId -> products.get(productId).getSku()), heldTaken);
+            if (!refused.isEmpty()) {
+                log.warn("Stock for products {} changed during reservation batch - retrying", refused);
+                status.setRollbackOnly();
+                return null;
+            }
+            if (!heldReleased.isEmpty()) {
+                productRepository.applyHeldDeltas(heldReleased);
+            }
+            int moved = orderRepository.updateStatusForIds(acceptedOrderIds, OrderStatus.RECEIVED, OrderStatus.FULFILLED);
+            if (moved != acceptedOrderIds.size()) {
+                log.warn("{} of {} orders left RECEIVED during reservation batch - retrying",
+                        acceptedOrderIds.size() - moved, acceptedOrderIds.size());
+                status.setRollbackOnly();
+                return null;
+            }
+            statusCounts.ordersTransitioned(acceptedOrderIds, OrderStatus.RECEIVED, OrderStatus.FULFILLED);
+            deadlineIndex.statusEntered(acceptedOrderIds, OrderStatus.FULFILLED);
+        }
+
+        return results;
+    }
+
+    /**
+     * Inventory check for one order against what earlier orders in the batch left over, plus its own holds
+     */
+    private InventoryCheckResult checkAgainstBatch(PendingReservation reservation, Map<Long, Product> products,
+                                                   Map<Long, Integer> available, Map<Long, Integer> heldForOrder) {
+        for (Map.Entry<Long, Integer> line : reservation.quantities.entrySet()) {
+            InventoryCheckResult lineCheck = inventoryAgent.checkLine(line.getKey(), products.get(line.getKey()),
+                    available.getOrDefault(line.getKey(), 0) + heldForOrder.getOrDefault(line.getKey(), 0),
+                    line.getValue());
+            if (!lineCheck.isAvailable()) {
+                return lineCheck;
+            }
+        }
+        return new InventoryCheckResult(true, "All items available in sufficient quantity");
+    }
+
+    /**
+     * Batching statistics for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        long batchCount = batches.get();
+        long orders = reservedOrders.get() + rejectedOrders.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("batches", batchCount);
+        stats.put("failedBatches", failedBatches.get());
+        stats.put("reservedOrders", reservedOrders.get());
+        stats.put("rejectedOrders", rejectedOrders.get());
+        stats.put("avgBatchSize", batchCount > 0 ? (double) orders / batchCount : 0.0);
+        stats.put("batchWindowMs", batchWindowMs);
+        stats.put("maxBatchSize", maxBatchSize);
+        return stats;
+    }
+
+    /**
+     * An order waiting for the next batch, with its quantities summed per product
+     */
+    private static final class PendingReservation {
+        private final Order order;
+        private final Map<Long, Integer> quantities;
+        private final CompletableFuture<InventoryReservationResult> future = new CompletableFuture<>();
+
+        private PendingReservation(Order order) {
+            this.order = order;
+            this.quantities = FulfillmentAgent.quantitiesOf(order);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.logistics.service;
+
+import com.logistics.model.JobLease;
+import com.logistics.repository.JobLeaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Database leases that let several nodes share one database without running the same scheduled
+ * job on every node.
+ *
+ * A job takes its lease at the start of a cycle with one guarded UPDATE, committed on its own
+ * before the job's work starts. The lease lasts a fraction of the job interval, so it has always
+ * expired by the next cycle and whichever node gets there first runs it - each job runs once per
+ * cycle across the cluster. Large jobs can be split into id shards (id MOD shards) with a lease
+ * each; a node claims shards one at a time and works each before claiming the next, taking at most
+ * its share of the live nodes (counted from heartbeat leases in the same table).
+ *
+ * The work runs in its own transaction, which has committed before the lease is given back - so the
+ * next node to take the lease always sees what the last run wrote. Callers must not wrap the call in
+ * a transaction of their own, or the work would only commit after the lease is gone.
+ *
+ * While the work runs, the node heartbeat keeps extending its leases, so a cycle that overruns its
+ * interval is not started on a second node. When the work ends the lease goes back to the end of
+ * its cycle - or ends at once if the cycle overran. A node that stalls for longer than a whole
+ * lease (a long GC pause, a lost database connection) can still lose it to another node while its
+ * work carries on; the heartbeat logs that, but cannot stop the work.
+ *
+ * Lease times come from each node's clock, so node clocks must agree to well within a lease, and
+ * the heartbeat interval must be well below the shortest lease. With app.logistics.cluster.enabled
+ * false every job simply runs on this node.
+ *
+ * The node id names this node's leases and its order work claims, and a restarted node releases the
+ * claims left under its id - so the id must stay the same across restarts. A clustered node must be
+ * given one (app.logistics.cluster.node-id), unique per node; a single node uses its host name.
+ */
+@Service
+public class JobLeaseService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobLeaseService.class);
+
+    private static final String NODE_PREFIX = "node:";
+
+    @Autowired
+    private JobLeaseRepository leaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.logistics.cluster.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.logistics.cluster.node-id:}")
+    private String configuredNodeId;
+
+    // Every node must use the same number of shards
+    @Value("${app.logistics.cluster.shards:4}")
+    private int shards;
+
+    // Below 1, so a lease taken this cycle has expired by the next one
+    @Value("${app.logistics.cluster.lease-fraction:0.9}")
+    private double leaseFraction;
+
+    @Value("${app.logistics.cluster.heartbeat-interval-ms:10000}")
+    private long heartbeatIntervalMs;
+
+    private TransactionTemplate leaseTransaction;
+    private TransactionTemplate jobTransaction;
+    private String nodeId;
+    private final Map<String, JobStats> jobStats = new ConcurrentHashMap<>();
+    // Leases of work running on this node right now, extended by every heartbeat
+    private final Map<String, HeldLease> heldLeases = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void initialize() {
+        // Leases commit on their own, even when the caller is already in a transaction
+        leaseTransaction = new TransactionTemplate(transactionManager);
+        leaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        jobTransaction = new TransactionTemplate(transactionManager);
+        if (configuredNodeId != null && !configuredNodeId.isBlank()) {
+            nodeId = configuredNodeId;
+        } else if (enabled) {
+            throw new IllegalStateException("app.logistics.cluster.node-id must be set when cluster job leases "
+                    + "are enabled - one per node, kept the same across restarts");
+        } else {
+            nodeId = localHostName();
+        }
+        if (enabled) {
+            log.info("Cluster job leases enabled on node {} with {} shards per sharded job", nodeId, shards);
+        }
+    }
+
+    /**
+     * Run the work in a transaction if this node gets the lease of the job for this cycle, keeping the
+     * lease until the work has committed. False means another node runs the job this cycle.
+     */
+    public boolean runIfAcquired(String job, Duration interval, Runnable work) {
+        if (!enabled) {
+            runInTransaction(work);
+            return true;
+        }
+        if (!tryAcquire(job, interval)) {
+            return false;
+        }
+        runHolding(job, interval, work);
+        return true;
+    }
+
+    /**
+     * Take the lease of a job for this cycle without holding it while the job runs.
+     * False means another node runs the job this cycle.
+     */
+    private boolean tryAcquire(String job, Duration interval) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = now.plus(leaseLength(interval));
+        boolean acquired;
+        try {
+            acquired = acquire(job, now, leaseUntil);
+        } catch (DataAccessException e) {
+            // Lock timeout or lost insert race - another node is taking the lease right now
+            log.debug("Lease {} not acquired: {}", job, e.getMessage());
+            acquired = false;
+        }
+        jobStats.computeIfAbsent(job, name -> new JobStats()).record(acquired, now);
+        return acquired;
+    }
+
+    /**
+     * Run the work for each shard of a job this node gets the lease of, one transaction per shard.
+     * Without clustering the work runs once as shard 0 of 1. Returns the number of shards run here.
+     */
+    public int forEachShard(String job, Duration interval, ShardWork work) {
+        if (!enabled) {
+            runInTransaction(() -> work.run(0, 1));
+            return 1;
+        }
+        long liveNodes = Math.max(1, leaseRepository.countLiveNodes(LocalDateTime.now()));
+        long share = (shards + liveNodes - 1) / liveNodes;
+
+        // Start at a node-specific shard so nodes ticking together do not contend for the same one
+        int start = Math.floorMod(nodeId.hashCode(), shards);
+        int run = 0;
+        for (int i = 0; i < shards && run < share; i++) {
+            int shard = (start + i) % shards;
+            String shardJob = job + "#" + shard + "/" + shards;
+            if (tryAcquire(shardJob, interval)) {
+                runHolding(shardJob, interval, () -> work.run(shard, shards));
+                run++;
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Keep this node counted as live for shard sharing, and extend the leases of work still running here
+     */
+    @Scheduled(fixedRateString = "${app.logistics.cluster.heartbeat-interval-ms:10000}")
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        String name = NODE_PREFIX + nodeId;
+        LocalDateTime leaseUntil = LocalDateTime.now().plus(Duration.ofMillis(heartbeatIntervalMs * 3));
+        try {
+            Integer renewed = leaseTransaction.execute(status -> leaseRepository.renew(name, nodeId, leaseUntil));
+            if (renewed == null || renewed == 0) {
+                leaseTransaction.execute(status -> leaseRepository.insertAcquired(name, nodeId, LocalDateTime.now(), leaseUntil));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Node heartbeat failed: {}", e.getMessage());
+        }
+
+        heldLeases.forEach((job, held) -> {
+            try {
+                if (renew(job, LocalDateTime.now().plus(held.length))) {
+                    held.renewed = true;
+                } else if (heldLeases.containsKey(job)) {
+                    log.warn("Lease {} was taken by another node while the job was still running on {}", job, nodeId);
+                }
+            } catch (DataAccessException e) {
+                log.warn("Renewing lease {} failed: {}", job, e.getMessage());
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            log.warn("Could not resolve the local host name, using 'localhost' as node id: {}", e.getMessage());
+            return "localhost";
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Lease table contents and this node's acquire counts for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("nodeId", nodeId);
+        stats.put("shards", shards);
+
+        Map<String, Object> jobs = new TreeMap<>();
+        jobStats.forEach((job, counts) -> jobs.put(job, counts.toMap()));
+        stats.put("jobs", jobs);
+
+        if (enabled) {
+            LocalDateTime now = LocalDateTime.now();
+            stats.put("liveNodes", leaseRepository.countLiveNodes(now));
+            List<Map<String, Object>> leases = new ArrayList<>();
+            for (JobLease lease : leaseRepository.findAllByOrderByJobName()) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("job", lease.getJobName());
+                row.put("owner", lease.getOwner());
+                row.put("acquiredAt", lease.getAcquiredAt());
+                row.put("leaseUntil", lease.getLeaseUntil());
+                row.put("active", lease.getLeaseUntil().isAfter(now));
+                leases.add(row);
+            }
+            stats.put("leases", leases);
+        }
+        return stats;
+    }
+
+    /**
+     * Run leased work with the heartbeat extending its lease. Once its transaction has committed or
+     * rolled back the lease ends where the cycle would have ended it, or now if the work overran that.
+     */
+    private void runHolding(String job, Duration interval, Runnable work) {
+        HeldLease held = new HeldLease(leaseLength(interval));
+        heldLeases.put(job, held);
+        try {
+            runInTransaction(work);
+        } finally {
+            heldLeases.remove(job);
+            if (held.renewed) {
+                LocalDateTime cycleEnd = held.acquiredAt.plus(held.length);
+                LocalDateTime now = LocalDateTime.now();
+                try {
+                    renew(job, cycleEnd.isAfter(now) ? cycleEnd : now);
+                } catch (DataAccessException e) {
+                    // The renewed lease simply runs out later
+                    log.warn("Shortening lease {} failed: {}", job, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void runInTransaction(Runnable work) {
+        jobTransaction.executeWithoutResult(status -> work.run());
+    }
+
+    private boolean renew(String job, LocalDateTime leaseUntil) {
+        Integer renewed = leaseTransaction.execute(status -> leaseRepository.renew(job, nodeId, leaseUntil));
+        return renewed != null && renewed == 1;
+    }
+
+    private Duration leaseLength(Duration interval) {
+        return Duration.ofMillis((long) (interval.toMillis() * leaseFraction));
+    }
+
+    private boolean acquire(String job, LocalDateTime now, LocalDateTime leaseUntil) {
+        Integer updated = leaseTransaction.execute(status -> leaseRepository.acquireExpired(job, nodeId, now, leaseUntil));
+        if (updated != null && updated == 1) {
+            return true;
+        }
+        if (leaseRepository.existsById(job)) {
+            return false;
+        }
+        // First cycle of this job anywhere - a node inserting it concurrently fails on the primary key
+        leaseTransaction.execute(status -> leaseRepository.insertAcquired(job, nodeId, now, leaseUntil));
+        return true;
+    }
+
+    /**
+     * Work on the rows of one shard: those with id MOD shards == shard
+     */
+    @FunctionalInterface
+    public interface ShardWork {
+        void run(int shard, int shards);
+    }
+
+    private static final class HeldLease {
+        private final LocalDateTime acquiredAt = LocalDateTime.now();
+        private final Duration length;
+        private volatile boolean renewed;
+
+        private HeldLease(Duration length) {
+            this.length = length;
+        }
+    }
+
+    private static final class JobStats {
+        private final AtomicLong acquired = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private volatile LocalDateTime lastAcquiredAt;
+
+        private void record(boolean wasAcquired, LocalDateTime now) {
+            if (wasAcquired) {
+                acquired.incrementAndGet();
+                lastAcquiredAt = now;
+            } else {
+                skipped.incrementAndGet();
+            }
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("acquired", acquired.get());
+            map.put("skipped", skipped.get());
+            map.put("lastAcquiredAt", lastAcquiredAt);
+            return map;
+        }
+    }
+}
@@ -1,17 +1,25 @@
 package com.logistics.service;
 
+import com.logistics.exception.OrderProcessingException;
 import com.logistics.model.*;
 import com.logistics.repository.OrderRepository;
 import com.logistics.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Enhanced Main AI Agent orchestrating the complete logistics workflow with real-time updates
@@ -24,9 +32,6 @@ public class LogisticsAIAgent {
     @Autowired
     private OrderValidationAgent orderValidationAgent;
 
-    @Autowired
-    private InventoryAgent inventoryAgent;
-
     @Autowired
     private FulfillmentAgent fulfillmentAgent;
 
@@ -45,132 +50,359 @@ public class LogisticsAIAgent {
     @Autowired
     private ApplicationEventPublisher eventPublisher;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private OrderPipeline pipeline;
+
+    @Autowired
+    private InventoryReservationService inventoryReservations;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private SoftReservationService softReservations;
+
+    @Autowired
+    private AdmissionControlService admissionControl;
+
+    @Autowired
+    private PipelineLatencyMetrics latencyMetrics;
+
+    @Autowired
+    private PerformanceMonitoringService performanceMonitoring;
+
+    @Autowired
+    private StatusCountService statusCounts;
+
+    @Autowired
+    private OrderDeadlineIndex deadlineIndex;
+
+    @Value("${app.logistics.inventory.reservation.batching:true}")
+    private boolean batchedReservations;
+
     /**
-     * Process order asynchronously through the complete logistics workflow with real-time updates
+     * Process order through the staged pipeline with real-time updates.
+     * Validation, inventory check plus fulfillment, picking instructions and shipment scheduling each run
+     * on their own stage pool, so a slow stage only queues work for itself. The returned future
+     * completes with the outcome message once the order has left the pipeline.
      */
-    @Async("aiAgentExecutor")
-    @Transactional
     public CompletableFuture<String> processOrder(Order order) {
-        try {
-            log.info("AI Agent processing order: {}", order.getId());
+        WorkflowState state = new WorkflowState(order);
+        long startedAt = System.nanoTime();
+        admissionControl.orderStarted();
+
+        CompletableFuture<String> outcome = pipeline.validation().submit(
+                timed(PipelineLatencyMetrics.VALIDATION, () -> validate(state)));
+        // Inventory check and reservation are one unit of work; the batcher only applies to the database mode
+        outcome = batchedReservations && !inventoryLedger.isActive()
+                ? reserveBatched(outcome, state)
+                : then(outcome, pipeline.fulfillment(), timed(PipelineLatencyMetrics.FULFILLMENT,
+                        () -> checkAndReserve(state)));
+        outcome = then(outcome, pipeline.warehouse(), timed(PipelineLatencyMetrics.WAREHOUSE,
+                () -> generateInstructions(state)));
+        outcome = then(outcome, pipeline.shipping(), timed(PipelineLatencyMetrics.SHIPPING,
+                () -> scheduleShipment(state)));
+
+        return outcome.exceptionally(e -> failOrder(state,
+                        e instanceof CompletionException && e.getCause() != null ? e.getCause() : e))
+                .whenComplete((message, e) -> orderFinished(state, startedAt));
+    }
 
-            // Send AI processing notification
-            notificationService.sendAIAlert("LogisticsAIAgent", "Started processing order #" + order.getId(),
-                    java.util.Map.of("orderId", order.getId(), "stage", "INITIATED"));
+    /**
+     * Feed a whole batch of orders into the pipeline.
+     * Orders move through the stages independently so one failure does not affect the others.
+     */
+    public CompletableFuture<List<String>> processOrderBatch(List<Order> orders) {
+        log.info("AI Agent processing batch of {} orders", orders.size());
 
-            // Step 1: Validate Order
-            ValidationResult validation = orderValidationAgent.validateOrder(order);
-            if (!validation.isValid()) {
-                OrderStatus oldStatus = order.getStatus();
-                order.setStatus(OrderStatus.CANCELLED);
-                orderRepository.save(order);
+        List<CompletableFuture<String>> outcomes = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            outcomes.add(processOrder(order));
+        }
 
-                notificationService.sendOrderStatusUpdate(order.getId(), oldStatus.toString(), "CANCELLED");
-                notificationService.sendNotification(order.getClientId(),
-                        "Order #" + order.getId() + " cancelled: " + validation.getReason());
+        return CompletableFuture.allOf(outcomes.toArray(new CompletableFuture[0]))
+                .thenApply(done -> outcomes.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
 
-                return CompletableFuture.completedFuture("Order cancelled: " + validation.getReason());
+    /**
+     * Hand the order to the next stage unless an earlier stage already finished it.
+     * Stage steps return null to continue, or the final outcome message.
+     */
+    private CompletableFuture<String> then(CompletableFuture<String> previous, PipelineStage stage,
+                                           Supplier<String> step) {
+        return previous.thenCompose(finished -> finished != null
+                ? CompletableFuture.completedFuture(finished)
+                : stage.submit(step));
+    }
+
+    /**
+     * Fulfillment through the reservation batcher, which checks and reserves stock and writes FULFILLED for
+     * many orders per transaction. The follow-up work runs on the fulfillment stage, never on the flusher thread:
+     * the hand-off never blocks, so a full fulfillment queue cannot stall the other pending reservations.
+     */
+    private CompletableFuture<String> reserveBatched(CompletableFuture<String> previous, WorkflowState state) {
+        return previous.thenCompose(finished -> {
+            if (finished != null) {
+                return CompletableFuture.completedFuture(finished);
             }
+            long queuedAt = System.nanoTime();
+            return inventoryReservations.reserve(state.order).thenCompose(reservation -> {
+                latencyMetrics.record(PipelineLatencyMetrics.FULFILLMENT, System.nanoTime() - queuedAt);
+                return pipeline.fulfillment().submitWithoutWaiting(() -> publishReservation(state, reservation));
+            });
+        });
+    }
 
-            // Update status with real-time notification
-            OrderStatus oldStatus = order.getStatus();
-            order.setStatus(OrderStatus.VALIDATED);
-            orderRepository.save(order);
-            notificationService.sendOrderStatusUpdate(order.getId(), oldStatus.toString(), "VALIDATED");
-            notificationService.sendAIAlert("ValidationAgent", "Order validated successfully",
-                    java.util.Map.of("orderId", order.getId()));
-            log.info("Order validated: {}", order.getId());
-
-            // Step 2: Check Inventory
-            InventoryCheckResult inventoryCheck = inventoryAgent.checkInventory(order);
-            if (!inventoryCheck.isAvailable()) {
-                oldStatus = order.getStatus();
-                order.setStatus(OrderStatus.CANCELLED);
-                orderRepository.save(order);
-
-                notificationService.sendOrderStatusUpdate(order.getId(), oldStatus.toString(), "CANCELLED");
-                notificationService.sendNotification(order.getClientId(),
-                        "Order #" + order.getId() + " cancelled: " + inventoryCheck.getMessage());
-
-                return CompletableFuture.completedFuture("Order cancelled: " + inventoryCheck.getMessage());
+    /**
+     * Time a stage step into its latency histogram, whether it continues, finishes or throws
+     */
+    private Supplier<String> timed(String stage, Supplier<String> step) {
+        return () -> {
+            long startedAt = System.nanoTime();
+            try {
+                return step.get();
+            } finally {
+                latencyMetrics.record(stage, System.nanoTime() - startedAt);
             }
+        };
+    }
 
-            oldStatus = order.getStatus();
-            order.setStatus(OrderStatus.INVENTORY_CHECKED);
-            orderRepository.save(order);
-            notificationService.sendOrderStatusUpdate(order.getId(), oldStatus.toString(), "INVENTORY_CHECKED");
-            notificationService.sendAIAlert("InventoryAgent", "Inventory check passed",
-                    java.util.Map.of("orderId", order.getId()));
-            log.info("Inventory checked for order: {}", order.getId());
-
-            // Step 3: Fulfill Order (Reserve inventory)
-            FulfillmentResult fulfillment = fulfillmentAgent.fulfillOrder(order);
-            if (!fulfillment.isSuccessful()) {
-                oldStatus = order.getStatus();
-                order.setStatus(OrderStatus.CANCELLED);
-                orderRepository.save(order);
-
-                notificationService.sendOrderStatusUpdate(order.getId(), oldStatus.toString(), "CANCELLED");
-                return CompletableFuture.completedFuture("Order fulfillment failed: " + fulfillment.getMessage());
+    /**
+     * The order left the pipeline - record end-to-end time under the status it ended in
+     */
+    private void orderFinished(WorkflowState state, long startedAt) {
+        long elapsed = System.nanoTime() - startedAt;
+        latencyMetrics.record(PipelineLatencyMetrics.END_TO_END, elapsed);
+        admissionControl.orderFinished(startedAt);
+        performanceMonitoring.recordOrderProcessed(state.order.getStatus().toString(),
+                TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    /**
+     * Validation stage - pure business rules, needs no connection
+     */
+    private String validate(WorkflowState state) {
+        Order order = state.order;
+        log.info("AI Agent processing order: {}", order.getId());
+
+        // Send AI processing notification
+        notificationService.sendAIAlert("LogisticsAIAgent", "Started processing order #" + order.getId(),
+                java.util.Map.of("orderId", order.getId(), "stage", "INITIATED"));
+
+        ValidationResult validation = orderValidationAgent.validateOrder(order);
+        if (!validation.isValid()) {
+            cancelOrder(state, validation.getReason(), true);
+            return "Order cancelled: " + validation.getReason();
+        }
+
+        // VALIDATED is not persisted on its own - the next status write is FULFILLED
+        markTransition(order, OrderStatus.VALIDATED);
+        notificationService.sendAIAlert("ValidationAgent", "Order validated successfully",
+                java.util.Map.of("orderId", order.getId()));
+        log.info("Order validated: {}", order.getId());
+        return null;
+    }
+
+    /**
+     * Fulfillment stage with batching switched off - check and reserve stock and write FULFILLED in one
+     * short transaction. A failed reservation rolls back any stock already decremented for earlier items.
+     */
+    private String checkAndReserve(WorkflowState state) {
+        Order order = state.order;
+
+        InventoryReservationResult reservation = transactionTemplate.execute(status -> {
+            InventoryReservationResult result = fulfillmentAgent.checkAndReserve(order);
+            if (result.isReserved()) {
+                writeStatus(state, OrderStatus.FULFILLED);
+            } else {
+                status.setRollbackOnly();
             }
+            return result;
+        });
 
-            oldStatus = order.getStatus();
-            order.setStatus(OrderStatus.FULFILLED);
-            orderRepository.save(order);
-            notificationService.sendOrderStatusUpdate(order.getId(), oldStatus.toString(), "FULFILLED");
-            notificationService.sendAIAlert("FulfillmentAgent", "Order fulfilled - inventory reserved",
-                    java.util.Map.of("orderId", order.getId(), "weight", order.getTotalWeight()));
-            log.info("Order fulfilled: {}", order.getId());
-
-            // Step 4: Generate Warehouse Instructions
-            WarehouseInstructions instructions = warehouseAgent.generatePickingInstructions(order);
-            notificationService.sendAIAlert("WarehouseAgent", "Picking instructions generated",
-                    java.util.Map.of("orderId", order.getId(), "specialHandling", instructions.requiresSpecialHandling()));
-            log.info("Warehouse instructions generated for order: {}", order.getId());
-
-            // Step 5: Schedule Shipment
-            Shipment shipment = shippingAgent.scheduleShipment(order, instructions);
-            oldStatus = order.getStatus();
-            order.setStatus(OrderStatus.READY_FOR_PICKUP);
-            orderRepository.save(order);
+        return publishReservation(state, reservation);
+    }
 
-            notificationService.sendOrderStatusUpdate(order.getId(), oldStatus.toString(), "READY_FOR_PICKUP");
-            notificationService.sendAIAlert("ShippingAgent", "Shipment scheduled",
-                    java.util.Map.of("orderId", order.getId(), "shipmentId", shipment.getId(),
-                            "truckId", shipment.getTruckId(), "estimatedDelivery", shipment.getEstimatedDelivery()));
+    /**
+     * Publish a committed check-and-reserve outcome. Clients still see INVENTORY_CHECKED and then FULFILLED,
+     * although only FULFILLED is written; a refused check or reservation cancels the order.
+     */
+    private String publishReservation(WorkflowState state, InventoryReservationResult reservation) {
+        Order order = state.order;
+        if (reservation.isReserved()) {
+            // Written by the reservation transaction, batched or not
+            state.persistedStatus = OrderStatus.FULFILLED;
+        }
 
-            notificationService.sendNotification(order.getClientId(),
-                    "Order #" + order.getId() + " processed successfully by our AI system. " +
-                            "Shipment #" + shipment.getId() + " scheduled for pickup at " +
-                            shipment.getScheduledPickup() + ". Truck: " + shipment.getTruckId() +
-                            ". Estimated delivery: " + shipment.getEstimatedDelivery());
+        InventoryCheckResult inventoryCheck = reservation.getInventoryCheck();
+        if (!inventoryCheck.isAvailable()) {
+            cancelOrder(state, inventoryCheck.getMessage(), true);
+            return "Order cancelled: " + inventoryCheck.getMessage();
+        }
+
+        markTransition(order, OrderStatus.INVENTORY_CHECKED);
+        notificationService.sendAIAlert("InventoryAgent", "Inventory check passed",
+                java.util.Map.of("orderId", order.getId()));
+        log.info("Inventory checked for order: {}", order.getId());
 
-            log.info("Shipment scheduled: {} for order: {}", shipment.getId(), order.getId());
+        FulfillmentResult fulfillment = reservation.getFulfillment();
+        if (!fulfillment.isSuccessful()) {
+            cancelOrder(state, fulfillment.getMessage(), false);
+            return "Order fulfillment failed: " + fulfillment.getMessage();
+        }
 
-            // Final AI completion notification
-            notificationService.sendAIAlert("LogisticsAIAgent", "Order processing completed successfully",
-                    java.util.Map.of("orderId", order.getId(), "shipmentId", shipment.getId(),
-                            "processingTime", "AI automated", "status", "SUCCESS"));
+        markTransition(order, OrderStatus.FULFILLED);
+        notificationService.sendAIAlert("FulfillmentAgent", "Order fulfilled - inventory reserved",
+                java.util.Map.of("orderId", order.getId(), "weight", order.getTotalWeight()));
+        log.info("Order fulfilled: {}", order.getId());
+        return null;
+    }
 
-            return CompletableFuture.completedFuture(
-                    "Order processed successfully by AI. Shipment ID: " + shipment.getId());
+    /**
+     * Warehouse stage - picking instructions are served from the product catalog, CPU only
+     */
+    private String generateInstructions(WorkflowState state) {
+        Order order = state.order;
+
+        state.instructions = warehouseAgent.generatePickingInstructions(order);
+        notificationService.sendAIAlert("WarehouseAgent", "Picking instructions generated",
+                java.util.Map.of("orderId", order.getId(), "specialHandling", state.instructions.requiresSpecialHandling()));
+        log.info("Warehouse instructions generated for order: {}", order.getId());
+        return null;
+    }
 
-        } catch (Exception e) {
-            log.error("Error processing order {}: {}", order.getId(), e.getMessage(), e);
+    /**
+     * Shipping stage - schedule the shipment and move the order to READY_FOR_PICKUP in one transaction
+     */
+    private String scheduleShipment(WorkflowState state) {
+        Order order = state.order;
+
+        Shipment shipment = transactionTemplate.execute(status -> {
+            Shipment scheduled = shippingAgent.scheduleShipment(order, state.instructions);
+            writeStatus(state, OrderStatus.READY_FOR_PICKUP);
+            return scheduled;
+        });
+        state.persistedStatus = OrderStatus.READY_FOR_PICKUP;
+
+        markTransition(order, OrderStatus.READY_FOR_PICKUP);
+        notificationService.sendAIAlert("ShippingAgent", "Shipment scheduled",
+                java.util.Map.of("orderId", order.getId(), "shipmentId", shipment.getId(),
+                        "truckId", shipment.getTruckId(), "estimatedDelivery", shipment.getEstimatedDelivery()));
+
+        notificationService.sendNotification(order.getClientId(),
+                "Order #" + order.getId() + " processed successfully by our AI system. " +
+                        "Shipment #" + shipment.getId() + " scheduled for pickup at " +
+                        shipment.getScheduledPickup() + ". Truck: " + shipment.getTruckId() +
+                        ". Estimated delivery: " + shipment.getEstimatedDelivery());
+
+        log.info("Shipment scheduled: {} for order: {}", shipment.getId(), order.getId());
+
+        // Final AI completion notification
+        notificationService.sendAIAlert("LogisticsAIAgent", "Order processing completed successfully",
+                java.util.Map.of("orderId", order.getId(), "shipmentId", shipment.getId(),
+                        "processingTime", "AI automated", "status", "SUCCESS"));
+
+        return "Order processed successfully by AI. Shipment ID: " + shipment.getId();
+    }
 
-            // Update order status and send notifications
-            OrderStatus oldStatus = order.getStatus();
-            order.setStatus(OrderStatus.CANCELLED);
-            orderRepository.save(order);
+    /**
+     * Any stage threw - cancel the order in its own transaction, then notify.
+     * An order another run has moved on is left to that run: its status, holds and notifications stand.
+     */
+    private String failOrder(WorkflowState state, Throwable e) {
+        Order order = state.order;
+        if (orderRepository.updateStatus(order.getId(), state.persistedStatus, OrderStatus.CANCELLED) == 0) {
+            log.warn("Order {} is no longer {} - another run took it over: {}",
+                    order.getId(), state.persistedStatus, e.getMessage());
+            return "Order processing superseded: " + e.getMessage();
+        }
+        log.error("Error processing order {}: {}", order.getId(), e.getMessage(), e);
+        performanceMonitoring.recordError(e.getClass().getSimpleName());
 
-            notificationService.sendOrderStatusUpdate(order.getId(), oldStatus.toString(), "CANCELLED");
+        OrderStatus oldStatus = order.getStatus();
+        order.setStatus(OrderStatus.CANCELLED);
+        statusCounts.orderTransition(order, state.persistedStatus, OrderStatus.CANCELLED);
+        deadlineIndex.statusEntered(order.getId(), OrderStatus.CANCELLED);
+        state.persistedStatus = OrderStatus.CANCELLED;
+        releaseHolds(order);
+
+        notificationService.sendOrderStatusUpdate(order.getId(), order.getClientId(), oldStatus.toString(), "CANCELLED");
+        notificationService.sendNotification(order.getClientId(),
+                "Order #" + order.getId() + " processing failed: " + e.getMessage());
+
+        notificationService.sendAIAlert("LogisticsAIAgent", "Order processing failed",
+                java.util.Map.of("orderId", order.getId(), "error", String.valueOf(e.getMessage()), "status", "ERROR"));
+
+        return "Order processing failed: " + e.getMessage();
+    }
+
+    /**
+     * Write CANCELLED in its own short transaction and notify once it has committed
+     */
+    private void cancelOrder(WorkflowState state, String reason, boolean notifyClient) {
+        Order order = state.order;
+        writeStatus(state, OrderStatus.CANCELLED);
+        state.persistedStatus = OrderStatus.CANCELLED;
+        releaseHolds(order);
+        markTransition(order, OrderStatus.CANCELLED);
+
+        if (notifyClient) {
             notificationService.sendNotification(order.getClientId(),
-                    "Order #" + order.getId() + " processing failed: " + e.getMessage());
+                    "Order #" + order.getId() + " cancelled: " + reason);
+        }
+    }
 
-            notificationService.sendAIAlert("LogisticsAIAgent", "Order processing failed",
-                    java.util.Map.of("orderId", order.getId(), "error", e.getMessage(), "status", "ERROR"));
+    /**
+     * Write the next status, guarded on the status this run last wrote. Throws if the order has moved on
+     * meanwhile - its work was claimed again elsewhere - so the surrounding transaction rolls back and
+     * the order is neither reserved nor shipped twice.
+     */
+    private void writeStatus(WorkflowState state, OrderStatus newStatus) {
+        Long orderId = state.order.getId();
+        if (orderRepository.updateStatus(orderId, state.persistedStatus, newStatus) == 0) {
+            throw new OrderProcessingException(orderId, newStatus.name(), "order is no longer " + state.persistedStatus);
+        }
+        statusCounts.orderTransition(state.order, state.persistedStatus, newStatus);
+        deadlineIndex.statusEntered(orderId, newStatus);
+    }
 
-            return CompletableFuture.completedFuture("Order processing failed: " + e.getMessage());
+    /**
+     * A cancelled order no longer needs the stock held for it. A failure here only delays the release
+     * until the holds expire, so it must not fail the cancellation.
+     */
+    private void releaseHolds(Order order) {
+        try {
+            softReservations.releaseForOrder(order.getId());
+        } catch (RuntimeException e) {
+            log.warn("Releasing holds of cancelled order {} failed, they expire instead: {}",
+                    order.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Apply a transition to the in-memory order and publish it
+     */
+    private void markTransition(Order order, OrderStatus newStatus) {
+        OrderStatus oldStatus = order.getStatus();
+        order.setStatus(newStatus);
+        notificationService.sendOrderStatusUpdate(order.getId(), order.getClientId(), oldStatus.toString(), newStatus.toString());
+    }
+
+    /**
+     * Per-order state handed from stage to stage
+     */
+    private static final class WorkflowState {
+        private final Order order;
+        private WarehouseInstructions instructions;
+        // Last status written to the database; the in-memory status also walks the unpersisted steps
+        private OrderStatus persistedStatus;
+
+        private WorkflowState(Order order) {
+            this.order = order;
+            this.persistedStatus = order.getStatus();
         }
     }
 
@@ -189,9 +421,11 @@ public class LogisticsAIAgent {
             OrderStatus oldStatus = order.getStatus();
             order.setStatus(newStatus);
             orderRepository.save(order);
+            statusCounts.orderTransition(order, oldStatus, newStatus);
+            deadlineIndex.statusEntered(order.getId(), newStatus);
 
             // Send real-time status update
-            notificationService.sendOrderStatusUpdate(orderId, oldStatus.toString(), newStatus.toString());
+            notificationService.sendOrderStatusUpdate(orderId, order.getClientId(), oldStatus.toString(), newStatus.toString());
 
             // Send AI alert for status change
             notificationService.sendAIAlert("StatusManager", "Status updated: " + oldStatus + " → " + newStatus,
@@ -210,7 +444,7 @@ public class LogisticsAIAgent {
     public java.util.Map<String, Object> getAIMetrics() {
         // In a real system, these would be tracked metrics
         return java.util.Map.of(
-                "totalOrdersProcessed", orderRepository.count(),
+                "totalOrdersProcessed", statusCounts.getTotalOrders(),
                 "automationSuccessRate", 95.8,
                 "averageProcessingTime", "4.2 minutes",
                 "costSavings", "€15,240 this month",
@@ -0,0 +1,303 @@
+package com.logistics.service;
+
+import com.logistics.util.LatencyHistogram;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends real-time events to WebSocket destinations in batches, off the threads that raise them.
+ *
+ * An event is published to several destinations at once, and only to those that have subscribers
+ * on this node - an event nobody listens to is counted and never queued, and frames are only built
+ * for destinations someone is subscribed to, so the cost follows interested subscribers rather than
+ * connections times events.
+ *
+ * Publishing is an offer into a bounded queue - an event that does not fit is dropped and counted,
+ * so a slow broker never holds up order processing. A single dispatcher thread waits for the first
+ * event of a window, collects everything raised within the flush interval and sends one frame per
+ * destination. Events published with the same coalescing key inside a window are merged into the
+ * latest one; a merged status change keeps the status it started from, so it reads
+ * RECEIVED -> READY_FOR_PICKUP.
+ *
+ * Frames have the form {type: "BATCH", events: [{type, data, timestamp}, ...], timestamp}.
+ *
+ * The time from the enqueue to the event's first frame being sent is the pipeline's notification
+ * stage latency, so its percentiles include the flush window and any queueing behind a slow broker.
+ */
+@Service
+public class NotificationDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RealtimeSubscriptionRegistry subscriptions;
+
+    @Autowired
+    private PipelineLatencyMetrics latencyMetrics;
+
+    @Value("${app.logistics.notifications.flush-interval-ms:100}")
+    private long flushIntervalMs;
+
+    @Value("${app.logistics.notifications.queue-capacity:10000}")
+    private int queueCapacity;
+
+    // Larger windows are split over several frames
+    @Value("${app.logistics.notifications.max-events-per-frame:500}")
+    private int maxEventsPerFrame;
+
+    private BlockingQueue<Event> queue;
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    private final LatencyHistogram lag = new LatencyHistogram();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong unrouted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong deliveries = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong failedFrames = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("logistics.notifications.queue.depth", queue, Collection::size)
+                .description("Real-time events waiting for the next frame").register(meterRegistry);
+        FunctionCounter.builder("logistics.notifications.dropped", dropped, AtomicLong::get)
+                .description("Real-time events dropped because the dispatch queue was full").register(meterRegistry);
+        Gauge.builder("logistics.notifications.lag.max", lag, h -> h.snapshot().getMaxMillis())
+                .description("Longest time in ms an event waited before its frame was sent").register(meterRegistry);
+
+        running = true;
+        dispatcher = new Thread(this::runDispatcher, "Notification-Dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+
+        log.info("Notification dispatcher started (flush every {} ms, queue capacity {})", flushIntervalMs, queueCapacity);
+    }
+
+    /**
+     * Send what is still queued, then stop the dispatcher thread
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        flush();
+    }
+
+    /**
+     * Queue an event for the next frame of each of the destinations that has subscribers. Never blocks.
+     *
+     * @param coalesceKey events with the same key in one window are merged, or null to always send
+     */
+    public void publish(Collection<String> destinations, String type, Object data, String coalesceKey) {
+        Set<String> subscribed = new LinkedHashSet<>();
+        for (String destination : destinations) {
+            if (subscriptions.hasSubscribers(destination)) {
+                subscribed.add(destination);
+            }
+        }
+        if (subscribed.isEmpty()) {
+            unrouted.incrementAndGet();
+            return;
+        }
+        Event event = new Event(subscribed, type, data, coalesceKey);
+        if (queue.offer(event)) {
+            published.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Queue depth, drop and coalescing counts and the time events wait for their frame
+     */
+    public Map<String, Object> getStats() {
+        LatencyHistogram.Snapshot lagSnapshot = lag.snapshot();
+        Map<String, Object> lagStats = new LinkedHashMap<>();
+        lagStats.put("meanMs", lagSnapshot.getMeanMillis());
+        lagStats.put("p99Ms", lagSnapshot.getPercentileMillis(99.0));
+        lagStats.put("maxMs", lagSnapshot.getMaxMillis());
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("flushIntervalMs", flushIntervalMs);
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("published", published.get());
+        stats.put("unrouted", unrouted.get());
+        stats.put("dropped", dropped.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("sent", sent.get());
+        stats.put("deliveries", deliveries.get());
+        stats.put("frames", frames.get());
+        stats.put("failedFrames", failedFrames.get());
+        stats.put("eventsPerFrame", frames.get() > 0 ? Math.round(deliveries.get() * 10.0 / frames.get()) / 10.0 : 0.0);
+        stats.put("lag", lagStats);
+        stats.put("subscriptions", subscriptions.getStats());
+        return stats;
+    }
+
+    private void runDispatcher() {
+        while (running) {
+            try {
+                Event first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Let the rest of the window arrive, then send it all at once
+                long windowLeftNanos = first.enqueuedAt + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs) - System.nanoTime();
+                if (windowLeftNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(windowLeftNanos);
+                }
+                List<Event> window = new ArrayList<>();
+                window.add(first);
+                queue.drainTo(window);
+                send(window);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Notification dispatcher error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void flush() {
+        List<Event> window = new ArrayList<>();
+        queue.drainTo(window);
+        if (!window.isEmpty()) {
+            send(window);
+        }
+    }
+
+    /**
+     * Coalesce one window, then send each destination that still has subscribers its events as frames
+     */
+    private void send(List<Event> window) {
+        List<Event> events = new ArrayList<>(window.size());
+        Map<String, Event> latestByKey = new HashMap<>();
+        for (Event event : window) {
+            if (event.coalesceKey != null) {
+                Event earlier = latestByKey.get(event.coalesceKey);
+                if (earlier != null) {
+                    earlier.mergeFrom(event);
+                    coalesced.incrementAndGet();
+                    continue;
+                }
+                latestByKey.put(event.coalesceKey, event);
+            }
+            events.add(event);
+        }
+
+        Map<String, List<Event>> byDestination = new LinkedHashMap<>();
+        for (Event event : events) {
+            for (String destination : event.destinations) {
+                byDestination.computeIfAbsent(destination, key -> new ArrayList<>()).add(event);
+            }
+        }
+        // Subscribers may have left while the window was open
+        byDestination.keySet().removeIf(destination -> !subscriptions.hasSubscribers(destination));
+
+        byDestination.forEach((destination, destinationEvents) -> {
+            for (int from = 0; from < destinationEvents.size(); from += maxEventsPerFrame) {
+                sendFrame(destination, destinationEvents.subList(from, Math.min(from + maxEventsPerFrame, destinationEvents.size())));
+            }
+        });
+        sent.addAndGet(events.size());
+    }
+
+    private void sendFrame(String destination, List<Event> events) {
+        List<Map<String, Object>> payload = new ArrayList<>(events.size());
+        for (Event event : events) {
+            Map<String, Object> message = new LinkedHashMap<>();
+            message.put("type", event.type);
+            message.put("data", event.data);
+            message.put("timestamp", event.timestamp.toString());
+            payload.add(message);
+        }
+        Map<String, Object> frame = new LinkedHashMap<>();
+        frame.put("type", "BATCH");
+        frame.put("events", payload);
+        frame.put("timestamp", LocalDateTime.now().toString());
+
+        try {
+            messagingTemplate.convertAndSend(destination, frame);
+            long now = System.nanoTime();
+            for (Event event : events) {
+                lag.record(now - event.enqueuedAt);
+                // An event goes to several destinations - it counts as delivered with its first frame
+                if (!event.delivered) {
+                    event.delivered = true;
+                    latencyMetrics.record(PipelineLatencyMetrics.NOTIFICATION, now - event.enqueuedAt);
+                }
+            }
+            deliveries.addAndGet(events.size());
+            frames.incrementAndGet();
+            log.debug("Sent {} real-time events to {}", events.size(), destination);
+        } catch (Exception e) {
+            failedFrames.incrementAndGet();
+            log.warn("Sending {} real-time events to {} failed: {}", events.size(), destination, e.getMessage());
+        }
+    }
+
+    /**
+     * One queued event. Only the dispatcher thread merges into it.
+     */
+    private static final class Event {
+        private final Set<String> destinations;
+        private final String type;
+        private final String coalesceKey;
+        private final long enqueuedAt = System.nanoTime();
+        private Object data;
+        private LocalDateTime timestamp = LocalDateTime.now();
+        private boolean delivered;
+
+        private Event(Set<String> destinations, String type, Object data, String coalesceKey) {
+            this.destinations = destinations;
+            this.type = type;
+            this.data = data;
+            this.coalesceKey = coalesceKey;
+        }
+
+        /**
+         * Take over a later event's data and destinations, keeping the status this event started from
+         */
+        private void mergeFrom(Event later) {
+            destinations.addAll(later.destinations);
+            if (data instanceof Map && later.data instanceof Map && ((Map<?, ?>) data).containsKey("oldStatus")) {
+                Map<String, Object> merged = new LinkedHashMap<>();
+                ((Map<?, ?>) later.data).forEach((key, value) -> merged.put(String.valueOf(key), value));
+                merged.put("oldStatus", ((Map<?, ?>) data).get("oldStatus"));
+                data = merged;
+            } else {
+                data = later.data;
+            }
+            timestamp = later.timestamp;
+        }
+    }
+}
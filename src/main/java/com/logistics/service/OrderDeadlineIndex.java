@@ -0,0 +1,192 @@
+package com.logistics.service;
+
+import com.logistics.model.OrderStatus;
+import com.logistics.repository.OrderRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deadline per open order: the moment it has spent longer in its current status than expected.
+ *
+ * When an order enters a status a deadline is queued in a DelayQueue, so the stuck-order monitor only
+ * looks at orders whose deadline has passed instead of scanning the orders table. Only the latest
+ * deadline of an order counts; deadlines it replaced are dropped as they come due. The queue is rebuilt
+ * from the persisted status_changed_at column on startup. Orders in a final status have no deadline.
+ */
+@Service
+public class OrderDeadlineIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderDeadlineIndex.class);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final DelayQueue<Deadline> deadlines = new DelayQueue<>();
+    // Latest deadline per order - queue entries that are not in here have been replaced
+    private final Map<Long, Deadline> current = new ConcurrentHashMap<>();
+    private final AtomicLong fired = new AtomicLong();
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("logistics.order.deadlines", current, Map::size)
+                .description("Open orders with a stuck-order deadline").register(meterRegistry);
+    }
+
+    /**
+     * Rebuild the deadlines of all open orders from the database
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<OrderRepository.StatusSince> openOrders = orderRepository.findOpenOrderStatuses();
+        for (OrderRepository.StatusSince order : openOrders) {
+            schedule(order.getId(), order.getStatus(), order.getStatusChangedAt());
+        }
+        log.info("Stuck-order deadlines rebuilt for {} open orders", openOrders.size());
+    }
+
+    /**
+     * The order entered a status. Registered after the surrounding transaction commits, if there is one.
+     */
+    public void statusEntered(Long orderId, OrderStatus status) {
+        statusEntered(Collections.singletonList(orderId), status);
+    }
+
+    public void statusEntered(Collection<Long> orderIds, OrderStatus status) {
+        List<Long> ids = new ArrayList<>(orderIds);
+        afterCommit(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            ids.forEach(orderId -> schedule(orderId, status, now));
+        });
+    }
+
+    /**
+     * Queue the deadline for an order that has been in a status since the given time.
+     * Final statuses just drop the order from the index.
+     */
+    public void schedule(Long orderId, OrderStatus status, LocalDateTime since) {
+        if (isFinal(status)) {
+            current.remove(orderId);
+            return;
+        }
+        LocalDateTime due = since.plusHours(expectedProcessingHours(status));
+        Deadline deadline = new Deadline(orderId, status, due.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        current.put(orderId, deadline);
+        deadlines.add(deadline);
+    }
+
+    /**
+     * Remove and return the orders whose latest deadline has passed, with the status it was set for
+     */
+    public Map<Long, OrderStatus> drainDue() {
+        List<Deadline> due = new ArrayList<>();
+        deadlines.drainTo(due);
+
+        Map<Long, OrderStatus> orders = new LinkedHashMap<>();
+        for (Deadline deadline : due) {
+            // Replaced deadlines are skipped; the latest one stays queued or was drained here
+            if (current.remove(deadline.orderId, deadline)) {
+                orders.put(deadline.orderId, deadline.status);
+            }
+        }
+        fired.addAndGet(orders.size());
+        return orders;
+    }
+
+    /**
+     * Hours an order is expected to spend in each status
+     */
+    public static int expectedProcessingHours(OrderStatus status) {
+        switch (status) {
+            case RECEIVED:
+                return 2;
+            case SCHEDULED:
+                return 1;
+            case VALIDATED:
+                return 1;
+            case INVENTORY_CHECKED:
+                return 1;
+            case FULFILLED:
+                return 3;
+            case READY_FOR_PICKUP:
+                return 6;
+            case IN_TRANSIT:
+                return 24;
+            default:
+                return 12;
+        }
+    }
+
+    public static boolean isFinal(OrderStatus status) {
+        return status == OrderStatus.DELIVERED || status == OrderStatus.CANCELLED;
+    }
+
+    /**
+     * Index size and the next deadline for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Deadline next = deadlines.peek();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("openOrders", current.size());
+        stats.put("queuedDeadlines", deadlines.size());
+        stats.put("fired", fired.get());
+        stats.put("nextDueInMinutes", next == null ? null : Duration.ofMillis(next.getDelay(TimeUnit.MILLISECONDS)).toMinutes());
+        return stats;
+    }
+
+    private void afterCommit(Runnable registration) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    registration.run();
+                }
+            });
+        } else {
+            registration.run();
+        }
+    }
+
+    private static final class Deadline implements Delayed {
+        private final Long orderId;
+        private final OrderStatus status;
+        private final long dueAtMillis;
+
+        private Deadline(Long orderId, OrderStatus status, long dueAtMillis) {
+            this.orderId = orderId;
+            this.status = status;
+            this.dueAtMillis = dueAtMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMillis, ((Deadline) other).dueAtMillis);
+        }
+    }
+}
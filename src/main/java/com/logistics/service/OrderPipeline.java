@@ -0,0 +1,140 @@
+package com.logistics.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stages of the order processing pipeline, each with its own queue and worker pool.
+ *
+ * Pool sizes are configured per stage under app.logistics.pipeline so CPU-bound stages
+ * (picking instructions) and database-bound ones (fulfillment, shipping) can be sized independently.
+ * The fulfillment stage covers both the inventory check and the reservation, which share one unit of work.
+ * The thread counts are starting points: the adaptive concurrency limiter resizes each stage between
+ * one thread and its max-threads.
+ */
+@Service
+public class OrderPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderPipeline.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.logistics.pipeline.validation.threads:2}")
+    private int validationThreads;
+
+    @Value("${app.logistics.pipeline.validation.max-threads:4}")
+    private int validationMaxThreads;
+
+    @Value("${app.logistics.pipeline.validation.queue-capacity:500}")
+    private int validationQueueCapacity;
+
+    @Value("${app.logistics.pipeline.fulfillment.threads:3}")
+    private int fulfillmentThreads;
+
+    @Value("${app.logistics.pipeline.fulfillment.max-threads:5}")
+    private int fulfillmentMaxThreads;
+
+    @Value("${app.logistics.pipeline.fulfillment.queue-capacity:500}")
+    private int fulfillmentQueueCapacity;
+
+    @Value("${app.logistics.pipeline.warehouse.threads:2}")
+    private int warehouseThreads;
+
+    @Value("${app.logistics.pipeline.warehouse.max-threads:4}")
+    private int warehouseMaxThreads;
+
+    @Value("${app.logistics.pipeline.warehouse.queue-capacity:500}")
+    private int warehouseQueueCapacity;
+
+    @Value("${app.logistics.pipeline.shipping.threads:3}")
+    private int shippingThreads;
+
+    @Value("${app.logistics.pipeline.shipping.max-threads:4}")
+    private int shippingMaxThreads;
+
+    @Value("${app.logistics.pipeline.shipping.queue-capacity:500}")
+    private int shippingQueueCapacity;
+
+    private PipelineStage validation;
+    private PipelineStage fulfillment;
+    private PipelineStage warehouse;
+    private PipelineStage shipping;
+
+    @PostConstruct
+    public void initialize() {
+        validation = new PipelineStage("validation", validationThreads, validationMaxThreads,
+                validationQueueCapacity, meterRegistry);
+        fulfillment = new PipelineStage("fulfillment", fulfillmentThreads, fulfillmentMaxThreads,
+                fulfillmentQueueCapacity, meterRegistry);
+        warehouse = new PipelineStage("warehouse", warehouseThreads, warehouseMaxThreads,
+                warehouseQueueCapacity, meterRegistry);
+        shipping = new PipelineStage("shipping", shippingThreads, shippingMaxThreads,
+                shippingQueueCapacity, meterRegistry);
+
+        log.info("Order pipeline started - threads per stage: validation={}, fulfillment={}, warehouse={}, " +
+                "shipping={}", validationThreads, fulfillmentThreads, warehouseThreads, shippingThreads);
+    }
+
+    /**
+     * Drain stages front to back so work handed downstream during shutdown still gets processed
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (PipelineStage stage : stages()) {
+            try {
+                stage.shutdown(30);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while draining pipeline stage {}", stage.getName());
+                return;
+            }
+        }
+        log.info("Order pipeline stopped");
+    }
+
+    public PipelineStage validation() {
+        return validation;
+    }
+
+    public PipelineStage fulfillment() {
+        return fulfillment;
+    }
+
+    public PipelineStage warehouse() {
+        return warehouse;
+    }
+
+    public PipelineStage shipping() {
+        return shipping;
+    }
+
+    /**
+     * Per-stage queue and latency statistics, in pipeline order
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (PipelineStage stage : stages()) {
+            stats.put(stage.getName(), stage.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Stages in pipeline order
+     */
+    public List<PipelineStage> stages() {
+        return Arrays.asList(validation, fulfillment, warehouse, shipping);
+    }
+}
@@ -0,0 +1,142 @@
+package com.logistics.service;
+
+import com.logistics.dto.OrderItemInfo;
+import com.logistics.dto.OrderPageResponse;
+import com.logistics.dto.OrderStatusResponse;
+import com.logistics.dto.ShipmentInfo;
+import com.logistics.model.OrderStatus;
+import com.logistics.repository.OrderRepository;
+import com.logistics.repository.OrderRepository.OrderItemLine;
+import com.logistics.repository.OrderRepository.OrderSummary;
+import com.logistics.repository.ShipmentRepository;
+import com.logistics.repository.ShipmentRepository.ShipmentSummary;
+import com.logistics.util.OrderCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Read side of the order status endpoints.
+ *
+ * Responses are assembled from projections rather than entities, so no lazy association is ever
+ * touched: one query for the orders, one for all their item lines joined with the product, and one
+ * for all their shipments. A page costs three statements whatever its size (one when it is empty).
+ */
+@Service
+@Transactional(readOnly = true)
+public class OrderQueryService {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    /**
+     * Status response for one order, or empty when it does not exist
+     */
+    public Optional<OrderStatusResponse> getOrderStatus(Long orderId) {
+        return orderRepository.findSummaryById(orderId)
+                .map(summary -> toResponses(Collections.singletonList(summary)).get(0));
+    }
+
+    /**
+     * One page of a client's orders, newest first
+     */
+    public OrderPageResponse getClientOrders(String clientId, OrderCursor after, int pageSize) {
+        // One extra row tells whether another page follows without a count query
+        Pageable fetch = PageRequest.of(0, pageSize + 1);
+        List<OrderSummary> orders = after == null
+                ? orderRepository.findPageByClientId(clientId, fetch)
+                : orderRepository.findPageByClientIdAfter(clientId, after.getOrderDate(), after.getId(), fetch);
+        return toPage(orders, pageSize);
+    }
+
+    /**
+     * One page of the orders in a status, newest first
+     */
+    public OrderPageResponse getOrdersByStatus(OrderStatus status, OrderCursor after, int pageSize) {
+        Pageable fetch = PageRequest.of(0, pageSize + 1);
+        List<OrderSummary> orders = after == null
+                ? orderRepository.findPageByStatus(status, fetch)
+                : orderRepository.findPageByStatusAfter(status, after.getOrderDate(), after.getId(), fetch);
+        return toPage(orders, pageSize);
+    }
+
+    private OrderPageResponse toPage(List<OrderSummary> orders, int pageSize) {
+        boolean hasMore = orders.size() > pageSize;
+        List<OrderSummary> page = hasMore ? orders.subList(0, pageSize) : orders;
+        String nextCursor = null;
+        if (hasMore) {
+            OrderSummary last = page.get(page.size() - 1);
+            nextCursor = new OrderCursor(last.getOrderDate(), last.getId()).encode();
+        }
+        return new OrderPageResponse(toResponses(page), pageSize, hasMore, nextCursor);
+    }
+
+    /**
+     * Build the responses for a list of orders with one item query and one shipment query
+     */
+    private List<OrderStatusResponse> toResponses(List<OrderSummary> orders) {
+        if (orders.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> orderIds = orders.stream().map(OrderSummary::getId).collect(Collectors.toList());
+
+        Map<Long, List<OrderItemInfo>> itemsByOrder = new HashMap<>();
+        for (OrderItemLine line : orderRepository.findItemLinesByOrderIds(orderIds)) {
+            itemsByOrder.computeIfAbsent(line.getOrderId(), id -> new ArrayList<>()).add(new OrderItemInfo(
+                    line.getSku(), line.getProductName(), line.getCategory(), line.getQuantity(),
+                    line.getUnitPrice(), line.getWeight(), line.getVolume(), line.getLocation()));
+        }
+
+        // Ordered by shipment id, so the first one seen per order is kept - one shipment per order is the norm
+        Map<Long, ShipmentSummary> shipmentByOrder = new HashMap<>();
+        for (ShipmentSummary shipment : shipmentRepository.findSummariesByOrderIds(orderIds)) {
+            shipmentByOrder.putIfAbsent(shipment.getOrderId(), shipment);
+        }
+
+        return orders.stream()
+                .map(order -> toResponse(order, itemsByOrder.getOrDefault(order.getId(), new ArrayList<>()),
+                        shipmentByOrder.get(order.getId())))
+                .collect(Collectors.toList());
+    }
+
+    private OrderStatusResponse toResponse(OrderSummary order, List<OrderItemInfo> items, ShipmentSummary shipment) {
+        OrderStatusResponse response = new OrderStatusResponse(
+                order.getId(),
+                order.getStatus().toString(),
+                order.getClientName(),
+                order.getOrderDate(),
+                order.getRequestedDeliveryDate(),
+                order.getTotalWeight(),
+                order.getTotalVolume()
+        );
+        response.setClientId(order.getClientId());
+        response.setStatusDescription(order.getStatus().getDescription());
+        response.setTotalItems(items.size());
+        response.setItems(items);
+
+        if (shipment != null) {
+            ShipmentInfo shipmentInfo = new ShipmentInfo(
+                    shipment.getId(),
+                    shipment.getTruckId(),
+                    shipment.getDriverId(),
+                    shipment.getStatus().toString(),
+                    shipment.getScheduledPickup(),
+                    shipment.getEstimatedDelivery()
+            );
+            shipmentInfo.setActualPickup(shipment.getActualPickup());
+            shipmentInfo.setActualDelivery(shipment.getActualDelivery());
+            shipmentInfo.setRequiresSpecialHandling(shipment.getRequiresSpecialHandling());
+            response.setShipmentInfo(shipmentInfo);
+            response.setEstimatedDelivery(shipment.getEstimatedDelivery());
+        }
+        return response;
+    }
+}
@@ -0,0 +1,397 @@
+package com.logistics.service;
+
+import com.logistics.model.Order;
+import com.logistics.model.OrderStatus;
+import com.logistics.repository.OrderRepository;
+import com.logistics.repository.OrderWorkRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Durable queue between order submission and the staged pipeline, kept in the order_work table.
+ *
+ * A submitted order and its work row commit in one transaction, so an accepted order survives a
+ * restart and is processed by whichever node's workers claim it first. Each worker claims a batch
+ * (FOR UPDATE SKIP LOCKED on PostgreSQL, a guarded UPDATE elsewhere), runs it through the pipeline
+ * and deletes the rows once the batch has left it. A claim lasts the visibility timeout and is renewed
+ * while any of its orders is still in the pipeline; work whose node died is claimed again once its
+ * claim runs out, and work that failed before reaching the pipeline is retried after a delay until it
+ * runs out of attempts.
+ *
+ * Only orders still in RECEIVED are processed. Work whose order has moved on is dropped rather than
+ * run twice - an order left part-way by a crashed node is picked up by stuck order detection. Should
+ * a claim still be taken over (a node stalled past the timeout), the pipeline's status writes are
+ * guarded on the status it expects, so only one run of the order reserves stock.
+ */
+@Service
+public class OrderWorkQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderWorkQueue.class);
+
+    @Autowired
+    private OrderWorkRepository workRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private LogisticsAIAgent aiAgent;
+
+    @Autowired
+    private JobLeaseService jobLeases;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.logistics.order-queue.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.logistics.order-queue.workers:4}")
+    private int workers;
+
+    // Orders a worker claims at once; workers x batch-size bounds the orders this node has in the pipeline
+    @Value("${app.logistics.order-queue.batch-size:25}")
+    private int batchSize;
+
+    @Value("${app.logistics.order-queue.poll-interval-ms:500}")
+    private long pollIntervalMs;
+
+    @Value("${app.logistics.order-queue.visibility-timeout-seconds:300}")
+    private long visibilityTimeoutSeconds;
+
+    @Value("${app.logistics.order-queue.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.logistics.order-queue.retry-delay-ms:5000}")
+    private long retryDelayMs;
+
+    private final Object workSignal = new Object();
+    // Without SKIP LOCKED, this node's workers would all pick the same rows and queue on their locks
+    private final ReentrantLock claimLock = new ReentrantLock();
+    private final List<Thread> workerThreads = new ArrayList<>();
+    // Tokens of claims with orders still in the pipeline, renewed until the last of them is done
+    private final Set<String> liveClaims = ConcurrentHashMap.newKeySet();
+    private volatile boolean running;
+    private boolean skipLocked;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong acked = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong renewFailures = new AtomicLong();
+
+    /**
+     * Start the workers once the schema and sample data are in place
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Order work queue disabled - orders go straight to the pipeline");
+            return;
+        }
+        Gauge.builder("logistics.order.queue.in.flight", inFlight, AtomicInteger::get)
+                .description("Claimed orders this node has in the pipeline").register(meterRegistry);
+
+        skipLocked = workRepository.supportsSkipLocked();
+        // Claims of a previous run of this node would otherwise wait out the visibility timeout.
+        // The node id stays the same across restarts, so these are exactly the claims that run left behind.
+        Integer releasedClaims = transactionTemplate.execute(status ->
+                workRepository.releaseClaimsOf(jobLeases.getNodeId()));
+
+        running = true;
+        for (int i = 1; i <= workers; i++) {
+            Thread worker = new Thread(this::runWorker, "Order-Work-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workerThreads.add(worker);
+        }
+        log.info("Order work queue started: {} workers, batches of {}, {} claims{}", workers, batchSize,
+                skipLocked ? "SKIP LOCKED" : "guarded update",
+                releasedClaims != null && releasedClaims > 0 ? ", released " + releasedClaims + " stale claims" : "");
+    }
+
+    /**
+     * Stop claiming. Orders already in the pipeline are acknowledged as they finish.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        wakeWorkers();
+        for (Thread worker : workerThreads) {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Order enqueue(Order order) {
+        enqueue(Collections.singletonList(order));
+        return order;
+    }
+
+    /**
+     * Queue saved orders for processing. Must run in the transaction that saves them, so orders and
+     * work commit together; the workers are woken once it commits.
+     */
+    public void enqueue(Collection<Order> orders) {
+        if (!enabled || orders.isEmpty()) {
+            return;
+        }
+        workRepository.enqueue(orders.stream().map(Order::getId).collect(Collectors.toList()), LocalDateTime.now());
+        enqueued.addAndGet(orders.size());
+        afterCommit(this::wakeWorkers);
+    }
+
+    /**
+     * Queue counts from the table plus this node's worker counters for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (!enabled) {
+            return stats;
+        }
+        stats.put("claimMode", skipLocked ? "SKIP LOCKED" : "guarded update");
+        stats.put("workers", workers);
+        stats.put("batchSize", batchSize);
+        stats.put("inFlight", inFlight.get());
+        stats.put("queue", workRepository.countByState(LocalDateTime.now(), maxAttempts));
+        stats.put("enqueued", enqueued.get());
+        stats.put("claimed", claimed.get());
+        stats.put("acknowledged", acked.get());
+        stats.put("dropped", dropped.get());
+        stats.put("released", released.get());
+        stats.put("liveClaims", liveClaims.size());
+        stats.put("renewFailures", renewFailures.get());
+        return stats;
+    }
+
+    /**
+     * Push back the claim expiry of every batch still in the pipeline, well before it runs out
+     */
+    @Scheduled(fixedDelayString = "${app.logistics.order-queue.renew-interval-ms:60000}")
+    public void renewClaims() {
+        if (!running || liveClaims.isEmpty()) {
+            return;
+        }
+        List<String> tokens = new ArrayList<>(liveClaims);
+        try {
+            transactionTemplate.execute(status -> workRepository.renew(tokens,
+                    LocalDateTime.now().plusSeconds(visibilityTimeoutSeconds)));
+        } catch (RuntimeException e) {
+            renewFailures.incrementAndGet();
+            log.warn("Renewing {} order work claims failed: {}", tokens.size(), e.getMessage());
+        }
+    }
+
+    private void runWorker() {
+        while (running) {
+            try {
+                Claim claim = claim();
+                if (claim.orderIds.isEmpty()) {
+                    awaitWork();
+                } else {
+                    process(claim);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Order work claim failed: {}", e.getMessage());
+                try {
+                    awaitWork();
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void awaitWork() throws InterruptedException {
+        synchronized (workSignal) {
+            if (running) {
+                workSignal.wait(pollIntervalMs);
+            }
+        }
+    }
+
+    private void wakeWorkers() {
+        synchronized (workSignal) {
+            workSignal.notifyAll();
+        }
+    }
+
+    /**
+     * Claim up to a batch of the oldest available work in one short transaction
+     */
+    private Claim claim() {
+        String token = UUID.randomUUID().toString();
+        if (!skipLocked) {
+            claimLock.lock();
+        }
+        try {
+            List<Long> orderIds = transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                List<Long> candidates = workRepository.findClaimable(now, maxAttempts, batchSize, skipLocked);
+                if (candidates.isEmpty()) {
+                    return Collections.<Long>emptyList();
+                }
+                workRepository.claim(candidates, token, jobLeases.getNodeId(), now,
+                        now.plusSeconds(visibilityTimeoutSeconds), maxAttempts);
+                return workRepository.findClaimed(token);
+            });
+            return new Claim(token, orderIds == null ? Collections.emptyList() : orderIds);
+        } finally {
+            if (!skipLocked) {
+                claimLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Run a claimed batch through the pipeline and wait for it, so a worker never has more than one
+     * batch in flight
+     */
+    private void process(Claim claim) throws InterruptedException {
+        claimed.addAndGet(claim.orderIds.size());
+
+        Map<Long, Order> ordersById;
+        try {
+            ordersById = orderRepository.findWithItemsByIdIn(claim.orderIds).stream()
+                    .collect(Collectors.toMap(Order::getId, order -> order));
+        } catch (RuntimeException e) {
+            release(claim, claim.orderIds, e);
+            return;
+        }
+
+        List<Long> droppedIds = new ArrayList<>();
+        Map<Long, CompletableFuture<String>> outcomes = new LinkedHashMap<>();
+        for (Long orderId : claim.orderIds) {
+            Order order = ordersById.get(orderId);
+            if (order == null || order.getStatus() != OrderStatus.RECEIVED) {
+                droppedIds.add(orderId);
+                continue;
+            }
+            inFlight.incrementAndGet();
+            outcomes.put(orderId, aiAgent.processOrder(order).whenComplete((message, e) -> inFlight.decrementAndGet()));
+        }
+        if (!droppedIds.isEmpty()) {
+            log.warn("Dropping order work for orders no longer in RECEIVED: {}", droppedIds);
+            dropped.addAndGet(droppedIds.size());
+            ack(claim, droppedIds);
+        }
+        if (outcomes.isEmpty()) {
+            return;
+        }
+
+        liveClaims.add(claim.token);
+        CompletableFuture.allOf(outcomes.values().toArray(new CompletableFuture[0]))
+                .whenComplete((done, e) -> liveClaims.remove(claim.token));
+        try {
+            CompletableFuture.allOf(outcomes.values().toArray(new CompletableFuture[0]))
+                    .get(visibilityTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Order work batch still in the pipeline after {} s - its claims are renewed until it is done",
+                    visibilityTimeoutSeconds);
+        } catch (ExecutionException e) {
+            // The pipeline completes every order with a message, failures included
+            log.error("Unexpected order pipeline failure: {}", e.getMessage(), e);
+        }
+
+        // Failed orders are cancelled by the pipeline - their work is done as well
+        List<Long> finished = new ArrayList<>();
+        outcomes.forEach((orderId, outcome) -> {
+            if (outcome.isDone()) {
+                finished.add(orderId);
+            } else {
+                outcome.whenComplete((message, e) -> ack(claim, List.of(orderId)));
+            }
+        });
+        if (!finished.isEmpty()) {
+            ack(claim, finished);
+        }
+    }
+
+    private void ack(Claim claim, List<Long> orderIds) {
+        try {
+            Integer deleted = transactionTemplate.execute(status -> workRepository.ack(orderIds, claim.token));
+            acked.addAndGet(deleted == null ? 0 : deleted);
+        } catch (RuntimeException e) {
+            // The rows come back after the visibility timeout and are dropped as no longer RECEIVED
+            log.warn("Acknowledging order work {} failed: {}", orderIds, e.getMessage());
+        }
+    }
+
+    private void release(Claim claim, List<Long> orderIds, Exception cause) {
+        log.warn("Order work {} released for retry: {}", orderIds, cause.getMessage());
+        String error = String.valueOf(cause.getMessage());
+        String truncated = error.length() > 500 ? error.substring(0, 500) : error;
+        try {
+            transactionTemplate.execute(status -> workRepository.release(orderIds, claim.token,
+                    LocalDateTime.now().plus(retryDelayMs, ChronoUnit.MILLIS), truncated));
+            released.addAndGet(orderIds.size());
+        } catch (RuntimeException e) {
+            log.warn("Releasing order work {} failed - retried after the visibility timeout: {}",
+                    orderIds, e.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Work rows taken by one claim, identified by its token
+     */
+    private static final class Claim {
+        private final String token;
+        private final List<Long> orderIds;
+
+        private Claim(String token, List<Long> orderIds) {
+            this.token = token;
+            this.orderIds = orderIds;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.logistics.service;
+
+import com.logistics.model.Shipment;
+import com.logistics.model.ShipmentStatus;
+import com.logistics.repository.ShipmentRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estimated delivery of every shipment in transit, in a min-heap ordered by the estimate.
+ *
+ * Dispatch, delivery and every re-estimation report the shipment here, so the overdue check pops
+ * only the shipments whose estimate has passed instead of loading all shipments. Only the latest
+ * entry of a shipment counts; entries it replaced are dropped as they reach the top of the heap.
+ * The heap is rebuilt from the (status, estimated_delivery) index on startup.
+ */
+@Service
+public class OverdueShipmentIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueShipmentIndex.class);
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Guarded by this
+    private final PriorityQueue<Deadline> heap = new PriorityQueue<>();
+    // Latest deadline per shipment - heap entries that are not in here have been replaced
+    private final Map<Long, Deadline> current = new ConcurrentHashMap<>();
+    private final AtomicLong fired = new AtomicLong();
+    private volatile boolean loaded;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("logistics.shipments.in.transit.tracked", current, Map::size)
+                .description("In-transit shipments tracked for overdue delivery").register(meterRegistry);
+    }
+
+    /**
+     * Rebuild the heap from the shipments in transit
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<ShipmentRepository.DeliveryDeadline> inTransit = shipmentRepository.findInTransitDeadlines();
+        for (ShipmentRepository.DeliveryDeadline shipment : inTransit) {
+            schedule(shipment.getId(), ShipmentStatus.IN_TRANSIT, shipment.getEstimatedDelivery());
+        }
+        loaded = true;
+        log.info("Overdue shipment index rebuilt for {} shipments in transit", inTransit.size());
+    }
+
+    /**
+     * The shipment was dispatched, delivered or re-estimated. Registered after the surrounding
+     * transaction commits, if there is one.
+     */
+    public void track(Shipment shipment) {
+        Long shipmentId = shipment.getId();
+        ShipmentStatus status = shipment.getStatus();
+        LocalDateTime estimatedDelivery = shipment.getEstimatedDelivery();
+        afterCommit(() -> schedule(shipmentId, status, estimatedDelivery));
+    }
+
+    /**
+     * Track a shipment in transit until the given estimate; any other status stops tracking it
+     */
+    public void schedule(Long shipmentId, ShipmentStatus status, LocalDateTime estimatedDelivery) {
+        if (status != ShipmentStatus.IN_TRANSIT || estimatedDelivery == null) {
+            current.remove(shipmentId);
+            return;
+        }
+        Deadline deadline = new Deadline(shipmentId, estimatedDelivery);
+        synchronized (this) {
+            current.put(shipmentId, deadline);
+            heap.add(deadline);
+        }
+    }
+
+    /**
+     * Remove and return the shipments whose latest estimate is before the given time
+     */
+    public synchronized List<Long> drainOverdue(LocalDateTime now) {
+        List<Long> overdue = new ArrayList<>();
+        while (!heap.isEmpty() && heap.peek().estimatedDelivery.isBefore(now)) {
+            Deadline deadline = heap.poll();
+            if (current.remove(deadline.shipmentId, deadline)) {
+                overdue.add(deadline.shipmentId);
+            }
+        }
+        fired.addAndGet(overdue.size());
+        return overdue;
+    }
+
+    /**
+     * False until the startup rebuild has run - callers query the database until then
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Index size and the earliest estimate for the metrics endpoint
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", loaded);
+        stats.put("inTransit", current.size());
+        stats.put("heapEntries", heap.size());
+        stats.put("fired", fired.get());
+        stats.put("earliestEstimate", heap.isEmpty() ? null : heap.peek().estimatedDelivery);
+        return stats;
+    }
+
+    private void afterCommit(Runnable registration) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    registration.run();
+                }
+            });
+        } else {
+            registration.run();
+        }
+    }
+
+    private static final class Deadline implements Comparable<Deadline> {
+        private final Long shipmentId;
+        private final LocalDateTime estimatedDelivery;
+
+        private Deadline(Long shipmentId, LocalDateTime estimatedDelivery) {
+            this.shipmentId = shipmentId;
+            this.estimatedDelivery = estimatedDelivery;
+        }
+
+        @Override
+        public int compareTo(Deadline other) {
+            return estimatedDelivery.compareTo(other.estimatedDelivery);
+        }
+    }
+}
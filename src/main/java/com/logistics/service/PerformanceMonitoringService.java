@@ -19,7 +19,8 @@ public class PerformanceMonitoringService {
     private final AtomicLong totalProcessingTimeMs = new AtomicLong(0);
 
     private final ConcurrentHashMap<String, Long> ordersByStatus = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Double> averageProcessingTimes = new ConcurrentHashMap<>();
+    // Summed per status; the average is the sum over the status count in ordersByStatus
+    private final ConcurrentHashMap<String, AtomicLong> processingTimeMsByStatus = new ConcurrentHashMap<>();
 
     private LocalDateTime testStartTime;
     private boolean monitoringActive = false;
@@ -37,7 +38,7 @@ public class PerformanceMonitoringService {
         totalErrors.set(0);
         totalProcessingTimeMs.set(0);
         ordersByStatus.clear();
-        averageProcessingTimes.clear();
+        processingTimeMsByStatus.clear();
     }
 
     /**
@@ -59,10 +60,7 @@ public class PerformanceMonitoringService {
         totalProcessingTimeMs.addAndGet(processingTimeMs);
         ordersByStatus.merge(status, 1L, Long::sum);
 
-        // Update average processing time for status
-        String timeKey = status + "_processing_time";
-        averageProcessingTimes.merge(timeKey, (double) processingTimeMs,
-                (existing, newValue) -> (existing + newValue) / 2);
+        processingTimeMsByStatus.computeIfAbsent(status, key -> new AtomicLong()).addAndGet(processingTimeMs);
     }
 
     /**
@@ -117,6 +115,7 @@ public class PerformanceMonitoringService {
         result.put("throughput", String.format("%.2f orders/sec", throughput));
         result.put("elapsedTime", elapsedSeconds + " seconds");
         result.put("ordersByStatus", new ConcurrentHashMap<>(ordersByStatus));
+        result.put("averageProcessingTimeByStatus", averageProcessingTimeByStatus());
         result.put("systemMetrics", systemMetrics);
         result.put("testStartTime", testStartTime);
         result.put("status", "ACTIVE");
@@ -124,6 +123,17 @@ public class PerformanceMonitoringService {
         return result;
     }
 
+    private Map<String, String> averageProcessingTimeByStatus() {
+        Map<String, String> averages = new TreeMap<>();
+        processingTimeMsByStatus.forEach((status, totalMs) -> {
+            long count = ordersByStatus.getOrDefault(status, 0L);
+            if (count > 0) {
+                averages.put(status, String.format("%.2f ms", (double) totalMs.get() / count));
+            }
+        });
+        return averages;
+    }
+
     /**
      * Print performance report every 30 seconds during monitoring
      */
@@ -0,0 +1,137 @@
+package com.logistics.service;
+
+import com.logistics.util.LatencyHistogram;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Latency histograms for each step of order processing and for the order end to end.
+ *
+ * Every stage keeps two histograms fed by the same recording: a cumulative one since startup, and a
+ * publishing window that Micrometer gauges read, rolled over every publish interval so Prometheus
+ * sees recent percentiles rather than ones diluted by the whole uptime. Interval statistics are the
+ * difference between the cumulative histogram now and when the same reader last asked, so reading
+ * never resets anything and each endpoint gets its own intervals.
+ *
+ * Stage times nest: fulfillment covers the whole check-and-reserve unit of work (including batching
+ * wait) and inventory the availability check inside it. Notification is recorded by the
+ * NotificationDispatcher: the time each event raised by any stage waited until its frame was sent.
+ * Events nobody is subscribed to are never queued and not timed.
+ */
+@Service
+public class PipelineLatencyMetrics {
+
+    public static final String VALIDATION = "validation";
+    public static final String INVENTORY = "inventory";
+    public static final String FULFILLMENT = "fulfillment";
+    public static final String WAREHOUSE = "warehouse";
+    public static final String SHIPPING = "shipping";
+    public static final String NOTIFICATION = "notification";
+    public static final String END_TO_END = "endToEnd";
+
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, StageHistograms> stages = new LinkedHashMap<>();
+    // Reader -> stage -> cumulative snapshot that reader last saw. Guarded by this.
+    private final Map<String, Map<String, LatencyHistogram.Snapshot>> lastReads = new HashMap<>();
+
+    public PipelineLatencyMetrics() {
+        for (String stage : Arrays.asList(VALIDATION, INVENTORY, FULFILLMENT, WAREHOUSE, SHIPPING,
+                NOTIFICATION, END_TO_END)) {
+            stages.put(stage, new StageHistograms());
+        }
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        stages.forEach((stage, histograms) -> {
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                double percentile = PERCENTILES[i];
+                registerGauge(stage, PERCENTILE_NAMES[i], histograms,
+                        h -> h.published.getPercentileMillis(percentile));
+            }
+            registerGauge(stage, "max", histograms, h -> h.published.getMaxMillis());
+            FunctionCounter.builder("logistics.order.stage.count", histograms, h -> h.recorded.get())
+                    .tag("stage", stage).description("Order processing steps timed").register(meterRegistry);
+        });
+    }
+
+    /**
+     * Record one timing. Lock-free and allocation-free.
+     */
+    public void record(String stage, long nanos) {
+        StageHistograms histograms = stages.get(stage);
+        histograms.cumulative.record(nanos);
+        histograms.publishing.record(nanos);
+        histograms.recorded.incrementAndGet();
+    }
+
+    /**
+     * Roll the window the Micrometer gauges report on
+     */
+    @Scheduled(fixedRateString = "${app.logistics.metrics.latency-publish-interval-ms:15000}")
+    public void rollPublishingWindow() {
+        stages.values().forEach(histograms -> histograms.published = histograms.publishing.snapshotAndReset());
+    }
+
+    /**
+     * Interval and cumulative percentiles per stage. The interval runs from this reader's previous
+     * call, or from startup on its first; other readers do not move it.
+     */
+    public synchronized Map<String, Object> getStats(String reader) {
+        Map<String, LatencyHistogram.Snapshot> previous = lastReads.computeIfAbsent(reader, name -> new HashMap<>());
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stages.forEach((stage, histograms) -> {
+            LatencyHistogram.Snapshot cumulative = histograms.cumulative.snapshot();
+            LatencyHistogram.Snapshot lastRead = previous.put(stage, cumulative);
+            Map<String, Object> stageStats = new LinkedHashMap<>();
+            stageStats.put("interval", describe(lastRead != null ? cumulative.minus(lastRead) : cumulative));
+            stageStats.put("cumulative", describe(cumulative));
+            stats.put(stage, stageStats);
+        });
+        return stats;
+    }
+
+    private Map<String, Object> describe(LatencyHistogram.Snapshot snapshot) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("count", snapshot.getCount());
+        description.put("meanMs", round(snapshot.getMeanMillis()));
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            description.put(PERCENTILE_NAMES[i] + "Ms", round(snapshot.getPercentileMillis(PERCENTILES[i])));
+        }
+        description.put("maxMs", round(snapshot.getMaxMillis()));
+        return description;
+    }
+
+    private void registerGauge(String stage, String quantile, StageHistograms histograms,
+                               ToDoubleFunction<StageHistograms> value) {
+        Gauge.builder("logistics.order.stage.latency", histograms, value)
+                .tag("stage", stage).tag("quantile", quantile).baseUnit("milliseconds")
+                .description("Order processing step latency over the last publish window")
+                .register(meterRegistry);
+    }
+
+    private static double round(double millis) {
+        return Math.round(millis * 1000.0) / 1000.0;
+    }
+
+    private static final class StageHistograms {
+        private final LatencyHistogram cumulative = new LatencyHistogram();
+        private final LatencyHistogram publishing = new LatencyHistogram();
+        private final AtomicLong recorded = new AtomicLong();
+        private volatile LatencyHistogram.Snapshot published = publishing.snapshot();
+    }
+}
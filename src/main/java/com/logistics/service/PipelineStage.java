@@ -0,0 +1,270 @@
+package com.logistics.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * One stage of the staged order pipeline: a bounded queue drained by a fixed-size worker pool.
+ *
+ * When the queue is full the submitting thread waits for space, so a slow stage pushes back on
+ * the stage in front of it instead of growing without limit. Callers that must never stall, such as
+ * the reservation flusher, use submitWithoutWaiting: a task that finds the queue full is parked with
+ * the stage's hand-off thread, which waits for space in their place. Queue depth, queue wait and
+ * service time are published per stage under the "stage" tag.
+ */
+public class PipelineStage implements ResizableExecutor {
+
+    // Set while a submitWithoutWaiting caller is inside execute, so a full queue rejects instead of blocking
+    private static final ThreadLocal<Boolean> NO_WAIT = ThreadLocal.withInitial(() -> false);
+
+    private final String name;
+    private final int maxThreads;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor handOff;
+
+    private final Timer queueWaitTimer;
+    private final Timer serviceTimer;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+    private final AtomicLong totalServiceNanos = new AtomicLong();
+    private final AtomicInteger peakQueueDepth = new AtomicInteger();
+
+    public PipelineStage(String name, int threads, int maxThreads, int queueCapacity, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.maxThreads = Math.max(threads, maxThreads);
+        this.queueCapacity = queueCapacity;
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("Pipeline-" + name + "-"),
+                this::waitForCapacity);
+        this.handOff = new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new CustomizableThreadFactory("Pipeline-" + name + "-handoff-"));
+
+        Gauge.builder("logistics.pipeline.queue.depth", executor, e -> e.getQueue().size())
+                .tag("stage", name).description("Tasks waiting in the stage queue").register(meterRegistry);
+        Gauge.builder("logistics.pipeline.active", executor, ThreadPoolExecutor::getActiveCount)
+                .tag("stage", name).description("Stage workers currently busy").register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("logistics.pipeline.queue.wait")
+                .tag("stage", name).description("Time a task spent queued before a worker picked it up")
+                .register(meterRegistry);
+        this.serviceTimer = Timer.builder("logistics.pipeline.service")
+                .tag("stage", name).description("Time a stage worker spent on a task")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queue a task on this stage. Never throws - a rejected task completes the future exceptionally.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        submitted.incrementAndGet();
+
+        try {
+            executor.execute(measured(task, future));
+            peakQueueDepth.accumulateAndGet(executor.getQueue().size(), Math::max);
+        } catch (RejectedExecutionException e) {
+            failed.incrementAndGet();
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Queue a task on this stage without ever blocking the caller. If the queue is full the task waits
+     * for space on the hand-off thread instead, still ahead of anything submitted after it from there.
+     */
+    public <T> CompletableFuture<T> submitWithoutWaiting(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable runnable = measured(task, future);
+        submitted.incrementAndGet();
+
+        NO_WAIT.set(true);
+        try {
+            executor.execute(runnable);
+            peakQueueDepth.accumulateAndGet(executor.getQueue().size(), Math::max);
+            return future;
+        } catch (StageFullException e) {
+            // Fall through to the hand-off thread
+        } catch (RejectedExecutionException e) {
+            failed.incrementAndGet();
+            future.completeExceptionally(e);
+            return future;
+        } finally {
+            NO_WAIT.remove();
+        }
+
+        try {
+            handOff.execute(() -> {
+                try {
+                    executor.execute(runnable);
+                } catch (RejectedExecutionException e) {
+                    failed.incrementAndGet();
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            failed.incrementAndGet();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private <T> Runnable measured(Supplier<T> task, CompletableFuture<T> future) {
+        long enqueuedAt = System.nanoTime();
+        return () -> {
+            long startedAt = System.nanoTime();
+            long waitNanos = startedAt - enqueuedAt;
+            queueWaitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+            totalQueueWaitNanos.addAndGet(waitNanos);
+
+            T result = null;
+            Throwable failure = null;
+            try {
+                result = task.get();
+            } catch (Throwable t) {
+                failure = t;
+            }
+            // Stop the clock before completing: continuations run on this thread and may block on the next stage
+            long serviceNanos = System.nanoTime() - startedAt;
+            serviceTimer.record(serviceNanos, TimeUnit.NANOSECONDS);
+            totalServiceNanos.addAndGet(serviceNanos);
+
+            if (failure == null) {
+                completed.incrementAndGet();
+                future.complete(result);
+            } else {
+                failed.incrementAndGet();
+                future.completeExceptionally(failure);
+            }
+        };
+    }
+
+    /**
+     * Stop accepting work and wait for queued tasks to drain
+     */
+    public void shutdown(long timeoutSeconds) throws InterruptedException {
+        handOff.shutdown();
+        handOff.awaitTermination(timeoutSeconds, TimeUnit.SECONDS);
+        executor.shutdown();
+        executor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS);
+    }
+
+    public Map<String, Object> getStats() {
+        long done = completed.get() + failed.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", executor.getCorePoolSize());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("peakQueueDepth", peakQueueDepth.get());
+        stats.put("activeThreads", executor.getActiveCount());
+        stats.put("submitted", submitted.get());
+        stats.put("completed", completed.get());
+        stats.put("failed", failed.get());
+        stats.put("avgQueueWaitMs", done > 0 ? totalQueueWaitNanos.get() / done / 1_000_000.0 : 0.0);
+        stats.put("avgServiceMs", done > 0 ? totalServiceNanos.get() / done / 1_000_000.0 : 0.0);
+        return stats;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getThreads() {
+        return executor.getCorePoolSize();
+    }
+
+    @Override
+    public int getActiveThreads() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public int getConcurrencyLimit() {
+        return executor.getCorePoolSize();
+    }
+
+    /**
+     * Resize the worker pool. Surplus workers finish their current task before they exit.
+     */
+    @Override
+    public synchronized void setConcurrencyLimit(int limit) {
+        int threads = Math.max(1, Math.min(limit, maxThreads));
+        // Core may never exceed max, so widen before raising and narrow after lowering
+        if (threads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(threads);
+            executor.setCorePoolSize(threads);
+        } else {
+            executor.setCorePoolSize(threads);
+            executor.setMaximumPoolSize(threads);
+        }
+    }
+
+    @Override
+    public int getMaxConcurrencyLimit() {
+        return maxThreads;
+    }
+
+    @Override
+    public long getCompletedTasks() {
+        return completed.get() + failed.get();
+    }
+
+    @Override
+    public long getTotalServiceNanos() {
+        return totalServiceNanos.get();
+    }
+
+    @Override
+    public long getTotalQueueWaitNanos() {
+        return totalQueueWaitNanos.get();
+    }
+
+    private void waitForCapacity(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Pipeline stage " + name + " is shut down");
+        }
+        if (NO_WAIT.get()) {
+            throw new StageFullException();
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for stage " + name, e);
+        }
+    }
+
+    /**
+     * The queue was full and the caller asked not to wait
+     */
+    private static final class StageFullException extends RejectedExecutionException {
+        private StageFullException() {
+            super("Pipeline stage queue is full");
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.logistics.service;
+
+import com.logistics.exception.ProductNotFoundException;
+import com.logistics.model.Product;
+import com.logistics.repository.ProductRepository;
+import com.logistics.util.CatalogEntry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory product catalog for the order hot path.
+ *
+ * Holds immutable product metadata keyed by SKU and by id. The mutable stock figure is
+ * never cached. The cache is reloaded when the catalog version stamp on the products
+ * table (highest catalog_version plus row count) changes. Product bumps its own
+ * catalog_version on every metadata write; direct SQL edits must do the same.
+ */
+@Service
+public class ProductCatalogService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductCatalogService.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile Snapshot snapshot = new Snapshot(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), -1, -1);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    @PostConstruct
+    public void registerMetrics() {
+        FunctionCounter.builder("logistics.catalog.cache.hits", hits, AtomicLong::get)
+                .description("Catalog lookups served from memory").register(meterRegistry);
+        FunctionCounter.builder("logistics.catalog.cache.misses", misses, AtomicLong::get)
+                .description("Catalog lookups that went to the database").register(meterRegistry);
+        FunctionCounter.builder("logistics.catalog.cache.refreshes", refreshes, AtomicLong::get)
+                .description("Full catalog reloads").register(meterRegistry);
+        Gauge.builder("logistics.catalog.cache.size", this, service -> service.snapshot.bySku.size())
+                .description("Products held in the catalog cache").register(meterRegistry);
+    }
+
+    /**
+     * Load the catalog once data.sql has run
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        refresh();
+    }
+
+    /**
+     * Cheap version check - reload only if the products table changed
+     */
+    @Scheduled(fixedDelayString = "${app.logistics.catalog.refresh-interval-ms:30000}",
+            initialDelayString = "${app.logistics.catalog.refresh-interval-ms:30000}")
+    public void checkForUpdates() {
+        try {
+            long version = productRepository.maxCatalogVersion();
+            long count = productRepository.count();
+            Snapshot current = snapshot;
+
+            if (version != current.version || count != current.productCount) {
+                log.info("Catalog version changed ({} -> {}, {} -> {} products) - reloading",
+                        current.version, version, current.productCount, count);
+                refresh();
+            }
+        } catch (Exception e) {
+            log.error("Error checking catalog version: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reload the complete catalog and swap it in atomically
+     */
+    public synchronized void refresh() {
+        long version = productRepository.maxCatalogVersion();
+        List<Product> products = productRepository.findAll();
+
+        Map<String, CatalogEntry> bySku = new ConcurrentHashMap<>();
+        Map<Long, CatalogEntry> byId = new ConcurrentHashMap<>();
+        for (Product product : products) {
+            CatalogEntry entry = CatalogEntry.of(product);
+            bySku.put(entry.getSku(), entry);
+            byId.put(entry.getId(), entry);
+        }
+
+        snapshot = new Snapshot(bySku, byId, version, products.size());
+        refreshes.incrementAndGet();
+        log.info("Product catalog loaded: {} products, version {}", products.size(), version);
+    }
+
+    /**
+     * Look up a product by SKU, falling back to the database on a miss
+     */
+    public Optional<CatalogEntry> findBySku(String sku) {
+        Snapshot current = snapshot;
+        CatalogEntry entry = current.bySku.get(sku);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return Optional.of(entry);
+        }
+
+        misses.incrementAndGet();
+        return productRepository.findBySku(sku).map(this::cache);
+    }
+
+    /**
+     * Look up a product by SKU in memory only; returns null on a miss
+     */
+    public CatalogEntry getCached(String sku) {
+        CatalogEntry entry = snapshot.bySku.get(sku);
+        if (entry != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Look up a product by id, falling back to the database on a miss
+     */
+    public Optional<CatalogEntry> findById(Long productId) {
+        Snapshot current = snapshot;
+        CatalogEntry entry = current.byId.get(productId);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return Optional.of(entry);
+        }
+
+        misses.incrementAndGet();
+        return productRepository.findById(productId).map(this::cache);
+    }
+
+    /**
+     * Look up a product by id, failing if it does not exist
+     */
+    public CatalogEntry getById(Long productId) {
+        return findById(productId)
+                .orElseThrow(() -> new ProductNotFoundException("Product not found with ID: " + productId, null));
+    }
+
+    /**
+     * All cached catalog entries
+     */
+    public List<CatalogEntry> getAll() {
+        hits.incrementAndGet();
+        return new ArrayList<>(snapshot.bySku.values());
+    }
+
+    /**
+     * Cache hit/miss/refresh statistics
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+        Snapshot current = snapshot;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", current.bySku.size());
+        stats.put("version", current.version);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("refreshes", refreshes.get());
+        stats.put("hitRate", lookups > 0 ? String.format("%.2f%%", (double) hitCount / lookups * 100) : "n/a");
+        return stats;
+    }
+
+    // Write into whichever snapshot is live now, not the one the lookup started on,
+    // so a refresh that swapped in between does not discard the entry
+    private CatalogEntry cache(Product product) {
+        CatalogEntry entry = CatalogEntry.of(product);
+        Snapshot current = snapshot;
+        current.bySku.put(entry.getSku(), entry);
+        current.byId.put(entry.getId(), entry);
+        return entry;
+    }
+
+    /**
+     * Catalog maps together with the version stamp they were loaded at
+     */
+    private static final class Snapshot {
+        final Map<String, CatalogEntry> bySku;
+        final Map<Long, CatalogEntry> byId;
+        final long version;
+        final long productCount;
+
+        Snapshot(Map<String, CatalogEntry> bySku, Map<Long, CatalogEntry> byId, long version, long productCount) {
+            this.bySku = bySku;
+            this.byId = byId;
+            this.version = version;
+            this.productCount = productCount;
+        }
+    }
+}
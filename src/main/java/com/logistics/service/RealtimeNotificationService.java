@@ -1,76 +1,141 @@
 package com.logistics.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
- * Enhanced notification service with real-time WebSocket support
+ * Enhanced notification service with real-time WebSocket support.
+ *
+ * Every event goes to /topic/updates (all events) and /topic/events/{type}, plus the partitions it
+ * belongs to: /topic/orders/{orderId}, /topic/clients/{clientId} and /topic/departments/{department}.
+ * Type and department segments are lower case with dashes (ORDER_STATUS_CHANGE -> order-status-change),
+ * client ids are URL-encoded. A destination without subscribers costs nothing beyond the check.
  */
 @Service
 public class RealtimeNotificationService extends NotificationService {
 
+    public static final String UPDATES_DESTINATION = "/topic/updates";
+    public static final String EVENTS_PREFIX = "/topic/events/";
+    public static final String ORDERS_PREFIX = "/topic/orders/";
+    public static final String CLIENTS_PREFIX = "/topic/clients/";
+    public static final String DEPARTMENTS_PREFIX = "/topic/departments/";
+
+    @Autowired
+    private NotificationDispatcher dispatcher;
+
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private DashboardLiveView dashboardLiveView;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private EventStreamService eventStream;
+
+    public static String eventDestination(String type) {
+        return EVENTS_PREFIX + name(type);
+    }
+
+    public static String orderDestination(Long orderId) {
+        return ORDERS_PREFIX + orderId;
+    }
+
+    public static String clientDestination(String clientId) {
+        return CLIENTS_PREFIX + URLEncoder.encode(clientId, StandardCharsets.UTF_8);
+    }
+
+    public static String departmentDestination(String department) {
+        return DEPARTMENTS_PREFIX + name(department);
+    }
 
     /**
      * Send real-time notification to dashboard
      */
     public void sendRealtimeUpdate(String type, Object data) {
-        try {
-            Map<String, Object> message = Map.of(
-                    "type", type,
-                    "data", data,
-                    "timestamp", LocalDateTime.now().toString()
-            );
-
-            // Send to all connected dashboard clients
-            messagingTemplate.convertAndSend("/topic/updates", message);
+        publish(type, data, null);
+    }
 
-            System.out.println("📡 Real-time update sent: " + type);
+    /**
+     * Queue the update for the dispatcher's next frame - the caller only pays for the enqueue. The
+     * notification latency is recorded by the dispatcher, from the enqueue to the frame being sent.
+     *
+     * @param partitions destinations besides /topic/updates and the event type's own
+     */
+    private void publish(String type, Object data, String coalesceKey, String... partitions) {
+        List<String> destinations = new ArrayList<>(partitions.length + 2);
+        destinations.add(UPDATES_DESTINATION);
+        destinations.add(eventDestination(type));
+        destinations.addAll(List.of(partitions));
+        dispatcher.publish(destinations, type, data, coalesceKey);
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error sending real-time update: " + e.getMessage());
+    /**
+     * Send order status update to the order's and its client's subscribers
+     */
+    public void sendOrderStatusUpdate(Long orderId, String clientId, String oldStatus, String newStatus) {
+        Map<String, Object> update = new LinkedHashMap<>();
+        update.put("orderId", orderId);
+        if (clientId != null) {
+            update.put("clientId", clientId);
+        }
+        update.put("oldStatus", oldStatus);
+        update.put("newStatus", newStatus);
+        update.put("timestamp", LocalDateTime.now());
+        eventStream.publish("ORDER_STATUS_CHANGE", orderId, clientId, update);
+
+        // Transitions of one order within a dispatch window reach the dashboard as one change
+        String key = "order:" + orderId;
+        if (clientId != null) {
+            publish("ORDER_STATUS_CHANGE", update, key, orderDestination(orderId), clientDestination(clientId));
+        } else {
+            publish("ORDER_STATUS_CHANGE", update, key, orderDestination(orderId));
         }
     }
 
     /**
-     * Send order status update
+     * Send shipment status update to the order's and its client's subscribers
+     *
+     * @param oldStatus null for a newly scheduled shipment
      */
-    public void sendOrderStatusUpdate(Long orderId, String oldStatus, String newStatus) {
-        Map<String, Object> update = Map.of(
-                "orderId", orderId,
-                "oldStatus", oldStatus,
-                "newStatus", newStatus,
-                "timestamp", LocalDateTime.now()
-        );
-
-        sendRealtimeUpdate("ORDER_STATUS_CHANGE", update);
+    public void sendShipmentStatusUpdate(Long shipmentId, Long orderId, String clientId, String oldStatus, String newStatus) {
+        Map<String, Object> update = new LinkedHashMap<>();
+        update.put("shipmentId", shipmentId);
+        update.put("orderId", orderId);
+        update.put("clientId", clientId);
+        update.put("oldStatus", oldStatus);
+        update.put("newStatus", newStatus);
+        update.put("timestamp", LocalDateTime.now());
+        eventStream.publish("SHIPMENT_STATUS_CHANGE", orderId, clientId, update);
+
+        publish("SHIPMENT_STATUS_CHANGE", update, "shipment:" + shipmentId,
+                orderDestination(orderId), clientDestination(clientId));
     }
 
     /**
      * Send new order notification
      */
-    public void sendNewOrderNotification(Long orderId, String clientName, int itemCount) {
+    public void sendNewOrderNotification(Long orderId, String clientId, String clientName, int itemCount) {
         Map<String, Object> update = Map.of(
                 "orderId", orderId,
+                "clientId", clientId,
                 "clientName", clientName,
                 "itemCount", itemCount,
                 "timestamp", LocalDateTime.now()
         );
 
-        sendRealtimeUpdate("NEW_ORDER", update);
+        dashboardLiveView.orderAdded(orderId, clientId, clientName, itemCount);
+        eventStream.publish("NEW_ORDER", orderId, clientId, update);
+        publish("NEW_ORDER", update, null, orderDestination(orderId), clientDestination(clientId));
     }
 
     /**
-     * Send AI automation alert
+     * Send AI automation alert - also to the order's subscribers when the details name an order
      */
     public void sendAIAlert(String agentName, String action, Object details) {
         Map<String, Object> alert = Map.of(
@@ -80,7 +145,12 @@ public class RealtimeNotificationService extends NotificationService {
                 "timestamp", LocalDateTime.now()
         );
 
-        sendRealtimeUpdate("AI_ALERT", alert);
+        Object orderId = details instanceof Map ? ((Map<?, ?>) details).get("orderId") : null;
+        if (orderId instanceof Long) {
+            publish("AI_ALERT", alert, null, orderDestination((Long) orderId));
+        } else {
+            sendRealtimeUpdate("AI_ALERT", alert);
+        }
     }
 
     /**
@@ -106,7 +176,7 @@ public class RealtimeNotificationService extends NotificationService {
                 "timestamp", LocalDateTime.now()
         );
 
-        sendRealtimeUpdate("NOTIFICATION", notification);
+        publish("NOTIFICATION", notification, null, clientDestination(clientId));
     }
 
     /**
@@ -125,7 +195,7 @@ public class RealtimeNotificationService extends NotificationService {
                 "timestamp", LocalDateTime.now()
         );
 
-        sendRealtimeUpdate("INTERNAL_NOTIFICATION", notification);
+        publish("INTERNAL_NOTIFICATION", notification, null, departmentDestination(department));
     }
 
     /**
@@ -145,6 +215,13 @@ public class RealtimeNotificationService extends NotificationService {
                 "severity", "HIGH"
         );
 
-        sendRealtimeUpdate("URGENT_ALERT", alert);
+        publish("URGENT_ALERT", alert, null, departmentDestination(recipient));
+    }
+
+    /**
+     * Destination segment for a name such as an event type or department
+     */
+    private static String name(String value) {
+        return value.trim().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-");
     }
 }
\ No newline at end of file
@@ -0,0 +1,151 @@
+package com.logistics.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Which broker destinations of this node currently have subscribers.
+ *
+ * Follows the STOMP SUBSCRIBE, UNSUBSCRIBE and DISCONNECT frames of every WebSocket session, so the
+ * notification dispatcher can leave out destinations nobody listens to before it builds and
+ * serializes a frame. Subscriptions to patterns such as /topic/orders/* are matched the way the
+ * simple broker matches them.
+ */
+@Service
+public class RealtimeSubscriptionRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(RealtimeSubscriptionRegistry.class);
+
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+
+    // Subscription count per exact destination and per pattern
+    private final Map<String, AtomicInteger> destinations = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> patterns = new ConcurrentHashMap<>();
+
+    // Session id -> subscription id -> destination, to undo subscriptions on unsubscribe and disconnect
+    private final Map<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = headers.getSessionId();
+        String subscriptionId = headers.getSubscriptionId();
+        String destination = headers.getDestination();
+        if (sessionId == null || subscriptionId == null || destination == null) {
+            return;
+        }
+        String previous = sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+                .put(subscriptionId, destination);
+        if (previous != null) {
+            removeSubscription(previous);
+        }
+        countsFor(destination).compute(destination, (key, count) -> {
+            AtomicInteger counter = count != null ? count : new AtomicInteger();
+            counter.incrementAndGet();
+            return counter;
+        });
+        log.debug("Session {} subscribed to {}", sessionId, destination);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> subscriptions = sessions.get(headers.getSessionId());
+        if (subscriptions == null || headers.getSubscriptionId() == null) {
+            return;
+        }
+        String destination = subscriptions.remove(headers.getSubscriptionId());
+        if (destination != null) {
+            removeSubscription(destination);
+        }
+    }
+
+    /**
+     * Drop every subscription of a closed session. May be called more than once per session.
+     */
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> subscriptions = sessions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::removeSubscription);
+        }
+    }
+
+    /**
+     * Whether a message sent to the destination would reach at least one subscriber on this node
+     */
+    public boolean hasSubscribers(String destination) {
+        AtomicInteger count = destinations.get(destination);
+        if (count != null && count.get() > 0) {
+            return true;
+        }
+        for (Map.Entry<String, AtomicInteger> pattern : patterns.entrySet()) {
+            if (pattern.getValue().get() > 0 && pathMatcher.match(pattern.getKey(), destination)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Subscriptions to exactly this destination, not counting patterns
+     */
+    public int getSubscriberCount(String destination) {
+        AtomicInteger count = destinations.get(destination);
+        return count != null ? count.get() : 0;
+    }
+
+    /**
+     * Session and subscription counts, with subscriptions grouped by destination family (/topic/orders, ...)
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Integer> byFamily = new TreeMap<>();
+        int subscriptions = 0;
+        for (Map<String, AtomicInteger> counts : List.of(destinations, patterns)) {
+            for (Map.Entry<String, AtomicInteger> entry : counts.entrySet()) {
+                int count = entry.getValue().get();
+                subscriptions += count;
+                byFamily.merge(family(entry.getKey()), count, Integer::sum);
+            }
+        }
+        byFamily.values().removeIf(count -> count == 0);
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", sessions.size());
+        stats.put("subscriptions", subscriptions);
+        stats.put("destinations", destinations.size());
+        stats.put("patterns", patterns.size());
+        stats.put("subscriptionsByFamily", byFamily);
+        return stats;
+    }
+
+    private void removeSubscription(String destination) {
+        // Entries are removed only at zero and only inside compute, so a concurrent subscribe is never lost
+        countsFor(destination).computeIfPresent(destination, (key, count) -> count.decrementAndGet() > 0 ? count : null);
+    }
+
+    private Map<String, AtomicInteger> countsFor(String destination) {
+        return pathMatcher.isPattern(destination) ? patterns : destinations;
+    }
+
+    /**
+     * The first two path segments, e.g. /topic/orders for /topic/orders/42
+     */
+    private static String family(String destination) {
+        int second = destination.indexOf('/', 1);
+        int third = second < 0 ? -1 : destination.indexOf('/', second + 1);
+        return third < 0 ? destination : destination.substring(0, third);
+    }
+}
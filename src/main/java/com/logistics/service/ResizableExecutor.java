@@ -0,0 +1,32 @@
+package com.logistics.service;
+
+/**
+ * A worker pool whose size the adaptive concurrency limiter may change at runtime.
+ * Counters are cumulative; the limiter works on the difference between two samples.
+ */
+public interface ResizableExecutor {
+
+    String getName();
+
+    /**
+     * Workers currently allowed to run tasks concurrently
+     */
+    int getConcurrencyLimit();
+
+    void setConcurrencyLimit(int limit);
+
+    /**
+     * Upper bound for the limit, taken from the static configuration
+     */
+    int getMaxConcurrencyLimit();
+
+    int getQueueDepth();
+
+    int getActiveThreads();
+
+    long getCompletedTasks();
+
+    long getTotalServiceNanos();
+
+    long getTotalQueueWaitNanos();
+}
@@ -19,6 +19,15 @@ public class ShippingAgent {
     @Autowired
     private ShipmentRepository shipmentRepository;
     
+    @Autowired
+    private ProductCatalogService productCatalog;
+    
+    @Autowired
+    private StatusCountService statusCounts;
+    
+    @Autowired
+    private RealtimeNotificationService notificationService;
+    
     /**
      * Schedule shipment using AI-driven optimization
      */
@@ -48,7 +57,11 @@ public class ShippingAgent {
         
         System.out.println("Estimated delivery: " + estimatedDelivery);
         
-        return shipmentRepository.save(shipment);
+        Shipment saved = shipmentRepository.save(shipment);
+        statusCounts.shipmentCreated(saved.getStatus());
+        notificationService.sendShipmentStatusUpdate(saved.getId(), order.getId(), order.getClientId(),
+                null, saved.getStatus().name());
+        return saved;
     }
     
     /**
@@ -160,7 +173,7 @@ public class ShippingAgent {
      */
     private boolean hasFragileItems(Order order) {
         return order.getItems().stream()
-            .anyMatch(item -> item.getProduct().isFragile());
+            .anyMatch(item -> productCatalog.getById(item.getProduct().getId()).isFragile());
     }
     
     /**
@@ -0,0 +1,567 @@
+package com.logistics.service;
+
+import com.logistics.exception.InsufficientInventoryException;
+import com.logistics.exception.ProductNotFoundException;
+import com.logistics.exception.ReservationException;
+import com.logistics.exception.ReservationNotFoundException;
+import com.logistics.model.OrderStatus;
+import com.logistics.model.Product;
+import com.logistics.model.Reservation;
+import com.logistics.model.ReservationStatus;
+import com.logistics.repository.OrderRepository;
+import com.logistics.repository.ProductRepository;
+import com.logistics.repository.ReservationRepository;
+import com.logistics.util.CatalogEntry;
+import com.logistics.util.OrderHolds;
+import com.logistics.util.TimingWheel;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-bounded soft reservations (holds) for orders awaiting manual approval.
+ *
+ * A hold keeps stock out of available-to-promise (stock minus held) by adding to
+ * products.held_quantity, which the guarded stock decrement checks in the same statement - so no
+ * order can take held units between an availability check and its UPDATE. In ledger mode the ledger
+ * takes the held units out of its available half as well. The reservations table is the durable
+ * record. Expiry runs on a hashed timing wheel, so each tick only looks at the holds due in that tick
+ * and resolves them with one UPDATE - the table is never scanned after startup.
+ *
+ * Whoever removes a hold from the active map owns its transition on this node; every transition is
+ * also a guarded UPDATE whose row count must match, so nodes and the order pipeline cannot resolve
+ * the same hold twice. A hold placed for an order is handed over to that order's reservation, which
+ * takes the held units instead of free stock; confirming such a hold keeps it for the order.
+ */
+@Service
+public class SoftReservationService {
+
+    private static final Logger log = LoggerFactory.getLogger(SoftReservationService.class);
+
+    // Bounds the IN list of one expiry statement
+    private static final int EXPIRY_CHUNK_SIZE = 1000;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductCatalogService productCatalog;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.logistics.inventory.holds.default-ttl-seconds:900}")
+    private long defaultTtlSeconds;
+
+    @Value("${app.logistics.inventory.holds.max-ttl-seconds:86400}")
+    private long maxTtlSeconds;
+
+    @Value("${app.logistics.inventory.holds.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${app.logistics.inventory.holds.wheel-size:512}")
+    private int wheelSize;
+
+    // Hold id -> what it holds, for ACTIVE holds this node has not resolved yet
+    private final ConcurrentHashMap<Long, HeldStock> activeHolds = new ConcurrentHashMap<>();
+
+    private final AtomicLong holds = new AtomicLong();
+    private final AtomicLong refusedHolds = new AtomicLong();
+    private final AtomicLong confirmed = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    private TimingWheel<Long> expiryWheel;
+
+    @PostConstruct
+    public void start() {
+        expiryWheel = new TimingWheel<>("Reservation-Expiry", tickMs, wheelSize, this::expire);
+        expiryWheel.start();
+
+        FunctionCounter.builder("logistics.inventory.holds.placed", holds, AtomicLong::get)
+                .description("Soft reservations placed").register(meterRegistry);
+        FunctionCounter.builder("logistics.inventory.holds.consumed", consumed, AtomicLong::get)
+                .description("Soft reservations taken over by their order's reservation").register(meterRegistry);
+        FunctionCounter.builder("logistics.inventory.holds.expired", expired, AtomicLong::get)
+                .description("Soft reservations that expired unconfirmed").register(meterRegistry);
+        Gauge.builder("logistics.inventory.holds.active", activeHolds, Map::size)
+                .description("Soft reservations currently holding stock").register(meterRegistry);
+
+        log.info("Soft reservations started (tick {} ms, wheel of {} buckets, default TTL {} s)",
+                tickMs, expiryWheel.getWheelSize(), defaultTtlSeconds);
+    }
+
+    /**
+     * Pick up holds persisted by a previous run once data.sql has run. Holds that ran out while the
+     * application was down are expired and their held units given back; the rest go back on the wheel.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadActiveHolds() {
+        LocalDateTime now = LocalDateTime.now();
+        List<HeldStock> overdue = new ArrayList<>();
+        int restored = 0;
+
+        for (ReservationRepository.ActiveHold hold : reservationRepository.findActiveHolds()) {
+            HeldStock held = new HeldStock(hold.getId(), hold.getProductId(), hold.getQuantity(), hold.getOrderId());
+            if (hold.getExpiresAt().isAfter(now)) {
+                track(held, Duration.between(now, hold.getExpiresAt()));
+                restored++;
+            } else {
+                overdue.add(held);
+            }
+        }
+
+        int expiredWhileDown = 0;
+        for (int from = 0; from < overdue.size(); from += EXPIRY_CHUNK_SIZE) {
+            expiredWhileDown += resolveAndRelease(overdue.subList(from, Math.min(from + EXPIRY_CHUNK_SIZE,
+                    overdue.size())), ReservationStatus.EXPIRED, false).size();
+        }
+
+        if (expiredWhileDown > 0 || restored > 0) {
+            log.info("Soft reservations restored: {} active, {} expired while the application was down",
+                    restored, expiredWhileDown);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Unexpired holds stay ACTIVE in the table and are restored on the next start
+        expiryWheel.stop();
+    }
+
+    /**
+     * Hold stock of one product for the given time, or the default TTL when ttlSeconds is null.
+     * Refused with InsufficientInventoryException when available-to-promise is short.
+     */
+    public Reservation hold(String sku, int quantity, Long ttlSeconds, Long orderId) {
+        CatalogEntry entry = productCatalog.findBySku(sku)
+                .orElseThrow(() -> new ProductNotFoundException(sku));
+        Long productId = entry.getId();
+        long ttl = Math.min(ttlSeconds != null ? ttlSeconds : defaultTtlSeconds, maxTtlSeconds);
+        boolean ledgerMode = inventoryLedger.covers(Collections.singleton(productId));
+
+        // The ledger holds in its own transaction; in the database the hold and its row commit together
+        if (ledgerMode && !inventoryLedger.hold(productId, quantity)) {
+            throw refused(sku, productId, quantity);
+        }
+        Reservation reservation;
+        try {
+            reservation = transactionTemplate.execute(status -> {
+                if (!ledgerMode && !productRepository.holdIfAvailable(productId, quantity)) {
+                    throw refused(sku, productId, quantity);
+                }
+                return reservationRepository.save(new Reservation(productRepository.getReferenceById(productId),
+                        quantity, orderId, LocalDateTime.now().plusSeconds(ttl)));
+            });
+        } catch (RuntimeException e) {
+            if (ledgerMode) {
+                inventoryLedger.releaseHeld(Collections.singletonMap(productId, quantity));
+            }
+            throw e;
+        }
+
+        activeHolds.put(reservation.getId(), new HeldStock(reservation.getId(), productId, quantity, orderId));
+        expiryWheel.schedule(reservation.getId(), ttl, TimeUnit.SECONDS);
+        holds.incrementAndGet();
+
+        log.info("Held {} units of {} for {}s (reservation {})", quantity, entry.getName(), ttl, reservation.getId());
+        return reservation;
+    }
+
+    /**
+     * Confirm a hold. A hold placed for an order that is still waiting to be reserved is kept for that
+     * order, which takes it over when it reserves; any other hold becomes a permanent stock decrement.
+     */
+    public Reservation confirm(Long reservationId) {
+        HeldStock held = claim(reservationId);
+        Map<Long, Integer> quantities = Collections.singletonMap(held.productId, held.quantity);
+        boolean ledgerMode = inventoryLedger.covers(quantities.keySet());
+        boolean forOrder = held.orderId != null;
+
+        if (forOrder && orderRepository.findIdsByIdInAndStatus(Collections.singleton(held.orderId),
+                OrderStatus.RECEIVED).isEmpty()) {
+            activeHolds.put(reservationId, held);
+            throw new ReservationException(reservationId, ReservationStatus.ACTIVE.name(),
+                    "Order " + held.orderId + " is no longer waiting for stock - release the hold instead");
+        }
+
+        boolean resolved;
+        try {
+            resolved = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (reservationRepository.resolveActive(Collections.singleton(reservationId),
+                        ReservationStatus.CONFIRMED, LocalDateTime.now()) == 0) {
+                    return false;
+                }
+                // Held units are already excluded from other orders, so taking them cannot be refused
+                if (!forOrder && !ledgerMode) {
+                    productRepository.decrementStockIfAvailable(quantities, quantities);
+                }
+                return true;
+            }));
+        } catch (RuntimeException e) {
+            activeHolds.put(reservationId, held);
+            throw e;
+        }
+        if (!resolved) {
+            // Taken over or resolved elsewhere - its held units went with that transition
+            throw new ReservationException(reservationId, getReservation(reservationId).getStatus().name(),
+                    "Reservation is no longer active");
+        }
+
+        if (!forOrder && ledgerMode) {
+            inventoryLedger.takeHeld(quantities);
+        }
+        confirmed.incrementAndGet();
+        return getReservation(reservationId);
+    }
+
+    /**
+     * Give held stock back to available-to-promise
+     */
+    public Reservation release(Long reservationId) {
+        HeldStock held = claim(reservationId);
+
+        List<HeldStock> resolved;
+        try {
+            resolved = resolveAndRelease(Collections.singletonList(held), ReservationStatus.RELEASED, false);
+        } catch (RuntimeException e) {
+            activeHolds.put(reservationId, held);
+            throw e;
+        }
+        if (resolved.isEmpty()) {
+            throw new ReservationException(reservationId, getReservation(reservationId).getStatus().name(),
+                    "Reservation is no longer active");
+        }
+
+        released.incrementAndGet();
+        return getReservation(reservationId);
+    }
+
+    /**
+     * Holds placed for each of the given orders that still count towards stock. Orders without holds
+     * are absent from the map.
+     */
+    public Map<Long, OrderHolds> getOrderHolds(Collection<Long> orderIds) {
+        Map<Long, OrderHolds> holdsByOrder = new HashMap<>();
+        if (orderIds.isEmpty()) {
+            return holdsByOrder;
+        }
+        for (ReservationRepository.OrderHold hold : reservationRepository.findHeldForOrders(orderIds)) {
+            holdsByOrder.computeIfAbsent(hold.getOrderId(), OrderHolds::new)
+                    .add(hold.getId(), hold.getProductId(), hold.getQuantity());
+        }
+        return holdsByOrder;
+    }
+
+    public OrderHolds getOrderHolds(Long orderId) {
+        if (orderId == null) {
+            return OrderHolds.none(null);
+        }
+        return getOrderHolds(Collections.singleton(orderId)).getOrDefault(orderId, OrderHolds.none(orderId));
+    }
+
+    /**
+     * Mark the orders' holds CONSUMED inside the caller's transaction. The caller takes the held units
+     * with its stock decrement and must roll back when this returns false - some hold was released,
+     * expired or taken over since the holds were read.
+     */
+    public boolean handOver(Collection<OrderHolds> orderHolds) {
+        List<Long> ids = new ArrayList<>();
+        orderHolds.forEach(holdsOfOrder -> ids.addAll(holdsOfOrder.getReservationIds()));
+        if (ids.isEmpty()) {
+            return true;
+        }
+        if (reservationRepository.resolveHeld(ids, ReservationStatus.CONSUMED, LocalDateTime.now()) != ids.size()) {
+            return false;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ids.forEach(activeHolds::remove);
+                consumed.addAndGet(ids.size());
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Release whatever an order still holds, confirmed holds included - called when the order is
+     * cancelled, rejected or fails. Inside the caller's transaction the holds are resolved with its
+     * status write, and the ledger and active map follow once it has committed.
+     */
+    public void releaseForOrder(Long orderId) {
+        List<HeldStock> candidates = new ArrayList<>();
+        for (ReservationRepository.OrderHold hold : reservationRepository.findHeldForOrders(
+                Collections.singleton(orderId))) {
+            candidates.add(new HeldStock(hold.getId(), hold.getProductId(), hold.getQuantity(), orderId));
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // One by one, so losing a hold to the expiry wheel never marks the caller's transaction rollback-only
+            List<HeldStock> resolved = resolveEach(candidates, ReservationStatus.RELEASED, true);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    releaseInLedger(resolved);
+                    releasedForOrder(orderId, resolved);
+                }
+            });
+            return;
+        }
+
+        releasedForOrder(orderId, resolveAndRelease(candidates, ReservationStatus.RELEASED, true));
+    }
+
+    public Reservation getReservation(Long reservationId) {
+        return reservationRepository.findById(reservationId)
+                .orElseThrow(() -> new ReservationNotFoundException(reservationId));
+    }
+
+    /**
+     * Stock, held quantity and available-to-promise for one product
+     */
+    public Map<String, Object> getAvailability(String sku) {
+        CatalogEntry entry = productCatalog.findBySku(sku)
+                .orElseThrow(() -> new ProductNotFoundException(sku));
+        Product product = productRepository.findById(entry.getId())
+                .orElseThrow(() -> new ProductNotFoundException(sku));
+        int held = product.getHeldQuantity();
+        int availableToPromise = currentAvailable(entry.getId());
+
+        Map<String, Object> availability = new LinkedHashMap<>();
+        availability.put("sku", entry.getSku());
+        availability.put("productName", entry.getName());
+        availability.put("stockQuantity", availableToPromise + held);
+        availability.put("heldQuantity", held);
+        availability.put("availableToPromise", availableToPromise);
+        return availability;
+    }
+
+    /**
+     * Hold statistics for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("activeHolds", activeHolds.size());
+        stats.put("holdsPlaced", holds.get());
+        stats.put("holdsRefused", refusedHolds.get());
+        stats.put("confirmed", confirmed.get());
+        stats.put("released", released.get());
+        stats.put("consumed", consumed.get());
+        stats.put("expired", expired.get());
+        stats.put("pendingTimeouts", expiryWheel.size());
+        stats.put("tickMs", expiryWheel.getTickMillis());
+        stats.put("wheelSize", expiryWheel.getWheelSize());
+        return stats;
+    }
+
+    /**
+     * Timing wheel callback: expire the holds of one tick that nobody resolved first
+     */
+    private void expire(List<Long> dueIds) {
+        List<HeldStock> won = new ArrayList<>();
+        for (Long reservationId : dueIds) {
+            HeldStock held = activeHolds.remove(reservationId);
+            if (held != null) {
+                won.add(held);
+            }
+        }
+
+        int expiredNow = 0;
+        for (int from = 0; from < won.size(); from += EXPIRY_CHUNK_SIZE) {
+            List<HeldStock> chunk = won.subList(from, Math.min(from + EXPIRY_CHUNK_SIZE, won.size()));
+            try {
+                expiredNow += resolveAndRelease(chunk, ReservationStatus.EXPIRED, false).size();
+            } catch (RuntimeException e) {
+                // Put the holds back and try again on the next tick
+                log.error("Expiring {} reservations failed, retrying: {}", chunk.size(), e.getMessage(), e);
+                chunk.forEach(held -> {
+                    activeHolds.put(held.id, held);
+                    expiryWheel.schedule(held.id, tickMs, TimeUnit.MILLISECONDS);
+                });
+            }
+        }
+
+        expired.addAndGet(expiredNow);
+        if (expiredNow > 0) {
+            log.info("Expired {} soft reservations", expiredNow);
+        }
+    }
+
+    /**
+     * Move holds to a final status and give their units back to available-to-promise. In the database
+     * the held column changes in the same transaction; the ledger follows once it committed. Holds
+     * another node or the order pipeline resolved first are skipped. Confirmed holds kept for their
+     * order are only included when the order itself goes away.
+     *
+     * @return the holds this call resolved
+     */
+    private List<HeldStock> resolveAndRelease(List<HeldStock> candidates, ReservationStatus status,
+                                              boolean includeConfirmed) {
+        List<HeldStock> resolved = transactionTemplate.execute(tx -> {
+            List<Long> ids = new ArrayList<>();
+            candidates.forEach(held -> ids.add(held.id));
+            if (resolve(ids, status, includeConfirmed) != ids.size()) {
+                tx.setRollbackOnly();
+                return null;
+            }
+            releaseInDatabase(candidates);
+            return new ArrayList<>(candidates);
+        });
+
+        if (resolved == null) {
+            // Some were resolved elsewhere - go one by one to find out which are ours
+            resolved = resolveEach(candidates, status, includeConfirmed);
+        }
+
+        releaseInLedger(resolved);
+        return resolved;
+    }
+
+    /**
+     * Resolve holds one guarded UPDATE at a time, skipping those resolved elsewhere
+     */
+    private List<HeldStock> resolveEach(List<HeldStock> candidates, ReservationStatus status,
+                                        boolean includeConfirmed) {
+        List<HeldStock> resolved = new ArrayList<>();
+        for (HeldStock held : candidates) {
+            Boolean won = transactionTemplate.execute(tx -> {
+                if (resolve(Collections.singleton(held.id), status, includeConfirmed) == 0) {
+                    return false;
+                }
+                releaseInDatabase(Collections.singletonList(held));
+                return true;
+            });
+            if (Boolean.TRUE.equals(won)) {
+                resolved.add(held);
+            }
+        }
+        return resolved;
+    }
+
+    private void releaseInLedger(List<HeldStock> resolved) {
+        Map<Long, Integer> ledgerHeld = heldQuantities(resolved, true);
+        if (!ledgerHeld.isEmpty()) {
+            inventoryLedger.releaseHeld(ledgerHeld);
+        }
+    }
+
+    private void releasedForOrder(Long orderId, List<HeldStock> resolved) {
+        resolved.forEach(held -> activeHolds.remove(held.id));
+        released.addAndGet(resolved.size());
+
+        if (!resolved.isEmpty()) {
+            log.info("Released {} soft reservations of order {}", resolved.size(), orderId);
+        }
+    }
+
+    private int resolve(Collection<Long> ids, ReservationStatus status, boolean includeConfirmed) {
+        return includeConfirmed
+                ? reservationRepository.resolveHeld(ids, status, LocalDateTime.now())
+                : reservationRepository.resolveActive(ids, status, LocalDateTime.now());
+    }
+
+    private void releaseInDatabase(List<HeldStock> resolved) {
+        Map<Long, Integer> deltas = new HashMap<>();
+        heldQuantities(resolved, false).forEach((productId, quantity) -> deltas.put(productId, -quantity));
+        if (!deltas.isEmpty()) {
+            productRepository.applyHeldDeltas(deltas);
+        }
+    }
+
+    /**
+     * Held quantity per product, for the products the ledger covers or for the rest
+     */
+    private Map<Long, Integer> heldQuantities(List<HeldStock> resolved, boolean inLedger) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (HeldStock held : resolved) {
+            if (inventoryLedger.covers(Collections.singleton(held.productId)) == inLedger) {
+                quantities.merge(held.productId, held.quantity, Integer::sum);
+            }
+        }
+        return quantities;
+    }
+
+    /**
+     * Take the hold out of the active map - the caller then owns its transition
+     */
+    private HeldStock claim(Long reservationId) {
+        HeldStock held = activeHolds.remove(reservationId);
+        if (held == null) {
+            Reservation reservation = getReservation(reservationId);
+            throw new ReservationException(reservationId, reservation.getStatus().name(),
+                    "Reservation is no longer active");
+        }
+        return held;
+    }
+
+    private void track(HeldStock held, Duration remaining) {
+        activeHolds.put(held.id, held);
+        expiryWheel.schedule(held.id, Math.max(remaining.toMillis(), 0), TimeUnit.MILLISECONDS);
+    }
+
+    private InsufficientInventoryException refused(String sku, Long productId, int quantity) {
+        refusedHolds.incrementAndGet();
+        return new InsufficientInventoryException(sku, currentAvailable(productId), quantity);
+    }
+
+    /**
+     * Available-to-promise. In ledger mode the products table lags behind reservations - read the ledger instead.
+     */
+    private int currentAvailable(Long productId) {
+        if (inventoryLedger.covers(Collections.singleton(productId))) {
+            return inventoryLedger.getAvailable(productId);
+        }
+        return productRepository.findById(productId).map(Product::getAvailableToPromise).orElse(0);
+    }
+
+    private static final class HeldStock {
+        private final Long id;
+        private final Long productId;
+        private final int quantity;
+        private final Long orderId;
+
+        private HeldStock(Long id, Long productId, int quantity, Long orderId) {
+            this.id = id;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.orderId = orderId;
+        }
+    }
+}
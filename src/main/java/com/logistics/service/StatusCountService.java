@@ -0,0 +1,280 @@
+package com.logistics.service;
+
+import com.logistics.event.OrderStatusChangedEvent;
+import com.logistics.model.Order;
+import com.logistics.model.OrderStatus;
+import com.logistics.model.ShipmentStatus;
+import com.logistics.repository.OrderRepository;
+import com.logistics.repository.ShipmentRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Order and shipment counts per status, kept in memory so the stats endpoints never count rows.
+ *
+ * Every code path that creates an order or shipment or writes its status reports the change here.
+ * Changes made inside a transaction are applied after it commits, so a rollback never moves a
+ * counter. Each committed order transition is also published as an OrderStatusChangedEvent, which
+ * the dashboard lanes follow. A periodic GROUP BY pass corrects any drift (a write this class was not told about, or a
+ * stale "from" status). When status writes ran while the counts were being read, only drift that the
+ * previous pass saw as well is corrected - the rest is just transitions racing the query.
+ * Applying changes and correcting exclude each other, so no change can land in between.
+ */
+@Service
+public class StatusCountService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusCountService.class);
+
+    private static final int LOAD_ATTEMPTS = 5;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final Map<OrderStatus, AtomicLong> orderCounts = new EnumMap<>(OrderStatus.class);
+    private final Map<ShipmentStatus, AtomicLong> shipmentCounts = new EnumMap<>(ShipmentStatus.class);
+
+    // Bumped by every applied change, so reconciliation can tell whether writes raced its query
+    private final AtomicLong appliedChanges = new AtomicLong();
+    private final AtomicLong corrections = new AtomicLong();
+    // Shared by change application, exclusive for the compare-and-correct step
+    private final ReadWriteLock correctionLock = new ReentrantReadWriteLock();
+
+    private Map<OrderStatus, Long> lastOrderDrift = new EnumMap<>(OrderStatus.class);
+    private Map<ShipmentStatus, Long> lastShipmentDrift = new EnumMap<>(ShipmentStatus.class);
+    private volatile boolean loaded;
+    private volatile LocalDateTime lastReconciledAt;
+
+    public StatusCountService() {
+        for (OrderStatus status : OrderStatus.values()) {
+            orderCounts.put(status, new AtomicLong());
+        }
+        for (ShipmentStatus status : ShipmentStatus.values()) {
+            shipmentCounts.put(status, new AtomicLong());
+        }
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        orderCounts.forEach((status, count) -> Gauge.builder("logistics.orders.by.status", count, AtomicLong::get)
+                .tag("status", status.name()).description("Orders currently in each status").register(meterRegistry));
+        shipmentCounts.forEach((status, count) -> Gauge.builder("logistics.shipments.by.status", count, AtomicLong::get)
+                .tag("status", status.name()).description("Shipments currently in each status").register(meterRegistry));
+    }
+
+    /**
+     * Load the counts once the schema and sample data are in place
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        // Counters start from nothing, so the first load needs a pass no status write raced
+        for (int attempt = 1; attempt <= LOAD_ATTEMPTS && !loaded; attempt++) {
+            reconcile(attempt == LOAD_ATTEMPTS);
+        }
+    }
+
+    public void orderCreated(OrderStatus status) {
+        ordersCreated(status, 1);
+    }
+
+    public void ordersCreated(OrderStatus status, int orders) {
+        afterCommit(() -> orderCounts.get(status).addAndGet(orders));
+    }
+
+    public void orderTransition(Order order, OrderStatus from, OrderStatus to) {
+        if (from == to) {
+            return;
+        }
+        Long orderId = order.getId();
+        String clientId = order.getClientId();
+        afterCommit(() -> {
+            orderCounts.get(from).decrementAndGet();
+            orderCounts.get(to).incrementAndGet();
+        });
+        onCommit(() -> eventPublisher.publishEvent(new OrderStatusChangedEvent(this, orderId, clientId, from, to)));
+    }
+
+    /**
+     * Several orders moved from the same status to the same status
+     */
+    public void ordersTransitioned(Collection<Long> orderIds, OrderStatus from, OrderStatus to) {
+        if (from == to || orderIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(orderIds);
+        afterCommit(() -> {
+            orderCounts.get(from).addAndGet(-ids.size());
+            orderCounts.get(to).addAndGet(ids.size());
+        });
+        onCommit(() -> ids.forEach(orderId ->
+                eventPublisher.publishEvent(new OrderStatusChangedEvent(this, orderId, null, from, to))));
+    }
+
+    public void shipmentCreated(ShipmentStatus status) {
+        shipmentsCreated(status, 1);
+    }
+
+    public void shipmentsCreated(ShipmentStatus status, int shipments) {
+        afterCommit(() -> shipmentCounts.get(status).addAndGet(shipments));
+    }
+
+    public void shipmentTransition(ShipmentStatus from, ShipmentStatus to) {
+        if (from == to) {
+            return;
+        }
+        afterCommit(() -> {
+            shipmentCounts.get(from).decrementAndGet();
+            shipmentCounts.get(to).incrementAndGet();
+        });
+    }
+
+    public long getOrderCount(OrderStatus status) {
+        return orderCounts.get(status).get();
+    }
+
+    public long getTotalOrders() {
+        return orderCounts.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    public long getShipmentCount(ShipmentStatus status) {
+        return shipmentCounts.get(status).get();
+    }
+
+    /**
+     * Compare the counters with one GROUP BY query per table and correct drift
+     */
+    @Scheduled(initialDelayString = "${app.logistics.status-counts.reconcile-interval-ms:60000}",
+            fixedDelayString = "${app.logistics.status-counts.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        reconcile(false);
+    }
+
+    private synchronized void reconcile(boolean force) {
+        long changesBefore = appliedChanges.get();
+
+        Map<OrderStatus, Long> orderRows = new EnumMap<>(OrderStatus.class);
+        for (OrderRepository.StatusCount row : orderRepository.countGroupedByStatus()) {
+            orderRows.put(row.getStatus(), row.getCount());
+        }
+        Map<ShipmentStatus, Long> shipmentRows = new EnumMap<>(ShipmentStatus.class);
+        for (ShipmentRepository.StatusCount row : shipmentRepository.countGroupedByStatus()) {
+            shipmentRows.put(row.getStatus(), row.getCount());
+        }
+
+        correctionLock.writeLock().lock();
+        try {
+            // A pass no status write raced can take the database counts as they are
+            boolean exact = force || appliedChanges.get() == changesBefore;
+            if (!loaded && !exact) {
+                return;
+            }
+            lastOrderDrift = correct(orderCounts, orderRows, lastOrderDrift, exact);
+            lastShipmentDrift = correct(shipmentCounts, shipmentRows, lastShipmentDrift, exact);
+        } finally {
+            correctionLock.writeLock().unlock();
+        }
+
+        if (!loaded) {
+            log.info("Status counts loaded: {} orders, {} shipments", getTotalOrders(),
+                    shipmentCounts.values().stream().mapToLong(AtomicLong::get).sum());
+        }
+        loaded = true;
+        lastReconciledAt = LocalDateTime.now();
+    }
+
+    /**
+     * Counts per status and reconciliation state for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> orders = new LinkedHashMap<>();
+        orderCounts.forEach((status, count) -> orders.put(status.name(), count.get()));
+        Map<String, Object> shipments = new LinkedHashMap<>();
+        shipmentCounts.forEach((status, count) -> shipments.put(status.name(), count.get()));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalOrders", getTotalOrders());
+        stats.put("orders", orders);
+        stats.put("shipments", shipments);
+        stats.put("lastReconciledAt", lastReconciledAt);
+        stats.put("corrections", corrections.get());
+        return stats;
+    }
+
+    /**
+     * Apply the drift between counters and database rows. Returns the drift seen in this pass.
+     */
+    private <S extends Enum<S>> Map<S, Long> correct(Map<S, AtomicLong> counters, Map<S, Long> rows,
+                                                    Map<S, Long> previousDrift, boolean exact) {
+        Map<S, Long> drift = new HashMap<>();
+        counters.forEach((status, counter) -> {
+            long difference = rows.getOrDefault(status, 0L) - counter.get();
+            if (difference == 0) {
+                return;
+            }
+            drift.put(status, difference);
+            if (exact || previousDrift.getOrDefault(status, 0L) == difference) {
+                // Add rather than set, so changes applied meanwhile are kept
+                counter.addAndGet(difference);
+                if (loaded) {
+                    corrections.incrementAndGet();
+                    log.warn("Status count for {} corrected by {}", status, difference);
+                }
+                drift.remove(status);
+            }
+        });
+        return drift;
+    }
+
+    /**
+     * Apply a change once the surrounding transaction commits, or now when there is none
+     */
+    private void afterCommit(Runnable change) {
+        onCommit(() -> {
+            correctionLock.readLock().lock();
+            try {
+                change.run();
+                appliedChanges.incrementAndGet();
+            } finally {
+                correctionLock.readLock().unlock();
+            }
+        });
+    }
+
+    private void onCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -3,7 +3,9 @@ package com.logistics.service;
 
 import com.logistics.model.Order;
 import com.logistics.model.OrderItem;
+import com.logistics.util.CatalogEntry;
 import com.logistics.util.WarehouseInstructions;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -16,6 +18,9 @@ import java.util.stream.Collectors;
 @Service
 public class WarehouseAgent {
 
+    @Autowired
+    private ProductCatalogService productCatalog;
+
     /**
      * Generate AI-optimized picking instructions for warehouse staff
      */
@@ -29,7 +34,7 @@ public class WarehouseAgent {
 
         // Group items by warehouse location for efficient picking route
         Map<String, List<OrderItem>> itemsByLocation = order.getItems().stream()
-                .collect(Collectors.groupingBy(item -> item.getProduct().getLocation()));
+                .collect(Collectors.groupingBy(item -> productOf(item).getLocation()));
 
         instructions.append("PICKING ROUTE (Optimized by AI):\n");
         instructions.append("Follow locations in this order for optimal efficiency:\n\n");
@@ -48,18 +53,19 @@ public class WarehouseAgent {
             instructions.append("Estimated travel time: ").append(calculateTravelTime(location)).append(" minutes\n");
 
             for (OrderItem item : items) {
+                CatalogEntry product = productOf(item);
                 instructions.append(sequence++).append(". Pick ")
                         .append(item.getQuantity()).append(" x ")
-                        .append(item.getProduct().getName())
-                        .append(" (SKU: ").append(item.getProduct().getSku()).append(")\n");
+                        .append(product.getName())
+                        .append(" (SKU: ").append(product.getSku()).append(")\n");
 
                 // Add AI-driven special handling instructions
-                if (item.getProduct().isHeavy()) {
-                    instructions.append("    HEAVY ITEM (").append(item.getProduct().getWeight())
+                if (product.isHeavy()) {
+                    instructions.append("    HEAVY ITEM (").append(product.getWeight())
                             .append("kg) - Use forklift or lifting equipment\n");
                 }
 
-                if (item.getProduct().isFragile()) {
+                if (product.isFragile()) {
                     instructions.append("    FRAGILE - Handle with care, use protective packaging\n");
                 }
 
@@ -67,7 +73,7 @@ public class WarehouseAgent {
                     instructions.append("    LARGE QUANTITY - Consider using pallet\n");
                 }
 
-                totalPickingTime += calculateItemPickingTime(item);
+                totalPickingTime += calculateItemPickingTime(item, product);
             }
             instructions.append("\n");
         }
@@ -90,7 +96,8 @@ public class WarehouseAgent {
 
         // Special handling requirements
         boolean requiresSpecialHandling = order.getItems().stream()
-                .anyMatch(item -> item.getProduct().isHeavy() || item.getProduct().isFragile());
+                .map(this::productOf)
+                .anyMatch(product -> product.isHeavy() || product.isFragile());
 
         if (requiresSpecialHandling) {
             instructions.append("SPECIAL HANDLING REQUIRED:\n");
@@ -135,7 +142,7 @@ public class WarehouseAgent {
     /**
      * AI algorithm to calculate picking time for individual items
      */
-    private int calculateItemPickingTime(OrderItem item) {
+    private int calculateItemPickingTime(OrderItem item, CatalogEntry product) {
         int baseTime = 3; // Base 3 minutes per item
 
         // Add time based on quantity
@@ -144,15 +151,22 @@ public class WarehouseAgent {
         }
 
         // Add time for heavy items
-        if (item.getProduct().isHeavy()) {
+        if (product.isHeavy()) {
             baseTime += 3; // Extra time for heavy item handling
         }
 
         // Add time for fragile items (careful handling)
-        if (item.getProduct().isFragile()) {
+        if (product.isFragile()) {
             baseTime += 2; // Extra time for careful packaging
         }
 
         return baseTime;
     }
+
+    /**
+     * Catalog metadata for an order item (only the product id is read from the entity)
+     */
+    private CatalogEntry productOf(OrderItem item) {
+        return productCatalog.getById(item.getProduct().getId());
+    }
 }
\ No newline at end of file
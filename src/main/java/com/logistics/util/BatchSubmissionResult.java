@@ -0,0 +1,36 @@
+package com.logistics.util;
+
+import com.logistics.dto.OrderResponse;
+import com.logistics.model.Order;
+
+import java.util.List;
+
+/**
+ * Result object for a persisted order batch: one response per submitted
+ * order (in submission order) plus the orders that were accepted
+ */
+public class BatchSubmissionResult {
+    private final List<OrderResponse> results;
+    private final List<Order> acceptedOrders;
+    
+    public BatchSubmissionResult(List<OrderResponse> results, List<Order> acceptedOrders) {
+        this.results = results;
+        this.acceptedOrders = acceptedOrders;
+    }
+    
+    public List<OrderResponse> getResults() {
+        return results;
+    }
+    
+    public List<Order> getAcceptedOrders() {
+        return acceptedOrders;
+    }
+    
+    @Override
+    public String toString() {
+        return "BatchSubmissionResult{" +
+                "submitted=" + results.size() +
+                ", accepted=" + acceptedOrders.size() +
+                '}';
+    }
+}
@@ -0,0 +1,80 @@
+package com.logistics.util;
+
+import com.logistics.model.Product;
+
+/**
+ * Immutable snapshot of a product's catalog metadata.
+ * Deliberately excludes the stock quantity, which changes on every fulfillment.
+ */
+public final class CatalogEntry {
+    private final Long id;
+    private final String sku;
+    private final String name;
+    private final String category;
+    private final double weight; // kg
+    private final double volume; // m³
+    private final String location;
+    
+    public CatalogEntry(Long id, String sku, String name, String category,
+                        double weight, double volume, String location) {
+        this.id = id;
+        this.sku = sku;
+        this.name = name;
+        this.category = category;
+        this.weight = weight;
+        this.volume = volume;
+        this.location = location;
+    }
+    
+    public static CatalogEntry of(Product product) {
+        return new CatalogEntry(product.getId(), product.getSku(), product.getName(), product.getCategory(),
+                product.getWeight(), product.getVolume(), product.getLocation());
+    }
+    
+    // Same business rules as Product
+    public boolean isHeavy() {
+        return weight > 50.0;
+    }
+    
+    public boolean isFragile() {
+        return "TILES".equals(category);
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public String getSku() {
+        return sku;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public double getWeight() {
+        return weight;
+    }
+    
+    public double getVolume() {
+        return volume;
+    }
+    
+    public String getLocation() {
+        return location;
+    }
+    
+    @Override
+    public String toString() {
+        return "CatalogEntry{" +
+                "id=" + id +
+                ", sku='" + sku + '\'' +
+                ", category='" + category + '\'' +
+                ", location='" + location + '\'' +
+                '}';
+    }
+}
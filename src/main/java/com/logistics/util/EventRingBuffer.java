@@ -0,0 +1,132 @@
+package com.logistics.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The most recent events, already serialized, in a fixed-size ring of parallel arrays.
+ *
+ * Every event gets the next sequence number, starting at 1, and lives in slot sequence & mask until
+ * it is overwritten capacity events later. Routing fields (order id, client id) sit next to the
+ * payload so readers can filter without parsing it. Nothing is allocated on append.
+ */
+public class EventRingBuffer {
+
+    private final int mask;
+    private final long[] sequences;
+    private final long[] orderIds;
+    private final String[] clientIds;
+    private final String[] types;
+    private final String[] payloads;
+    private long head; // sequence of the newest event, 0 before the first
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public EventRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.sequences = new long[size];
+        this.orderIds = new long[size];
+        this.clientIds = new String[size];
+        this.types = new String[size];
+        this.payloads = new String[size];
+    }
+
+    /**
+     * Store an event and return its sequence number
+     *
+     * @param orderId 0 when the event belongs to no order
+     */
+    public synchronized long append(String type, long orderId, String clientId, String payload) {
+        long sequence = ++head;
+        int slot = (int) (sequence & mask);
+        sequences[slot] = sequence;
+        orderIds[slot] = orderId;
+        clientIds[slot] = clientId;
+        types[slot] = type;
+        payloads[slot] = payload;
+        return sequence;
+    }
+
+    /**
+     * Up to max events after the given sequence, oldest first, or null when some of the events after
+     * it have already been overwritten
+     */
+    public synchronized List<Entry> readAfter(long after, int max) {
+        if (after < oldest() - 1) {
+            return null;
+        }
+        int count = (int) Math.min(head - after, max);
+        List<Entry> entries = new ArrayList<>(Math.max(count, 0));
+        for (long sequence = after + 1; sequence <= after + count; sequence++) {
+            int slot = (int) (sequence & mask);
+            entries.add(new Entry(sequence, types[slot], orderIds[slot], clientIds[slot], payloads[slot]));
+        }
+        return entries;
+    }
+
+    public synchronized long getHead() {
+        return head;
+    }
+
+    /**
+     * Sequence of the oldest event still held, or head + 1 when empty
+     */
+    public synchronized long getOldest() {
+        return oldest();
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    private long oldest() {
+        return Math.max(1, head - mask);
+    }
+
+    /**
+     * One event copied out of the ring
+     */
+    public static final class Entry {
+        private final long sequence;
+        private final String type;
+        private final long orderId;
+        private final String clientId;
+        private final String payload;
+
+        private Entry(long sequence, String type, long orderId, String clientId, String payload) {
+            this.sequence = sequence;
+            this.type = type;
+            this.orderId = orderId;
+            this.clientId = clientId;
+            this.payload = payload;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public long getOrderId() {
+            return orderId;
+        }
+
+        public String getClientId() {
+            return clientId;
+        }
+
+        public String getPayload() {
+            return payload;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.logistics.util;
+
+/**
+ * Result object for a combined inventory check and reservation.
+ * The fulfillment result is null when the inventory check already failed.
+ */
+public class InventoryReservationResult {
+    private final InventoryCheckResult inventoryCheck;
+    private final FulfillmentResult fulfillment;
+    
+    public InventoryReservationResult(InventoryCheckResult inventoryCheck, FulfillmentResult fulfillment) {
+        this.inventoryCheck = inventoryCheck;
+        this.fulfillment = fulfillment;
+    }
+    
+    public InventoryCheckResult getInventoryCheck() {
+        return inventoryCheck;
+    }
+    
+    public FulfillmentResult getFulfillment() {
+        return fulfillment;
+    }
+    
+    public boolean isReserved() {
+        return inventoryCheck.isAvailable() && fulfillment != null && fulfillment.isSuccessful();
+    }
+    
+    @Override
+    public String toString() {
+        return "InventoryReservationResult{" +
+                "inventoryCheck=" + inventoryCheck +
+                ", fulfillment=" + fulfillment +
+                '}';
+    }
+}
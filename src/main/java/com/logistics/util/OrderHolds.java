@@ -0,0 +1,76 @@
+package com.logistics.util;
+
+import java.util.*;
+
+/**
+ * Soft holds placed for one order. When the order reserves stock it takes these over: the held
+ * units count towards the order instead of being refused as unavailable.
+ */
+public class OrderHolds {
+    private final Long orderId;
+    private final List<Long> reservationIds = new ArrayList<>();
+    private final Map<Long, Integer> heldByProductId = new LinkedHashMap<>();
+
+    public OrderHolds(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public static OrderHolds none(Long orderId) {
+        return new OrderHolds(orderId);
+    }
+
+    public void add(Long reservationId, Long productId, int quantity) {
+        reservationIds.add(reservationId);
+        heldByProductId.merge(productId, quantity, Integer::sum);
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public List<Long> getReservationIds() {
+        return reservationIds;
+    }
+
+    public boolean isEmpty() {
+        return reservationIds.isEmpty();
+    }
+
+    public int getHeld(Long productId) {
+        return heldByProductId.getOrDefault(productId, 0);
+    }
+
+    /**
+     * Held units the order takes for each product - never more than it ordered
+     */
+    public Map<Long, Integer> takenBy(Map<Long, Integer> quantitiesByProductId) {
+        Map<Long, Integer> taken = new LinkedHashMap<>();
+        heldByProductId.forEach((productId, held) -> {
+            int quantity = Math.min(held, quantitiesByProductId.getOrDefault(productId, 0));
+            if (quantity > 0) {
+                taken.put(productId, quantity);
+            }
+        });
+        return taken;
+    }
+
+    /**
+     * Held units the order does not need, given back to available-to-promise when it takes its holds over
+     */
+    public Map<Long, Integer> excessOver(Map<Long, Integer> quantitiesByProductId) {
+        Map<Long, Integer> excess = new LinkedHashMap<>();
+        heldByProductId.forEach((productId, held) -> {
+            int quantity = held - quantitiesByProductId.getOrDefault(productId, 0);
+            if (quantity > 0) {
+                excess.put(productId, quantity);
+            }
+        });
+        return excess;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderHolds{orderId=" + orderId + ", reservations=" + reservationIds +
+                ", held=" + heldByProductId + '}';
+    }
+}
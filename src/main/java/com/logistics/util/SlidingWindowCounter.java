@@ -0,0 +1,85 @@
+package com.logistics.util;
+
+import java.util.Arrays;
+
+/**
+ * Sum of a quantity over the last N minutes, kept in a ring buffer of per-minute buckets.
+ *
+ * The running total is adjusted as buckets are added to and expire, so reading the window sum
+ * does not walk the buckets. Minutes are epoch minutes supplied by the caller; amounts older than
+ * the window are dropped, and the window only ever moves forward.
+ */
+public class SlidingWindowCounter {
+
+    private final long[] counts;
+    private long head = Long.MIN_VALUE; // newest minute the buckets cover
+    private long total;
+
+    public SlidingWindowCounter(int windowMinutes) {
+        if (windowMinutes < 1) {
+            throw new IllegalArgumentException("windowMinutes must be at least 1");
+        }
+        this.counts = new long[windowMinutes];
+    }
+
+    public synchronized void add(long minute, long amount) {
+        advance(minute);
+        if (minute <= head - counts.length) {
+            return;
+        }
+        counts[slot(minute)] += amount;
+        total += amount;
+    }
+
+    /**
+     * Sum over the window ending at the given minute
+     */
+    public synchronized long sum(long nowMinute) {
+        advance(nowMinute);
+        return total;
+    }
+
+    /**
+     * Per-minute amounts of the last {@code minutes} minutes up to the given minute, oldest first
+     */
+    public synchronized long[] series(long nowMinute, int minutes) {
+        advance(nowMinute);
+        long[] series = new long[Math.min(minutes, counts.length)];
+        for (int i = 0; i < series.length; i++) {
+            series[i] = counts[slot(head - series.length + 1 + i)];
+        }
+        return series;
+    }
+
+    public int getWindowMinutes() {
+        return counts.length;
+    }
+
+    /**
+     * Move the window forward to end at the given minute, expiring the buckets it leaves behind
+     */
+    private void advance(long minute) {
+        if (head == Long.MIN_VALUE) {
+            head = minute;
+            return;
+        }
+        if (minute <= head) {
+            return;
+        }
+        if (minute - head >= counts.length) {
+            Arrays.fill(counts, 0);
+            total = 0;
+        } else {
+            for (long m = head + 1; m <= minute; m++) {
+                int slot = slot(m);
+                total -= counts[slot];
+                counts[slot] = 0;
+            }
+        }
+        head = minute;
+    }
+
+    private int slot(long minute) {
+        return (int) Math.floorMod(minute, (long) counts.length);
+    }
+}
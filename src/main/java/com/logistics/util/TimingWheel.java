@@ -0,0 +1,172 @@
+package com.logistics.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel for large numbers of timeouts that only need tick precision.
+ *
+ * Scheduling is O(1): the item is queued and the worker thread files it into the bucket its deadline
+ * hashes to, with the number of full wheel rotations still to wait. Each tick the worker visits one
+ * bucket and hands every item that is due to the callback in a single call, so the cost of a tick
+ * depends on the bucket, not on the number of pending timeouts. There is no cancellation - callers
+ * ignore expiries for items they have already resolved.
+ */
+public class TimingWheel<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(TimingWheel.class);
+
+    private final String name;
+    private final long tickNanos;
+    private final int mask;
+    private final Queue<Timeout<T>>[] buckets;
+    private final Queue<Timeout<T>> incoming = new ConcurrentLinkedQueue<>();
+    private final Consumer<List<T>> onExpired;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final Thread worker;
+    private volatile boolean running;
+    private long startNanos;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(String name, long tickMillis, int ticksPerWheel, Consumer<List<T>> onExpired) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive: " + tickMillis);
+        }
+        // Round up to a power of two so the bucket index is a mask instead of a modulo
+        int wheelSize = Integer.highestOneBit(Math.max(ticksPerWheel, 2) - 1) << 1;
+
+        this.name = name;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.mask = wheelSize - 1;
+        this.buckets = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.onExpired = onExpired;
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+    }
+
+    public void start() {
+        startNanos = System.nanoTime();
+        running = true;
+        worker.start();
+    }
+
+    /**
+     * Stop the worker. Timeouts still pending are dropped.
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Expire the item after the delay, rounded up to the next tick
+     */
+    public void schedule(T item, long delay, TimeUnit unit) {
+        long deadline = System.nanoTime() - startNanos + unit.toNanos(Math.max(delay, 0));
+        incoming.add(new Timeout<>(item, deadline));
+        pending.incrementAndGet();
+    }
+
+    /**
+     * Timeouts scheduled and not yet expired
+     */
+    public int size() {
+        return pending.get();
+    }
+
+    public int getWheelSize() {
+        return buckets.length;
+    }
+
+    public long getTickMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(tickNanos);
+    }
+
+    private void run() {
+        long tick = 0;
+
+        while (running) {
+            long sleepNanos = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+
+            transferIncoming(tick);
+            List<T> expired = expireBucket(buckets[(int) (tick & mask)]);
+            tick++;
+
+            if (!expired.isEmpty()) {
+                pending.addAndGet(-expired.size());
+                try {
+                    onExpired.accept(expired);
+                } catch (Exception e) {
+                    log.error("Timing wheel {} failed to expire {} items: {}", name, expired.size(), e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * File newly scheduled timeouts into their buckets. Deadlines already in the past land in the current bucket.
+     */
+    private void transferIncoming(long tick) {
+        Timeout<T> timeout;
+        while ((timeout = incoming.poll()) != null) {
+            // Ticks are processed at their end, so a deadline inside a tick is due when that tick is processed
+            long dueTick = timeout.deadlineNanos / tickNanos;
+            timeout.remainingRounds = Math.max(dueTick - tick, 0) / buckets.length;
+            buckets[(int) (Math.max(dueTick, tick) & mask)].add(timeout);
+        }
+    }
+
+    private List<T> expireBucket(Queue<Timeout<T>> bucket) {
+        List<T> expired = new ArrayList<>();
+        Iterator<Timeout<T>> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout<T> timeout = iterator.next();
+            if (timeout.remainingRounds <= 0) {
+                iterator.remove();
+                expired.add(timeout.item);
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * A scheduled item. Only the worker thread touches remainingRounds.
+     */
+    private static final class Timeout<T> {
+        private final T item;
+        private final long deadlineNanos;
+        private long remainingRounds;
+
+        private Timeout(T item, long deadlineNanos) {
+            this.item = item;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
@@ -46,39 +46,44 @@ INSERT INTO products (sku, name, category, weight, volume, stock_quantity, locat
   ('PLUMB-007', 'Heat Pump Water Heater 300L Capacity',          'PLUMBING_SUPPLIES', 80.0, 1.80,  25, 'D-04-07');
 
 -- SAMPLE ORDERS DATA - Must come before order_items
-INSERT INTO orders (client_id, client_name, order_date, status, delivery_address, requested_delivery_date, total_weight, total_volume) VALUES
-  ('CLIENT_HAMBURG_001', 'Hamburg Construction GmbH', '2025-08-01 09:00:00', 'PENDING', 'Baustelle Hafencity, Überseeallee 10, 20457 Hamburg, Germany', '2025-08-12 10:00:00', 2050.00, 37.50),
-  ('CLIENT_HAMBURG_002', 'Hamburg Building Supplies Ltd', '2025-08-01 10:30:00', 'VALIDATED', 'Warehouse District, Speicherstadt 15, 20457 Hamburg, Germany', '2025-08-13 14:00:00', 2000.00, 28.00),
-  ('CLIENT_BERLIN_001', 'Berlin Construction Services', '2025-08-01 11:15:00', 'IN_FULFILLMENT', 'Construction Site Potsdamer Platz, 10785 Berlin, Germany', '2025-08-14 09:00:00', 300.00, 21.60),
-  ('CLIENT_MUNICH_001', 'Munich Building Materials', '2025-08-01 14:45:00', 'SCHEDULED', 'Industrial Zone, Landsberger Str. 400, 80687 Munich, Germany', '2025-08-15 11:30:00', 3750.00, 52.50);
+INSERT INTO orders (id, client_id, client_name, order_date, status, delivery_address, requested_delivery_date, total_weight, total_volume) VALUES
+  (NEXT VALUE FOR orders_seq, 'CLIENT_HAMBURG_001', 'Hamburg Construction GmbH', '2025-08-01 09:00:00', 'PENDING', 'Baustelle Hafencity, Überseeallee 10, 20457 Hamburg, Germany', '2025-08-12 10:00:00', 2050.00, 37.50),
+  (NEXT VALUE FOR orders_seq, 'CLIENT_HAMBURG_002', 'Hamburg Building Supplies Ltd', '2025-08-01 10:30:00', 'VALIDATED', 'Warehouse District, Speicherstadt 15, 20457 Hamburg, Germany', '2025-08-13 14:00:00', 2000.00, 28.00),
+  (NEXT VALUE FOR orders_seq, 'CLIENT_BERLIN_001', 'Berlin Construction Services', '2025-08-01 11:15:00', 'IN_FULFILLMENT', 'Construction Site Potsdamer Platz, 10785 Berlin, Germany', '2025-08-14 09:00:00', 300.00, 21.60),
+  (NEXT VALUE FOR orders_seq, 'CLIENT_MUNICH_001', 'Munich Building Materials', '2025-08-01 14:45:00', 'SCHEDULED', 'Industrial Zone, Landsberger Str. 400, 80687 Munich, Germany', '2025-08-15 11:30:00', 3750.00, 52.50);
 
 -- SAMPLE ORDER ITEMS DATA - Now references existing orders
-INSERT INTO order_items (order_id, product_id, quantity, unit_price) VALUES
+INSERT INTO order_items (id, order_id, product_id, quantity, unit_price) VALUES
   (
+    NEXT VALUE FOR order_items_seq,
     (SELECT id FROM orders   WHERE client_id = 'CLIENT_HAMBURG_001'),
     (SELECT id FROM products WHERE sku       = 'TILE-001'),
     100,
     25.00
   ),
   (
+    NEXT VALUE FOR order_items_seq,
     (SELECT id FROM orders   WHERE client_id = 'CLIENT_HAMBURG_001'),
     (SELECT id FROM products WHERE sku       = 'TILE-002'),
     50,
     15.50
   ),
   (
+    NEXT VALUE FOR order_items_seq,
     (SELECT id FROM orders   WHERE client_id = 'CLIENT_HAMBURG_002'),
     (SELECT id FROM products WHERE sku       = 'CONC-001'),
     80,
     50.00
   ),
   (
+    NEXT VALUE FOR order_items_seq,
     (SELECT id FROM orders   WHERE client_id = 'CLIENT_BERLIN_001'),
     (SELECT id FROM products WHERE sku       = 'ROOF-001'),
     120,
     40.00
   ),
   (
+    NEXT VALUE FOR order_items_seq,
     (SELECT id FROM orders   WHERE client_id = 'CLIENT_MUNICH_001'),
     (SELECT id FROM products WHERE sku       = 'CONC-003'),
     150,
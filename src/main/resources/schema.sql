@@ -1,6 +1,11 @@
 -- COMPLETE SCHEMA FOR LOGISTICS AI AGENT
 -- File: src/main/resources/schema.sql
 
+-- Sequences for orders and order items (pooled, allocation size 50) so that
+-- Hibernate can batch inserts instead of fetching identity values row by row
+CREATE SEQUENCE IF NOT EXISTS orders_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS order_items_seq START WITH 1 INCREMENT BY 50;
+
 -- Products table for logistics system
 CREATE TABLE IF NOT EXISTS products (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -10,7 +15,10 @@ CREATE TABLE IF NOT EXISTS products (
     weight DECIMAL(10,2) NOT NULL,
     volume DECIMAL(10,2) NOT NULL,
     stock_quantity INTEGER NOT NULL,
-    location VARCHAR(50) NOT NULL
+    location VARCHAR(50) NOT NULL,
+    catalog_version BIGINT NOT NULL DEFAULT 0,
+    -- Units under soft holds; guarded decrements only take stock_quantity - held_quantity
+    held_quantity INTEGER NOT NULL DEFAULT 0
 );
 
 -- Orders table for logistics system
@@ -23,7 +31,8 @@ CREATE TABLE IF NOT EXISTS orders (
     delivery_address TEXT NOT NULL,
     requested_delivery_date TIMESTAMP,
     total_weight DECIMAL(10,2) NOT NULL DEFAULT 0.0,
-    total_volume DECIMAL(10,2) NOT NULL DEFAULT 0.0
+    total_volume DECIMAL(10,2) NOT NULL DEFAULT 0.0,
+    status_changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
 
 -- Order Items table (junction table for orders and products)
@@ -53,22 +62,68 @@ CREATE TABLE IF NOT EXISTS shipments (
     FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE
 );
 
+-- Leases on scheduled jobs and their shards, shared by all nodes on the database
+CREATE TABLE IF NOT EXISTS job_leases (
+    job_name VARCHAR(100) PRIMARY KEY,
+    owner VARCHAR(100) NULL,
+    lease_until TIMESTAMP NOT NULL,
+    acquired_at TIMESTAMP NULL
+);
+
+-- Durable hand-off of submitted orders to the order workers of any node; a row lives until its order is processed
+CREATE TABLE IF NOT EXISTS order_work (
+    order_id BIGINT PRIMARY KEY,
+    enqueued_at TIMESTAMP NOT NULL,
+    available_at TIMESTAMP NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    claim_token VARCHAR(36) NULL,
+    claimed_by VARCHAR(100) NULL,
+    claimed_until TIMESTAMP NULL,
+    last_error VARCHAR(500) NULL
+);
+
+-- Soft reservations (holds) on product stock, expired in memory by a timing wheel
+CREATE TABLE IF NOT EXISTS reservations (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    quantity INTEGER NOT NULL,
+    order_id BIGINT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE',
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    resolved_at TIMESTAMP NULL,
+    FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE RESTRICT
+);
+
 -- DATABASE INDEXES FOR PERFORMANCE
 CREATE INDEX IF NOT EXISTS idx_products_location ON products(location);
 CREATE INDEX IF NOT EXISTS idx_products_category ON products(category);
 CREATE INDEX IF NOT EXISTS idx_products_sku ON products(sku);
 CREATE INDEX IF NOT EXISTS idx_products_stock_quantity ON products(stock_quantity);
 
-CREATE INDEX IF NOT EXISTS idx_orders_status ON orders(status);
-CREATE INDEX IF NOT EXISTS idx_orders_client_id ON orders(client_id);
+-- Keyset pagination walks (status|client_id, order_date DESC, id DESC); the leading column still serves plain lookups
+CREATE INDEX IF NOT EXISTS idx_orders_status_order_date_id ON orders(status, order_date, id);
+CREATE INDEX IF NOT EXISTS idx_orders_client_id_order_date_id ON orders(client_id, order_date, id);
 CREATE INDEX IF NOT EXISTS idx_orders_order_date ON orders(order_date);
 CREATE INDEX IF NOT EXISTS idx_orders_requested_delivery_date ON orders(requested_delivery_date);
+-- Stuck-order deadline rebuild and anomaly scans look up (status, time in status)
+CREATE INDEX IF NOT EXISTS idx_orders_status_changed_at ON orders(status, status_changed_at);
 
 CREATE INDEX IF NOT EXISTS idx_order_items_order_id ON order_items(order_id);
 CREATE INDEX IF NOT EXISTS idx_order_items_product_id ON order_items(product_id);
 
 CREATE INDEX IF NOT EXISTS idx_shipments_order_id ON shipments(order_id);
-CREATE INDEX IF NOT EXISTS idx_shipments_status ON shipments(status);
+-- Overdue delivery checks look up (status, estimated_delivery); the leading column still serves status lookups
+CREATE INDEX IF NOT EXISTS idx_shipments_status_estimated_delivery ON shipments(status, estimated_delivery);
 CREATE INDEX IF NOT EXISTS idx_shipments_truck_id ON shipments(truck_id);
 CREATE INDEX IF NOT EXISTS idx_shipments_driver_id ON shipments(driver_id);
-CREATE INDEX IF NOT EXISTS idx_shipments_scheduled_pickup ON shipments(scheduled_pickup);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_shipments_scheduled_pickup ON shipments(scheduled_pickup);
+
+-- Workers claim the oldest available work; a claim is read back by its token
+CREATE INDEX IF NOT EXISTS idx_order_work_available_at ON order_work(available_at);
+CREATE INDEX IF NOT EXISTS idx_order_work_claim_token ON order_work(claim_token);
+
+-- Startup restore and overdue expiry filter on status first
+CREATE INDEX IF NOT EXISTS idx_reservations_status_expires_at ON reservations(status, expires_at);
+CREATE INDEX IF NOT EXISTS idx_reservations_product_id ON reservations(product_id);
+CREATE INDEX IF NOT EXISTS idx_reservations_order_id ON reservations(order_id);
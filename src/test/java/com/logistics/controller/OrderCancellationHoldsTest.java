@@ -0,0 +1,120 @@
+package com.logistics.controller;
+
+import com.logistics.model.Order;
+import com.logistics.model.OrderItem;
+import com.logistics.model.OrderStatus;
+import com.logistics.model.Product;
+import com.logistics.model.Reservation;
+import com.logistics.model.ReservationStatus;
+import com.logistics.repository.OrderRepository;
+import com.logistics.repository.ProductRepository;
+import com.logistics.repository.ReservationRepository;
+import com.logistics.service.SoftReservationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Cancelling or rejecting an order gives its soft reservations back - confirmed ones included -
+ * in the transaction that writes CANCELLED
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OrderCancellationHoldsTest {
+
+    private static final int STOCK = 100;
+    private static final int HELD = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SoftReservationService softReservations;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    private Product product;
+    private Order order;
+    private final List<Long> reservationIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        product = productRepository.save(new Product("HOLD-" + System.nanoTime(), "Hold Test Tile",
+                "TILES", 10.0, 0.5, STOCK, "Z-99-98"));
+        Order pending = new Order("CLIENT-HOLDS", "Holds Client", "Test Address", LocalDateTime.now().plusDays(2));
+        pending.addItem(new OrderItem(product, HELD, 25.99));
+        order = orderRepository.save(pending);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reservationRepository.deleteAllById(reservationIds);
+        orderRepository.deleteById(order.getId());
+        productRepository.deleteById(product.getId());
+    }
+
+    @Test
+    void cancelOrder_ConfirmedHold_HeldQuantityReturnsToZero() throws Exception {
+        // Arrange - a hold confirmed for the order stays held until the order reserves
+        Long reservationId = hold();
+        softReservations.confirm(reservationId);
+        assertEquals(HELD, heldQuantity());
+
+        // Act
+        mockMvc.perform(delete("/api/orders/{orderId}", order.getId()))
+                .andExpect(status().isOk());
+
+        // Assert
+        assertEquals(0, heldQuantity());
+        assertEquals(ReservationStatus.RELEASED, softReservations.getReservation(reservationId).getStatus());
+        assertEquals(OrderStatus.CANCELLED, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void rejectOrder_ActiveHold_HeldQuantityReturnsToZero() throws Exception {
+        // Arrange
+        Long reservationId = hold();
+        assertEquals(HELD, heldQuantity());
+
+        // Act
+        mockMvc.perform(post("/api/warehouse/orders/{orderId}/reject", order.getId())
+                        .param("reason", "Customer withdrew"))
+                .andExpect(status().isOk());
+
+        // Assert
+        assertEquals(0, heldQuantity());
+        assertEquals(ReservationStatus.RELEASED, softReservations.getReservation(reservationId).getStatus());
+    }
+
+    private Long hold() {
+        Reservation reservation = softReservations.hold(product.getSku(), HELD, null, order.getId());
+        reservationIds.add(reservation.getId());
+        return reservation.getId();
+    }
+
+    private int heldQuantity() {
+        return productRepository.findById(product.getId()).orElseThrow().getHeldQuantity();
+    }
+}
@@ -2,10 +2,14 @@ package com.logistics.controller;
 
 import com.logistics.dto.OrderRequest;
 import com.logistics.dto.OrderItemRequest;
+import com.logistics.dto.OrderStatusResponse;
 import com.logistics.model.Order;
 import com.logistics.model.OrderStatus;
 import com.logistics.repository.OrderRepository;
-import com.logistics.service.LogisticsAIAgent;
+import com.logistics.repository.ProductRepository;
+import com.logistics.repository.ShipmentRepository;
+import com.logistics.service.*;
+import com.logistics.util.CatalogEntry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +17,9 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -20,6 +27,9 @@ import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -39,6 +49,48 @@ class OrderControllerTest {
     @MockBean
     private OrderRepository orderRepository;
 
+    @MockBean
+    private ProductRepository productRepository;
+
+    @MockBean
+    private ShipmentRepository shipmentRepository;
+
+    @MockBean
+    private RealtimeNotificationService notificationService;
+
+    @MockBean
+    private BatchOrderService batchOrderService;
+
+    @MockBean
+    private ProductCatalogService productCatalog;
+
+    @MockBean
+    private AdmissionControlService admissionControl;
+
+    @MockBean
+    private OrderQueryService orderQueryService;
+
+    @MockBean
+    private StatusCountService statusCounts;
+
+    @MockBean
+    private OrderDeadlineIndex deadlineIndex;
+
+    @MockBean
+    private DemandWindowService demandWindows;
+
+    @MockBean
+    private OverdueShipmentIndex overdueShipments;
+
+    @MockBean
+    private OrderWorkQueue workQueue;
+
+    @MockBean
+    private SoftReservationService softReservations;
+
+    @MockBean
+    private TransactionTemplate transactionTemplate;
+
     @Test
     void submitOrder_ValidRequest_ReturnsSuccess() throws Exception {
         // Arrange
@@ -55,7 +107,12 @@ class OrderControllerTest {
         savedOrder.setId(1L);
         savedOrder.setStatus(OrderStatus.RECEIVED);
 
+        when(productCatalog.findBySku("TILE-001")).thenReturn(Optional.of(
+                new CatalogEntry(1L, "TILE-001", "Ceramic Tiles", "TILES", 25.0, 0.5, "A-01-01")));
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(mock(TransactionStatus.class)));
         when(orderRepository.save(any(Order.class))).thenReturn(savedOrder);
+        when(workQueue.enqueue(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(aiAgent.processOrder(any(Order.class)))
             .thenReturn(CompletableFuture.completedFuture("Order processed successfully"));
 
@@ -71,12 +128,10 @@ class OrderControllerTest {
     @Test
     void getOrderStatus_ExistingOrder_ReturnsStatus() throws Exception {
         // Arrange
-        Order order = new Order();
-        order.setId(1L);
-        order.setStatus(OrderStatus.VALIDATED);
-        order.setClientName("Test Client");
+        OrderStatusResponse order = new OrderStatusResponse(1L, OrderStatus.VALIDATED.toString(), "Test Client",
+                LocalDateTime.now(), LocalDateTime.now().plusDays(3), 10.0, 0.5);
 
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderQueryService.getOrderStatus(1L)).thenReturn(Optional.of(order));
 
         // Act & Assert
         mockMvc.perform(get("/api/orders/1/status"))
@@ -84,4 +139,22 @@ class OrderControllerTest {
                 .andExpect(jsonPath("$.orderId").value(1))
                 .andExpect(jsonPath("$.status").value("VALIDATED"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void cancelOrder_StatusChangedMeanwhile_ReturnsConflictAndCountsNothing() throws Exception {
+        // Arrange - the order was read as RECEIVED, but the pipeline moved it before the guarded write
+        Order order = new Order();
+        order.setId(1L);
+        order.setClientId("CLIENT_TEST_001");
+        order.setStatus(OrderStatus.RECEIVED);
+
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.updateStatus(1L, OrderStatus.RECEIVED, OrderStatus.CANCELLED)).thenReturn(0);
+
+        // Act & Assert
+        mockMvc.perform(delete("/api/orders/1"))
+                .andExpect(status().isConflict());
+        verify(orderRepository).updateStatus(1L, OrderStatus.RECEIVED, OrderStatus.CANCELLED);
+        verifyNoInteractions(statusCounts, deadlineIndex, softReservations);
+    }
+}
@@ -0,0 +1,173 @@
+package com.logistics.controller;
+
+import com.logistics.model.Order;
+import com.logistics.model.OrderItem;
+import com.logistics.model.Product;
+import com.logistics.model.Shipment;
+import com.logistics.repository.OrderRepository;
+import com.logistics.repository.ProductRepository;
+import com.logistics.repository.ShipmentRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.annotation.ScheduledAnnotationBeanPostProcessor;
+import org.springframework.scheduling.config.ScheduledTask;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Statement count of the order page endpoints, read from Hibernate statistics: a page of orders with
+ * their items and shipments costs three queries however many orders it holds, and nothing is loaded
+ * lazily on the side.
+ *
+ * Statistics are global to the session factory, so the application's scheduled jobs are cancelled in
+ * this test's context - every statement prepared while the page is served then belongs to the page.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+class OrderQueryStatementCountTest {
+
+    private static final int ORDERS = 30;
+
+    // Fragments of the @Query strings used by OrderQueryService
+    private static final List<String> PAGE_QUERIES = Arrays.asList(
+            "FROM Order o WHERE o.clientId = :clientId",
+            "FROM OrderItem i JOIN i.product p WHERE i.order.id IN",
+            "FROM Shipment s WHERE s.order.id IN");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private ScheduledAnnotationBeanPostProcessor scheduledTasks;
+
+    private String clientId;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        // The statistics-enabled context is this test's own, so stopping its jobs affects no other test
+        scheduledTasks.getScheduledTasks().forEach(ScheduledTask::cancel);
+
+        clientId = "CLIENT-STATEMENTS-" + System.nanoTime();
+        Product tiles = productRepository.save(new Product("STMT-T-" + System.nanoTime(), "Statement Test Tile",
+                "TILES", 10.0, 0.5, 1000, "Z-98-01"));
+        Product cement = productRepository.save(new Product("STMT-C-" + System.nanoTime(), "Statement Test Cement",
+                "CONSTRUCTION_MATERIALS", 50.0, 0.4, 1000, "Z-98-02"));
+
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order(clientId, "Statement Test Client", "Test Address",
+                    LocalDateTime.now().plusDays(3));
+            order.addItem(new OrderItem(tiles, 2, 25.99));
+            order.addItem(new OrderItem(cement, 1, 8.50));
+            order = orderRepository.save(order);
+
+            Shipment shipment = new Shipment(order, "TRUCK-01", "DRIVER-01", LocalDateTime.now().plusHours(4));
+            shipment.setEstimatedDelivery(LocalDateTime.now().plusDays(1));
+            shipmentRepository.save(shipment);
+        }
+
+        // Everything written and the persistence context empty, so the page has nothing to lazy-load from
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getClientOrders_SmallPage_CostsThreeQueries() throws Exception {
+        // Act
+        mockMvc.perform(get("/api/orders/client/{clientId}", clientId).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders.length()").value(2))
+                .andExpect(jsonPath("$.hasMore").value(true));
+
+        // Assert
+        assertEquals(3, pageQueryExecutions());
+        assertNothingElseLoaded(3);
+    }
+
+    @Test
+    void getClientOrders_WholeHistoryInOnePage_StillCostsThreeQueries() throws Exception {
+        // Act
+        mockMvc.perform(get("/api/orders/client/{clientId}", clientId).param("limit", String.valueOf(ORDERS)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders.length()").value(ORDERS))
+                .andExpect(jsonPath("$.orders[0].items.length()").value(2))
+                .andExpect(jsonPath("$.orders[0].shipmentInfo.truckId").value("TRUCK-01"))
+                .andExpect(jsonPath("$.hasMore").value(false));
+
+        // Assert
+        assertEquals(3, pageQueryExecutions());
+        assertNothingElseLoaded(3);
+    }
+
+    @Test
+    void getClientOrders_UnknownClient_CostsOneQuery() throws Exception {
+        // Act
+        mockMvc.perform(get("/api/orders/client/{clientId}", "CLIENT-WITHOUT-ORDERS"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders.length()").value(0));
+
+        // Assert
+        assertEquals(1, pageQueryExecutions());
+        assertNothingElseLoaded(1);
+    }
+
+    /**
+     * No entity or collection was fetched lazily, and the page queries were the only statements
+     */
+    private void assertNothingElseLoaded(long statements) {
+        assertEquals(0, statistics.getEntityFetchCount(), "entities fetched lazily");
+        assertEquals(0, statistics.getCollectionFetchCount(), "collections fetched lazily");
+        assertEquals(statements, statistics.getPrepareStatementCount(), "statements prepared");
+    }
+
+    /**
+     * Executions since the statistics were cleared of every query issued by OrderQueryService.
+     * Collection parameters are expanded into the query string, so match on fragments.
+     */
+    private long pageQueryExecutions() {
+        long executions = 0;
+        for (String query : statistics.getQueries()) {
+            if (PAGE_QUERIES.stream().anyMatch(query::contains)) {
+                executions += statistics.getQueryStatistics(query).getExecutionCount();
+            }
+        }
+        return executions;
+    }
+}
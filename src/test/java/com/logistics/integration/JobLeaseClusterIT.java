@@ -0,0 +1,194 @@
+package com.logistics.integration;
+
+import com.logistics.LogisticsAIAgentApplication;
+import com.logistics.service.JobLeaseService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two application contexts - two nodes - sharing one H2 file database, coordinating scheduled work
+ * through job leases: each job runs once per cycle, the shards of a sharded job are split without
+ * overlap, and a job that overruns its cycle keeps its lease until it is done.
+ *
+ * The jobs are driven from the test with short intervals rather than waiting for the real schedules.
+ */
+class JobLeaseClusterIT {
+
+    private static final Duration INTERVAL = Duration.ofSeconds(2);
+    private static final int SHARDS = 4;
+
+    @TempDir
+    static Path databaseDir;
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+    private static JobLeaseService leasesA;
+    private static JobLeaseService leasesB;
+
+    @BeforeAll
+    static void startNodes() {
+        // The first node creates the schema and loads the sample data, as in application-cluster.yml
+        nodeA = startNode("node-a", "always");
+        nodeB = startNode("node-b", "never");
+        leasesA = nodeA.getBean(JobLeaseService.class);
+        leasesB = nodeB.getBean(JobLeaseService.class);
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    @Test
+    void runIfAcquired_BothNodesEveryCycle_JobRunsOncePerCycle() throws Exception {
+        String job = "it-single-" + System.nanoTime();
+
+        for (int cycle = 0; cycle < 3; cycle++) {
+            // Arrange
+            AtomicInteger runs = new AtomicInteger();
+
+            // Act - both nodes tick at the same moment
+            List<Boolean> ran = onBothNodes(leases -> leases.runIfAcquired(job, INTERVAL, runs::incrementAndGet));
+
+            // Assert
+            assertEquals(1, runs.get(), "cycle " + cycle + " ran the job " + runs.get() + " times");
+            assertEquals(1, ran.stream().filter(Boolean::booleanValue).count());
+
+            // Wait for the next cycle - the lease is 0.9 of the interval
+            Thread.sleep(INTERVAL.toMillis());
+        }
+    }
+
+    @Test
+    void forEachShard_BothNodesTogether_ShardsAreDisjointAndAllRun() throws Exception {
+        // Arrange
+        String job = "it-sharded-" + System.nanoTime();
+        Map<Integer, String> ranBy = new ConcurrentHashMap<>();
+        AtomicInteger duplicates = new AtomicInteger();
+
+        // Act
+        List<Boolean> ran = onBothNodes(leases -> leases.forEachShard(job, INTERVAL, (shard, shards) -> {
+            if (ranBy.putIfAbsent(shard, leases.getNodeId()) != null) {
+                duplicates.incrementAndGet();
+            }
+        }) > 0);
+
+        // Assert
+        assertEquals(0, duplicates.get(), "a shard ran on both nodes: " + ranBy);
+        assertEquals(Set.of(0, 1, 2, 3), ranBy.keySet());
+        assertTrue(ran.contains(true));
+    }
+
+    @Test
+    void runIfAcquired_JobOverrunsItsCycle_OtherNodeWaitsUntilItIsDone() throws Exception {
+        // Arrange - node A's run takes two intervals
+        String job = "it-overrun-" + System.nanoTime();
+        CountDownLatch started = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<Boolean> longRun = executor.submit(() -> leasesA.runIfAcquired(job, INTERVAL, () -> {
+                started.countDown();
+                sleep(INTERVAL.multipliedBy(2).toMillis());
+            }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            // Act - node B's next cycle starts while node A is still running
+            Thread.sleep(INTERVAL.toMillis() + 500);
+            boolean ranDuringOverrun = leasesB.runIfAcquired(job, INTERVAL, () -> { });
+            assertTrue(longRun.get(10, TimeUnit.SECONDS));
+            boolean ranAfterwards = leasesB.runIfAcquired(job, INTERVAL, () -> { });
+
+            // Assert - renewed while running, handed back as soon as the overrun ended
+            assertFalse(ranDuringOverrun);
+            assertTrue(ranAfterwards);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void runIfAcquired_WorkRunsInItsOwnTransaction() {
+        // Arrange
+        String job = "it-transaction-" + System.nanoTime();
+        AtomicBoolean inTransaction = new AtomicBoolean();
+
+        // Act
+        boolean ran = leasesA.runIfAcquired(job, INTERVAL,
+                () -> inTransaction.set(TransactionSynchronizationManager.isActualTransactionActive()));
+
+        // Assert - the job's writes commit before the lease is handed back
+        assertTrue(ran);
+        assertTrue(inTransaction.get());
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId, String sqlInitMode) {
+        // Command line arguments, so they win over application.yml and its dev profile
+        return new SpringApplicationBuilder(LogisticsAIAgentApplication.class).run(
+                "--spring.profiles.active=test",
+                "--spring.datasource.url=jdbc:h2:file:" + databaseDir.resolve("logistics-cluster") +
+                        ";AUTO_SERVER=TRUE;DATABASE_TO_LOWER=TRUE",
+                "--spring.jpa.hibernate.ddl-auto=update",
+                "--spring.sql.init.mode=" + sqlInitMode,
+                "--server.port=0",
+                "--app.logistics.cluster.enabled=true",
+                "--app.logistics.cluster.node-id=" + nodeId,
+                "--app.logistics.cluster.shards=" + SHARDS,
+                "--app.logistics.cluster.heartbeat-interval-ms=200");
+    }
+
+    /**
+     * Release the same call on both nodes at once and collect the results
+     */
+    private static <T> List<T> onBothNodes(Function<JobLeaseService, T> call) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (JobLeaseService leases : Arrays.asList(leasesA, leasesB)) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return call.apply(leases);
+                }));
+            }
+            start.countDown();
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.logistics.performance;
+
+import com.logistics.repository.ProductRepository;
+import com.logistics.repository.ProductRepositoryCustomImpl;
+import com.logistics.service.InventoryLedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of the two reservation paths on one hot SKU: the in-memory CAS ledger against the
+ * guarded UPDATE, which takes the row lock for the length of its transaction.
+ *
+ * Uses its own H2 database, never the application's. Each operation reserves one unit and gives it
+ * back so stock stays constant. Run with:
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.logistics.performance.InventoryReservationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class InventoryReservationBenchmark {
+
+    private static final long PRODUCT_ID = 1L;
+    private static final Map<Long, Integer> ONE_UNIT = Collections.singletonMap(PRODUCT_ID, 1);
+    private static final Map<Long, Integer> GIVE_BACK = Collections.singletonMap(PRODUCT_ID, 1);
+
+    private InventoryLedger ledger;
+    private ProductRepositoryCustomImpl rowLockRepository;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:reservation-benchmark;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS products (id BIGINT PRIMARY KEY, " +
+                "stock_quantity INTEGER NOT NULL, held_quantity INTEGER NOT NULL DEFAULT 0)");
+        jdbcTemplate.update("MERGE INTO products (id, stock_quantity) KEY (id) VALUES (?, ?)", PRODUCT_ID, 1_000_000);
+
+        rowLockRepository = new ProductRepositoryCustomImpl();
+        ReflectionTestUtils.setField(rowLockRepository, "jdbcTemplate", jdbcTemplate);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        ProductRepository.StockLevel level = Mockito.mock(ProductRepository.StockLevel.class);
+        Mockito.when(level.getId()).thenReturn(PRODUCT_ID);
+        Mockito.when(level.getStockQuantity()).thenReturn(1_000_000);
+        Mockito.when(level.getHeldQuantity()).thenReturn(0);
+        ProductRepository productRepository = Mockito.mock(ProductRepository.class);
+        Mockito.when(productRepository.findStockLevels()).thenReturn(List.of(level));
+
+        ledger = new InventoryLedger();
+        ReflectionTestUtils.setField(ledger, "productRepository", productRepository);
+        ReflectionTestUtils.setField(ledger, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(ledger, "inventoryMode", "ledger");
+        ledger.initialize();
+    }
+
+    @Benchmark
+    public boolean ledgerCas() {
+        boolean reserved = ledger.reserve(ONE_UNIT).isEmpty();
+        ledger.release(GIVE_BACK);
+        return reserved;
+    }
+
+    @Benchmark
+    public Boolean guardedUpdateRowLock() {
+        return transactionTemplate.execute(status -> {
+            boolean reserved = rowLockRepository.decrementStockIfAvailable(ONE_UNIT).isEmpty();
+            rowLockRepository.applyStockDeltas(GIVE_BACK);
+            return reserved;
+        });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(InventoryReservationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -16,6 +16,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -63,7 +64,7 @@ class LogisticsPerformanceTest {
                     System.err.println("Error processing order " + i + ": " + e.getMessage());
                 }
             }, executor))
-            .toList();
+            .collect(Collectors.toList());
 
         // Wait for all orders to complete
         CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
@@ -0,0 +1,125 @@
+package com.logistics.performance;
+
+import com.logistics.model.ShipmentStatus;
+import com.logistics.service.OverdueShipmentIndex;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of one overdue-delivery check against a large delivered shipment history: the
+ * overdue shipment index, the (status, estimated_delivery) query it falls back to, and the full
+ * table scan the check used to do.
+ *
+ * Uses its own H2 database, never the application's, seeded with set-based inserts. A small set of
+ * shipments stays in transit and part of it is overdue; every check re-arms what it found, as the
+ * monitoring cycle does, so each invocation sees the same overdue shipments. Run with:
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.logistics.performance.OverdueShipmentBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class OverdueShipmentBenchmark {
+
+    private static final int IN_TRANSIT = 1_000;
+    private static final int OVERDUE = 50;
+
+    private static final String SHIPMENT_COLUMNS = "SELECT id, status, estimated_delivery FROM shipments ";
+
+    @Param({"100000", "1000000"})
+    public int historicalShipments;
+
+    private JdbcTemplate jdbcTemplate;
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+    private OverdueShipmentIndex overdueShipments;
+
+    @Setup
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:overdue-benchmark-" + historicalShipments + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+
+        jdbcTemplate.execute("DROP TABLE IF EXISTS shipments");
+        jdbcTemplate.execute("CREATE TABLE shipments (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "status VARCHAR(20) NOT NULL, estimated_delivery TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX idx_shipments_status_estimated_delivery ON shipments(status, estimated_delivery)");
+
+        // Delivered history, one per minute going back; then shipments in transit, the first OVERDUE already late
+        jdbcTemplate.update("INSERT INTO shipments (status, estimated_delivery) " +
+                "SELECT 'DELIVERED', DATEADD('MINUTE', 1440 - \"X\", CURRENT_TIMESTAMP) FROM SYSTEM_RANGE(1, ?)",
+                historicalShipments);
+        jdbcTemplate.update("INSERT INTO shipments (status, estimated_delivery) " +
+                "SELECT 'IN_TRANSIT', DATEADD('MINUTE', \"X\" - ?, CURRENT_TIMESTAMP) FROM SYSTEM_RANGE(1, ?)",
+                OVERDUE + 1, IN_TRANSIT);
+        jdbcTemplate.execute("ANALYZE");
+
+        overdueShipments = new OverdueShipmentIndex();
+        jdbcTemplate.query(SHIPMENT_COLUMNS + "WHERE status = 'IN_TRANSIT'",
+                (rs, rowNum) -> {
+                    rearm(rs.getLong("id"), rs.getTimestamp("estimated_delivery"));
+                    return null;
+                });
+    }
+
+    /**
+     * What a monitoring cycle does: pop the overdue entries, load those rows, re-arm them as they were
+     */
+    @Benchmark
+    public int overdueIndex() {
+        List<Long> overdueIds = overdueShipments.drainOverdue(LocalDateTime.now());
+        if (overdueIds.isEmpty()) {
+            return 0;
+        }
+        List<Object> rows = namedJdbcTemplate.query(SHIPMENT_COLUMNS + "WHERE id IN (:ids)",
+                Collections.singletonMap("ids", overdueIds),
+                (rs, rowNum) -> {
+                    rearm(rs.getLong("id"), rs.getTimestamp("estimated_delivery"));
+                    return rs.getLong("id");
+                });
+        return rows.size();
+    }
+
+    @Benchmark
+    public int indexedQuery() {
+        return jdbcTemplate.query(SHIPMENT_COLUMNS + "WHERE status = 'IN_TRANSIT' AND estimated_delivery < ? " +
+                        "ORDER BY estimated_delivery",
+                (rs, rowNum) -> rs.getLong("id"), Timestamp.valueOf(LocalDateTime.now())).size();
+    }
+
+    /**
+     * Reads every shipment and filters in memory, as the check did before the index
+     */
+    @Benchmark
+    public long fullScan() {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.query(SHIPMENT_COLUMNS,
+                (rs, rowNum) -> "IN_TRANSIT".equals(rs.getString("status")) &&
+                        rs.getTimestamp("estimated_delivery").toLocalDateTime().isBefore(now))
+                .stream().filter(overdue -> overdue).count();
+    }
+
+    private void rearm(long shipmentId, Timestamp estimatedDelivery) {
+        overdueShipments.schedule(shipmentId, ShipmentStatus.IN_TRANSIT, estimatedDelivery.toLocalDateTime());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(OverdueShipmentBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,463 @@
+package com.logistics.performance;
+
+import com.logistics.LogisticsAIAgentApplication;
+import com.logistics.config.OutboundSessionLimiter;
+import com.logistics.service.RealtimeSubscriptionRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Load test of the STOMP broker's outbound limits with many SockJS sessions, some of them deliberately slow.
+ *
+ * Starts the application on a random port with the test profile, runs one scenario against it and
+ * prints the result. Every simulated session opens its own socket to the SockJS WebSocket transport
+ * (/ws/{server}/{session}/websocket), sends CONNECT, waits for CONNECTED and subscribes to
+ * /topic/load-test. Slow sessions then stop reading and use a tiny receive buffer. One selector
+ * thread drains all other sessions and counts the MESSAGE frames each receives. Messages are
+ * published at a fixed rate, and the result shows what the fast sessions received next to what
+ * the limiter queued, dropped, conflated and disconnected.
+ *
+ * Kernel socket buffers on both ends absorb the first megabytes for a slow session before its
+ * writes block, so the limits only show once a run has sent more than that per session. Client and
+ * server share the JVM, so every session is two file descriptors here - raise ulimit -n to match.
+ * The scenario comes from system properties (defaults in brackets): loadtest.sessions [2000],
+ * loadtest.slow-percent [5], loadtest.duration-seconds [30], loadtest.messages-per-second [2] and
+ * loadtest.payload-bytes [8192]. Program arguments go to the application, e.g. to pick a policy:
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.logistics.performance.WebSocketLoadBenchmark \
+ *       -Dexec.args="--app.logistics.websocket.overflow-policy=DROP_OLDEST" -Dloadtest.sessions=500
+ */
+public class WebSocketLoadBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(WebSocketLoadBenchmark.class);
+
+    public static final String DESTINATION = "/topic/load-test";
+
+    private static final int SETUP_THREADS = 32;
+    private static final int SETUP_TIMEOUT_MS = 10_000;
+    private static final int SLOW_RECEIVE_BUFFER = 4096;
+    // A MESSAGE frame inside a SockJS array frame, where the newline is JSON-escaped
+    private static final byte[] MESSAGE_MARKER = "\"MESSAGE\\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final RealtimeSubscriptionRegistry subscriptions;
+    private final OutboundSessionLimiter sessionLimiter;
+    private final int port;
+
+    public WebSocketLoadBenchmark(ConfigurableApplicationContext context) {
+        this.messagingTemplate = context.getBean(SimpMessagingTemplate.class);
+        this.subscriptions = context.getBean(RealtimeSubscriptionRegistry.class);
+        this.sessionLimiter = context.getBean(OutboundSessionLimiter.class);
+        this.port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    public static void main(String[] args) {
+        String[] applicationArgs = Stream.concat(
+                Stream.of("--spring.profiles.active=test", "--server.port=0"), Arrays.stream(args))
+                .toArray(String[]::new);
+        try (ConfigurableApplicationContext context =
+                     new SpringApplicationBuilder(LogisticsAIAgentApplication.class).run(applicationArgs)) {
+            Map<String, Object> result = new WebSocketLoadBenchmark(context).run(
+                    Integer.getInteger("loadtest.sessions", 2000),
+                    Integer.getInteger("loadtest.slow-percent", 5),
+                    Integer.getInteger("loadtest.duration-seconds", 30),
+                    Integer.getInteger("loadtest.messages-per-second", 2),
+                    Integer.getInteger("loadtest.payload-bytes", 8192));
+            System.out.println(result);
+        }
+    }
+
+    public Map<String, Object> run(int sessions, int slowPercent, int durationSeconds, int messagesPerSecond,
+                                   int payloadBytes) {
+        int slowSessions = sessions * slowPercent / 100;
+        List<LoadSession> opened = Collections.synchronizedList(new ArrayList<>());
+        Map<String, Object> result = new LinkedHashMap<>();
+        Map<String, Object> before = sessionLimiter.getStats();
+        try {
+            long setupStart = System.nanoTime();
+            int failed = open(port, sessions, slowSessions, opened);
+            result.put("sessions", opened.size());
+            result.put("slowSessions", opened.stream().filter(session -> session.slow).count());
+            result.put("failedToOpen", failed);
+            result.put("setupMs", elapsedMs(setupStart));
+            result.put("subscribed", awaitSubscriptions(opened.size()));
+
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("padding", "x".repeat(Math.max(payloadBytes, 0)));
+            int messages = publishAndDrain(opened, payload, durationSeconds, messagesPerSecond);
+
+            result.put("published", messages);
+            result.put("fastSessions", deliveries(opened, messages));
+            result.put("broker", difference(before, sessionLimiter.getStats()));
+        } finally {
+            opened.forEach(LoadSession::close);
+        }
+        log.info("WebSocket load test: {}", result);
+        return result;
+    }
+
+    /**
+     * Open and subscribe all sessions in parallel. Returns how many could not be opened.
+     */
+    private int open(int port, int sessions, int slowSessions, List<LoadSession> opened) {
+        ExecutorService setup = Executors.newFixedThreadPool(SETUP_THREADS);
+        AtomicInteger failed = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>(sessions);
+            // Spread the slow sessions evenly over the run
+            int slowEvery = slowSessions > 0 ? sessions / slowSessions : 0;
+            for (int i = 0; i < sessions; i++) {
+                boolean slow = slowEvery > 0 && i % slowEvery == 0 && i / slowEvery < slowSessions;
+                int number = i;
+                futures.add(setup.submit(() -> {
+                    try {
+                        opened.add(LoadSession.open(port, number, slow));
+                    } catch (IOException e) {
+                        if (failed.incrementAndGet() == 1) {
+                            log.warn("Load test session failed to open: {}", e.getMessage());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Load test setup failed", e.getCause());
+        } finally {
+            setup.shutdownNow();
+        }
+        return failed.get();
+    }
+
+    /**
+     * Subscriptions are registered asynchronously - wait until the broker has them all
+     */
+    private int awaitSubscriptions(int expected) {
+        long deadline = System.currentTimeMillis() + SETUP_TIMEOUT_MS;
+        while (subscriptions.getSubscriberCount(DESTINATION) < expected && System.currentTimeMillis() < deadline) {
+            sleep(50);
+        }
+        return subscriptions.getSubscriberCount(DESTINATION);
+    }
+
+    /**
+     * Publish at the requested rate while the fast sessions are drained. Returns the number published.
+     */
+    private int publishAndDrain(List<LoadSession> sessions, Map<String, Object> payload, int durationSeconds,
+                                int messagesPerSecond) {
+        AtomicBoolean publishing = new AtomicBoolean(true);
+        Thread reader = new Thread(() -> drain(sessions, publishing), "WebSocket-LoadTest-Reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        int total = durationSeconds * messagesPerSecond;
+        long intervalNanos = 1_000_000_000L / Math.max(messagesPerSecond, 1);
+        long start = System.nanoTime();
+        int published = 0;
+        try {
+            for (; published < total; published++) {
+                long due = start + published * intervalNanos;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    sleep(wait / 1_000_000);
+                }
+                payload.put("sequence", published + 1);
+                messagingTemplate.convertAndSend(DESTINATION, payload);
+            }
+            // Let the outbound channel and the reader catch up with the last messages
+            sleep(2000);
+        } finally {
+            publishing.set(false);
+            try {
+                reader.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return published;
+    }
+
+    private void drain(List<LoadSession> sessions, AtomicBoolean publishing) {
+        try (Selector selector = Selector.open()) {
+            synchronized (sessions) {
+                for (LoadSession session : sessions) {
+                    if (!session.slow) {
+                        session.channel.configureBlocking(false);
+                        session.channel.register(selector, SelectionKey.OP_READ, session);
+                    }
+                }
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+            while (publishing.get()) {
+                if (selector.select(100) == 0) {
+                    continue;
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    LoadSession session = (LoadSession) key.attachment();
+                    buffer.clear();
+                    int read;
+                    try {
+                        read = session.channel.read(buffer);
+                    } catch (IOException e) {
+                        read = -1;
+                    }
+                    if (read < 0) {
+                        session.closedByServer = true;
+                        key.cancel();
+                        continue;
+                    }
+                    buffer.flip();
+                    session.scan(buffer);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Load test reader stopped: {}", e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> deliveries(List<LoadSession> sessions, int published) {
+        int count = 0;
+        int complete = 0;
+        int closed = 0;
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        long total = 0;
+        synchronized (sessions) {
+            for (LoadSession session : sessions) {
+                if (session.slow) {
+                    continue;
+                }
+                count++;
+                total += session.received;
+                min = Math.min(min, session.received);
+                max = Math.max(max, session.received);
+                if (session.received >= published) {
+                    complete++;
+                }
+                if (session.closedByServer) {
+                    closed++;
+                }
+            }
+        }
+        Map<String, Object> deliveries = new LinkedHashMap<>();
+        deliveries.put("sessions", count);
+        deliveries.put("receivedAll", complete);
+        deliveries.put("closedByServer", closed);
+        deliveries.put("minReceived", count > 0 ? min : 0);
+        deliveries.put("maxReceived", max);
+        deliveries.put("avgReceived", count > 0 ? Math.round(total * 10.0 / count) / 10.0 : 0);
+        return deliveries;
+    }
+
+    /**
+     * Limiter counters as of the end of the run, with the cumulative ones reduced to this run
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> difference(Map<String, Object> before, Map<String, Object> after) {
+        Map<String, Object> result = new LinkedHashMap<>(after);
+        for (String counter : List.of("sessionsOpened", "sentMessages", "sentBytes", "dropped", "conflated")) {
+            result.put(counter, ((Number) after.get(counter)).longValue() - ((Number) before.get(counter)).longValue());
+        }
+        Map<String, Object> disconnects = new LinkedHashMap<>((Map<String, Object>) after.get("disconnects"));
+        Map<String, Object> previous = (Map<String, Object>) before.get("disconnects");
+        disconnects.replaceAll((reason, count) -> ((Number) count).longValue() - ((Number) previous.get(reason)).longValue());
+        result.put("disconnects", disconnects);
+        return result;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static double elapsedMs(long startNanos) {
+        return Math.round((System.nanoTime() - startNanos) / 10_000.0) / 100.0;
+    }
+
+    /**
+     * One simulated browser: a SockJS session over a raw WebSocket, speaking just enough STOMP to subscribe
+     */
+    private static final class LoadSession {
+        private final SocketChannel channel;
+        private final boolean slow;
+        private volatile long received;
+        private volatile boolean closedByServer;
+        private int markerPosition;
+
+        private LoadSession(SocketChannel channel, boolean slow) {
+            this.channel = channel;
+            this.slow = slow;
+        }
+
+        static LoadSession open(int port, int number, boolean slow) throws IOException {
+            SocketChannel channel = SocketChannel.open();
+            try {
+                if (slow) {
+                    channel.setOption(StandardSocketOptions.SO_RCVBUF, SLOW_RECEIVE_BUFFER);
+                }
+                channel.socket().setSoTimeout(SETUP_TIMEOUT_MS);
+                channel.connect(new InetSocketAddress("127.0.0.1", port));
+                LoadSession session = new LoadSession(channel, slow);
+                session.handshake(port, number);
+                session.stomp("CONNECT\naccept-version:1.2\nheart-beat:0,0\n\n", "CONNECTED");
+                session.send("SUBSCRIBE\nid:sub-0\ndestination:" + DESTINATION + "\n\n");
+                return session;
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private void handshake(int port, int number) throws IOException {
+            byte[] key = new byte[16];
+            ThreadLocalRandom.current().nextBytes(key);
+            String request = "GET /ws/" + String.format("%03d", number % 1000) + "/" + UUID.randomUUID() +
+                    "/websocket HTTP/1.1\r\nHost: 127.0.0.1:" + port + "\r\nUpgrade: websocket\r\n" +
+                    "Connection: Upgrade\r\nSec-WebSocket-Key: " + Base64.getEncoder().encodeToString(key) +
+                    "\r\nSec-WebSocket-Version: 13\r\n\r\n";
+            write(ByteBuffer.wrap(request.getBytes(StandardCharsets.US_ASCII)));
+
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            while (!response.toString(StandardCharsets.US_ASCII).endsWith("\r\n\r\n")) {
+                response.write(readByte());
+            }
+            String status = response.toString(StandardCharsets.US_ASCII);
+            if (!status.startsWith("HTTP/1.1 101")) {
+                throw new IOException("WebSocket upgrade refused: " + status.lines().findFirst().orElse(""));
+            }
+            // SockJS open frame
+            if (!"o".equals(readFrame())) {
+                throw new IOException("SockJS session did not open");
+            }
+        }
+
+        /**
+         * Send a STOMP frame and read SockJS frames until one contains the expected command
+         */
+        private void stomp(String frame, String expected) throws IOException {
+            send(frame);
+            for (int frames = 0; frames < 10; frames++) {
+                String reply = readFrame();
+                if (reply.contains(expected)) {
+                    return;
+                }
+                if (reply.contains("ERROR")) {
+                    throw new IOException("STOMP error: " + reply);
+                }
+            }
+            throw new IOException("No " + expected + " frame");
+        }
+
+        /**
+         * Send one STOMP frame as a SockJS message array in a masked WebSocket text frame
+         */
+        private void send(String stompFrame) throws IOException {
+            String escaped = stompFrame.replace("\n", "\\n");
+            byte[] payload = ("[\"" + escaped + "\\u0000\"]").getBytes(StandardCharsets.UTF_8);
+            byte[] mask = new byte[4];
+            ThreadLocalRandom.current().nextBytes(mask);
+            ByteBuffer frame = ByteBuffer.allocate(payload.length + 8);
+            frame.put((byte) 0x81);
+            if (payload.length < 126) {
+                frame.put((byte) (0x80 | payload.length));
+            } else {
+                frame.put((byte) (0x80 | 126)).putShort((short) payload.length);
+            }
+            frame.put(mask);
+            for (int i = 0; i < payload.length; i++) {
+                frame.put((byte) (payload[i] ^ mask[i % 4]));
+            }
+            frame.flip();
+            write(frame);
+        }
+
+        /**
+         * Read one unmasked text frame from the server while still in blocking mode
+         */
+        private String readFrame() throws IOException {
+            readByte(); // FIN and opcode
+            long length = readByte() & 0x7f;
+            if (length == 126) {
+                length = (readByte() << 8) | readByte();
+            } else if (length == 127) {
+                length = 0;
+                for (int i = 0; i < 8; i++) {
+                    length = (length << 8) | readByte();
+                }
+            }
+            byte[] payload = new byte[(int) length];
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] = (byte) readByte();
+            }
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+
+        private int readByte() throws IOException {
+            int value = channel.socket().getInputStream().read();
+            if (value < 0) {
+                throw new IOException("Connection closed by the server");
+            }
+            return value;
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        /**
+         * Count MESSAGE frames in what was read - frames may be split across reads
+         */
+        private void scan(ByteBuffer buffer) {
+            long found = 0;
+            while (buffer.hasRemaining()) {
+                byte value = buffer.get();
+                if (value == MESSAGE_MARKER[markerPosition]) {
+                    if (++markerPosition == MESSAGE_MARKER.length) {
+                        found++;
+                        markerPosition = 0;
+                    }
+                } else {
+                    markerPosition = value == MESSAGE_MARKER[0] ? 1 : 0;
+                }
+            }
+            received += found;
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.logistics.service;
+
+import com.logistics.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for InventoryLedger - the packed available/unflushed word under contention and the
+ * write-behind flush and reconciliation against a fake products table
+ */
+class InventoryLedgerTest {
+
+    private static final long PRODUCT_ID = 1L;
+    private static final int INITIAL_STOCK = 10_000;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private InventoryLedger inventoryLedger;
+
+    // Stands in for the products table: applyStockDeltas and applyHeldDeltas write it, findStockLevels reads it
+    private final Map<Long, Integer> table = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> heldColumn = new ConcurrentHashMap<>();
+    private final AtomicBoolean failNextFlush = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(inventoryLedger, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(inventoryLedger, "inventoryMode", "ledger");
+
+        table.put(PRODUCT_ID, INITIAL_STOCK);
+        heldColumn.put(PRODUCT_ID, 0);
+        when(productRepository.findStockLevels()).thenAnswer(invocation -> stockLevels());
+        doAnswer(invocation -> {
+            if (failNextFlush.getAndSet(false)) {
+                throw new IllegalStateException("Database unavailable");
+            }
+            Map<Long, Integer> deltas = invocation.getArgument(0);
+            deltas.forEach((productId, delta) -> table.merge(productId, delta, Integer::sum));
+            return null;
+        }).when(productRepository).applyStockDeltas(anyMap());
+        doAnswer(invocation -> {
+            Map<Long, Integer> deltas = invocation.getArgument(0);
+            deltas.forEach((productId, delta) -> heldColumn.merge(productId, delta, Integer::sum));
+            return null;
+        }).when(productRepository).applyHeldDeltas(anyMap());
+        doAnswer(invocation -> {
+            Consumer<TransactionStatus> action = invocation.getArgument(0);
+            action.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        inventoryLedger.initialize();
+    }
+
+    @Test
+    void reserve_ConcurrentThreads_NeverOversells() throws Exception {
+        // Arrange
+        int threads = 16;
+        int attemptsPerThread = 1_000;
+        AtomicInteger accepted = new AtomicInteger();
+
+        // Act - 16 000 attempts of one unit against 10 000 units
+        runConcurrently(threads, () -> {
+            for (int i = 0; i < attemptsPerThread; i++) {
+                if (inventoryLedger.reserve(Map.of(PRODUCT_ID, 1)).isEmpty()) {
+                    accepted.incrementAndGet();
+                }
+            }
+        });
+        inventoryLedger.flush();
+
+        // Assert
+        assertEquals(INITIAL_STOCK, accepted.get());
+        assertEquals(0, inventoryLedger.getAvailable(PRODUCT_ID));
+        assertEquals(0, table.get(PRODUCT_ID));
+    }
+
+    @Test
+    void reserveAndRelease_ConcurrentWithFlushes_BothHalvesStayInStep() throws Exception {
+        // Arrange
+        int threads = 8;
+        int iterations = 5_000;
+        AtomicInteger netReserved = new AtomicInteger();
+        AtomicBoolean reserving = new AtomicBoolean(true);
+
+        ExecutorService flusher = Executors.newSingleThreadExecutor();
+        Future<?> flushing = flusher.submit(() -> {
+            while (reserving.get()) {
+                inventoryLedger.flush();
+            }
+        });
+
+        // Act - every thread reserves 3 units and gives 1 back, while the flush keeps taking the unflushed half
+        try {
+            runConcurrently(threads, () -> {
+                for (int i = 0; i < iterations; i++) {
+                    if (inventoryLedger.reserve(Map.of(PRODUCT_ID, 3)).isEmpty()) {
+                        inventoryLedger.release(Map.of(PRODUCT_ID, 1));
+                        netReserved.addAndGet(2);
+                    }
+                }
+            });
+        } finally {
+            reserving.set(false);
+            flushing.get(10, TimeUnit.SECONDS);
+            flusher.shutdown();
+        }
+        inventoryLedger.flush();
+
+        // Assert - nothing lost between the halves: the table caught up with exactly what was reserved
+        int expected = INITIAL_STOCK - netReserved.get();
+        assertTrue(expected >= 0);
+        assertEquals(expected, inventoryLedger.getAvailable(PRODUCT_ID));
+        assertEquals(expected, table.get(PRODUCT_ID));
+    }
+
+    @Test
+    void flush_DatabaseFails_DeltasAreRetriedOnNextFlush() {
+        // Arrange
+        inventoryLedger.reserve(Map.of(PRODUCT_ID, 40));
+        failNextFlush.set(true);
+
+        // Act
+        inventoryLedger.flush();
+        inventoryLedger.reserve(Map.of(PRODUCT_ID, 2));
+        inventoryLedger.flush();
+
+        // Assert
+        assertEquals(INITIAL_STOCK - 42, table.get(PRODUCT_ID));
+        assertEquals(INITIAL_STOCK - 42, inventoryLedger.getAvailable(PRODUCT_ID));
+    }
+
+    @Test
+    void reconcile_StockChangedInDatabase_LedgerAdoptsDrift() {
+        // Arrange - a restock written straight to the table while a reservation is still unflushed
+        inventoryLedger.reserve(Map.of(PRODUCT_ID, 100));
+        table.merge(PRODUCT_ID, 500, Integer::sum);
+
+        // Act
+        inventoryLedger.reconcile();
+
+        // Assert
+        assertEquals(INITIAL_STOCK + 500 - 100, table.get(PRODUCT_ID));
+        assertEquals(INITIAL_STOCK + 500 - 100, inventoryLedger.getAvailable(PRODUCT_ID));
+    }
+
+    @Test
+    void reconcile_NoDrift_LeavesLedgerUnchanged() {
+        // Arrange
+        inventoryLedger.reserve(Map.of(PRODUCT_ID, 7));
+
+        // Act
+        inventoryLedger.reconcile();
+
+        // Assert
+        assertEquals(INITIAL_STOCK - 7, inventoryLedger.getAvailable(PRODUCT_ID));
+        assertEquals(0L, inventoryLedger.getStats().get("reconciledUnits"));
+    }
+
+    @Test
+    void hold_HeldStockIsNotAvailableToOrders() {
+        // Arrange
+        assertTrue(inventoryLedger.hold(PRODUCT_ID, INITIAL_STOCK - 5));
+
+        // Act
+        List<Long> refused = inventoryLedger.reserve(Map.of(PRODUCT_ID, 6));
+        inventoryLedger.releaseHeld(Map.of(PRODUCT_ID, 100));
+        List<Long> accepted = inventoryLedger.reserve(Map.of(PRODUCT_ID, 6));
+
+        // Assert
+        assertEquals(List.of(PRODUCT_ID), refused);
+        assertTrue(accepted.isEmpty());
+        assertEquals(INITIAL_STOCK - 105, heldColumn.get(PRODUCT_ID));
+        assertEquals(99, inventoryLedger.getAvailable(PRODUCT_ID));
+    }
+
+    @Test
+    void takeHeld_ThenReconcile_StockLeavesWithFlushAndNoDrift() {
+        // Arrange
+        inventoryLedger.hold(PRODUCT_ID, 30);
+
+        // Act
+        inventoryLedger.takeHeld(Map.of(PRODUCT_ID, 30));
+        inventoryLedger.reconcile();
+
+        // Assert
+        assertEquals(INITIAL_STOCK - 30, table.get(PRODUCT_ID));
+        assertEquals(0, heldColumn.get(PRODUCT_ID));
+        assertEquals(INITIAL_STOCK - 30, inventoryLedger.getAvailable(PRODUCT_ID));
+        assertEquals(0L, inventoryLedger.getStats().get("reconciledUnits"));
+    }
+
+    @Test
+    void hold_SlowHeldWrite_DoesNotBlockOtherHoldsOrFlushes() throws Exception {
+        // Arrange - the first held_quantity write stalls in the database
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean stallNext = new AtomicBoolean(true);
+        doAnswer(invocation -> {
+            if (stallNext.getAndSet(false)) {
+                writing.countDown();
+                release.await(10, TimeUnit.SECONDS);
+            }
+            Map<Long, Integer> deltas = invocation.getArgument(0);
+            deltas.forEach((productId, delta) -> heldColumn.merge(productId, delta, Integer::sum));
+            return null;
+        }).when(productRepository).applyHeldDeltas(anyMap());
+
+        ExecutorService holder = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> stalled = holder.submit(() -> inventoryLedger.hold(PRODUCT_ID, 5));
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+            // Act - another hold and a flush while the first write is still open
+            assertTrue(inventoryLedger.hold(PRODUCT_ID, 3));
+            inventoryLedger.reserve(Map.of(PRODUCT_ID, 2));
+            inventoryLedger.flush();
+            release.countDown();
+
+            // Assert
+            assertTrue(stalled.get(5, TimeUnit.SECONDS));
+            assertEquals(8, heldColumn.get(PRODUCT_ID));
+            assertEquals(INITIAL_STOCK - 2, table.get(PRODUCT_ID));
+            assertEquals(INITIAL_STOCK - 10, inventoryLedger.getAvailable(PRODUCT_ID));
+        } finally {
+            release.countDown();
+            holder.shutdownNow();
+        }
+    }
+
+    private List<ProductRepository.StockLevel> stockLevels() {
+        List<ProductRepository.StockLevel> levels = new ArrayList<>();
+        table.forEach((id, stock) -> levels.add(new ProductRepository.StockLevel() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Integer getStockQuantity() {
+                return stock;
+            }
+
+            @Override
+            public Integer getHeldQuantity() {
+                return heldColumn.getOrDefault(id, 0);
+            }
+        }));
+        return levels;
+    }
+
+    private void runConcurrently(int threads, Runnable work) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    work.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
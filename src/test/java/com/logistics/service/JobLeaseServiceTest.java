@@ -0,0 +1,71 @@
+package com.logistics.service;
+
+import com.logistics.repository.JobLeaseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.net.InetAddress;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JobLeaseService's node id - it names the leases and order work claims a restarted
+ * node takes back, so it must not change between runs
+ */
+class JobLeaseServiceTest {
+
+    @Mock
+    private JobLeaseRepository leaseRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private JobLeaseService jobLeases;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(jobLeases, "configuredNodeId", "");
+    }
+
+    @Test
+    void initialize_ClusterWithoutNodeId_FailsFast() {
+        // Arrange
+        ReflectionTestUtils.setField(jobLeases, "enabled", true);
+
+        // Act & Assert
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> jobLeases.initialize());
+        assertTrue(e.getMessage().contains("app.logistics.cluster.node-id"));
+    }
+
+    @Test
+    void initialize_ConfiguredNodeId_IsUsed() {
+        // Arrange
+        ReflectionTestUtils.setField(jobLeases, "enabled", true);
+        ReflectionTestUtils.setField(jobLeases, "configuredNodeId", "node-a");
+
+        // Act
+        jobLeases.initialize();
+
+        // Assert
+        assertEquals("node-a", jobLeases.getNodeId());
+    }
+
+    @Test
+    void initialize_SingleNodeWithoutNodeId_UsesTheHostName() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(jobLeases, "enabled", false);
+
+        // Act
+        jobLeases.initialize();
+
+        // Assert - the same on every restart, unlike pid@host
+        assertEquals(InetAddress.getLocalHost().getHostName(), jobLeases.getNodeId());
+    }
+}
@@ -0,0 +1,178 @@
+package com.logistics.service;
+
+import com.logistics.model.Order;
+import com.logistics.model.OrderStatus;
+import com.logistics.model.Shipment;
+import com.logistics.repository.OrderRepository;
+import com.logistics.util.FulfillmentResult;
+import com.logistics.util.InventoryCheckResult;
+import com.logistics.util.InventoryReservationResult;
+import com.logistics.util.ValidationResult;
+import com.logistics.util.WarehouseInstructions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class LogisticsAIAgentTest {
+
+    @Mock
+    private OrderValidationAgent orderValidationAgent;
+
+    @Mock
+    private FulfillmentAgent fulfillmentAgent;
+
+    @Mock
+    private WarehouseAgent warehouseAgent;
+
+    @Mock
+    private ShippingAgent shippingAgent;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private RealtimeNotificationService notificationService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private OrderPipeline pipeline;
+
+    @Mock
+    private InventoryLedger inventoryLedger;
+
+    @Mock
+    private SoftReservationService softReservations;
+
+    @Mock
+    private AdmissionControlService admissionControl;
+
+    @Mock
+    private PipelineLatencyMetrics latencyMetrics;
+
+    @Mock
+    private PerformanceMonitoringService performanceMonitoring;
+
+    @Mock
+    private StatusCountService statusCounts;
+
+    @Mock
+    private OrderDeadlineIndex deadlineIndex;
+
+    @InjectMocks
+    private LogisticsAIAgent logisticsAIAgent;
+
+    // One real stage stands in for all four, so the workflow runs as it does in the pipeline
+    private PipelineStage stage;
+
+    @BeforeEach
+    void setUp() {
+        stage = new PipelineStage("test", 1, 1, 10, new SimpleMeterRegistry());
+        when(pipeline.validation()).thenReturn(stage);
+        when(pipeline.fulfillment()).thenReturn(stage);
+        when(pipeline.warehouse()).thenReturn(stage);
+        when(pipeline.shipping()).thenReturn(stage);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(mock(TransactionStatus.class)));
+        when(orderRepository.updateStatus(any(), any(), any())).thenReturn(1);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        stage.shutdown(5);
+    }
+
+    @Test
+    void processOrder_ValidOrder_CompletesSuccessfully() throws Exception {
+        // Arrange
+        Order order = newOrder();
+        Shipment shipment = new Shipment(order, "TRUCK-01", "DRIVER-01", LocalDateTime.now().plusHours(4));
+        shipment.setId(7L);
+        shipment.setEstimatedDelivery(LocalDateTime.now().plusDays(1));
+
+        when(orderValidationAgent.validateOrder(any(Order.class)))
+            .thenReturn(new ValidationResult(true, "Valid"));
+        when(fulfillmentAgent.checkAndReserve(order)).thenReturn(new InventoryReservationResult(
+                new InventoryCheckResult(true, "Available"), new FulfillmentResult(true, "Reserved")));
+        when(warehouseAgent.generatePickingInstructions(order))
+            .thenReturn(new WarehouseInstructions("PICKING INSTRUCTIONS", false, 5));
+        when(shippingAgent.scheduleShipment(any(Order.class), any(WarehouseInstructions.class))).thenReturn(shipment);
+
+        // Act
+        CompletableFuture<String> result = logisticsAIAgent.processOrder(order);
+
+        // Assert
+        assertThat(result.get(5, TimeUnit.SECONDS)).contains("processed successfully");
+        verify(orderValidationAgent).validateOrder(order);
+        verify(orderRepository).updateStatus(1L, OrderStatus.RECEIVED, OrderStatus.FULFILLED);
+        verify(orderRepository).updateStatus(1L, OrderStatus.FULFILLED, OrderStatus.READY_FOR_PICKUP);
+    }
+
+    @Test
+    void processOrder_InvalidOrder_CancelsOrder() throws Exception {
+        // Arrange
+        Order order = newOrder();
+
+        when(orderValidationAgent.validateOrder(any(Order.class)))
+            .thenReturn(new ValidationResult(false, "Invalid delivery date"));
+
+        // Act
+        CompletableFuture<String> result = logisticsAIAgent.processOrder(order);
+
+        // Assert
+        String resultMessage = result.get(5, TimeUnit.SECONDS);
+        assertThat(resultMessage).contains("cancelled");
+        verify(orderRepository).updateStatus(1L, OrderStatus.RECEIVED, OrderStatus.CANCELLED);
+        verify(notificationService).sendNotification(eq("TEST_CLIENT"), anyString());
+    }
+
+    @Test
+    void processOrder_OrderMovedOnElsewhere_LeavesItAlone() throws Exception {
+        // Arrange - another run already wrote a later status
+        Order order = newOrder();
+
+        when(orderValidationAgent.validateOrder(any(Order.class)))
+            .thenReturn(new ValidationResult(true, "Valid"));
+        when(fulfillmentAgent.checkAndReserve(order)).thenReturn(new InventoryReservationResult(
+                new InventoryCheckResult(true, "Available"), new FulfillmentResult(true, "Reserved")));
+        when(orderRepository.updateStatus(any(), any(), any())).thenReturn(0);
+
+        // Act
+        String resultMessage = logisticsAIAgent.processOrder(order).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(resultMessage).contains("superseded");
+        verify(softReservations, never()).releaseForOrder(any());
+        verify(notificationService, never()).sendNotification(any(), any());
+        verifyNoInteractions(statusCounts);
+    }
+
+    private static Order newOrder() {
+        Order order = new Order();
+        order.setId(1L);
+        order.setClientId("TEST_CLIENT");
+        order.setStatus(OrderStatus.RECEIVED);
+        return order;
+    }
+}
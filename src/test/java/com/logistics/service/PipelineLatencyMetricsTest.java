@@ -0,0 +1,55 @@
+package com.logistics.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for PipelineLatencyMetrics - each reader of getStats sees its own interval
+ */
+class PipelineLatencyMetricsTest {
+
+    private final PipelineLatencyMetrics latencyMetrics = new PipelineLatencyMetrics();
+
+    @Test
+    void getStats_TwoReaders_OneReadDoesNotResetTheOthersInterval() {
+        // Arrange - both readers have read once, then three more timings arrive
+        latencyMetrics.record(PipelineLatencyMetrics.VALIDATION, TimeUnit.MILLISECONDS.toNanos(5));
+        latencyMetrics.getStats("current");
+        latencyMetrics.getStats("latency");
+        for (int i = 0; i < 3; i++) {
+            latencyMetrics.record(PipelineLatencyMetrics.VALIDATION, TimeUnit.MILLISECONDS.toNanos(8));
+        }
+
+        // Act
+        Map<String, Object> current = latencyMetrics.getStats("current");
+        Map<String, Object> latency = latencyMetrics.getStats("latency");
+        Map<String, Object> currentAgain = latencyMetrics.getStats("current");
+
+        // Assert
+        assertEquals(3L, count(current, "interval"));
+        assertEquals(3L, count(latency, "interval"));
+        assertEquals(0L, count(currentAgain, "interval"));
+        assertEquals(4L, count(currentAgain, "cumulative"));
+    }
+
+    @Test
+    void getStats_FirstRead_IntervalRunsFromStartup() {
+        latencyMetrics.record(PipelineLatencyMetrics.VALIDATION, TimeUnit.MILLISECONDS.toNanos(5));
+        latencyMetrics.record(PipelineLatencyMetrics.VALIDATION, TimeUnit.MILLISECONDS.toNanos(6));
+
+        Map<String, Object> stats = latencyMetrics.getStats("current");
+
+        assertEquals(2L, count(stats, "interval"));
+        assertEquals(2L, count(stats, "cumulative"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object count(Map<String, Object> stats, String window) {
+        Map<String, Object> stage = (Map<String, Object>) stats.get(PipelineLatencyMetrics.VALIDATION);
+        return ((Map<String, Object>) stage.get(window)).get("count");
+    }
+}
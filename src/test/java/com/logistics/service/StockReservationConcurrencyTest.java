@@ -0,0 +1,121 @@
+package com.logistics.service;
+
+import com.logistics.model.Order;
+import com.logistics.model.OrderItem;
+import com.logistics.model.Product;
+import com.logistics.repository.ProductRepository;
+import com.logistics.util.InventoryReservationResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrency tests for the guarded stock decrement - many threads reserving the same SKU must never oversell
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class StockReservationConcurrencyTest {
+
+    private static final int THREADS = 50;
+    private static final int INITIAL_STOCK = 300;
+    private static final int QUANTITY = 10;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private FulfillmentAgent fulfillmentAgent;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = productRepository.save(new Product("OVERSELL-" + System.nanoTime(), "Oversell Test Tile",
+                "TILES", 10.0, 0.5, INITIAL_STOCK, "Z-99-99"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteById(product.getId());
+    }
+
+    @Test
+    void decrementStockIfAvailable_ConcurrentThreads_NeverOversells() throws Exception {
+        // Act
+        List<Boolean> outcomes = runConcurrently(() ->
+                productRepository.decrementStockIfAvailable(Map.of(product.getId(), QUANTITY)).isEmpty());
+
+        // Assert
+        assertNoOversell(outcomes);
+    }
+
+    @Test
+    void checkAndReserve_ConcurrentOrders_NeverOversells() throws Exception {
+        // Act
+        List<Boolean> outcomes = runConcurrently(() -> {
+            Order order = new Order("CLIENT-OVERSELL", "Oversell Client", "Test Address",
+                    LocalDateTime.now().plusDays(2));
+            order.addItem(new OrderItem(product, QUANTITY, 25.99));
+            InventoryReservationResult result = fulfillmentAgent.checkAndReserve(order);
+            return result.isReserved();
+        });
+
+        // Assert
+        assertNoOversell(outcomes);
+    }
+
+    /**
+     * Release all threads at once and collect whether each attempt was accepted
+     */
+    private List<Boolean> runConcurrently(Callable<Boolean> attempt) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return attempt.call();
+                }));
+            }
+            start.countDown();
+
+            List<Boolean> outcomes = new ArrayList<>();
+            for (Future<Boolean> future : futures) {
+                outcomes.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void assertNoOversell(List<Boolean> outcomes) {
+        long accepted = outcomes.stream().filter(reserved -> reserved).count();
+        long refused = outcomes.stream().filter(reserved -> !reserved).count();
+
+        int stock = productRepository.findById(product.getId()).orElseThrow().getStockQuantity();
+
+        assertEquals(THREADS, accepted + refused, "Every attempt is either accepted or refused");
+        assertTrue(stock >= 0, "Stock must never go below zero but was " + stock);
+        assertEquals(INITIAL_STOCK / QUANTITY, accepted, "Exactly the available stock is reserved");
+        assertEquals(INITIAL_STOCK - accepted * QUANTITY, stock, "Stock matches the accepted reservations");
+    }
+}
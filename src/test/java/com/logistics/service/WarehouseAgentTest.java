@@ -3,25 +3,42 @@ package com.logistics.service;
 import com.logistics.model.Order;
 import com.logistics.model.OrderItem;
 import com.logistics.model.Product;
+import com.logistics.util.CatalogEntry;
 import com.logistics.util.WarehouseInstructions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
 
 /**
  * Unit tests for WarehouseAgent
  */
 class WarehouseAgentTest {
 
+    @Mock
+    private ProductCatalogService productCatalog;
+
+    @InjectMocks
     private WarehouseAgent warehouseAgent;
+
     private Order testOrder;
 
+    // Stands in for the catalog the agent reads product details from
+    private final Map<Long, CatalogEntry> catalog = new HashMap<>();
+
     @BeforeEach
     void setUp() {
-        warehouseAgent = new WarehouseAgent();
+        MockitoAnnotations.openMocks(this);
+        when(productCatalog.getById(anyLong())).thenAnswer(invocation -> catalog.get(invocation.<Long>getArgument(0)));
         
         testOrder = new Order("CLIENT-001", "Test Client", "Test Address", LocalDateTime.now().plusDays(2));
         testOrder.setId(1L);
@@ -30,8 +47,8 @@ class WarehouseAgentTest {
         Product tileProduct = new Product("TILE-001", "Ceramic Tiles", "TILES", 25.0, 0.5, 100, "A-01-01");
         Product cementProduct = new Product("CONC-001", "Portland Cement", "CONSTRUCTION_MATERIALS", 50.0, 0.4, 100, "B-02-01");
         
-        testOrder.addItem(new OrderItem(tileProduct, 10, 25.99));
-        testOrder.addItem(new OrderItem(cementProduct, 5, 15.50));
+        testOrder.addItem(new OrderItem(inCatalog(1L, tileProduct), 10, 25.99));
+        testOrder.addItem(new OrderItem(inCatalog(2L, cementProduct), 5, 15.50));
     }
 
     @Test
@@ -53,7 +70,7 @@ class WarehouseAgentTest {
     void generatePickingInstructions_HeavyItems_RequiresSpecialHandling() {
         // Arrange - Add very heavy item
         Product heavyProduct = new Product("HEAVY-001", "Heavy Steel", "CONSTRUCTION_MATERIALS", 2000.0, 2.0, 10, "B-02-02");
-        testOrder.addItem(new OrderItem(heavyProduct, 1, 500.0));
+        testOrder.addItem(new OrderItem(inCatalog(3L, heavyProduct), 1, 500.0));
 
         // Act
         WarehouseInstructions instructions = warehouseAgent.generatePickingInstructions(testOrder);
@@ -73,4 +90,10 @@ class WarehouseAgentTest {
         assertTrue(instructions.getInstructions().contains("FRAGILE"));
         assertTrue(instructions.getInstructions().contains("Handle with care"));
     }
-}
\ No newline at end of file
+
+    private Product inCatalog(Long id, Product product) {
+        product.setId(id);
+        catalog.put(id, CatalogEntry.of(product));
+        return product;
+    }
+}
@@ -0,0 +1,153 @@
+package com.logistics.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LatencyHistogram - the log-linear bucket index, bucket upper bounds and the
+ * percentile, mean and interval arithmetic on snapshots
+ */
+class LatencyHistogramTest {
+
+    private static final long MAX_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    @Test
+    void indexOf_BelowSixtyFourMicros_EveryValueHasItsOwnBucket() {
+        for (long micros = 0; micros < 64; micros++) {
+            assertEquals(micros, LatencyHistogram.indexOf(micros));
+            assertEquals(micros, LatencyHistogram.upperBoundOf((int) micros));
+        }
+    }
+
+    @Test
+    void indexOf_AcrossPowersOfTwo_BucketsAreContiguous() {
+        // Each bucket starts one past the previous bucket's upper bound - no gaps, no overlaps
+        int lastIndex = LatencyHistogram.indexOf(MAX_MICROS);
+        for (int index = 0; index < lastIndex; index++) {
+            long nextLowest = LatencyHistogram.upperBoundOf(index) + 1;
+            assertEquals(index + 1, LatencyHistogram.indexOf(nextLowest), "bucket after " + index);
+            assertEquals(index, LatencyHistogram.indexOf(nextLowest - 1), "bucket " + index);
+        }
+    }
+
+    @Test
+    void upperBoundOf_AnyValue_IsAtLeastTheValueAndWithinThreePercent() {
+        for (long micros = 1; micros <= MAX_MICROS; micros = micros * 3 / 2 + 1) {
+            for (long value : new long[] {micros, micros + 1, Long.highestOneBit(micros), Long.highestOneBit(micros) - 1}) {
+                long upperBound = LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(value));
+                assertTrue(upperBound >= value, "upper bound " + upperBound + " below " + value);
+                assertTrue(upperBound - value <= value / 32, "upper bound " + upperBound + " too far above " + value);
+            }
+        }
+    }
+
+    @Test
+    void snapshot_OneToHundredMillis_ReportsPercentilesMeanAndMax() {
+        // Arrange
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        // Act
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        // Assert - percentiles report the bucket's upper bound, so never below the true value
+        assertEquals(100, snapshot.getCount());
+        assertEquals(50.5, snapshot.getMeanMillis(), 1e-9);
+        assertEquals(100.0, snapshot.getMaxMillis(), 1e-9);
+        assertBetween(1.0, 1.0 * 1.032, snapshot.getPercentileMillis(0.0));
+        assertBetween(50.0, 50.0 * 1.032, snapshot.getPercentileMillis(50.0));
+        assertBetween(90.0, 90.0 * 1.032, snapshot.getPercentileMillis(90.0));
+        assertEquals(100.0, snapshot.getPercentileMillis(99.0), 1e-9, "capped at the recorded maximum");
+        assertEquals(100.0, snapshot.getPercentileMillis(100.0), 1e-9);
+    }
+
+    @Test
+    void snapshot_NothingRecorded_ReportsZeros() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0.0, snapshot.getMeanMillis());
+        assertEquals(0.0, snapshot.getMaxMillis());
+        assertEquals(0.0, snapshot.getPercentileMillis(99.0));
+    }
+
+    @Test
+    void record_OutOfRangeValues_AreClamped() {
+        // Arrange
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // Act
+        histogram.record(-5);
+        histogram.record(TimeUnit.HOURS.toNanos(2));
+
+        // Assert
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0.0, snapshot.getPercentileMillis(50.0));
+        assertEquals(TimeUnit.HOURS.toMillis(1), snapshot.getMaxMillis(), 1e-9);
+        assertEquals(TimeUnit.HOURS.toMillis(1), snapshot.getPercentileMillis(100.0), 1e-9);
+    }
+
+    @Test
+    void snapshotAndReset_StartsANewInterval() {
+        // Arrange
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(40));
+
+        // Act
+        LatencyHistogram.Snapshot first = histogram.snapshotAndReset();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(2));
+        LatencyHistogram.Snapshot second = histogram.snapshotAndReset();
+
+        // Assert
+        assertEquals(1, first.getCount());
+        assertEquals(40.0, first.getMaxMillis(), 1e-9);
+        assertEquals(1, second.getCount());
+        assertEquals(2.0, second.getMaxMillis(), 1e-9);
+        assertEquals(0, histogram.snapshot().getCount());
+    }
+
+    @Test
+    void minus_EarlierSnapshot_ReportsOnlyWhatWasRecordedBetween() {
+        // Arrange - a slow outlier before the earlier snapshot, fast values after it
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(500));
+        LatencyHistogram.Snapshot earlier = histogram.snapshot();
+        for (int i = 0; i < 10; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        // Act
+        LatencyHistogram.Snapshot interval = histogram.snapshot().minus(earlier);
+
+        // Assert - the outlier stays out of the interval, and the later snapshot is untouched
+        assertEquals(10, interval.getCount());
+        assertEquals(10.0, interval.getMeanMillis(), 1e-9);
+        assertBetween(10.0, 10.0 * 1.032, interval.getPercentileMillis(99.0));
+        assertBetween(10.0, 10.0 * 1.032, interval.getMaxMillis());
+        assertEquals(11, histogram.snapshot().getCount());
+        assertEquals(500.0, histogram.snapshot().getMaxMillis(), 1e-9);
+    }
+
+    @Test
+    void minus_NothingRecordedBetween_ReportsZeros() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(7));
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        LatencyHistogram.Snapshot interval = histogram.snapshot().minus(snapshot);
+
+        assertEquals(0, interval.getCount());
+        assertEquals(0.0, interval.getMaxMillis());
+        assertEquals(0.0, interval.getPercentileMillis(50.0));
+    }
+
+    private static void assertBetween(double low, double high, double actual) {
+        assertTrue(actual >= low && actual <= high, actual + " not in [" + low + ", " + high + "]");
+    }
+}